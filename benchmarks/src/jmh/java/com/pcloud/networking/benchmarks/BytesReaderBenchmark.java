@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.benchmarks;
+
+import com.pcloud.networking.protocol.ArrayBytesReader;
+import com.pcloud.networking.protocol.BytesReader;
+import com.pcloud.networking.protocol.ProtocolResponseReader;
+import com.pcloud.networking.protocol.ResponseDecoder;
+import com.pcloud.networking.protocol.ResponseTape;
+import com.pcloud.networking.protocol.StringPool;
+import com.pcloud.networking.protocol.ValueReader;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the raw {@link BytesReader}, {@link ArrayBytesReader} and {@link ResponseTape} throughput
+ * over {@code listfolder} responses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BytesReaderBenchmark {
+
+    private static final int STRING_POOL_CAPACITY = 4096;
+    private static final int CHUNK_SIZE = 8192;
+
+    @Param({"100", "10000"})
+    int entries;
+
+    private Buffer response;
+    private byte[] responseBytes;
+    private StringPool stringPool;
+
+    @Setup
+    public void setUp() throws IOException {
+        response = ListFolderPayload.toBuffer(ListFolderPayload.create(entries));
+        responseBytes = response.clone().readByteArray();
+        stringPool = new StringPool(STRING_POOL_CAPACITY);
+    }
+
+    @Benchmark
+    public void readValues(Blackhole blackhole) throws IOException {
+        // Buffer.clone() shares the underlying segments, the payload is not copied.
+        ProtocolResponseReader reader = new BytesReader(response.clone());
+        reader.beginResponse();
+        ListFolderPayload.consumeValue(reader, blackhole);
+        reader.endResponse();
+    }
+
+    @Benchmark
+    public void readValueEvents(Blackhole blackhole) throws IOException {
+        ProtocolResponseReader reader = new BytesReader(response.clone());
+        reader.beginResponse();
+        reader.readValue(ListFolderPayload.consumingHandler(blackhole));
+        reader.endResponse();
+    }
+
+    @Benchmark
+    public void skipValues() throws IOException {
+        ProtocolResponseReader reader = new BytesReader(response.clone());
+        reader.beginResponse();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            reader.readString();
+            reader.skipValue();
+        }
+        reader.endObject();
+        reader.endResponse();
+    }
+
+    @Benchmark
+    public void decodeValuesInChunks(Blackhole blackhole) throws IOException {
+        // Feeds the payload the way a non-blocking channel would hand it over.
+        ResponseDecoder decoder = new ResponseDecoder();
+        for (int offset = 0; offset < responseBytes.length; offset += CHUNK_SIZE) {
+            decoder.feed(responseBytes, offset, Math.min(CHUNK_SIZE, responseBytes.length - offset));
+            for (ResponseDecoder.Event event = decoder.next();
+                 event != ResponseDecoder.Event.NEED_INPUT; event = decoder.next()) {
+                blackhole.consume(event);
+            }
+        }
+    }
+
+    @Benchmark
+    public void readValuesFromArray(Blackhole blackhole) throws IOException {
+        ProtocolResponseReader reader = new ArrayBytesReader(responseBytes);
+        reader.beginResponse();
+        ListFolderPayload.consumeValue(reader, blackhole);
+        reader.endResponse();
+    }
+
+    @Benchmark
+    public void readValueEventsFromArray(Blackhole blackhole) throws IOException {
+        ProtocolResponseReader reader = new ArrayBytesReader(responseBytes);
+        reader.beginResponse();
+        reader.readValue(ListFolderPayload.consumingHandler(blackhole));
+        reader.endResponse();
+    }
+
+    @Benchmark
+    public Object readValueTree() throws IOException {
+        ProtocolResponseReader reader = new ArrayBytesReader(responseBytes);
+        reader.beginResponse();
+        return new ValueReader().read(reader);
+    }
+
+    @Benchmark
+    public Object readValueTreeFromEvents() throws IOException {
+        ProtocolResponseReader reader = new ArrayBytesReader(responseBytes);
+        reader.beginResponse();
+        return new ValueReader().readStreaming(reader);
+    }
+
+    @Benchmark
+    public void readValuesWithStringPool(Blackhole blackhole) throws IOException {
+        ProtocolResponseReader reader = new ArrayBytesReader(responseBytes, 0, responseBytes.length, stringPool);
+        reader.beginResponse();
+        ListFolderPayload.consumeValue(reader, blackhole);
+        reader.endResponse();
+    }
+
+    @Benchmark
+    public void skipValuesFromArray() throws IOException {
+        ProtocolResponseReader reader = new ArrayBytesReader(responseBytes);
+        reader.beginResponse();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            reader.readString();
+            reader.skipValue();
+        }
+        reader.endObject();
+        reader.endResponse();
+    }
+
+    @Benchmark
+    public String lookupLastEntryWithReader() throws IOException {
+        ProtocolResponseReader reader = new ArrayBytesReader(responseBytes);
+        reader.beginResponse();
+        reader.beginObject();
+        while (!reader.readString().equals("metadata")) {
+            reader.skipValue();
+        }
+        reader.beginObject();
+        while (!reader.readString().equals("contents")) {
+            reader.skipValue();
+        }
+        reader.beginArray();
+        for (int index = 0; index < entries - 1; index++) {
+            reader.skipValue();
+        }
+        reader.beginObject();
+        while (!reader.readString().equals("name")) {
+            reader.skipValue();
+        }
+        return reader.readString();
+    }
+
+    @Benchmark
+    public String lookupLastEntryWithTape() throws IOException {
+        ResponseTape tape = ResponseTape.scan(responseBytes);
+        int contents = tape.get(tape.get(tape.root(), "metadata"), "contents");
+        return tape.readString(tape.get(tape.element(contents, entries - 1), "name"));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.benchmarks;
+
+import com.pcloud.networking.protocol.BytesWriter;
+import com.pcloud.networking.protocol.ProtocolRequestWriter;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of writing whole requests with {@link BytesWriter}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BytesWriterBenchmark {
+
+    private static final long FOLDER_ID = 12345678L;
+    private static final int PARAMETER_COUNT = 50;
+
+    private Buffer sink;
+
+    @Setup
+    public void setUp() {
+        sink = new Buffer();
+    }
+
+    @Benchmark
+    public long listFolderRequest() throws IOException {
+        ProtocolRequestWriter writer = new BytesWriter(sink);
+        writer.beginRequest()
+                .writeMethodName("listfolder")
+                .writeName("auth").writeValue("Ec7QkEjFUnzZ7Z8W2YH1qLgxY7gGvTe09AH0i7V3kX")
+                .writeName("folderid").writeValue(FOLDER_ID)
+                .writeName("recursive").writeValue(true)
+                .writeName("timeformat").writeValue("timestamp")
+                .writeName("id").writeValue(0L)
+                .endRequest();
+        long size = sink.size();
+        sink.clear();
+        return size;
+    }
+
+    @Benchmark
+    public long manyParametersRequest() throws IOException {
+        ProtocolRequestWriter writer = new BytesWriter(sink);
+        writer.beginRequest()
+                .writeMethodName("diff");
+        for (int index = 0; index < PARAMETER_COUNT; index++) {
+            writer.writeName("param" + index).writeValue(index);
+        }
+        writer.endRequest();
+        long size = sink.size();
+        sink.clear();
+        return size;
+    }
+}
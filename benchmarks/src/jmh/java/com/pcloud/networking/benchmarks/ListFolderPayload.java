@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.benchmarks;
+
+import com.pcloud.networking.protocol.ProtocolEventHandler;
+import com.pcloud.networking.protocol.ProtocolReader;
+import com.pcloud.networking.protocol.ResponseBytesWriter;
+import okio.Buffer;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+
+/**
+ * Builds {@code listfolder}-like response payloads used across the benchmarks.
+ * <p>
+ * The generated trees mimic the shape of a real {@code listfolder} response: a root folder
+ * metadata object with a {@code contents} array of file and folder entries.
+ */
+public final class ListFolderPayload {
+
+    private static final long BASE_TIMESTAMP = 1577836800L;
+    private static final long BASE_FILE_ID = 1000000000L;
+    private static final long FOLDER_ID = 12345678L;
+    private static final long USER_ID = 987654L;
+    private static final int FOLDER_EVERY = 10;
+    private static final int HASH_MULTIPLIER = 31;
+
+    private ListFolderPayload() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Create a complete {@code listfolder} response with the given number of entries.
+     *
+     * @param entries the number of entries in the {@code contents} array.
+     * @return a new {@link ResponseBytesWriter} holding the response
+     */
+    public static ResponseBytesWriter create(int entries) {
+        return create(entries, -1);
+    }
+
+    /**
+     * Create a complete {@code listfolder} response with the given number of entries
+     * and a trailing {@code id} value as returned for multi-call requests.
+     *
+     * @param entries the number of entries in the {@code contents} array.
+     * @param id      the response id, ignored if negative
+     * @return a new {@link ResponseBytesWriter} holding the response
+     */
+    public static ResponseBytesWriter create(int entries, long id) {
+        ResponseBytesWriter writer = new ResponseBytesWriter()
+                .beginObject()
+                .writeValue("result", 0L)
+                .writeKey("metadata")
+                .beginObject();
+        writeFolderFields(writer, "Documents", FOLDER_ID, 0L);
+        writer.writeKey("contents").beginArray();
+        for (int index = 0; index < entries; index++) {
+            writer.beginObject();
+            if (index % FOLDER_EVERY == 0) {
+                writeFolderFields(writer, "Folder " + index, FOLDER_ID + index + 1, FOLDER_ID);
+            } else {
+                writeFileFields(writer, index);
+            }
+            writer.endObject();
+        }
+        writer.endArray()
+                .endObject();
+        if (id >= 0) {
+            writer.writeValue("id", id);
+        }
+        return writer.endObject();
+    }
+
+    /**
+     * Write the response into a {@link Buffer} which can be cheaply cloned by each benchmark invocation.
+     *
+     * @param writer the response to be written
+     * @return a {@link Buffer} with the response bytes
+     * @throws IOException on a write error
+     */
+    public static Buffer toBuffer(ResponseBytesWriter writer) throws IOException {
+        Buffer buffer = new Buffer();
+        writer.writeTo(buffer);
+        return buffer;
+    }
+
+    /**
+     * Read every value from the reader, handing it to the provided {@link Blackhole}.
+     *
+     * @param reader    the reader to consume
+     * @param blackhole the sink for any read values
+     * @throws IOException on a read error
+     */
+    public static void consumeValue(ProtocolReader reader, Blackhole blackhole) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    blackhole.consume(reader.readString());
+                    consumeValue(reader, blackhole);
+                }
+                reader.endObject();
+                break;
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    consumeValue(reader, blackhole);
+                }
+                reader.endArray();
+                break;
+            case STRING:
+                blackhole.consume(reader.readString());
+                break;
+            case NUMBER:
+                blackhole.consume(reader.readNumber());
+                break;
+            case BOOLEAN:
+                blackhole.consume(reader.readBoolean());
+                break;
+            default:
+                reader.skipValue();
+        }
+    }
+
+    public static ProtocolEventHandler consumingHandler(final Blackhole blackhole) {
+        return new ProtocolEventHandler() {
+            @Override
+            public void onBeginObject() {
+            }
+
+            @Override
+            public void onEndObject() {
+            }
+
+            @Override
+            public void onBeginArray() {
+            }
+
+            @Override
+            public void onEndArray() {
+            }
+
+            @Override
+            public void onKey(String name) {
+                blackhole.consume(name);
+            }
+
+            @Override
+            public void onString(String value) {
+                blackhole.consume(value);
+            }
+
+            @Override
+            public void onNumber(long value) {
+                blackhole.consume(value);
+            }
+
+            @Override
+            public void onBoolean(boolean value) {
+                blackhole.consume(value);
+            }
+        };
+    }
+
+    private static void writeFolderFields(ResponseBytesWriter writer, String name, long folderId, long parentId) {
+        writer.writeValue("name", name)
+                .writeValue("created", "Wed, 01 Jan 2020 00:00:00 +0000")
+                .writeValue("modified", "Wed, 01 Jan 2020 00:00:00 +0000")
+                .writeValue("ismine", true)
+                .writeValue("isshared", false)
+                .writeValue("isfolder", true)
+                .writeValue("thumb", false)
+                .writeValue("icon", "folder")
+                .writeValue("id", "d" + folderId)
+                .writeValue("folderid", folderId)
+                .writeValue("parentfolderid", parentId)
+                .writeValue("userid", USER_ID);
+    }
+
+    private static void writeFileFields(ResponseBytesWriter writer, int index) {
+        long fileId = BASE_FILE_ID + index;
+        writer.writeValue("name", "IMG_" + index + ".jpg")
+                .writeValue("created", "Wed, 01 Jan 2020 00:00:00 +0000")
+                .writeValue("modified", "Thu, 02 Jan 2020 00:00:00 +0000")
+                .writeValue("ismine", true)
+                .writeValue("isshared", false)
+                .writeValue("isfolder", false)
+                .writeValue("thumb", true)
+                .writeValue("icon", "image")
+                .writeValue("category", 1L)
+                .writeValue("contenttype", "image/jpeg")
+                .writeValue("id", "f" + fileId)
+                .writeValue("fileid", fileId)
+                .writeValue("hash", fileId * HASH_MULTIPLIER + BASE_TIMESTAMP)
+                .writeValue("size", BASE_TIMESTAMP + index)
+                .writeValue("comments", 0L)
+                .writeValue("parentfolderid", FOLDER_ID)
+                .writeValue("userid", USER_ID);
+    }
+}
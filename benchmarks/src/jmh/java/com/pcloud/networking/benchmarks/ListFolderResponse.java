@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.benchmarks;
+
+import com.pcloud.networking.serialization.ParameterValue;
+
+import java.util.List;
+
+/**
+ * A {@code listfolder} response model used by the serialization benchmarks.
+ */
+public class ListFolderResponse {
+
+    @ParameterValue("result")
+    private long resultCode;
+
+    @ParameterValue("metadata")
+    private Metadata metadata;
+
+    public long getResultCode() {
+        return resultCode;
+    }
+
+    public Metadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * A file or folder entry.
+     */
+    public static class Metadata {
+
+        @ParameterValue
+        private String name;
+
+        @ParameterValue
+        private String created;
+
+        @ParameterValue
+        private String modified;
+
+        @ParameterValue
+        private boolean ismine;
+
+        @ParameterValue
+        private boolean isshared;
+
+        @ParameterValue("isfolder")
+        private boolean isFolder;
+
+        @ParameterValue
+        private boolean thumb;
+
+        @ParameterValue
+        private String icon;
+
+        @ParameterValue
+        private long category;
+
+        @ParameterValue
+        private String contenttype;
+
+        @ParameterValue
+        private String id;
+
+        @ParameterValue
+        private long fileid;
+
+        @ParameterValue
+        private long folderid;
+
+        @ParameterValue("parentfolderid")
+        private long parentFolderId;
+
+        @ParameterValue
+        private long hash;
+
+        @ParameterValue
+        private long size;
+
+        @ParameterValue
+        private long userid;
+
+        @ParameterValue("contents")
+        private List<Metadata> contents;
+
+        public String getName() {
+            return name;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public boolean isFolder() {
+            return isFolder;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public List<Metadata> getContents() {
+            return contents;
+        }
+    }
+}
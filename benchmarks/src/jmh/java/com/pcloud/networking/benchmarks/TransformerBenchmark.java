@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.benchmarks;
+
+import com.pcloud.networking.protocol.BytesReader;
+import com.pcloud.networking.protocol.FieldProjection;
+import com.pcloud.networking.protocol.ProtocolResponseReader;
+import com.pcloud.networking.serialization.Transformer;
+import com.pcloud.networking.serialization.TypeAdapter;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Transformer} deserialization of {@code listfolder} responses into model classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformerBenchmark {
+
+    @Param({"100", "10000"})
+    int entries;
+
+    private Buffer response;
+    private TypeAdapter<ListFolderResponse> typeAdapter;
+    private FieldProjection projection;
+
+    @Setup
+    public void setUp() throws IOException {
+        response = ListFolderPayload.toBuffer(ListFolderPayload.create(entries));
+        typeAdapter = Transformer.create().build().getTypeAdapter(ListFolderResponse.class);
+        projection = FieldProjection.of("result", "metadata.name",
+                "metadata.contents.name", "metadata.contents.fileid");
+    }
+
+    @Benchmark
+    public ListFolderResponse deserialize() throws IOException {
+        ProtocolResponseReader reader = new BytesReader(response.clone());
+        reader.beginResponse();
+        ListFolderResponse result = typeAdapter.deserialize(reader);
+        reader.endResponse();
+        return result;
+    }
+
+    @Benchmark
+    public ListFolderResponse deserializeProjected() throws IOException {
+        ProtocolResponseReader reader = new BytesReader(response.clone());
+        reader.beginResponse();
+        ListFolderResponse result = typeAdapter.deserialize(projection.apply(reader));
+        reader.endResponse();
+        return result;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.client;
+
+import com.pcloud.networking.benchmarks.ListFolderPayload;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link RealMultiCall} request writing, response buffering and response id routing.
+ * <p>
+ * The benchmark lives in the client package to be able to drive a {@link RealMultiCall}
+ * over an in-memory {@link Connection}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RealMultiCallBenchmark {
+
+    @Param({"10", "100"})
+    int requestCount;
+
+    @Param({"10", "1000"})
+    int entries;
+
+    private List<Request> requests;
+    private Buffer responses;
+    private InMemoryConnection connection;
+    private ConnectionProvider connectionProvider;
+
+    @Setup
+    public void setUp() throws IOException {
+        requests = new ArrayList<>(requestCount);
+        responses = new Buffer();
+        // Respond in reverse order to exercise the id routing.
+        for (int index = requestCount - 1; index >= 0; index--) {
+            ListFolderPayload.create(entries, index).writeTo(responses);
+        }
+        for (int index = 0; index < requestCount; index++) {
+            requests.add(Request.create()
+                    .methodName("listfolder")
+                    .body(RequestBody.fromValues(Collections.singletonMap("folderid", index)))
+                    .build());
+        }
+        connection = new InMemoryConnection();
+        connectionProvider = new InMemoryConnectionProvider(connection);
+    }
+
+    @Benchmark
+    public MultiResponse execute() throws IOException {
+        connection.reset(responses);
+        MultiCall call = new RealMultiCall(requests, null,
+                Collections.<RequestInterceptor>emptyList(), connectionProvider, null, null);
+        MultiResponse response = call.execute();
+        response.close();
+        return response;
+    }
+
+    private static class InMemoryConnectionProvider extends ConnectionProvider {
+
+        private final Connection connection;
+
+        InMemoryConnectionProvider(Connection connection) {
+            super(new ConnectionPool(), null, null, null, null, null, null, 0, 0, 0, false);
+            this.connection = connection;
+        }
+
+        @Override
+        Connection obtainConnection() {
+            return connection;
+        }
+
+        @Override
+        Connection obtainConnection(Endpoint endpoint) {
+            return connection;
+        }
+
+        @Override
+        void recycleConnection(Connection connection) {
+        }
+    }
+
+    private static class InMemoryConnection implements Connection {
+
+        private final Buffer source = new Buffer();
+        private final Buffer sink = new Buffer();
+
+        void reset(Buffer responses) {
+            source.clear();
+            sink.clear();
+            // Buffer.clone() shares the underlying segments, the payload is not copied.
+            source.write(responses.clone(), responses.size());
+        }
+
+        @Override
+        public Endpoint endpoint() {
+            return Endpoint.DEFAULT;
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+
+        @Override
+        public BufferedSink sink() {
+            return sink;
+        }
+
+        @Override
+        public InputStream inputStream() {
+            return source.inputStream();
+        }
+
+        @Override
+        public OutputStream outputStream() {
+            return sink.outputStream();
+        }
+
+        @Override
+        public void readTimeout(long timeout, TimeUnit timeUnit) {
+        }
+
+        @Override
+        public void writeTimeout(long timeout, TimeUnit timeUnit) {
+        }
+
+        @Override
+        public int readTimeout() {
+            return NO_TIMEOUT;
+        }
+
+        @Override
+        public int writeTimeout() {
+            return NO_TIMEOUT;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
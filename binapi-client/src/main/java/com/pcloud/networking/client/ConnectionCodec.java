@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.client;
+
+import com.pcloud.networking.protocol.BytesReader;
+import com.pcloud.networking.protocol.BytesWriter;
+import com.pcloud.networking.protocol.ProtocolRequestWriter;
+import com.pcloud.networking.protocol.ProtocolResponseReader;
+import com.pcloud.networking.protocol.StringPool;
+import okio.BufferedSource;
+import okio.Okio;
+
+import java.io.IOException;
+
+/**
+ * The writer and reader of a {@linkplain Connection}, reused by all calls made over it.
+ * <p>
+ * A connection is used by a single call at a time and its codec is handed over along with it,
+ * so no synchronization is needed. Pooled connections keep their codec between calls.
+ */
+class ConnectionCodec {
+
+    private static final int RESPONSE_LENGTH = 4;
+
+    private final Connection connection;
+    private final StringPool stringPool;
+    private final BytesWriter writer;
+
+    private AutoCloseSource responseSource;
+    private BufferedSource bufferedResponseSource;
+    private BytesReader reader;
+
+    private ConnectionCodec(Connection connection, StringPool stringPool) throws IOException {
+        this.connection = connection;
+        this.stringPool = stringPool;
+        this.writer = new BytesWriter(connection.sink());
+    }
+
+    static ConnectionCodec of(Connection connection, StringPool stringPool) throws IOException {
+        if (!(connection instanceof RealConnection)) {
+            return new ConnectionCodec(connection, stringPool);
+        }
+
+        // Connections can be shared by clients with different string pools.
+        RealConnection realConnection = (RealConnection) connection;
+        ConnectionCodec codec = realConnection.codec();
+        if (codec == null || codec.stringPool != stringPool) {
+            codec = new ConnectionCodec(connection, stringPool);
+            realConnection.codec(codec);
+        }
+        return codec;
+    }
+
+    ProtocolRequestWriter writer() {
+        // Drop anything left over from a request that failed to be written.
+        writer.reset();
+        return writer;
+    }
+
+    BufferedSource responseSource(long responseLength) throws IOException {
+        if (bufferedResponseSource == null || !bufferedResponseSource.isOpen()) {
+            responseSource = new AutoCloseSource(connection, responseLength);
+            bufferedResponseSource = Okio.buffer(responseSource);
+        } else {
+            responseSource.reset(responseLength + RESPONSE_LENGTH);
+        }
+        return bufferedResponseSource;
+    }
+
+    ProtocolResponseReader reader(BufferedSource source) {
+        if (reader == null) {
+            reader = new SelfEndingBytesReader(source, stringPool);
+        } else {
+            reader.reset(source);
+        }
+        return reader;
+    }
+
+    private static class AutoCloseSource extends FixedLengthSource {
+        private final Connection connection;
+
+        AutoCloseSource(Connection connection, long responseLength) throws IOException {
+            super(connection.source(), responseLength + RESPONSE_LENGTH);
+            this.connection = connection;
+        }
+
+        @Override
+        protected void exhausted(boolean reuseSource) {
+            if (!reuseSource) {
+                connection.close();
+            }
+        }
+    }
+}
@@ -17,56 +17,78 @@
 package com.pcloud.networking.client;
 
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.Deque;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * An implementation to provide a pool structure for connections.
  * <p>
  * {@linkplain Connection} objects are time and resource consuming to create and should be reused as much as possible.
  * This implementation keeps and provides instances of {@linkplain Connection} to be reused.
+ * <p>
+ * Idle connections are kept in a separate lock-free stack for each {@linkplain Endpoint},
+ * the most recently recycled connection to an endpoint is the first one to be reused.
+ * <p>
+ * The pool can also limit the number of connections open to each {@linkplain Endpoint}, idle or in use.
+ * Once the limit is reached, calls wait in arrival order for a connection to be recycled or closed,
+ * up to a configurable timeout. Idle connections are evicted by a scheduler shared by all pools.
+ * <p>
+ * Connections can be opened ahead of time with {@linkplain #prewarm(Endpoint, int)} and the pool can keep
+ * a minimum number of idle connections to each endpoint it has been used for, so that calls do not have to wait
+ * for a connection to be established. New connections are opened in the background,
+ * with the settings of the last {@linkplain PCloudAPIClient} created with the pool.
  */
 @SuppressWarnings("WeakerAccess")
 public class ConnectionPool {
 
-    private static final long NANOS_TO_MILLIS_COEF = 1000000L;
     private static final int MAX_IDLE_CONN_COUNT = 5;
     private static final long MAX_KEEP_ALIVE_DURATION = 5;
+    private static final long DEFAULT_ACQUIRE_TIMEOUT = 30;
+    private static final long MIN_FILL_RETRY_DELAY_NS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_FILL_RETRY_DELAY_NS = TimeUnit.MINUTES.toNanos(1);
 
     private final int maxIdleConnections;
     private final long keepAliveDurationNs;
+    private final int maxConnectionsPerEndpoint;
+    private final long acquireTimeoutNs;
+    private final int minIdleConnections;
+    private volatile ConnectionOpener connectionOpener;
     private final Runnable cleanupRunnable = new Runnable() {
-        @SuppressWarnings("BusyWait")
         @Override
         public void run() {
-            while (true) {
-                long waitNanos = cleanup(System.nanoTime());
-                if (waitNanos == -1L) return;
-                if (waitNanos > 0L) {
-                    long waitMillis = waitNanos / NANOS_TO_MILLIS_COEF;
-                    waitNanos -= (waitMillis * NANOS_TO_MILLIS_COEF);
-                    try {
-                        Thread.sleep(waitMillis, (int) waitNanos);
-                    } catch (InterruptedException ignored) {
-                        // Do nothing
-                    }
-                }
+            long waitNanos;
+            do {
+                waitNanos = cleanup(System.nanoTime());
+            } while (waitNanos == 0L);
+            if (waitNanos > 0L) {
+                Connections.EVICTION_SCHEDULER.schedule(this, waitNanos, TimeUnit.NANOSECONDS);
             }
         }
     };
 
-    private final Set<RealConnection> connections = new LinkedHashSet<>();
-    private boolean cleanupRunning;
+    // Entries are never removed once created, so that a concurrent recycle() cannot push onto a detached stack.
+    private final ConcurrentMap<Endpoint, EndpointConnections> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicBoolean cleanupRunning = new AtomicBoolean();
 
     /**
      * Create a {@linkplain ConnectionPool} with default parameters.
      * <p>
      * By default the pool will be created with 5 maximum idle connections and it will keep
      * idle connections alive for 5 minutes before disposing of them.
+     * The number of connections per endpoint is not limited.
      */
     public ConnectionPool() {
         this(MAX_IDLE_CONN_COUNT, MAX_KEEP_ALIVE_DURATION, TimeUnit.MINUTES);
@@ -74,6 +96,8 @@ public class ConnectionPool {
 
     /**
      * Create an instance of {@linkplain ConnectionPool} with your own parameters
+     * <p>
+     * The number of connections per endpoint is not limited.
      *
      * @param maxIdleConnections The maximum number of idle connections the pool should keep.
      *                           When the pool has this number of connections any more idle connections will be discarded.
@@ -82,6 +106,48 @@ public class ConnectionPool {
      * @throws IllegalArgumentException on less than 0 for number arguments and on null for the {@linkplain TimeUnit} argument
      */
     public ConnectionPool(int maxIdleConnections, long keepAliveDuration, TimeUnit timeUnit) {
+        this(maxIdleConnections, keepAliveDuration, timeUnit,
+                Integer.MAX_VALUE, DEFAULT_ACQUIRE_TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Create an instance of {@linkplain ConnectionPool} limiting the number of connections per endpoint
+     *
+     * @param maxIdleConnections        The maximum number of idle connections the pool should keep.
+     *                                  When the pool has this number of connections any more idle connections will be discarded.
+     * @param keepAliveDuration         The amount of time the pool should keep the connections alive if they are idling.
+     * @param timeUnit                  The unit of time in which you provided the time duration parameter.
+     * @param maxConnectionsPerEndpoint The maximum number of connections, idle or in use, open to a single endpoint.
+     * @param acquireTimeout            The maximum amount of time to wait for a connection once the limit is reached.
+     * @param acquireTimeoutUnit        The unit of time in which you provided the acquire timeout parameter.
+     * @throws IllegalArgumentException on less than 0 for number arguments, on less than 1 for the maximum
+     *                                  number of connections per endpoint and on null for the {@linkplain TimeUnit} arguments
+     */
+    public ConnectionPool(int maxIdleConnections, long keepAliveDuration, TimeUnit timeUnit,
+                          int maxConnectionsPerEndpoint, long acquireTimeout, TimeUnit acquireTimeoutUnit) {
+        this(maxIdleConnections, keepAliveDuration, timeUnit, maxConnectionsPerEndpoint, acquireTimeout,
+                acquireTimeoutUnit, 0);
+    }
+
+    /**
+     * Create an instance of {@linkplain ConnectionPool} keeping a minimum number of idle connections per endpoint
+     *
+     * @param maxIdleConnections        The maximum number of idle connections the pool should keep.
+     *                                  When the pool has this number of connections any more idle connections will be discarded.
+     * @param keepAliveDuration         The amount of time the pool should keep the connections alive if they are idling.
+     * @param timeUnit                  The unit of time in which you provided the time duration parameter.
+     * @param maxConnectionsPerEndpoint The maximum number of connections, idle or in use, open to a single endpoint.
+     * @param acquireTimeout            The maximum amount of time to wait for a connection once the limit is reached.
+     * @param acquireTimeoutUnit        The unit of time in which you provided the acquire timeout parameter.
+     * @param minIdleConnections        The number of idle connections the pool should keep open to each endpoint
+     *                                  it has been used for, replacing the ones that get used or evicted.
+     * @throws IllegalArgumentException on less than 0 for number arguments, on less than 1 for the maximum
+     *                                  number of connections per endpoint, on more minimum idle connections than
+     *                                  allowed by the other limits and on null for the {@linkplain TimeUnit} arguments
+     */
+    public ConnectionPool(int maxIdleConnections, long keepAliveDuration, TimeUnit timeUnit,
+                          int maxConnectionsPerEndpoint, long acquireTimeout, TimeUnit acquireTimeoutUnit,
+                          int minIdleConnections) {
         if (maxIdleConnections < 0) {
             throw new IllegalArgumentException("maxIdleConnections < 0: " + maxIdleConnections);
         }
@@ -95,8 +161,28 @@ public class ConnectionPool {
             throw new IllegalArgumentException("time unit is null.");
         }
 
+        if (maxConnectionsPerEndpoint < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerEndpoint < 1: " + maxConnectionsPerEndpoint);
+        }
+
+        if (acquireTimeout < 0) {
+            throw new IllegalArgumentException("acquireTimeout < 0: " + acquireTimeout);
+        }
+
+        if (acquireTimeoutUnit == null) {
+            throw new IllegalArgumentException("acquire timeout unit is null.");
+        }
+
+        if (minIdleConnections < 0 || minIdleConnections > Math.min(maxIdleConnections, maxConnectionsPerEndpoint)) {
+            throw new IllegalArgumentException("minIdleConnections must be between 0 and " +
+                    "the maximum idle connections and connections per endpoint: " + minIdleConnections);
+        }
+
         this.maxIdleConnections = maxIdleConnections;
         this.keepAliveDurationNs = timeUnit.toNanos(keepAliveDuration);
+        this.maxConnectionsPerEndpoint = maxConnectionsPerEndpoint;
+        this.acquireTimeoutNs = acquireTimeoutUnit.toNanos(acquireTimeout);
+        this.minIdleConnections = minIdleConnections;
     }
 
     /**
@@ -108,44 +194,115 @@ public class ConnectionPool {
         return maxIdleConnections;
     }
 
+    /**
+     * Returns the maximum number of connections, idle or in use, that can be open to a single endpoint
+     *
+     * @return The maximum number of connections per endpoint
+     */
+    public int maxConnectionsPerEndpoint() {
+        return maxConnectionsPerEndpoint;
+    }
+
+    /**
+     * Returns the number of idle connections the pool keeps open to each endpoint it has been used for
+     *
+     * @return The minimum number of idle connections per endpoint
+     */
+    public int minIdleConnections() {
+        return minIdleConnections;
+    }
+
+    /**
+     * Open connections to an endpoint in the background, ahead of the calls that will need them
+     * <p>
+     * Opens connections until the pool has {@code count} idle connections to the endpoint, without exceeding
+     * the maximum number of idle connections or connections per endpoint. Failing to open a connection stops
+     * the pre-warming. The minimum number of idle connections is restored again after a delay.
+     *
+     * @param endpoint The {@linkplain Endpoint} to open connections to
+     * @param count    The number of idle connections to the endpoint the pool should have
+     * @throws IllegalArgumentException on a null {@linkplain Endpoint} or a negative count argument
+     * @throws IllegalStateException    if the pool has not been set to a {@linkplain PCloudAPIClient} yet
+     */
+    public void prewarm(Endpoint endpoint, int count) {
+        if (endpoint == null) {
+            throw new IllegalArgumentException("Endpoint cannot be null.");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("count < 0: " + count);
+        }
+        if (connectionOpener == null) {
+            throw new IllegalStateException("The pool has not been set to a client yet.");
+        }
+        endpointConnections(endpoint).fill(Math.min(count, maxIdleConnections));
+    }
+
     /**
      * Returns the number of connections in the pool
      *
      * @return The number of connections in the pool
      */
-    public synchronized int connectionCount() {
-        return connections.size();
+    public int connectionCount() {
+        return connectionCount.get();
     }
 
     /**
      * Returns a recycled connection to {@code address}, or null if no such connection exists.
      */
-    synchronized RealConnection get(Endpoint endpoint) {
-
-        /*
-         * Iterate the connections in reverse order
-         * and take the first connection having the same endpoint.
-         * */
-        Iterator<RealConnection> iterator = connections.iterator();
-        while (iterator.hasNext()) {
-            RealConnection connection = iterator.next();
-            if (connection.endpoint().equals(endpoint)) {
-                iterator.remove();
+    RealConnection get(Endpoint endpoint) {
+        EndpointConnections endpointConnections = connections.get(endpoint);
+        return endpointConnections != null ? endpointConnections.pollIdle(true) : null;
+    }
+
+    /**
+     * Returns a recycled connection to {@code endpoint}, or null if a new connection can be opened.
+     * <p>
+     * A null result reserves a place for the new connection, which has to be passed to
+     * {@link #opened(RealConnection)}. If the endpoint has reached its connection limit,
+     * waits for a connection to be recycled or closed, after the calls already waiting.
+     *
+     * @throws InterruptedIOException if interrupted or if no connection becomes available in time
+     */
+    RealConnection acquire(Endpoint endpoint) throws InterruptedIOException {
+        EndpointConnections endpointConnections = endpointConnections(endpoint);
+        if (endpointConnections.waiterCount == 0) {
+            // Nobody is waiting, take a connection without queuing.
+            RealConnection connection = endpointConnections.pollIdle(true);
+            if (connection != null || endpointConnections.tryReserve()) {
                 return connection;
             }
         }
+        return endpointConnections.await();
+    }
 
-        return null;
+    /**
+     * Set the opener of the connections created by the pool itself.
+     */
+    void connectionOpener(ConnectionOpener connectionOpener) {
+        this.connectionOpener = connectionOpener;
     }
 
-    synchronized void recycle(RealConnection connection) {
-        if (maxIdleConnections > 0) {
-            if (!cleanupRunning) {
-                cleanupRunning = true;
-                Connections.CLEANUP_THREAD_EXECUTOR.execute(cleanupRunnable);
+    /**
+     * Keep track of a new connection opened after a call to {@link #acquire(Endpoint)},
+     * its place is released once the connection gets closed.
+     */
+    void opened(RealConnection connection) {
+        final EndpointConnections endpointConnections = endpointConnections(connection.endpoint());
+        connection.onClose(new Runnable() {
+            @Override
+            public void run() {
+                endpointConnections.release();
             }
+        });
+    }
+
+    void recycle(RealConnection connection) {
+        if (maxIdleConnections > 0) {
             connection.setIdle(System.nanoTime());
-            connections.add(connection);
+            endpointConnections(connection.endpoint()).pushIdle(connection);
+            if (cleanupRunning.compareAndSet(false, true)) {
+                Connections.EVICTION_SCHEDULER.execute(cleanupRunnable);
+            }
         } else {
             // No idle connections allowed, close immediately.
             connection.close(false);
@@ -157,11 +314,10 @@ public class ConnectionPool {
      */
     public void evictAll() {
         List<RealConnection> evictedConnections = new ArrayList<>();
-        synchronized (this) {
-            for (Iterator<RealConnection> i = connections.iterator(); i.hasNext(); ) {
-                RealConnection connection = i.next();
+        for (EndpointConnections endpointConnections : connections.values()) {
+            RealConnection connection;
+            while ((connection = endpointConnections.pollIdle(false)) != null) {
                 evictedConnections.add(connection);
-                i.remove();
             }
         }
 
@@ -171,42 +327,263 @@ public class ConnectionPool {
     }
 
     long cleanup(long now) {
-        int idleConnectionCount;
         RealConnection longestIdleConnection = null;
+        EndpointConnections longestIdleConnections = null;
         long longestIdleDurationNs = Long.MIN_VALUE;
 
         // Find either a connection to evict, or the time that the next eviction is due.
-        synchronized (this) {
-            idleConnectionCount = connections.size();
-            for (RealConnection connection : connections) {
-                // If the connection is ready to be evicted, we're done.
+        // Connections are pushed on top of their stacks, the longest idle one in each stack is the last.
+        int idleConnectionCount = connectionCount.get();
+        for (EndpointConnections endpointConnections : connections.values()) {
+            RealConnection connection = endpointConnections.idle.peekLast();
+            if (connection != null) {
                 long idleDurationNs = now - connection.idleAtNanos();
                 if (idleDurationNs > longestIdleDurationNs) {
                     longestIdleDurationNs = idleDurationNs;
                     longestIdleConnection = connection;
+                    longestIdleConnections = endpointConnections;
                 }
             }
+        }
 
-            if (longestIdleDurationNs >= this.keepAliveDurationNs ||
-                    idleConnectionCount > this.maxIdleConnections) {
-                // We've found a connection to evict. Remove it from the list, then close it below (outside
-                // of the synchronized block).
-                connections.remove(longestIdleConnection);
-            } else if (idleConnectionCount > 0) {
-                // A connection will be ready to evict soon.
-                return keepAliveDurationNs - longestIdleDurationNs;
-            } else {
-                // No connections, idle or in use.
-                cleanupRunning = false;
+        if (longestIdleConnection != null && (longestIdleDurationNs >= this.keepAliveDurationNs ||
+                idleConnectionCount > this.maxIdleConnections)) {
+            // We've found a connection to evict. Remove it from its stack, unless it has been reused meanwhile.
+            // Only the raw socket is closed on the scheduler thread, as closing an SSLSocket may block.
+            if (longestIdleConnections.removeIdle(longestIdleConnection)) {
+                longestIdleConnection.close(false);
+                // Replace expired connections, but not ones over the idle limit, they would only be evicted again.
+                if (longestIdleDurationNs >= this.keepAliveDurationNs) {
+                    longestIdleConnections.fillToMinimum();
+                }
+            }
+        } else if (longestIdleConnection != null) {
+            // A connection will be ready to evict soon.
+            return keepAliveDurationNs - longestIdleDurationNs;
+        } else {
+            // No connections, idle or in use.
+            cleanupRunning.set(false);
+            if (connectionCount.get() == 0 || !cleanupRunning.compareAndSet(false, true)) {
                 return -1L;
             }
-        }
-
-        if (longestIdleConnection != null) {
-            longestIdleConnection.close(true);
+            // A connection was recycled while stopping, keep running.
         }
 
         // Cleanup again immediately.
         return 0L;
     }
+
+    private EndpointConnections endpointConnections(Endpoint endpoint) {
+        EndpointConnections endpointConnections = connections.get(endpoint);
+        if (endpointConnections == null) {
+            EndpointConnections newConnections = new EndpointConnections(endpoint);
+            endpointConnections = connections.putIfAbsent(endpoint, newConnections);
+            if (endpointConnections == null) {
+                endpointConnections = newConnections;
+            }
+        }
+        return endpointConnections;
+    }
+
+    /*
+     * Opens new connections to an endpoint, used for the connections created by the pool itself.
+     * The opened connection has to be passed to opened() before being connected.
+     */
+    interface ConnectionOpener {
+        RealConnection open(Endpoint endpoint) throws IOException;
+    }
+
+    /*
+     * The idle connections to an endpoint and the number of its open connections.
+     * Idle connections are taken and returned without locking, the lock is only used
+     * by callers waiting for the connection limit and by the ones waking them up.
+     * Only the longest waiting caller may take a connection, the others wait for it to leave the queue.
+     */
+    private final class EndpointConnections implements Runnable {
+        final Endpoint endpoint;
+        final Deque<RealConnection> idle = new ConcurrentLinkedDeque<>();
+        final AtomicInteger idleCount = new AtomicInteger();
+        final AtomicInteger openCount = new AtomicInteger();
+        final AtomicInteger requestedIdleCount = new AtomicInteger();
+        final AtomicBoolean filling = new AtomicBoolean();
+        final AtomicBoolean fillRetryScheduled = new AtomicBoolean();
+        volatile long fillRetryDelayNs;
+        final ReentrantLock lock = new ReentrantLock(true);
+        final Condition available = lock.newCondition();
+        final Deque<Thread> waiters = new ArrayDeque<>();
+        volatile int waiterCount;
+
+        EndpointConnections(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        RealConnection pollIdle(boolean refill) {
+            RealConnection connection = idle.pollFirst();
+            if (connection != null) {
+                connectionCount.decrementAndGet();
+                idleCount.decrementAndGet();
+                if (refill) {
+                    fillToMinimum();
+                }
+            }
+            return connection;
+        }
+
+        boolean removeIdle(RealConnection connection) {
+            if (idle.removeLastOccurrence(connection)) {
+                connectionCount.decrementAndGet();
+                idleCount.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        void pushIdle(RealConnection connection) {
+            idle.offerFirst(connection);
+            idleCount.incrementAndGet();
+            connectionCount.incrementAndGet();
+            signalWaiter();
+        }
+
+        void fill(int count) {
+            int requested;
+            do {
+                requested = requestedIdleCount.get();
+            } while (requested < count && !requestedIdleCount.compareAndSet(requested, count));
+            // An explicit request does not wait for the retry delay of a failed fill.
+            startFilling(true);
+        }
+
+        void fillToMinimum() {
+            if (idleCount.get() < minIdleConnections) {
+                startFilling(false);
+            }
+        }
+
+        private void startFilling(boolean ignoreRetryDelay) {
+            if (connectionOpener != null && (ignoreRetryDelay || !fillRetryScheduled.get()) &&
+                    filling.compareAndSet(false, true)) {
+                Connections.CLEANUP_THREAD_EXECUTOR.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            // Opens connections one at a time until the requested number of idle connections is reached.
+            // A failure ends the fill, it is started again once a connection gets closed or after a delay.
+            boolean failed;
+            do {
+                failed = false;
+                int target;
+                while (idleCount.get() < (target = Math.max(requestedIdleCount.get(), minIdleConnections))) {
+                    ConnectionOpener opener = connectionOpener;
+                    if (opener == null || !tryReserve()) {
+                        requestedIdleCount.set(0);
+                        failed = true;
+                        break;
+                    }
+                    try {
+                        recycle(opener.open(endpoint));
+                        fillRetryDelayNs = 0L;
+                    } catch (IOException e) {
+                        // The reserved place is released by the opener once the connection is closed.
+                        requestedIdleCount.set(0);
+                        failed = true;
+                        scheduleFillRetry();
+                        break;
+                    }
+                }
+                if (!failed && idleCount.get() >= target) {
+                    requestedIdleCount.compareAndSet(target, 0);
+                }
+                filling.set(false);
+            } while (!failed && idleCount.get() < Math.max(requestedIdleCount.get(), minIdleConnections) &&
+                    filling.compareAndSet(false, true));
+        }
+
+        private void scheduleFillRetry() {
+            if (fillRetryScheduled.compareAndSet(false, true)) {
+                long delayNs = fillRetryDelayNs == 0L ? MIN_FILL_RETRY_DELAY_NS :
+                        Math.min(fillRetryDelayNs * 2, MAX_FILL_RETRY_DELAY_NS);
+                fillRetryDelayNs = delayNs;
+                Connections.EVICTION_SCHEDULER.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        fillRetryScheduled.set(false);
+                        fillToMinimum();
+                    }
+                }, delayNs, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        boolean tryReserve() {
+            int count;
+            do {
+                count = openCount.get();
+                if (count >= maxConnectionsPerEndpoint) {
+                    return false;
+                }
+            } while (!openCount.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        void release() {
+            openCount.decrementAndGet();
+            if (waiterCount > 0) {
+                signalWaiter();
+            } else {
+                // Resume a fill stopped by the connection limit.
+                fillToMinimum();
+            }
+        }
+
+        RealConnection await() throws InterruptedIOException {
+            long remainingNs = acquireTimeoutNs;
+            Thread waiter = Thread.currentThread();
+            lock.lock();
+            try {
+                waiters.addLast(waiter);
+                waiterCount++;
+                while (true) {
+                    if (waiters.peekFirst() == waiter) {
+                        RealConnection connection = pollIdle(true);
+                        if (connection != null || tryReserve()) {
+                            return connection;
+                        }
+                    }
+                    if (remainingNs <= 0L) {
+                        throw new InterruptedIOException("Timed out waiting for a connection, " +
+                                maxConnectionsPerEndpoint + " connections are already open.");
+                    }
+                    try {
+                        remainingNs = available.awaitNanos(remainingNs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for a connection.");
+                    }
+                }
+            } finally {
+                boolean first = waiters.peekFirst() == waiter;
+                waiters.removeFirstOccurrence(waiter);
+                waiterCount--;
+                if (first && waiterCount > 0) {
+                    // Let the next caller check for anything left.
+                    available.signalAll();
+                }
+                lock.unlock();
+            }
+        }
+
+        private void signalWaiter() {
+            if (waiterCount > 0) {
+                lock.lock();
+                try {
+                    // Wake all waiters, only the first one in the queue takes the connection.
+                    available.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
 }
@@ -22,13 +22,16 @@ import javax.net.ssl.SSLSocketFactory;
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
-class ConnectionProvider {
+class ConnectionProvider implements ConnectionPool.ConnectionOpener {
 
     private final ConnectionPool connectionPool;
     private final EndpointProvider endpointProvider;
     private final SocketFactory socketFactory;
     private final SSLSocketFactory sslSocketFactory;
     private final HostnameVerifier hostnameVerifier;
+    private final ConnectionSpec connectionSpec;
+    private final HandshakeStatistics handshakeStatistics;
+    private final VerifiedSessionCache verifiedSessions = new VerifiedSessionCache();
     private final int connectTimeout;
     private final int readTimeout;
     private final int writeTimeout;
@@ -39,6 +42,8 @@ class ConnectionProvider {
                        SocketFactory socketFactory,
                        SSLSocketFactory sslSocketFactory,
                        HostnameVerifier hostnameVerifier,
+                       ConnectionSpec connectionSpec,
+                       HandshakeStatistics handshakeStatistics,
                        int connectTimeout, int readTimeout, int writeTimeout,
                        boolean eagerlyCheckConnectivity) {
         this.connectionPool = connectionPool;
@@ -46,10 +51,13 @@ class ConnectionProvider {
         this.socketFactory = socketFactory;
         this.sslSocketFactory = sslSocketFactory;
         this.hostnameVerifier = hostnameVerifier;
+        this.connectionSpec = connectionSpec;
+        this.handshakeStatistics = handshakeStatistics;
         this.connectTimeout = connectTimeout;
         this.readTimeout = readTimeout;
         this.writeTimeout = writeTimeout;
         this.eagerlyCheckConnectivity = eagerlyCheckConnectivity;
+        connectionPool.connectionOpener(this);
     }
 
     Connection obtainConnection() throws IOException {
@@ -59,7 +67,8 @@ class ConnectionProvider {
     Connection obtainConnection(Endpoint endpoint) throws IOException {
         ErrorReportingConnection result = null;
         RealConnection cachedConnection;
-        while ((cachedConnection = connectionPool.get(endpoint)) != null) {
+        // A null connection means a new one can be opened without exceeding the endpoint's limit.
+        while ((cachedConnection = connectionPool.acquire(endpoint)) != null) {
             if (cachedConnection.isHealthy(eagerlyCheckConnectivity)) {
                 if (!(cachedConnection instanceof ErrorReportingConnection)) {
                     throw new IllegalStateException("Invalid cached connection type.");
@@ -73,27 +82,38 @@ class ConnectionProvider {
 
         if (result == null) {
             // No pooled connections available, just build a new one.
-            boolean connected = false;
-            try {
-                result = new ErrorReportingConnection(
-                        socketFactory,
-                        sslSocketFactory,
-                        hostnameVerifier,
-                        endpoint,
-                        Connections.CLEANUP_THREAD_EXECUTOR);
-                result.connect(connectTimeout, TimeUnit.MILLISECONDS);
-                result.readTimeout(readTimeout, TimeUnit.MILLISECONDS);
-                result.writeTimeout(writeTimeout, TimeUnit.MILLISECONDS);
-                connected = true;
-            } finally {
-                if (!connected) {
-                    if (result != null) {
-                        result.close(true);
-                    }
+            result = open(endpoint);
+        }
+        result.endpointProvider(endpointProvider);
+        return result;
+    }
+
+    @Override
+    public ErrorReportingConnection open(Endpoint endpoint) throws IOException {
+        ErrorReportingConnection result = null;
+        boolean connected = false;
+        try {
+            result = new ErrorReportingConnection(
+                    socketFactory,
+                    sslSocketFactory,
+                    hostnameVerifier,
+                    connectionSpec,
+                    handshakeStatistics,
+                    verifiedSessions,
+                    endpoint,
+                    Connections.CLEANUP_THREAD_EXECUTOR);
+            connectionPool.opened(result);
+            result.connect(connectTimeout, TimeUnit.MILLISECONDS);
+            result.readTimeout(readTimeout, TimeUnit.MILLISECONDS);
+            result.writeTimeout(writeTimeout, TimeUnit.MILLISECONDS);
+            connected = true;
+        } finally {
+            if (!connected) {
+                if (result != null) {
+                    result.close(true);
                 }
             }
         }
-        result.endpointProvider(endpointProvider);
         return result;
     }
 
@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.client;
+
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The TLS settings of the connections opened by a {@linkplain PCloudAPIClient}.
+ * <p>
+ * Sets the TLS versions and cipher suites enabled on new connections, in order of preference,
+ * and the size and timeout of the cache of TLS sessions that can be resumed instead of
+ * making a full handshake. Versions and cipher suites not supported by the platform are skipped.
+ *
+ * @see PCloudAPIClient.Builder#connectionSpec(ConnectionSpec)
+ */
+@SuppressWarnings("WeakerAccess")
+public final class ConnectionSpec {
+
+    /**
+     * A {@linkplain ConnectionSpec} keeping the TLS settings of the platform.
+     */
+    public static final ConnectionSpec DEFAULT = create().build();
+
+    /**
+     * A {@linkplain ConnectionSpec} preferring TLS 1.3 and AES-GCM or ChaCha20-Poly1305 cipher suites.
+     */
+    public static final ConnectionSpec MODERN_TLS = create()
+            .tlsVersions("TLSv1.3", "TLSv1.2")
+            .cipherSuites(
+                    "TLS_AES_128_GCM_SHA256",
+                    "TLS_AES_256_GCM_SHA384",
+                    "TLS_CHACHA20_POLY1305_SHA256",
+                    "TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256",
+                    "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256",
+                    "TLS_ECDHE_ECDSA_WITH_AES_256_GCM_SHA384",
+                    "TLS_ECDHE_RSA_WITH_AES_256_GCM_SHA384",
+                    "TLS_ECDHE_ECDSA_WITH_CHACHA20_POLY1305_SHA256",
+                    "TLS_ECDHE_RSA_WITH_CHACHA20_POLY1305_SHA256")
+            .build();
+
+    private static final int PLATFORM_DEFAULT = -1;
+
+    /**
+     * Returns a new {@linkplain Builder} for a {@linkplain ConnectionSpec}
+     *
+     * @return A new {@linkplain Builder} instance
+     */
+    public static Builder create() {
+        return new Builder();
+    }
+
+    private final String[] tlsVersions;
+    private final String[] cipherSuites;
+    private final int sessionCacheSize;
+    private final int sessionTimeoutSeconds;
+
+    private ConnectionSpec(Builder builder) {
+        this.tlsVersions = builder.tlsVersions;
+        this.cipherSuites = builder.cipherSuites;
+        this.sessionCacheSize = builder.sessionCacheSize;
+        this.sessionTimeoutSeconds = builder.sessionTimeoutSeconds;
+    }
+
+    /**
+     * Returns the enabled TLS versions in order of preference, or null if the platform defaults are used
+     *
+     * @return The enabled TLS versions
+     */
+    public List<String> tlsVersions() {
+        return tlsVersions != null ? Arrays.asList(tlsVersions.clone()) : null;
+    }
+
+    /**
+     * Returns the enabled cipher suites in order of preference, or null if the platform defaults are used
+     *
+     * @return The enabled cipher suites
+     */
+    public List<String> cipherSuites() {
+        return cipherSuites != null ? Arrays.asList(cipherSuites.clone()) : null;
+    }
+
+    /**
+     * Returns the maximum number of cached TLS sessions, 0 for no limit, or -1 if the platform default is used
+     *
+     * @return The session cache size
+     */
+    public int sessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    /**
+     * Returns the time in seconds a TLS session can be resumed for, 0 for no limit,
+     * or -1 if the platform default is used
+     *
+     * @return The session timeout in seconds
+     */
+    public int sessionTimeoutSeconds() {
+        return sessionTimeoutSeconds;
+    }
+
+    /**
+     * Returns a {@linkplain Builder} with the settings of this {@linkplain ConnectionSpec}
+     *
+     * @return A new {@linkplain Builder} instance
+     */
+    public Builder newBuilder() {
+        return new Builder(this);
+    }
+
+    void apply(SSLSocket socket) throws SSLException {
+        if (tlsVersions != null) {
+            socket.setEnabledProtocols(supported(tlsVersions, socket.getSupportedProtocols(), "TLS versions"));
+        }
+        if (cipherSuites != null) {
+            socket.setEnabledCipherSuites(supported(cipherSuites, socket.getSupportedCipherSuites(), "cipher suites"));
+        }
+    }
+
+    void apply(SSLSessionContext sessionContext) {
+        // The context is shared by all sockets of the SSLSocketFactory, only update it when needed.
+        if (sessionCacheSize != PLATFORM_DEFAULT && sessionContext.getSessionCacheSize() != sessionCacheSize) {
+            sessionContext.setSessionCacheSize(sessionCacheSize);
+        }
+        if (sessionTimeoutSeconds != PLATFORM_DEFAULT && sessionContext.getSessionTimeout() != sessionTimeoutSeconds) {
+            sessionContext.setSessionTimeout(sessionTimeoutSeconds);
+        }
+    }
+
+    private static String[] supported(String[] preferred, String[] supported, String kind) throws SSLException {
+        List<String> supportedList = Arrays.asList(supported);
+        List<String> result = new ArrayList<>(preferred.length);
+        for (String name : preferred) {
+            if (supportedList.contains(name)) {
+                result.add(name);
+            }
+        }
+        if (result.isEmpty()) {
+            throw new SSLException("None of the " + kind + " " + Arrays.toString(preferred) +
+                    " is supported, supported " + kind + " are " + supportedList);
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ConnectionSpec that = (ConnectionSpec) o;
+
+        if (sessionCacheSize != that.sessionCacheSize) return false;
+        if (sessionTimeoutSeconds != that.sessionTimeoutSeconds) return false;
+        if (!Arrays.equals(tlsVersions, that.tlsVersions)) return false;
+        return Arrays.equals(cipherSuites, that.cipherSuites);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(tlsVersions);
+        result = 31 * result + Arrays.hashCode(cipherSuites);
+        result = 31 * result + sessionCacheSize;
+        result = 31 * result + sessionTimeoutSeconds;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionSpec(tlsVersions=" + Arrays.toString(tlsVersions) +
+                ", cipherSuites=" + Arrays.toString(cipherSuites) +
+                ", sessionCacheSize=" + sessionCacheSize +
+                ", sessionTimeoutSeconds=" + sessionTimeoutSeconds + ")";
+    }
+
+    /**
+     * A builder to configure and create instances of {@linkplain ConnectionSpec}
+     */
+    public static class Builder {
+
+        private String[] tlsVersions;
+        private String[] cipherSuites;
+        private int sessionCacheSize = PLATFORM_DEFAULT;
+        private int sessionTimeoutSeconds = PLATFORM_DEFAULT;
+
+        private Builder() {
+        }
+
+        private Builder(ConnectionSpec spec) {
+            this.tlsVersions = spec.tlsVersions;
+            this.cipherSuites = spec.cipherSuites;
+            this.sessionCacheSize = spec.sessionCacheSize;
+            this.sessionTimeoutSeconds = spec.sessionTimeoutSeconds;
+        }
+
+        /**
+         * Sets the TLS versions to be enabled, in order of preference
+         *
+         * @param tlsVersions The names of the TLS versions, for example "TLSv1.3"
+         * @return A reference to the {@linkplain Builder} object
+         * @throws IllegalArgumentException on a null or empty array or null elements
+         */
+        public Builder tlsVersions(String... tlsVersions) {
+            this.tlsVersions = checkNames(tlsVersions, "tlsVersions");
+            return this;
+        }
+
+        /**
+         * Sets the cipher suites to be enabled, in order of preference
+         *
+         * @param cipherSuites The standard names of the cipher suites
+         * @return A reference to the {@linkplain Builder} object
+         * @throws IllegalArgumentException on a null or empty array or null elements
+         */
+        public Builder cipherSuites(String... cipherSuites) {
+            this.cipherSuites = checkNames(cipherSuites, "cipherSuites");
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of TLS sessions kept for resumption
+         *
+         * @param sessionCacheSize The number of sessions, 0 for no limit
+         * @return A reference to the {@linkplain Builder} object
+         * @throws IllegalArgumentException on a negative size
+         */
+        public Builder sessionCacheSize(int sessionCacheSize) {
+            if (sessionCacheSize < 0) {
+                throw new IllegalArgumentException("sessionCacheSize < 0: " + sessionCacheSize);
+            }
+            this.sessionCacheSize = sessionCacheSize;
+            return this;
+        }
+
+        /**
+         * Sets the time for which a TLS session can be resumed
+         *
+         * @param timeout  The session timeout, 0 for no limit
+         * @param timeUnit The unit of the timeout
+         * @return A reference to the {@linkplain Builder} object
+         * @throws IllegalArgumentException on a negative timeout, a null {@linkplain TimeUnit}
+         *                                  or a timeout not fitting in an int number of seconds
+         */
+        public Builder sessionTimeout(long timeout, TimeUnit timeUnit) {
+            if (timeUnit == null) {
+                throw new IllegalArgumentException("TimeUnit argument cannot be null.");
+            }
+            if (timeout < 0) {
+                throw new IllegalArgumentException("timeout < 0: " + timeout);
+            }
+            long seconds = timeUnit.toSeconds(timeout);
+            if (seconds > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Value too large.");
+            }
+            if (seconds == 0 && timeout > 0) {
+                throw new IllegalArgumentException("Value too small.");
+            }
+            this.sessionTimeoutSeconds = (int) seconds;
+            return this;
+        }
+
+        /**
+         * Creates the {@linkplain ConnectionSpec} with the parameters set with the {@linkplain Builder}
+         *
+         * @return A new {@linkplain ConnectionSpec} instance
+         */
+        public ConnectionSpec build() {
+            return new ConnectionSpec(this);
+        }
+
+        private static String[] checkNames(String[] names, String argumentName) {
+            if (names == null || names.length == 0) {
+                throw new IllegalArgumentException("'" + argumentName + "' argument cannot be null or empty.");
+            }
+            for (String name : names) {
+                if (name == null) {
+                    throw new IllegalArgumentException("'" + argumentName + "' argument cannot contain nulls.");
+                }
+            }
+            return names.clone();
+        }
+    }
+}
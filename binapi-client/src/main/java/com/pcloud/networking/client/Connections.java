@@ -2,6 +2,8 @@ package com.pcloud.networking.client;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -12,6 +14,7 @@ import java.util.concurrent.TimeUnit;
     }
 
     /*package*/  static final ExecutorService CLEANUP_THREAD_EXECUTOR;
+    /*package*/  static final ScheduledExecutorService EVICTION_SCHEDULER;
 
     private static final long THREAD_KEEP_ALIVE = 60L;
     private static final int MAX_CLEANUP_THREADS = 3;
@@ -33,6 +36,18 @@ import java.util.concurrent.TimeUnit;
                 new LinkedBlockingDeque<Runnable>(),
                 threadFactory
         );
+
+        // A single thread schedules the idle connection eviction of all pools.
+        ScheduledThreadPoolExecutor evictionScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread result = new Thread(runnable, "pCloud Connections Eviction");
+                result.setDaemon(true);
+                return result;
+            }
+        });
+        evictionScheduler.setRemoveOnCancelPolicy(true);
+        EVICTION_SCHEDULER = evictionScheduler;
     }
 
 
@@ -43,6 +43,19 @@ class ErrorReportingConnection extends RealConnection {
         super(socketFactory, sslSocketFactory, hostnameVerifier, endpoint, cleanupExecutor);
     }
 
+    ErrorReportingConnection(
+            SocketFactory socketFactory,
+            SSLSocketFactory sslSocketFactory,
+            HostnameVerifier hostnameVerifier,
+            ConnectionSpec connectionSpec,
+            HandshakeStatistics handshakeStatistics,
+            VerifiedSessionCache verifiedSessions,
+            Endpoint endpoint,
+            Executor cleanupExecutor) {
+        super(socketFactory, sslSocketFactory, hostnameVerifier, connectionSpec, handshakeStatistics,
+                verifiedSessions, endpoint, cleanupExecutor);
+    }
+
     @Override
     void connect(int connectTimeout, TimeUnit timeUnit) throws IOException {
         try {
@@ -91,6 +91,13 @@ abstract class FixedLengthSource implements Source {
         return bytesRemaining;
     }
 
+    protected synchronized void reset(long contentLength) {
+        // Restore the timeout that was detached once the previous content was exhausted.
+        timeout.setDelegate(source.timeout());
+        bytesRemaining = contentLength;
+        closed = false;
+    }
+
     protected abstract void exhausted(boolean reuseSource);
 
     private void scrap(boolean reuseSource) {
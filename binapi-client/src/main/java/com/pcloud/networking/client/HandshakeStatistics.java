@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The TLS handshake statistics of the connections opened by a {@linkplain PCloudAPIClient}.
+ * <p>
+ * A handshake is counted as resumed when it reuses a TLS session negotiated by an earlier connection,
+ * instead of making a full handshake.
+ *
+ * @see PCloudAPIClient#handshakeStatistics()
+ */
+@SuppressWarnings("WeakerAccess")
+public final class HandshakeStatistics {
+
+    private final AtomicLong handshakeCount = new AtomicLong();
+    private final AtomicLong resumedHandshakeCount = new AtomicLong();
+    private final AtomicLong totalHandshakeNanos = new AtomicLong();
+    private final AtomicLong lastHandshakeNanos = new AtomicLong();
+
+    HandshakeStatistics() {
+    }
+
+    /**
+     * Returns the number of completed handshakes
+     *
+     * @return The number of handshakes
+     */
+    public long handshakeCount() {
+        return handshakeCount.get();
+    }
+
+    /**
+     * Returns the number of completed handshakes which resumed an earlier TLS session
+     *
+     * @return The number of resumed handshakes
+     */
+    public long resumedHandshakeCount() {
+        return resumedHandshakeCount.get();
+    }
+
+    /**
+     * Returns the part of the handshakes which resumed an earlier TLS session
+     *
+     * @return A number between 0 and 1, 0 if no handshakes have been made
+     */
+    public double sessionReuseRate() {
+        long count = handshakeCount.get();
+        return count > 0 ? (double) resumedHandshakeCount.get() / count : 0d;
+    }
+
+    /**
+     * Returns the average duration of the completed handshakes
+     *
+     * @param timeUnit The unit of the returned duration
+     * @return The average handshake duration, 0 if no handshakes have been made
+     * @throws IllegalArgumentException on a null {@linkplain TimeUnit} argument
+     */
+    public long averageHandshakeDuration(TimeUnit timeUnit) {
+        if (timeUnit == null) {
+            throw new IllegalArgumentException("TimeUnit argument cannot be null.");
+        }
+        long count = handshakeCount.get();
+        return count > 0 ? timeUnit.convert(totalHandshakeNanos.get() / count, TimeUnit.NANOSECONDS) : 0L;
+    }
+
+    /**
+     * Returns the duration of the last completed handshake
+     *
+     * @param timeUnit The unit of the returned duration
+     * @return The last handshake duration, 0 if no handshakes have been made
+     * @throws IllegalArgumentException on a null {@linkplain TimeUnit} argument
+     */
+    public long lastHandshakeDuration(TimeUnit timeUnit) {
+        if (timeUnit == null) {
+            throw new IllegalArgumentException("TimeUnit argument cannot be null.");
+        }
+        return timeUnit.convert(lastHandshakeNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    void handshakeCompleted(long durationNanos, boolean resumed) {
+        handshakeCount.incrementAndGet();
+        if (resumed) {
+            resumedHandshakeCount.incrementAndGet();
+        }
+        totalHandshakeNanos.addAndGet(durationNanos);
+        lastHandshakeNanos.set(durationNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "HandshakeStatistics(handshakes=" + handshakeCount() +
+                ", resumed=" + resumedHandshakeCount() +
+                ", averageDurationMs=" + averageHandshakeDuration(TimeUnit.MILLISECONDS) + ")";
+    }
+}
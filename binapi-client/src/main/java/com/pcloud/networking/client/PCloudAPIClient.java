@@ -17,6 +17,7 @@
 package com.pcloud.networking.client;
 
 import com.pcloud.networking.client.internal.tls.DefaultHostnameVerifier;
+import com.pcloud.networking.protocol.StringPool;
 
 import javax.net.SocketFactory;
 import javax.net.ssl.HostnameVerifier;
@@ -68,6 +69,8 @@ public class PCloudAPIClient {
     private final SocketFactory socketFactory;
     private final SSLSocketFactory sslSocketFactory;
     private final HostnameVerifier hostnameVerifier;
+    private final ConnectionSpec connectionSpec;
+    private final HandshakeStatistics handshakeStatistics;
 
     private final List<RequestInterceptor> interceptors;
 
@@ -75,6 +78,7 @@ public class PCloudAPIClient {
     private final ConnectionProvider connectionProvider;
     private final EndpointProvider endpointProvider;
     private final ExecutorService callExecutor;
+    private final StringPool stringPool;
 
     private PCloudAPIClient(Builder builder) {
         this.connectTimeoutMs = builder.connectTimeoutMs;
@@ -89,11 +93,14 @@ public class PCloudAPIClient {
         this.hostnameVerifier = builder.hostnameVerifier != null ?
                         builder.hostnameVerifier : DefaultHostnameVerifier.INSTANCE;
 
+        this.connectionSpec = builder.connectionSpec != null ? builder.connectionSpec : ConnectionSpec.DEFAULT;
+        this.handshakeStatistics = new HandshakeStatistics();
+
         this.connectionPool = builder.connectionPool != null ? builder.connectionPool : new ConnectionPool();
         this.endpointProvider = builder.endpointProvider != null ? builder.endpointProvider : EndpointProvider.DEFAULT;
 
         this.connectionProvider = new ConnectionProvider(connectionPool, endpointProvider,
-                socketFactory, sslSocketFactory, hostnameVerifier,
+                socketFactory, sslSocketFactory, hostnameVerifier, connectionSpec, handshakeStatistics,
                 connectTimeoutMs, readTimeoutMs, writeTimeoutMs, false);
 
 
@@ -106,6 +113,7 @@ public class PCloudAPIClient {
                 DEFAULT_THREAD_FACTORY);
 
         this.interceptors = Collections.unmodifiableList(new ArrayList<>(builder.interceptors));
+        this.stringPool = builder.stringPool;
     }
 
 
@@ -124,7 +132,7 @@ public class PCloudAPIClient {
         if (request == null) {
             throw new IllegalArgumentException("Request cannot be null.");
         }
-        return new RealCall(request, callExecutor, interceptors, connectionProvider);
+        return new RealCall(request, callExecutor, interceptors, connectionProvider, stringPool);
     }
 
     /**
@@ -158,7 +166,7 @@ public class PCloudAPIClient {
         }
 
         return new RealMultiCall(new ArrayList<>(requests), callExecutor, interceptors,
-                connectionProvider, null);
+                connectionProvider, null, stringPool);
     }
 
     /**
@@ -192,7 +200,7 @@ public class PCloudAPIClient {
         }
 
         return new RealMultiCall(new ArrayList<>(requests), callExecutor, interceptors,
-                connectionProvider, endpoint);
+                connectionProvider, endpoint, stringPool);
     }
 
     /**
@@ -208,7 +216,7 @@ public class PCloudAPIClient {
      * @throws IOException on a connection error
      */
     public ApiChannel newChannel() throws IOException {
-        return new RealApiChannel(connectionProvider, endpointProvider.endpoint());
+        return new RealApiChannel(connectionProvider, endpointProvider.endpoint(), stringPool);
     }
 
     /**
@@ -223,7 +231,7 @@ public class PCloudAPIClient {
      * @throws IOException on a connection error
      */
     public ApiChannel newChannel(Endpoint endpoint) throws IOException {
-        return new RealApiChannel(connectionProvider, endpoint);
+        return new RealApiChannel(connectionProvider, endpoint, stringPool);
     }
 
     /**
@@ -280,6 +288,24 @@ public class PCloudAPIClient {
         return hostnameVerifier;
     }
 
+    /**
+     * Returns the {@linkplain ConnectionSpec} for this client
+     *
+     * @return The {@linkplain ConnectionSpec} for this client
+     */
+    public ConnectionSpec connectionSpec() {
+        return connectionSpec;
+    }
+
+    /**
+     * Returns the TLS {@linkplain HandshakeStatistics} of the connections opened by this client
+     *
+     * @return The {@linkplain HandshakeStatistics} for this client
+     */
+    public HandshakeStatistics handshakeStatistics() {
+        return handshakeStatistics;
+    }
+
     /**
      * Returns the {@linkplain ConnectionPool} for this client
      *
@@ -319,6 +345,15 @@ public class PCloudAPIClient {
         return endpointProvider;
     }
 
+    /**
+     * Returns the {@linkplain StringPool} used to share decoded strings between responses
+     *
+     * @return The {@linkplain StringPool} for this client, or null if none has been set
+     */
+    public StringPool stringPool() {
+        return stringPool;
+    }
+
     /**
      * Shuts down the client clearing up resources such as idle connections
      */
@@ -363,7 +398,9 @@ public class PCloudAPIClient {
         private SocketFactory socketFactory;
         private SSLSocketFactory sslSocketFactory;
         private HostnameVerifier hostnameVerifier;
+        private ConnectionSpec connectionSpec;
         private ExecutorService callExecutor;
+        private StringPool stringPool;
 
         List<RequestInterceptor> interceptors;
 
@@ -376,7 +413,9 @@ public class PCloudAPIClient {
             this.socketFactory = cloudAPIClient.socketFactory;
             this.sslSocketFactory = cloudAPIClient.sslSocketFactory;
             this.hostnameVerifier = cloudAPIClient.hostnameVerifier;
+            this.connectionSpec = cloudAPIClient.connectionSpec;
             this.callExecutor = cloudAPIClient.callExecutor;
+            this.stringPool = cloudAPIClient.stringPool;
             this.interceptors = new LinkedList<>(cloudAPIClient.interceptors);
         }
 
@@ -552,6 +591,23 @@ public class PCloudAPIClient {
             return this;
         }
 
+        /**
+         * Sets the TLS {@linkplain ConnectionSpec} for the client
+         * <p>
+         * If no spec is provided {@linkplain ConnectionSpec#DEFAULT} will be used.
+         *
+         * @param connectionSpec The {@linkplain ConnectionSpec} to be set to the client
+         * @return A reference to the {@linkplain Builder} object
+         * @throws IllegalArgumentException on a null {@linkplain ConnectionSpec} argument
+         */
+        public Builder connectionSpec(ConnectionSpec connectionSpec) {
+            if (connectionSpec == null) {
+                throw new IllegalArgumentException("ConnectionSpec cannot be null.");
+            }
+            this.connectionSpec = connectionSpec;
+            return this;
+        }
+
         /**
          * Sets a {@linkplain ExecutorService} for the client
          * <p>
@@ -565,6 +621,23 @@ public class PCloudAPIClient {
             return this;
         }
 
+        /**
+         * Sets a {@linkplain StringPool} for the client
+         * <p>
+         * When set, equal strings read from the responses of all calls and channels created by the client
+         * will share a single instance, reducing the memory used by long-lived response objects.
+         * A single {@linkplain StringPool} can also be shared between multiple clients.
+         * <p>
+         * No pooling is done by default or if this method is called with a null argument.
+         *
+         * @param stringPool The {@linkplain StringPool} to be set to the client
+         * @return A reference to the {@linkplain Builder} object
+         */
+        public Builder stringPool(StringPool stringPool) {
+            this.stringPool = stringPool;
+            return this;
+        }
+
         /**
          * Creates the {@linkplain PCloudAPIClient} with all the parameters set with the {@linkplain Builder}
          *
@@ -19,16 +19,23 @@ package com.pcloud.networking.client;
 import com.pcloud.networking.protocol.BytesReader;
 import com.pcloud.networking.protocol.BytesWriter;
 import com.pcloud.networking.protocol.DataSource;
+import com.pcloud.networking.protocol.EncodedName;
 import com.pcloud.networking.protocol.ForwardingProtocolRequestWriter;
 import com.pcloud.networking.protocol.ForwardingProtocolResponseReader;
+import com.pcloud.networking.protocol.ProtocolEventHandler;
+import com.pcloud.networking.protocol.ProtocolReader;
 import com.pcloud.networking.protocol.ProtocolRequestWriter;
 import com.pcloud.networking.protocol.ProtocolResponseReader;
+import com.pcloud.networking.protocol.RequestTemplate;
+import com.pcloud.networking.protocol.StringPool;
 import com.pcloud.networking.protocol.TypeToken;
 import okio.BufferedSink;
+import okio.ByteString;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.channels.ClosedChannelException;
+import java.util.Collection;
 
 import static com.pcloud.utils.IOUtils.closeQuietly;
 
@@ -47,12 +54,12 @@ class RealApiChannel implements ApiChannel {
 
     private final Object counterLock = new Object();
 
-    RealApiChannel(ConnectionProvider connectionProvider, Endpoint endpoint) throws IOException {
+    RealApiChannel(ConnectionProvider connectionProvider, Endpoint endpoint, StringPool stringPool) throws IOException {
         this.connectionProvider = connectionProvider;
         this.connection = connectionProvider.obtainConnection(endpoint);
         this.endpoint = connection.endpoint();
         this.writer = new CountingProtocolRequestWriter(new BytesWriter(connection.sink()), this);
-        this.reader = new CountingProtocolResponseReader(new BytesReader(connection.source()), this);
+        this.reader = new CountingProtocolResponseReader(new BytesReader(connection.source(), stringPool), this);
     }
 
     @Override
@@ -164,6 +171,13 @@ class RealApiChannel implements ApiChannel {
             return this;
         }
 
+        @Override
+        public ProtocolRequestWriter writeTemplate(RequestTemplate template) throws IOException {
+            apiChannel.checkNotClosed();
+            super.writeTemplate(template);
+            return this;
+        }
+
         @Override
         public ProtocolRequestWriter writeName(String name) throws IOException {
             apiChannel.checkNotClosed();
@@ -171,6 +185,13 @@ class RealApiChannel implements ApiChannel {
             return this;
         }
 
+        @Override
+        public ProtocolRequestWriter writeEncodedName(EncodedName name) throws IOException {
+            apiChannel.checkNotClosed();
+            super.writeEncodedName(name);
+            return this;
+        }
+
         @Override
         public ProtocolRequestWriter writeValue(Object value) throws IOException {
             apiChannel.checkNotClosed();
@@ -314,6 +335,18 @@ class RealApiChannel implements ApiChannel {
             return super.readString();
         }
 
+        @Override
+        public ByteString readStringBytes() throws IOException {
+            apiChannel.checkNotClosed();
+            return super.readStringBytes();
+        }
+
+        @Override
+        public int selectName(Options options) throws IOException {
+            apiChannel.checkNotClosed();
+            return super.selectName(options);
+        }
+
         @Override
         public long readNumber() throws IOException {
             apiChannel.checkNotClosed();
@@ -338,6 +371,37 @@ class RealApiChannel implements ApiChannel {
             super.skipValue();
         }
 
+        @Override
+        public void readValue(ProtocolEventHandler handler) throws IOException {
+            apiChannel.checkNotClosed();
+            super.readValue(handler);
+        }
+
+        @Override
+        public int readNumberArray(long[] destination) throws IOException {
+            apiChannel.checkNotClosed();
+            return super.readNumberArray(destination);
+        }
+
+        @Override
+        public int readNumbers(NumberConsumer consumer) throws IOException {
+            apiChannel.checkNotClosed();
+            return super.readNumbers(consumer);
+        }
+
+        @Override
+        public int readStringArray(Collection<? super String> destination) throws IOException {
+            apiChannel.checkNotClosed();
+            return super.readStringArray(destination);
+        }
+
+        @Override
+        public ProtocolReader uncheckedReader() {
+            // Every read has to fail once the channel gets closed, including the reads
+            // of a value which was started while the channel was still open.
+            return this;
+        }
+
         @Override
         public ProtocolResponseReader newPeekingReader() {
             return new CountingProtocolResponseReader(super.newPeekingReader(), apiChannel);
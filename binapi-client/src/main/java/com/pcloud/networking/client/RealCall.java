@@ -16,10 +16,11 @@
 
 package com.pcloud.networking.client;
 
-import com.pcloud.networking.protocol.BytesWriter;
+import com.pcloud.networking.protocol.BytesReader;
 import com.pcloud.networking.protocol.ProtocolReader;
 import com.pcloud.networking.protocol.ProtocolRequestWriter;
 import com.pcloud.networking.protocol.ProtocolResponseReader;
+import com.pcloud.networking.protocol.StringPool;
 import com.pcloud.utils.IOUtils;
 import okio.BufferedSink;
 import okio.BufferedSource;
@@ -47,17 +48,20 @@ class RealCall implements Call {
     private final ExecutorService callExecutor;
     private final ConnectionProvider connectionProvider;
     private final List<RequestInterceptor> interceptors;
+    private final StringPool stringPool;
 
     private volatile boolean cancelled;
     private volatile boolean executed;
     private Connection connection;
 
     RealCall(Request request, ExecutorService callExecutor,
-             List<RequestInterceptor> interceptors, ConnectionProvider connectionProvider) {
+             List<RequestInterceptor> interceptors, ConnectionProvider connectionProvider,
+             StringPool stringPool) {
         this.request = request;
         this.callExecutor = callExecutor;
         this.connectionProvider = connectionProvider;
         this.interceptors = interceptors;
+        this.stringPool = stringPool;
     }
 
     @Override
@@ -181,7 +185,7 @@ class RealCall implements Call {
     @SuppressWarnings("CloneDoesntCallSuperClone")
     @Override
     public Call clone() {
-        return new RealCall(request, callExecutor, interceptors, connectionProvider);
+        return new RealCall(request, callExecutor, interceptors, connectionProvider, stringPool);
     }
 
     private void checkAndMarkExecuted() {
@@ -204,9 +208,10 @@ class RealCall implements Call {
         }
         boolean success = false;
         try {
-            ProtocolRequestWriter writer = new BytesWriter(connection.sink());
-            writer.beginRequest()
-                    .writeMethodName(request.methodName());
+            ConnectionCodec codec = ConnectionCodec.of(connection, stringPool);
+            ProtocolRequestWriter writer = codec.writer();
+            writer.beginRequest();
+            writeMethodName(writer, request);
             if (request.dataSource() != null) {
                 writer.writeData(request.dataSource());
             }
@@ -222,7 +227,7 @@ class RealCall implements Call {
 
             Response response = Response.create()
                     .request(request)
-                    .responseBody(createResponseBody(connection))
+                    .responseBody(createResponseBody(connection, codec))
                     .build();
             success = true;
             return response;
@@ -236,12 +241,20 @@ class RealCall implements Call {
         }
     }
 
-    private ResponseBody createResponseBody(final Connection connection) throws IOException {
+    static void writeMethodName(ProtocolRequestWriter writer, Request request) throws IOException {
+        if (request.template() != null) {
+            writer.writeTemplate(request.template());
+        } else {
+            writer.writeMethodName(request.methodName());
+        }
+    }
+
+    private ResponseBody createResponseBody(final Connection connection,
+                                            ConnectionCodec codec) throws IOException {
         final long responseLength = IOUtils.peekNumberLe(connection.source(), RESPONSE_LENGTH);
 
-        final FixedLengthSource responseParametersSource = new AutoCloseSource(connection, responseLength);
-        final BufferedSource source = Okio.buffer(responseParametersSource);
-        final ProtocolResponseReader reader = new SelfEndingBytesReader(source);
+        final BufferedSource source = codec.responseSource(responseLength);
+        final ProtocolResponseReader reader = codec.reader(source);
 
         reader.beginResponse();
         return new ResponseBody() {
@@ -249,9 +262,12 @@ class RealCall implements Call {
             private final Endpoint endpoint = connection.endpoint();
             private ResponseData data;
             private FixedLengthSource dataSource;
+            private boolean rawFrameWritten;
+            private boolean closed;
 
             @Override
             public ProtocolReader reader() {
+                checkNotClosed();
                 return reader;
             }
 
@@ -267,14 +283,48 @@ class RealCall implements Call {
 
             @Override
             public void writeTo(BufferedSink sink) throws IOException {
+                checkNotClosed();
                 checkNotAlreadyRead(this);
                 source.peek().readAll(sink);
                 reader.beginObject();
                 skipRemainingValues(this);
             }
 
+            @Override
+            public void writeRawFrameTo(BufferedSink sink) throws IOException {
+                if (sink == null) {
+                    throw new IllegalArgumentException("'sink' argument cannot be null.");
+                }
+                checkNotClosed();
+                checkNotAlreadyRead(this);
+
+                // The length prefix has already been consumed by the reader, restore it in front of the values.
+                // The values are relayed as they are read by a reader skipping them to find the length
+                // of the data following them. The prefix is unsigned, its lower 32 bits are written as is.
+                sink.writeIntLe((int) responseLength);
+                BufferedSource values = Okio.buffer(new RelayingSource(source, sink));
+                values.buffer().writeIntLe((int) responseLength);
+                BytesReader valuesReader = new BytesReader(values);
+                valuesReader.beginResponse();
+                long dataLength = valuesReader.endResponse() ? valuesReader.dataContentLength() : 0L;
+
+                if (dataLength > 0) {
+                    sink.write(connection.source(), dataLength);
+                }
+                synchronized (reader) {
+                    rawFrameWritten = true;
+                }
+            }
+
             @Override
             public ResponseData data() throws IOException {
+                synchronized (reader) {
+                    checkNotClosed();
+                    if (data != null) {
+                        // The reader may already be reading a response of another call.
+                        return data;
+                    }
+                }
                 int scope = reader.currentScope();
                 if (scope == ProtocolResponseReader.SCOPE_NONE) {
                     return null;
@@ -284,6 +334,7 @@ class RealCall implements Call {
                 }
                 long dataLength = reader.dataContentLength();
                 synchronized (reader) {
+                    checkNotClosed();
                     if (data == null) {
                         dataSource = new RecyclingFixedLengthSource(connectionProvider, connection, dataLength);
                         data = new ResponseData(Okio.buffer(dataSource), dataLength);
@@ -292,16 +343,43 @@ class RealCall implements Call {
                 return data;
             }
 
+            private void checkNotClosed() {
+                // The reader and the connection are reused by the next call once the body is closed.
+                synchronized (reader) {
+                    if (closed) {
+                        throw new IllegalStateException("Response body has been closed.");
+                    }
+                }
+            }
+
             @Override
             public void close() {
                 final int currentScope;
+                final ResponseData data;
                 final FixedLengthSource dataSource;
+                final boolean rawFrameWritten;
                 synchronized (reader) {
+                    if (closed) {
+                        // The reader may already be reading a response of another call.
+                        return;
+                    }
+                    closed = true;
                     currentScope = reader.currentScope();
+                    data = this.data;
                     dataSource = this.dataSource;
+                    rawFrameWritten = this.rawFrameWritten;
                 }
-                boolean responseReadFully = currentScope == ProtocolResponseReader.SCOPE_NONE;
-                if (responseReadFully && (dataSource == null || dataSource.bytesRemaining() == 0L)) {
+                if (rawFrameWritten) {
+                    // The whole frame, including any data, has been relayed.
+                    connectionProvider.recycleConnection(connection);
+                } else if (dataSource != null) {
+                    // Exhausted data sources recycle the connection on their own, empty ones are never read.
+                    if (dataSource.bytesRemaining() != 0L) {
+                        closeQuietly(connection);
+                    } else if (data.contentLength() == 0L) {
+                        connectionProvider.recycleConnection(connection);
+                    }
+                } else if (currentScope == ProtocolResponseReader.SCOPE_NONE) {
                     // All possible data has been read, safe to reuse the connection.
                     connectionProvider.recycleConnection(connection);
                 } else {
@@ -312,6 +390,9 @@ class RealCall implements Call {
         };
     }
 
+    /*
+     * Copies everything read from the source to a sink.
+     */
     private static class RecyclingFixedLengthSource extends FixedLengthSource {
 
         private ConnectionProvider connectionPool;
@@ -334,20 +415,4 @@ class RealCall implements Call {
             }
         }
     }
-
-    private static class AutoCloseSource extends FixedLengthSource {
-        private final Connection connection;
-
-        AutoCloseSource(Connection connection, long responseLength) throws IOException {
-            super(connection.source(), responseLength + RealCall.RESPONSE_LENGTH);
-            this.connection = connection;
-        }
-
-        @Override
-        protected void exhausted(boolean reuseSource) {
-            if (!reuseSource) {
-                connection.close();
-            }
-        }
-    }
 }
@@ -25,6 +25,8 @@ import okio.Source;
 import javax.net.SocketFactory;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import java.io.Closeable;
@@ -61,6 +63,9 @@ class RealConnection implements Connection {
     private final SocketFactory socketFactory;
     private final SSLSocketFactory sslSocketFactory;
     private final HostnameVerifier hostnameVerifier;
+    private final ConnectionSpec connectionSpec;
+    private final HandshakeStatistics handshakeStatistics;
+    private final VerifiedSessionCache verifiedSessions;
     private final Endpoint endpoint;
     private final UUID id = UUID.randomUUID();
     private final Executor cleanupExecutor;
@@ -79,14 +84,32 @@ class RealConnection implements Connection {
     private int readTimeout = NO_TIMEOUT;
     private int writeTimeout = NO_TIMEOUT;
 
+    private ConnectionCodec codec;
+    private Runnable closeAction;
+
     RealConnection(SocketFactory socketFactory,
                    SSLSocketFactory sslSocketFactory,
                    HostnameVerifier hostnameVerifier,
                    Endpoint endpoint,
                    Executor cleanupExecutor) {
+        this(socketFactory, sslSocketFactory, hostnameVerifier, ConnectionSpec.DEFAULT, new HandshakeStatistics(),
+                new VerifiedSessionCache(), endpoint, cleanupExecutor);
+    }
+
+    RealConnection(SocketFactory socketFactory,
+                   SSLSocketFactory sslSocketFactory,
+                   HostnameVerifier hostnameVerifier,
+                   ConnectionSpec connectionSpec,
+                   HandshakeStatistics handshakeStatistics,
+                   VerifiedSessionCache verifiedSessions,
+                   Endpoint endpoint,
+                   Executor cleanupExecutor) {
         this.socketFactory = socketFactory;
         this.sslSocketFactory = sslSocketFactory;
         this.hostnameVerifier = hostnameVerifier;
+        this.connectionSpec = connectionSpec;
+        this.handshakeStatistics = handshakeStatistics;
+        this.verifiedSessions = verifiedSessions;
         this.endpoint = endpoint;
         this.cleanupExecutor = cleanupExecutor;
     }
@@ -230,6 +253,34 @@ class RealConnection implements Connection {
         }
     }
 
+    /*
+     * Sets an action to be run once, when the connection gets closed.
+     */
+    void onClose(Runnable action) {
+        boolean alreadyClosed;
+        synchronized (this) {
+            alreadyClosed = closed;
+            if (!alreadyClosed) {
+                closeAction = action;
+            }
+        }
+        if (alreadyClosed) {
+            action.run();
+        }
+    }
+
+    ConnectionCodec codec() {
+        synchronized (this) {
+            return codec;
+        }
+    }
+
+    void codec(ConnectionCodec codec) {
+        synchronized (this) {
+            this.codec = codec;
+        }
+    }
+
     @Override
     public void readTimeout(long timeout, TimeUnit timeUnit) throws IOException {
         synchronized (this) {
@@ -285,9 +336,12 @@ class RealConnection implements Connection {
          *  based on the underlying implementation
          * (namely OpenSSL-based implementations on Android).
          * */
+        Runnable closeAction = null;
         if (!closed) {
             synchronized (this) {
                 if (!closed) {
+                    closeAction = this.closeAction;
+                    this.closeAction = null;
                     connected = false;
                     closeQuietly(rawSocket);
                     rawSocket = null;
@@ -295,6 +349,7 @@ class RealConnection implements Connection {
                     outputStream = null;
                     source = null;
                     sink = null;
+                    codec = null;
                     closed = true;
                     if (socket != null) {
                         closeSSLSocket(socket, mayBlock);
@@ -303,6 +358,9 @@ class RealConnection implements Connection {
                 }
             }
         }
+        if (closeAction != null) {
+            closeAction.run();
+        }
     }
 
     private void closeSSLSocket(SSLSocket socket, boolean mayBlock) {
@@ -400,10 +458,23 @@ class RealConnection implements Connection {
                 throw new IllegalStateException("The SSLSocketFactory did not return a SSLSocket. ");
             }
             socket = (SSLSocket) newSocket;
+            connectionSpec.apply(socket);
 
+            long handshakeStartNanos = System.nanoTime();
             socket.startHandshake();
-            if (!hostnameVerifier.verify(endpoint.host(), socket.getSession())) {
-                throw new SSLPeerUnverifiedException("Hostname " + endpoint.host() + " not verified:");
+            SSLSession session = socket.getSession();
+            // The hostname of a resumed session has already been verified by the connection which negotiated it.
+            boolean resumed = verifiedSessions.isResumed(session);
+            if (!resumed || !verifiedSessions.isVerified(session, endpoint.host())) {
+                if (!hostnameVerifier.verify(endpoint.host(), session)) {
+                    throw new SSLPeerUnverifiedException("Hostname " + endpoint.host() + " not verified:");
+                }
+                verifiedSessions.verified(session, endpoint.host());
+            }
+            handshakeStatistics.handshakeCompleted(System.nanoTime() - handshakeStartNanos, resumed);
+            SSLSessionContext sessionContext = session != null ? session.getSessionContext() : null;
+            if (sessionContext != null) {
+                connectionSpec.apply(sessionContext);
             }
             connectionSucceeded = true;
             return socket;
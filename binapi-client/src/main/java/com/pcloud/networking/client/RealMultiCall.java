@@ -16,11 +16,12 @@
 
 package com.pcloud.networking.client;
 
+import com.pcloud.networking.protocol.ArrayBytesReader;
 import com.pcloud.networking.protocol.BytesReader;
-import com.pcloud.networking.protocol.BytesWriter;
 import com.pcloud.networking.protocol.ProtocolReader;
 import com.pcloud.networking.protocol.ProtocolRequestWriter;
 import com.pcloud.networking.protocol.ProtocolResponseReader;
+import com.pcloud.networking.protocol.StringPool;
 import com.pcloud.utils.IOUtils;
 import okio.Buffer;
 import okio.BufferedSink;
@@ -51,6 +52,7 @@ import static com.pcloud.utils.IOUtils.closeQuietly;
 class RealMultiCall implements MultiCall {
 
     private static final int RESPONSE_LENGTH = 4;
+    private static final ProtocolReader.Options ID_KEY = ProtocolReader.Options.of("id");
 
     private volatile boolean executed;
     private volatile boolean cancelled;
@@ -61,14 +63,17 @@ class RealMultiCall implements MultiCall {
     private List<RequestInterceptor> interceptors;
     private ConnectionProvider connectionProvider;
     private Endpoint endpoint;
+    private StringPool stringPool;
 
     RealMultiCall(List<Request> requests, ExecutorService callExecutor,
-                  List<RequestInterceptor> interceptors, ConnectionProvider connectionProvider, Endpoint endpoint) {
+                  List<RequestInterceptor> interceptors, ConnectionProvider connectionProvider, Endpoint endpoint,
+                  StringPool stringPool) {
         this.requests = requests;
         this.callExecutor = callExecutor;
         this.connectionProvider = connectionProvider;
         this.interceptors = interceptors;
         this.endpoint = endpoint;
+        this.stringPool = stringPool;
     }
 
     @Override
@@ -269,7 +274,7 @@ class RealMultiCall implements MultiCall {
     @SuppressWarnings("CloneDoesntCallSuperClone")
     @Override
     public MultiCall clone() {
-        return new RealMultiCall(requests, callExecutor, interceptors, connectionProvider, endpoint);
+        return new RealMultiCall(requests, callExecutor, interceptors, connectionProvider, endpoint, stringPool);
     }
 
     private void initializeResponseMap(Map<Integer, Response> responseMap, int expectedCount) {
@@ -294,9 +299,9 @@ class RealMultiCall implements MultiCall {
     }
 
     private void writeRequest(Connection connection, long requestKey, Request request) throws IOException {
-        ProtocolRequestWriter writer = new BytesWriter(connection.sink());
-        writer.beginRequest()
-                .writeMethodName(request.methodName());
+        ProtocolRequestWriter writer = ConnectionCodec.of(connection, stringPool).writer();
+        writer.beginRequest();
+        RealCall.writeMethodName(writer, request);
         if (request.dataSource() != null) {
             writer.writeData(request.dataSource());
         }
@@ -328,8 +333,24 @@ class RealMultiCall implements MultiCall {
 
     private int readNextBufferedResponse(final Connection connection,
                                          Map<Integer, Response> responseMap) throws IOException {
-        ResponseBody responseBody = createBufferedResponseBody(connection);
-        int id = scanResponseParameters((ProtocolResponseReader) responseBody.reader(), true);
+        final long responseLength = IOUtils.peekNumberLe(connection.source(), RESPONSE_LENGTH);
+        if (responseLength > Integer.MAX_VALUE - RESPONSE_LENGTH) {
+            throw new IOException("Response too large to be buffered, size is " + responseLength + " bytes.");
+        }
+
+        final BufferedSource source = connection.source();
+        source.require(responseLength + RESPONSE_LENGTH);
+        final Buffer frame = new Buffer();
+        final Buffer pending = new Buffer();
+        source.read(pending, responseLength + RESPONSE_LENGTH);
+        // The 'id' key is looked up while the response is copied into its frame,
+        // the values before it are relayed as they are walked and the rest is copied as is.
+        BytesReader relayingReader = new BytesReader(Okio.buffer(new RelayingSource(pending, frame)));
+        relayingReader.beginResponse();
+        int id = readResponseId(relayingReader);
+        frame.writeAll(pending);
+
+        ResponseBody responseBody = createBufferedResponseBody(connection, frame.readByteArray(), responseLength);
         Response response = Response.create()
                 .request(requests.get(id))
                 .responseBody(responseBody)
@@ -338,38 +359,26 @@ class RealMultiCall implements MultiCall {
         return id;
     }
 
-    private BufferedResponseBody createBufferedResponseBody(final Connection connection) throws IOException {
-        final long responseLength = IOUtils.peekNumberLe(connection.source(), RESPONSE_LENGTH);
-
-        final Buffer responseBuffer = new Buffer();
-        connection.source().read(responseBuffer, responseLength + RESPONSE_LENGTH);
-
-        final BytesReader reader = new SelfEndingBytesReader(responseBuffer);
+    private BufferedResponseBody createBufferedResponseBody(Connection connection,
+                                                            byte[] responseBytes,
+                                                            long responseLength) throws IOException {
+        final ArrayBytesReader reader = new SelfEndingArrayBytesReader(responseBytes, stringPool);
         checkPeekAndActualContentLengths(responseLength, reader.beginResponse());
-        return new BufferedResponseBody(responseBuffer, reader, responseLength, connection.endpoint());
+        return new BufferedResponseBody(responseBytes, reader, responseLength, connection.endpoint());
     }
 
-    private int scanResponseParameters(ProtocolResponseReader reader, boolean readUntilEnd) throws IOException {
-        // Find the 'id' key value and check for a 'data' key
-        // Clone the buffer to allow reading of the buffered data
-        // without consuming the bytes form the original buffer.
-        ProtocolResponseReader peekingReader = reader.newPeekingReader();
-        peekingReader.beginObject();
+    private int readResponseId(ProtocolReader reader) throws IOException {
+        // Containers are not length-prefixed, so the values before the 'id' key still have to be walked,
+        // keys are matched without being decoded and values are skipped without being built.
+        reader.beginObject();
         int id = -1;
-        long dataLength = -1;
-        while (peekingReader.hasNext()) {
-            String name = peekingReader.readString();
-            if (name.equals("id")) {
-                id = (int) peekingReader.readNumber();
-            } else {
-                peekingReader.skipValue();
-            }
-            if (!readUntilEnd && (dataLength = peekingReader.dataContentLength()) != -1) {
+        while (reader.hasNext()) {
+            if (reader.selectName(ID_KEY) != -1) {
+                id = (int) reader.readNumber();
                 break;
             }
-        }
-        if (dataLength > 0) {
-            throw new IOException("MultiCalls are not supported for responses returning data.");
+            reader.skipValue();
+            reader.skipValue();
         }
 
         if (id == -1) {
@@ -391,8 +400,8 @@ class RealMultiCall implements MultiCall {
 
     private static class NoDataBytesReader extends SelfEndingBytesReader {
 
-        NoDataBytesReader(BufferedSource bufferedSource) {
-            super(bufferedSource);
+        NoDataBytesReader(BufferedSource bufferedSource, StringPool stringPool) {
+            super(bufferedSource, stringPool);
         }
 
         @Override
@@ -408,13 +417,13 @@ class RealMultiCall implements MultiCall {
 
     private static class BufferedResponseBody extends ResponseBody {
 
-        private final Buffer source;
+        private final byte[] responseBytes;
         private final ProtocolReader reader;
         private final long contentLength;
         private final Endpoint endpoint;
 
-        BufferedResponseBody(Buffer source, ProtocolReader reader, long contentLength, Endpoint endpoint) {
-            this.source = source;
+        BufferedResponseBody(byte[] responseBytes, ProtocolReader reader, long contentLength, Endpoint endpoint) {
+            this.responseBytes = responseBytes;
             this.reader = reader;
             this.contentLength = contentLength;
             this.endpoint = endpoint;
@@ -428,7 +437,10 @@ class RealMultiCall implements MultiCall {
         @Override
         public ByteString valuesBytes() throws IOException {
             checkNotAlreadyRead(this);
-            return source.readByteString();
+            ByteString values = ByteString.of(responseBytes, RESPONSE_LENGTH, (int) contentLength);
+            reader.beginObject();
+            skipRemainingValues(this);
+            return values;
         }
 
         @Override
@@ -450,14 +462,24 @@ class RealMultiCall implements MultiCall {
         @Override
         public void writeTo(BufferedSink sink) throws IOException {
             checkNotAlreadyRead(this);
-            source.peek().readAll(sink);
+            sink.write(responseBytes, RESPONSE_LENGTH, (int) contentLength);
             reader.beginObject();
             skipRemainingValues(this);
         }
 
+        @Override
+        public void writeRawFrameTo(BufferedSink sink) throws IOException {
+            if (sink == null) {
+                throw new IllegalArgumentException("'sink' argument cannot be null.");
+            }
+            checkNotAlreadyRead(this);
+            // MultiCalls do not allow responses with data, the buffered bytes are the whole frame.
+            sink.write(responseBytes);
+        }
+
         @Override
         public void close() {
-            source.close();
+            reader.close();
         }
     }
 
@@ -509,6 +531,18 @@ class RealMultiCall implements MultiCall {
             skipRemainingValues(this);
         }
 
+        @Override
+        public void writeRawFrameTo(BufferedSink sink) throws IOException {
+            if (sink == null) {
+                throw new IllegalArgumentException("'sink' argument cannot be null.");
+            }
+            checkNotAlreadyRead(this);
+            // The length prefix has already been consumed by the reader.
+            // MultiCalls do not allow responses with data, the values are the rest of the frame.
+            sink.writeIntLe((int) contentLength);
+            sink.writeAll(bufferedSource);
+        }
+
         @Override
         public void close() throws IOException {
             source.close();
@@ -641,7 +675,8 @@ class RealMultiCall implements MultiCall {
 
         private Response nextUnsafeResponse(Connection connection) throws IOException {
             FixedLengthResponseBody responseBody = createUnsafeResponseBody(connection);
-            int id = scanResponseParameters((ProtocolResponseReader) responseBody.reader(), true);
+            // Streamed responses are not copied, their 'id' key is looked up with a peeking reader.
+            int id = readResponseId(((ProtocolResponseReader) responseBody.reader()).newPeekingReader());
             return Response.create()
                     .request(requests.get(id))
                     .responseBody(responseBody)
@@ -663,7 +698,7 @@ class RealMultiCall implements MultiCall {
             };
 
             final BufferedSource bufferedSource = Okio.buffer(source);
-            final BytesReader reader = new NoDataBytesReader(bufferedSource);
+            final BytesReader reader = new NoDataBytesReader(bufferedSource, stringPool);
             checkPeekAndActualContentLengths(responseLength, reader.beginResponse());
             return new FixedLengthResponseBody(bufferedSource, source, reader, responseLength, connection.endpoint());
         }
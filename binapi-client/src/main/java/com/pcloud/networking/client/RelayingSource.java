@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.client;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSource;
+import okio.Source;
+
+import java.io.IOException;
+
+/*
+ * Copies the bytes read from a source to a sink, so that a frame can be walked by a reader while it is being copied.
+ */
+class RelayingSource extends ForwardingSource {
+
+    private final BufferedSink sink;
+
+    RelayingSource(Source source, BufferedSink sink) {
+        super(source);
+        this.sink = sink;
+    }
+
+    @Override
+    public long read(Buffer buffer, long byteCount) throws IOException {
+        long read = super.read(buffer, byteCount);
+        if (read > 0) {
+            buffer.copyTo(sink.buffer(), buffer.size() - read, read);
+            sink.emitCompleteSegments();
+        }
+        return read;
+    }
+}
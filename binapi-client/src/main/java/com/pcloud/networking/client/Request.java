@@ -17,6 +17,7 @@
 package com.pcloud.networking.client;
 
 import com.pcloud.networking.protocol.DataSource;
+import com.pcloud.networking.protocol.RequestTemplate;
 
 /**
  * An implementation of a network request to the server
@@ -39,11 +40,13 @@ public class Request {
 
     private Endpoint endpoint;
     private String methodName;
+    private RequestTemplate template;
     private RequestBody body;
     private DataSource dataSource;
 
     Request(Builder builder) {
         this.methodName = builder.methodName;
+        this.template = builder.template;
         this.body = builder.body;
         this.dataSource = builder.dataSource;
         this.endpoint = builder.endpoint;
@@ -58,6 +61,16 @@ public class Request {
         return methodName;
     }
 
+    /**
+     * Returns the {@linkplain RequestTemplate} of this {@linkplain Request}
+     *
+     * @return A reference to the {@linkplain RequestTemplate} of this {@linkplain Request},
+     * or {@code null}, if none has been set.
+     */
+    public RequestTemplate template() {
+        return template;
+    }
+
     /**
      * Returns the {@linkplain RequestBody} of this {@linkplain Request}
      *
@@ -106,6 +119,7 @@ public class Request {
     @SuppressWarnings({"WeakerAccess", "unused"})
     public static class Builder {
         private String methodName;
+        private RequestTemplate template;
         private RequestBody body;
         private DataSource dataSource;
         private Endpoint endpoint;
@@ -115,6 +129,7 @@ public class Request {
 
         private Builder(Request request) {
             methodName = request.methodName;
+            template = request.template;
             body = request.body;
             dataSource = request.dataSource;
             endpoint = request.endpoint;
@@ -122,6 +137,8 @@ public class Request {
 
         /**
          * Sets the method name for the {@linkplain Request}
+         * <p>
+         * Replaces any {@linkplain RequestTemplate} set before.
          *
          * @param methodName The method name to be set to the {@linkplain Request}
          * @return A reference to the {@linkplain Builder} object
@@ -133,6 +150,27 @@ public class Request {
             }
 
             this.methodName = methodName;
+            this.template = null;
+            return this;
+        }
+
+        /**
+         * Sets the {@linkplain RequestTemplate} for the {@linkplain Request}
+         * <p>
+         * The method name of the {@linkplain Request} is taken from the template and its
+         * fixed parameters are written before the ones of the {@linkplain RequestBody}.
+         *
+         * @param template The {@linkplain RequestTemplate} to be set to the {@linkplain Request}
+         * @return A reference to the {@linkplain Builder} object
+         * @throws IllegalArgumentException on a null {@linkplain RequestTemplate} argument
+         */
+        public Builder template(RequestTemplate template) {
+            if (template == null) {
+                throw new IllegalArgumentException("RequestTemplate argument cannot be null.");
+            }
+
+            this.methodName = template.methodName();
+            this.template = template;
             return this;
         }
 
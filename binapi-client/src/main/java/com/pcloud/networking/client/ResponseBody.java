@@ -17,6 +17,8 @@
 package com.pcloud.networking.client;
 
 import com.pcloud.networking.protocol.ProtocolReader;
+import com.pcloud.networking.protocol.ProtocolResponseReader;
+import com.pcloud.networking.protocol.ProtocolValue;
 import com.pcloud.networking.protocol.ValueReader;
 import okio.Buffer;
 import okio.BufferedSink;
@@ -91,6 +93,25 @@ public abstract class ResponseBody implements Closeable {
         return new ValueReader().readObject(reader());
     }
 
+    /**
+     * Reads the data from the {@linkplain ResponseBody} into a compact, read-only {@linkplain ProtocolValue} tree
+     * <p>
+     * A lighter alternative to {@linkplain #toValues()}, which does not box numbers and booleans.
+     *
+     * @return A {@linkplain ProtocolValue} with all the data from this {@linkplain ResponseBody}
+     * @throws IOException on failed IO operations
+     */
+    public final ProtocolValue toValue() throws IOException {
+        ProtocolReader reader = reader();
+        ProtocolValue value = ProtocolValue.read(reader);
+        if (reader instanceof ProtocolResponseReader &&
+                reader.currentScope() == ProtocolResponseReader.SCOPE_RESPONSE) {
+            // Unlike endObject(), a value read in a single call does not end the response on its own.
+            ((ProtocolResponseReader) reader).endResponse();
+        }
+        return value;
+    }
+
     /**
      * Returns the length of the content in this {@linkplain ResponseBody}
      *
@@ -129,6 +150,24 @@ public abstract class ResponseBody implements Closeable {
     @Deprecated
     public abstract void writeTo(BufferedSink sink) throws IOException;
 
+    /**
+     * Relay the response to a {@linkplain BufferedSink} as it was received, without decoding it
+     * <p>
+     * Writes the whole response frame, its 4-byte length prefix, the encoded values and the data following them,
+     * if any, so that it can be forwarded unchanged to another consumer. The data is streamed to the sink
+     * without being buffered in memory.
+     * <p>
+     * The body cannot be read through {@linkplain #reader()} or {@linkplain #data()} afterwards,
+     * but still has to be closed to release its connection.
+     *
+     * @param sink the receiver of the response frame
+     * @throws IOException              on failed IO operations
+     * @throws IllegalArgumentException on a null sink argument
+     * @throws IllegalStateException    if the response is already partially read
+     *                                  through the exposed {@linkplain ProtocolReader}.
+     */
+    public abstract void writeRawFrameTo(BufferedSink sink) throws IOException;
+
     @Override
     public String toString() {
         return String.format("(%s)->[Response]: %d bytes", endpoint(), contentLength());
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.client;
+
+import com.pcloud.networking.protocol.ArrayBytesReader;
+import com.pcloud.networking.protocol.StringPool;
+
+import java.io.IOException;
+
+class SelfEndingArrayBytesReader extends ArrayBytesReader {
+
+    SelfEndingArrayBytesReader(byte[] bytes, StringPool stringPool) {
+        super(bytes, 0, bytes.length, stringPool);
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        super.endObject();
+        if (currentScope() == SCOPE_RESPONSE) {
+            endResponse();
+        }
+    }
+}
@@ -17,14 +17,15 @@
 package com.pcloud.networking.client;
 
 import com.pcloud.networking.protocol.BytesReader;
+import com.pcloud.networking.protocol.StringPool;
 import okio.BufferedSource;
 
 import java.io.IOException;
 
 class SelfEndingBytesReader extends BytesReader {
 
-    SelfEndingBytesReader(BufferedSource bufferedSource) {
-        super(bufferedSource);
+    SelfEndingBytesReader(BufferedSource bufferedSource, StringPool stringPool) {
+        super(bufferedSource, stringPool);
     }
 
     @Override
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.client;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import java.security.cert.Certificate;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Remembers the TLS sessions negotiated by the connections of a {@linkplain ConnectionProvider}
+ * and the hosts verified for each peer certificate, so that resumed sessions are not verified again.
+ */
+class VerifiedSessionCache {
+
+    private static final String NEGOTIATED_SESSION_KEY = VerifiedSessionCache.class.getName() + ".negotiated";
+
+    private final Map<Certificate, Set<String>> verifiedHosts =
+            Collections.synchronizedMap(new WeakHashMap<Certificate, Set<String>>());
+
+    /*
+     * A session negotiated earlier keeps the value bound to it by this cache,
+     * sessions shared with other caches through the same SSLSessionContext are not considered resumed.
+     */
+    boolean isResumed(SSLSession session) {
+        return session != null && session.getValue(NEGOTIATED_SESSION_KEY) == this;
+    }
+
+    boolean isVerified(SSLSession session, String host) {
+        Certificate certificate = peerCertificate(session);
+        if (certificate == null) {
+            return false;
+        }
+        synchronized (verifiedHosts) {
+            Set<String> hosts = verifiedHosts.get(certificate);
+            return hosts != null && hosts.contains(host);
+        }
+    }
+
+    void verified(SSLSession session, String host) {
+        Certificate certificate = peerCertificate(session);
+        if (certificate == null) {
+            return;
+        }
+        synchronized (verifiedHosts) {
+            Set<String> hosts = verifiedHosts.get(certificate);
+            if (hosts == null) {
+                hosts = new HashSet<>();
+                verifiedHosts.put(certificate, hosts);
+            }
+            hosts.add(host);
+        }
+        session.putValue(NEGOTIATED_SESSION_KEY, this);
+    }
+
+    private static Certificate peerCertificate(SSLSession session) {
+        if (session == null) {
+            return null;
+        }
+        try {
+            Certificate[] certificates = session.getPeerCertificates();
+            return certificates != null && certificates.length > 0 ? certificates[0] : null;
+        } catch (SSLPeerUnverifiedException e) {
+            return null;
+        }
+    }
+}
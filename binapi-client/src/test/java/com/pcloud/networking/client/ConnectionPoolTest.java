@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.client;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class ConnectionPoolTest {
+
+    private static final Endpoint ENDPOINT = new Endpoint("somehost.api.com", 123);
+    private static final Endpoint OTHER_ENDPOINT = new Endpoint("otherhost.api.com", 123);
+    private static final long KEEP_ALIVE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private ConnectionPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        pool = new ConnectionPool(5, 5, TimeUnit.MINUTES);
+    }
+
+    @Test
+    public void get_Returns_The_Most_Recently_Recycled_Connection_To_The_Endpoint() throws Exception {
+        RealConnection first = idleConnection(ENDPOINT, System.nanoTime());
+        RealConnection other = idleConnection(OTHER_ENDPOINT, System.nanoTime());
+        RealConnection second = idleConnection(ENDPOINT, System.nanoTime());
+        pool.recycle(first);
+        pool.recycle(other);
+        pool.recycle(second);
+        assertEquals(3, pool.connectionCount());
+
+        assertSame(second, pool.get(ENDPOINT));
+        assertSame(first, pool.get(ENDPOINT));
+        assertNull(pool.get(ENDPOINT));
+        assertSame(other, pool.get(OTHER_ENDPOINT));
+        assertEquals(0, pool.connectionCount());
+    }
+
+    @Test
+    public void cleanup_Evicts_Connections_Idle_Longer_Than_The_Keep_Alive_Duration() throws Exception {
+        long now = System.nanoTime();
+        RealConnection expired = idleConnection(ENDPOINT, now - KEEP_ALIVE_NANOS);
+        RealConnection recent = idleConnection(OTHER_ENDPOINT, now);
+        pool.recycle(expired);
+        pool.recycle(recent);
+
+        // The cleanup scheduled by recycle() may evict the connection first.
+        pool.cleanup(now);
+        verify(expired, timeout(1000)).close(false);
+        assertEquals(1, pool.connectionCount());
+        assertNull(pool.get(ENDPOINT));
+
+        assertEquals(KEEP_ALIVE_NANOS, pool.cleanup(now));
+        verify(recent, never()).close(anyBoolean());
+    }
+
+    @Test
+    public void cleanup_Evicts_The_Longest_Idle_Connection_Above_The_Idle_Limit() throws Exception {
+        pool = new ConnectionPool(1, 5, TimeUnit.MINUTES);
+        long now = System.nanoTime();
+        RealConnection oldest = idleConnection(ENDPOINT, now - 2);
+        RealConnection newest = idleConnection(ENDPOINT, now - 1);
+        pool.recycle(oldest);
+        pool.recycle(newest);
+
+        pool.cleanup(now);
+        verify(oldest, timeout(1000)).close(false);
+        assertTrue(pool.cleanup(now) > 0L);
+        verify(newest, never()).close(anyBoolean());
+        assertEquals(1, pool.connectionCount());
+        assertSame(newest, pool.get(ENDPOINT));
+    }
+
+    @Test
+    public void cleanup_Stops_When_The_Pool_Is_Empty() throws Exception {
+        assertEquals(-1L, pool.cleanup(System.nanoTime()));
+    }
+
+    @Test
+    public void evictAll_Closes_All_Idle_Connections() throws Exception {
+        RealConnection first = idleConnection(ENDPOINT, System.nanoTime());
+        RealConnection second = idleConnection(OTHER_ENDPOINT, System.nanoTime());
+        pool.recycle(first);
+        pool.recycle(second);
+
+        pool.evictAll();
+        verify(first).close();
+        verify(second).close();
+        assertEquals(0, pool.connectionCount());
+        assertNull(pool.get(ENDPOINT));
+    }
+
+    @Test
+    public void recycle_Closes_Connections_If_No_Idle_Connections_Are_Allowed() throws Exception {
+        pool = new ConnectionPool(0, 5, TimeUnit.MINUTES);
+        RealConnection connection = idleConnection(ENDPOINT, System.nanoTime());
+        pool.recycle(connection);
+
+        verify(connection).close(false);
+        assertEquals(0, pool.connectionCount());
+    }
+
+    @Test
+    public void acquire_Reserves_A_New_Connection_Below_The_Limit() throws Exception {
+        pool = limitedPool(2, 1000);
+
+        assertNull(pool.acquire(ENDPOINT));
+        pool.opened(unconnectedConnection(ENDPOINT));
+        assertNull(pool.acquire(ENDPOINT));
+        pool.opened(unconnectedConnection(ENDPOINT));
+        assertNull(pool.acquire(OTHER_ENDPOINT));
+    }
+
+    @Test
+    public void acquire_Waits_For_A_Connection_To_Be_Recycled_Once_The_Limit_Is_Reached() throws Exception {
+        pool = limitedPool(1, 5000);
+        final RealConnection connection = unconnectedConnection(ENDPOINT);
+        assertNull(pool.acquire(ENDPOINT));
+        pool.opened(connection);
+
+        recycleLater(connection);
+        assertSame(connection, pool.acquire(ENDPOINT));
+    }
+
+    @Test
+    public void acquire_Waits_For_A_Connection_To_Be_Closed_Once_The_Limit_Is_Reached() throws Exception {
+        pool = limitedPool(1, 5000);
+        final RealConnection connection = unconnectedConnection(ENDPOINT);
+        assertNull(pool.acquire(ENDPOINT));
+        pool.opened(connection);
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                sleep(100);
+                connection.close();
+            }
+        }).start();
+        assertNull(pool.acquire(ENDPOINT));
+    }
+
+    @Test
+    public void acquire_Throws_If_No_Connection_Becomes_Available_In_Time() throws Exception {
+        pool = limitedPool(1, 50);
+        assertNull(pool.acquire(ENDPOINT));
+        pool.opened(unconnectedConnection(ENDPOINT));
+
+        expectedException.expect(InterruptedIOException.class);
+        pool.acquire(ENDPOINT);
+    }
+
+    @Test
+    public void acquire_Serves_Waiting_Callers_Before_New_Ones() throws Exception {
+        pool = limitedPool(1, 50);
+        RealConnection connection = unconnectedConnection(ENDPOINT);
+        assertNull(pool.acquire(ENDPOINT));
+        pool.opened(connection);
+
+        // The recycled connection is handed over right away, repeat to give new callers a chance to barge in.
+        for (int attempt = 0; attempt < 20; attempt++) {
+            final AtomicReference<RealConnection> waiterConnection = new AtomicReference<>();
+            Thread waiter = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        waiterConnection.set(pool.acquire(ENDPOINT));
+                    } catch (InterruptedIOException e) {
+                        waiterConnection.set(null);
+                    }
+                }
+            });
+            waiter.start();
+            while (waiter.getState() != Thread.State.TIMED_WAITING) {
+                Thread.yield();
+            }
+
+            pool.recycle(connection);
+            try {
+                pool.acquire(ENDPOINT);
+                fail("The connection was taken ahead of the waiting caller.");
+            } catch (InterruptedIOException expected) {
+                // The only connection goes to the waiting caller.
+            }
+            waiter.join();
+            assertSame(connection, waiterConnection.get());
+        }
+    }
+
+    @Test
+    public void constructor_Throws_On_Invalid_Connection_Limit() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        limitedPool(0, 50);
+    }
+
+    @Test
+    public void prewarm_Opens_Idle_Connections_In_The_Background() throws Exception {
+        CountingOpener opener = new CountingOpener();
+        pool.connectionOpener(opener);
+
+        pool.prewarm(ENDPOINT, 2);
+        awaitConnectionCount(2);
+        assertEquals(2, opener.openCount);
+        assertSame(ENDPOINT, pool.get(ENDPOINT).endpoint());
+    }
+
+    @Test
+    public void prewarm_Does_Not_Exceed_The_Connection_Limit() throws Exception {
+        pool = limitedPool(1, 50);
+        CountingOpener opener = new CountingOpener();
+        pool.connectionOpener(opener);
+
+        pool.prewarm(ENDPOINT, 3);
+        awaitConnectionCount(1);
+        sleep(100);
+        assertEquals(1, opener.openCount);
+        assertEquals(1, pool.connectionCount());
+    }
+
+    @Test
+    public void prewarm_Throws_If_The_Pool_Has_No_Client() throws Exception {
+        expectedException.expect(IllegalStateException.class);
+        pool.prewarm(ENDPOINT, 1);
+    }
+
+    @Test
+    public void get_Replaces_Connections_Below_The_Minimum_Idle_Count() throws Exception {
+        pool = new ConnectionPool(5, 5, TimeUnit.MINUTES, 5, 50, TimeUnit.MILLISECONDS, 1);
+        CountingOpener opener = new CountingOpener();
+        pool.connectionOpener(opener);
+        RealConnection connection = idleConnection(ENDPOINT, System.nanoTime());
+        pool.recycle(connection);
+
+        assertSame(connection, pool.get(ENDPOINT));
+        awaitConnectionCount(1);
+        assertEquals(1, opener.openCount);
+    }
+
+    @Test
+    public void get_Does_Not_Retry_A_Failed_Fill_Immediately() throws Exception {
+        pool = new ConnectionPool(5, 5, TimeUnit.MINUTES, 5, 50, TimeUnit.MILLISECONDS, 1);
+        FailingOpener opener = new FailingOpener();
+        pool.connectionOpener(opener);
+        pool.recycle(idleConnection(ENDPOINT, System.nanoTime()));
+
+        assertNotNull(pool.get(ENDPOINT));
+        sleep(200);
+        assertEquals(1, opener.openCount);
+        assertFillStopped();
+        assertNull(pool.get(ENDPOINT));
+        assertEquals(1, opener.openCount);
+    }
+
+    @Test
+    public void minimum_Idle_Count_Is_Restored_Once_A_Saturated_Endpoint_Closes_A_Connection() throws Exception {
+        pool = new ConnectionPool(5, 5, TimeUnit.MINUTES, 1, 50, TimeUnit.MILLISECONDS, 1);
+        CountingOpener opener = new CountingOpener();
+        pool.connectionOpener(opener);
+        RealConnection inUse = unconnectedConnection(ENDPOINT);
+        assertNull(pool.acquire(ENDPOINT));
+        pool.opened(inUse);
+
+        pool.prewarm(ENDPOINT, 1);
+        sleep(200);
+        assertEquals(0, opener.openCount);
+        assertFillStopped();
+
+        inUse.close();
+        awaitConnectionCount(1);
+        assertEquals(1, opener.openCount);
+    }
+
+    @Test
+    public void constructor_Throws_On_More_Minimum_Than_Maximum_Idle_Connections() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        new ConnectionPool(1, 5, TimeUnit.MINUTES, 5, 50, TimeUnit.MILLISECONDS, 2);
+    }
+
+    private void awaitConnectionCount(int count) {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (pool.connectionCount() < count && System.currentTimeMillis() < deadline) {
+            sleep(10);
+        }
+        assertEquals(count, pool.connectionCount());
+    }
+
+    private static class CountingOpener implements ConnectionPool.ConnectionOpener {
+        volatile int openCount;
+
+        @Override
+        public RealConnection open(Endpoint endpoint) {
+            openCount++;
+            return idleConnection(endpoint, System.nanoTime());
+        }
+    }
+
+    private class FailingOpener implements ConnectionPool.ConnectionOpener {
+        volatile int openCount;
+
+        @Override
+        public RealConnection open(Endpoint endpoint) throws IOException {
+            openCount++;
+            RealConnection connection = unconnectedConnection(endpoint);
+            pool.opened(connection);
+            connection.close();
+            throw new IOException("Connection refused.");
+        }
+    }
+
+    private static void assertFillStopped() {
+        // A fill that keeps restarting keeps the background threads runnable.
+        for (int sample = 0; sample < 10; sample++) {
+            boolean running = false;
+            for (Map.Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces().entrySet()) {
+                running |= entry.getKey().getName().equals("pCloud Connections Daemon") &&
+                        entry.getKey().getState() == Thread.State.RUNNABLE;
+            }
+            if (!running) {
+                return;
+            }
+            sleep(10);
+        }
+        fail("The background threads keep running.");
+    }
+
+    private void recycleLater(final RealConnection connection) {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                sleep(100);
+                pool.recycle(connection);
+            }
+        }).start();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ConnectionPool limitedPool(int maxConnectionsPerEndpoint, long acquireTimeoutMillis) {
+        return new ConnectionPool(5, 5, TimeUnit.MINUTES,
+                maxConnectionsPerEndpoint, acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static RealConnection unconnectedConnection(Endpoint endpoint) {
+        return new RealConnection(null, null, null, endpoint, new Utils.TestExecutor());
+    }
+
+    private static RealConnection idleConnection(Endpoint endpoint, long idleAtNanos) {
+        RealConnection connection = mock(RealConnection.class);
+        when(connection.endpoint()).thenReturn(endpoint);
+        when(connection.idleAtNanos()).thenReturn(idleAtNanos);
+        return connection;
+    }
+}
@@ -17,6 +17,7 @@
 package com.pcloud.networking.client;
 
 import com.pcloud.networking.protocol.DataSource;
+import com.pcloud.networking.protocol.ProtocolReader;
 import com.pcloud.networking.protocol.ProtocolRequestWriter;
 import com.pcloud.networking.protocol.ProtocolResponseReader;
 import com.pcloud.networking.protocol.ResponseBytesWriter;
@@ -84,7 +85,7 @@ public class RealApiChannelTest {
     @Test
     public void requested_Connection_Is_For_The_Specified_Endpoint() throws Exception {
         Endpoint endpoint = new Endpoint("somehost", 123);
-        try (ApiChannel channel = new RealApiChannel(connectionProvider, endpoint)) {
+        try (ApiChannel channel = new RealApiChannel(connectionProvider, endpoint, null)) {
             verify(connectionProvider).obtainConnection(eq(endpoint));
         }
     }
@@ -92,7 +93,7 @@ public class RealApiChannelTest {
     @Test
     public void endpoint_Is_Always_Non_Null() throws Exception {
         Endpoint endpoint = new Endpoint("somehost", 12345);
-        try (ApiChannel apiChannel = new RealApiChannel(connectionProvider, endpoint)) {
+        try (ApiChannel apiChannel = new RealApiChannel(connectionProvider, endpoint, null)) {
             assertEquals(endpoint, apiChannel.endpoint());
             assertNotNull(apiChannel.endpoint());
             apiChannel.close();
@@ -290,6 +291,20 @@ public class RealApiChannelTest {
         }
     }
 
+    @Test
+    public void Reader_uncheckedReader_Throws_ClosedChannelException_On_Closed_Instance() throws Exception {
+        try (ApiChannel apiChannel = createChannelInstance()) {
+            connection.readBuffer().write(mockResponse());
+
+            ProtocolResponseReader reader = apiChannel.reader();
+            reader.beginResponse();
+            ProtocolReader uncheckedReader = reader.uncheckedReader();
+            uncheckedReader.beginObject();
+            apiChannel.close();
+            expectException(uncheckedReader, ClosedChannelException.class).hasNext();
+        }
+    }
+
     @Test
     public void Reader_skipValue_Throws_ClosedChannelException_On_Closed_Instance() throws Exception {
         try (ApiChannel apiChannel = createChannelInstance()) {
@@ -474,6 +489,6 @@ public class RealApiChannelTest {
 
 
     private RealApiChannel createChannelInstance() throws IOException {
-        return new RealApiChannel(connectionProvider, Endpoint.DEFAULT);
+        return new RealApiChannel(connectionProvider, Endpoint.DEFAULT, null);
     }
 }
\ No newline at end of file
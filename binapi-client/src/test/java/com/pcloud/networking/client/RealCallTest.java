@@ -18,6 +18,7 @@ package com.pcloud.networking.client;
 
 import com.pcloud.networking.protocol.BytesReader;
 import com.pcloud.networking.protocol.ProtocolReader;
+import okio.Buffer;
 import okio.BufferedSink;
 import okio.Okio;
 import org.assertj.core.api.ThrowableAssert;
@@ -40,6 +41,8 @@ import java.util.concurrent.TimeoutException;
 
 import static okio.Okio.blackhole;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
@@ -329,6 +332,173 @@ public class RealCallTest {
         verifyConnectionRecycled(connection);
     }
 
+    @Test
+    public void testWriteRawFrameToRelaysTheResponseAndRecyclesTheConnection() throws Exception {
+        Endpoint endpoint = new Endpoint(MOCK_HOST, MOCK_PORT);
+        Request request = RequestUtils.getUserInfoRequest(endpoint);
+        Connection connection = createDummyConnection(request.endpoint(), MOCK_EMPTY_ARRAY_RESPONSE);
+
+        mockConnection(connection);
+
+        final RealCall call = createCall(request, executor);
+
+        Buffer sink = new Buffer();
+        try (Response response = call.execute()) {
+            response.responseBody().writeRawFrameTo(sink);
+        }
+
+        assertArrayEquals(MOCK_EMPTY_ARRAY_RESPONSE, sink.readByteArray());
+        verifyConnectionRecycled(connection);
+    }
+
+    @Test
+    public void testWriteRawFrameToRelaysTheResponseData() throws Exception {
+        Endpoint endpoint = new Endpoint(MOCK_HOST, MOCK_PORT);
+        Request request = RequestUtils.getUserInfoRequest(endpoint);
+        byte[] frame = new Buffer()
+                .writeIntLe(16)
+                .writeByte(16) // Begin object
+                .writeByte(104).writeUtf8("data") // Compressed string with 4 bytes
+                .writeByte(20).writeLongLe(3) // Data with 3 bytes
+                .writeByte(-1) // End object
+                .writeUtf8("abc")
+                .readByteArray();
+        byte[] input = new Buffer().write(frame).writeUtf8("next").readByteArray();
+        Connection connection = createDummyConnection(request.endpoint(), input);
+
+        mockConnection(connection);
+
+        final RealCall call = createCall(request, executor);
+
+        Buffer sink = new Buffer();
+        try (Response response = call.execute()) {
+            response.responseBody().writeRawFrameTo(sink);
+        }
+
+        assertArrayEquals(frame, sink.readByteArray());
+        assertEquals("next", ((DummyConnection) connection).readBuffer().readUtf8());
+        verifyConnectionRecycled(connection);
+    }
+
+    @Test
+    public void testWriteRawFrameToRelaysResponsesLargerThanTheReadBuffer() throws Exception {
+        Endpoint endpoint = new Endpoint(MOCK_HOST, MOCK_PORT);
+        Request request = RequestUtils.getUserInfoRequest(endpoint);
+        StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            longString.append("value ");
+        }
+        Buffer values = new Buffer()
+                .writeByte(16) // Begin object
+                .writeByte(104).writeUtf8("name") // Compressed string with 4 bytes
+                .writeByte(3).writeIntLe(longString.length()).writeUtf8(longString.toString()) // String with 4 byte length
+                .writeByte(104).writeUtf8("data") // Compressed string with 4 bytes
+                .writeByte(20).writeLongLe(3) // Data with 3 bytes
+                .writeByte(-1); // End object
+        Buffer frameBuffer = new Buffer().writeIntLe((int) values.size());
+        frameBuffer.write(values, values.size());
+        byte[] frame = frameBuffer.writeUtf8("abc").readByteArray();
+        Connection connection = createDummyConnection(request.endpoint(), frame);
+
+        mockConnection(connection);
+
+        final RealCall call = createCall(request, executor);
+
+        Buffer sink = new Buffer();
+        try (Response response = call.execute()) {
+            response.responseBody().writeRawFrameTo(sink);
+        }
+
+        assertArrayEquals(frame, sink.readByteArray());
+        verifyConnectionRecycled(connection);
+    }
+
+    @Test
+    public void testReadingTheResponseBodyAsAValueRecyclesTheConnection() throws Exception {
+        Endpoint endpoint = new Endpoint(MOCK_HOST, MOCK_PORT);
+        Request request = RequestUtils.getUserInfoRequest(endpoint);
+        Connection connection = createDummyConnection(request.endpoint(), MOCK_EMPTY_ARRAY_RESPONSE);
+
+        mockConnection(connection);
+
+        final RealCall call = createCall(request, executor);
+
+        try (Response response = call.execute()) {
+            assertEquals(0, response.responseBody().toValue().size());
+        }
+
+        verifyConnectionRecycled(connection);
+    }
+
+    @Test
+    public void testReadingAnEmptyDataResponseRecyclesTheConnection() throws Exception {
+        Endpoint endpoint = new Endpoint(MOCK_HOST, MOCK_PORT);
+        Request request = RequestUtils.getUserInfoRequest(endpoint);
+        byte[] frame = new Buffer()
+                .writeIntLe(16)
+                .writeByte(16) // Begin object
+                .writeByte(104).writeUtf8("data") // Compressed string with 4 bytes
+                .writeByte(20).writeLongLe(0) // Data with 0 bytes
+                .writeByte(-1) // End object
+                .readByteArray();
+        Connection connection = createDummyConnection(request.endpoint(), frame);
+
+        mockConnection(connection);
+
+        final RealCall call = createCall(request, executor);
+
+        try (Response response = call.execute()) {
+            readResponse((BytesReader) response.responseBody().reader());
+            ResponseData data = response.responseBody().data();
+            assertEquals(0L, data.contentLength());
+            assertEquals(0, data.bytes().length);
+        }
+
+        verifyConnectionRecycled(connection);
+    }
+
+    @Test
+    public void testClosedResponseBodyCannotBeReadAfterTheConnectionIsReused() throws Exception {
+        Endpoint endpoint = new Endpoint(MOCK_HOST, MOCK_PORT);
+        Request request = RequestUtils.getUserInfoRequest(endpoint);
+        byte[] input = new Buffer()
+                .write(MOCK_EMPTY_ARRAY_RESPONSE)
+                .write(MOCK_EMPTY_ARRAY_RESPONSE)
+                .readByteArray();
+        Connection connection = createDummyConnection(request.endpoint(), input);
+
+        mockConnection(connection);
+
+        Response staleResponse = createCall(request, executor).execute();
+        final ResponseBody staleBody = staleResponse.responseBody();
+        readResponse((BytesReader) staleBody.reader());
+        staleResponse.close();
+        verifyConnectionRecycled(connection);
+
+        try (Response response = createCall(request, executor).execute()) {
+            assertThatThrownBy(new ThrowableAssert.ThrowingCallable() {
+                @Override
+                public void call() throws Throwable {
+                    staleBody.reader();
+                }
+            }).isInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(new ThrowableAssert.ThrowingCallable() {
+                @Override
+                public void call() throws Throwable {
+                    staleBody.data();
+                }
+            }).isInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(new ThrowableAssert.ThrowingCallable() {
+                @Override
+                public void call() throws Throwable {
+                    staleBody.writeRawFrameTo(new Buffer());
+                }
+            }).isInstanceOf(IllegalStateException.class);
+
+            readResponse((BytesReader) response.responseBody().reader());
+        }
+    }
+
     @Test
     public void testConnectionProviderSearchesForConnectionOnTheRequestEndpoint() throws Exception {
         Endpoint endpoint = new Endpoint(MOCK_HOST, MOCK_PORT);
@@ -409,7 +579,7 @@ public class RealCallTest {
 
     private RealCall createCall(Request request, ExecutorService executor) {
         return new RealCall(request,
-                executor, new ArrayList<RequestInterceptor>(), connectionProvider);
+                executor, new ArrayList<RequestInterceptor>(), connectionProvider, null);
     }
 
     @AfterClass
@@ -16,6 +16,7 @@
 
 package com.pcloud.networking.client;
 
+import com.pcloud.networking.protocol.ProtocolReader;
 import com.pcloud.networking.protocol.ResponseBytesWriter;
 import okio.ByteString;
 import org.assertj.core.api.ThrowableAssert;
@@ -419,6 +420,65 @@ public class RealMultiCallTest {
         verifyConnectionRecycled(connection);
     }
 
+    @Test
+    public void testExecuteRoutesResponsesLargerThanTheReadBuffer() throws Exception {
+        Request request = Request.create()
+                .methodName("someApiMethod")
+                .body(RequestBody.EMPTY)
+                .build();
+        char[] padding = new char[20000];
+        Arrays.fill(padding, 'a');
+        List<ResponseBytesWriter> expectedResponses = Arrays.asList(
+                new ResponseBytesWriter()
+                        .beginObject()
+                        .writeValue("padding", new String(padding))
+                        .writeValue("id", 1)
+                        .writeValue("result", 1)
+                        .endObject(),
+                new ResponseBytesWriter()
+                        .beginObject()
+                        .writeValue("padding", new String(padding, 0, 100))
+                        .writeValue("id", 0)
+                        .writeValue("result", 0)
+                        .endObject());
+        Connection connection = spy(DummyConnection.withResponses(expectedResponses));
+        retrofitConnectionProvider(connection);
+
+        MultiResponse response = createMultiCall(request, request).execute();
+
+        assertEquals(expectedResponses.get(1).bytes(), responseBytes(response.response(0)));
+        assertEquals(expectedResponses.get(0).bytes(), responseBytes(response.response(1)));
+        verifyConnectionRecycled(connection);
+    }
+
+    @Test
+    public void testSkippingABufferedResponseEndsIt() throws Exception {
+        Request request = Request.create()
+                .methodName("someApiMethod")
+                .body(RequestBody.EMPTY)
+                .build();
+        ResponseBytesWriter expectedResponse = new ResponseBytesWriter()
+                .beginObject()
+                .writeValue("id", 0)
+                .writeValue("result", 0)
+                .endObject();
+        Connection connection = spy(DummyConnection.withResponses(Collections.singletonList(expectedResponse)));
+        retrofitConnectionProvider(connection);
+
+        MultiResponse response = createMultiCall(request).execute();
+        ProtocolReader reader = response.response(0).responseBody().reader();
+        reader.skipValue();
+
+        assertEquals(ProtocolReader.SCOPE_NONE, reader.currentScope());
+    }
+
+    private static ByteString responseBytes(Response response) throws IOException {
+        return new okio.Buffer()
+                .writeIntLe((int) response.responseBody().contentLength())
+                .write(response.responseBody().valuesBytes())
+                .snapshot();
+    }
+
     private static void assertContainsResponse(Collection<ResponseBytesWriter> responses, Response response) throws IOException {
         ByteString responseBytes = new okio.Buffer()
                 .writeIntLe((int) response.responseBody().contentLength())
@@ -481,7 +541,7 @@ public class RealMultiCallTest {
 
     private MultiCall createMultiCall(List<Request> requests, ExecutorService executor, Endpoint endpoint) {
         return spy(new RealMultiCall(requests,
-                executor, new ArrayList<RequestInterceptor>(), connectionProvider, endpoint));
+                executor, new ArrayList<RequestInterceptor>(), connectionProvider, endpoint, null));
     }
 
     @AfterClass
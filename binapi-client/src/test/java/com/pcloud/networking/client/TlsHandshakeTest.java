@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.client;
+
+import com.pcloud.networking.client.internal.tls.DefaultHostnameVerifier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import javax.net.SocketFactory;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TlsHandshakeTest {
+
+    private static final String KEYSTORE = "/localhost.jks";
+    private static final char[] KEYSTORE_PASSWORD = "password".toCharArray();
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private SSLContext clientContext;
+    private SSLServerSocket serverSocket;
+    private final BlockingQueue<SSLSession> serverSessions = new LinkedBlockingQueue<>();
+    private Endpoint endpoint;
+    private CountingHostnameVerifier hostnameVerifier;
+    private HandshakeStatistics statistics;
+    private VerifiedSessionCache verifiedSessions;
+    private Certificate serverCertificate;
+
+    @Before
+    public void setUp() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        try (InputStream keyStoreStream = getClass().getResourceAsStream(KEYSTORE)) {
+            keyStore.load(keyStoreStream, KEYSTORE_PASSWORD);
+        }
+        serverCertificate = keyStore.getCertificate(keyStore.aliases().nextElement());
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, KEYSTORE_PASSWORD);
+        TrustManagerFactory trustManagerFactory =
+                TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(keyStore);
+
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(keyManagerFactory.getKeyManagers(), null, null);
+        clientContext = SSLContext.getInstance("TLS");
+        clientContext.init(null, trustManagerFactory.getTrustManagers(), null);
+
+        serverSocket = (SSLServerSocket) serverContext.getServerSocketFactory().createServerSocket(0);
+        startServer();
+        endpoint = new Endpoint("localhost", serverSocket.getLocalPort());
+        hostnameVerifier = new CountingHostnameVerifier();
+        statistics = new HandshakeStatistics();
+        verifiedSessions = new VerifiedSessionCache();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        serverSocket.close();
+    }
+
+    @Test
+    public void connect_Resumes_The_Session_Of_An_Earlier_Connection() throws Exception {
+        ConnectionSpec spec = ConnectionSpec.create().tlsVersions("TLSv1.2").build();
+
+        connect(spec).close(true);
+        connect(spec).close(true);
+
+        assertEquals(2, statistics.handshakeCount());
+        assertEquals(1, statistics.resumedHandshakeCount());
+        assertEquals(0.5d, statistics.sessionReuseRate(), 0d);
+        assertTrue(statistics.lastHandshakeDuration(TimeUnit.NANOSECONDS) > 0L);
+    }
+
+    @Test
+    public void connect_Does_Not_Verify_The_Hostname_Of_A_Resumed_Session() throws Exception {
+        ConnectionSpec spec = ConnectionSpec.create().tlsVersions("TLSv1.2").build();
+
+        connect(spec).close(true);
+        connect(spec).close(true);
+
+        assertEquals(1, hostnameVerifier.verifyCount.get());
+    }
+
+    @Test
+    public void verifiedSessions_Keeps_Every_Host_Verified_For_A_Certificate() throws Exception {
+        SSLSession session = mock(SSLSession.class);
+        when(session.getPeerCertificates()).thenReturn(new Certificate[]{serverCertificate});
+
+        verifiedSessions.verified(session, "api.pcloud.com");
+        verifiedSessions.verified(session, "eapi.pcloud.com");
+
+        assertTrue(verifiedSessions.isVerified(session, "api.pcloud.com"));
+        assertTrue(verifiedSessions.isVerified(session, "eapi.pcloud.com"));
+        assertFalse(verifiedSessions.isVerified(session, "example.com"));
+    }
+
+    @Test
+    public void connect_Enables_The_Preferred_Cipher_Suites() throws Exception {
+        ConnectionSpec spec = ConnectionSpec.create()
+                .tlsVersions("TLSv1.2")
+                .cipherSuites("TLS_FAKE_CIPHER_SUITE", "TLS_ECDHE_RSA_WITH_AES_256_GCM_SHA384")
+                .build();
+
+        connect(spec).close(true);
+
+        SSLSession serverSession = serverSessions.poll(CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertEquals("TLSv1.2", serverSession.getProtocol());
+        assertEquals("TLS_ECDHE_RSA_WITH_AES_256_GCM_SHA384", serverSession.getCipherSuite());
+    }
+
+    @Test
+    public void connect_Sets_The_Session_Cache_Settings() throws Exception {
+        ConnectionSpec spec = ConnectionSpec.create()
+                .sessionCacheSize(16)
+                .sessionTimeout(10, TimeUnit.MINUTES)
+                .build();
+
+        connect(spec).close(true);
+
+        assertEquals(16, clientContext.getClientSessionContext().getSessionCacheSize());
+        assertEquals(600, clientContext.getClientSessionContext().getSessionTimeout());
+    }
+
+    @Test
+    public void connect_Throws_If_No_Tls_Version_Is_Supported() throws Exception {
+        expectedException.expect(SSLException.class);
+        connect(ConnectionSpec.create().tlsVersions("TLSv0.9").build());
+    }
+
+    @Test
+    public void builder_Throws_On_Negative_Session_Cache_Size() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        ConnectionSpec.create().sessionCacheSize(-1);
+    }
+
+    private RealConnection connect(ConnectionSpec spec) throws IOException {
+        RealConnection connection = new RealConnection(SocketFactory.getDefault(), clientContext.getSocketFactory(),
+                hostnameVerifier, spec, statistics, verifiedSessions, endpoint, new Utils.TestExecutor());
+        connection.connect(CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        return connection;
+    }
+
+    private void startServer() {
+        Thread acceptThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        serve((SSLSocket) serverSocket.accept());
+                    }
+                } catch (IOException ignored) {
+                    // The server socket is closed.
+                }
+            }
+        });
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    private void serve(final SSLSocket socket) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    socket.startHandshake();
+                    serverSessions.add(socket.getSession());
+                    // Keep the connection open until the client closes it.
+                    socket.getInputStream().read();
+                } catch (IOException ignored) {
+                    // The client failed the handshake or closed the connection.
+                } finally {
+                    try {
+                        socket.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static class CountingHostnameVerifier implements HostnameVerifier {
+        final AtomicInteger verifyCount = new AtomicInteger();
+
+        @Override
+        public boolean verify(String hostname, SSLSession session) {
+            verifyCount.incrementAndGet();
+            return DefaultHostnameVerifier.INSTANCE.verify(hostname, session);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.api;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Limit the response members read for an API method.
+ * <p>
+ * Each value is a dot-separated path of response member names, e.g. {@code "metadata.contents.fileid"}.
+ * Arrays along a path are transparent, the rest of the path applies to each of their elements.
+ * Members outside of the listed paths are skipped without being decoded, as if the server did not send them.
+ * <p>
+ * The "result" and "error" members are always read.
+ * <p>
+ * <b>NOTE:</b> Only methods returning an {@code ApiResponse} type, or calls of such, can be annotated.
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Fields {
+
+    /**
+     * The response member paths to be read.
+     *
+     * @return the dot-separated member paths
+     */
+    String[] value();
+}
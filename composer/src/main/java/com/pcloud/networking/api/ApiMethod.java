@@ -18,6 +18,7 @@ package com.pcloud.networking.api;
 
 import com.pcloud.networking.client.Endpoint;
 import com.pcloud.networking.client.ResponseBody;
+import com.pcloud.networking.protocol.FieldProjection;
 import com.pcloud.networking.serialization.TypeAdapter;
 import com.pcloud.utils.Types;
 
@@ -32,6 +33,9 @@ abstract class ApiMethod<T> {
 
     static final Object[] EMPTY_ARGS = new Object[0];
 
+    private static final String RESULT_FIELD = "result";
+    private static final String ERROR_FIELD = "error";
+
     abstract T invoke(ApiComposer apiComposer, Object[] args) throws IOException;
 
     @SuppressWarnings({"WeakerAccess", "unused"})
@@ -71,12 +75,18 @@ abstract class ApiMethod<T> {
                                                                    Class<T> returnType) {
             if (ApiResponse.class.isAssignableFrom(returnType)) {
                 TypeAdapter<T> typeAdapter = getTypeAdapter(composer, method, returnType);
+                FieldProjection projection = parseFieldsAnnotation(method);
                 if (DataApiResponse.class.isAssignableFrom(returnType)) {
-                    return new DataApiResponseAdapter<>((TypeAdapter<? extends DataApiResponse>) typeAdapter);
+                    return new DataApiResponseAdapter<>(
+                            (TypeAdapter<? extends DataApiResponse>) typeAdapter, projection);
                 } else {
-                    return new ApiResponseAdapter<>((TypeAdapter<? extends ApiResponse>) typeAdapter);
+                    return new ApiResponseAdapter<>((TypeAdapter<? extends ApiResponse>) typeAdapter, projection);
                 }
             } else if (returnType == ResponseBody.class) {
+                if (method.isAnnotationPresent(Fields.class)) {
+                    throw apiMethodError(method, "@%s cannot be used on methods returning '%s'.",
+                            Fields.class.getSimpleName(), ResponseBody.class);
+                }
                 return (ResponseAdapter<T>) new ResponseBodyAdapter();
             } else {
                 throw apiMethodError(method, "Return type '%s' is not supported," +
@@ -85,6 +95,24 @@ abstract class ApiMethod<T> {
             }
         }
 
+        protected static FieldProjection parseFieldsAnnotation(Method method) {
+            Fields fields = method.getAnnotation(Fields.class);
+            if (fields == null) {
+                return null;
+            }
+            if (fields.value().length == 0) {
+                throw apiMethodError(method, "@%s must list at least one response member.",
+                        Fields.class.getSimpleName());
+            }
+            try {
+                // The members declared in ApiResponse are needed by every response.
+                return FieldProjection.of(fields.value()).plus(RESULT_FIELD, ERROR_FIELD);
+            } catch (IllegalArgumentException e) {
+                throw apiMethodError(method, e, "Invalid @%s paths %s.",
+                        Fields.class.getSimpleName(), Arrays.toString(fields.value()));
+            }
+        }
+
         protected static RequestAdapter getRequestAdapter(ApiComposer composer, Method method,
                                                           Type[] parameterTypes,
                                                           Annotation[][] annotations) {
@@ -17,6 +17,8 @@
 package com.pcloud.networking.api;
 
 import com.pcloud.networking.client.Response;
+import com.pcloud.networking.protocol.FieldProjection;
+import com.pcloud.networking.protocol.ProtocolReader;
 import com.pcloud.networking.serialization.TypeAdapter;
 
 import java.io.IOException;
@@ -26,18 +28,25 @@ import static com.pcloud.utils.IOUtils.closeQuietly;
 class ApiResponseAdapter<T> implements ResponseAdapter<T> {
 
     private TypeAdapter<? extends ApiResponse> typeAdapter;
+    private final FieldProjection projection;
 
-    ApiResponseAdapter(TypeAdapter<? extends ApiResponse> typeAdapter) {
+    ApiResponseAdapter(TypeAdapter<? extends ApiResponse> typeAdapter, FieldProjection projection) {
         this.typeAdapter = typeAdapter;
+        this.projection = projection;
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public T adapt(Response response) throws IOException {
         try {
-            return (T) typeAdapter.deserialize(response.responseBody().reader());
+            return (T) typeAdapter.deserialize(reader(response));
         } finally {
             closeQuietly(response);
         }
     }
+
+    private ProtocolReader reader(Response response) {
+        ProtocolReader reader = response.responseBody().reader();
+        return projection != null ? projection.apply(reader) : reader;
+    }
 }
@@ -19,6 +19,7 @@ package com.pcloud.networking.api;
 import com.pcloud.networking.client.Endpoint;
 import com.pcloud.networking.client.Request;
 import com.pcloud.networking.protocol.DataSource;
+import com.pcloud.networking.protocol.EncodedName;
 import com.pcloud.networking.protocol.ProtocolWriter;
 import com.pcloud.networking.serialization.GuardedSerializationTypeAdapter;
 import com.pcloud.networking.serialization.TypeAdapter;
@@ -53,13 +54,14 @@ class ArgumentAdapters {
     static <T> ArgumentAdapter<T> parameter(final String name, final TypeAdapter<T> adapter) {
 
         final TypeAdapter<T> guardedTypeAdapter = new GuardedSerializationTypeAdapter<>(adapter);
+        final EncodedName encodedName = EncodedName.of(name);
 
         return new BodyWritingArgumentAdapter<T>() {
 
             @Override
             public void adapt(ProtocolWriter writer, T argValue) throws IOException {
                 if (argValue != null) {
-                    writer.writeName(name);
+                    writer.writeEncodedName(encodedName);
                     guardedTypeAdapter.serialize(writer, argValue);
                 }
             }
@@ -17,6 +17,7 @@
 package com.pcloud.networking.api;
 
 import com.pcloud.networking.client.Request;
+import com.pcloud.networking.protocol.RequestTemplate;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
@@ -27,14 +28,14 @@ class CallWrappedApiMethod<T, R> extends ApiMethod<R> {
 
     static final ApiMethod.Factory FACTORY = new Factory();
 
-    private String apiMethodName;
+    private RequestTemplate requestTemplate;
     private RequestAdapter requestAdapter;
     private ResponseAdapter<T> returnTypeAdapter;
     private CallAdapter callAdapter;
 
     private CallWrappedApiMethod(String apiMethodName, RequestAdapter requestAdapter,
                                  ResponseAdapter<T> returnTypeAdapter, CallAdapter callAdapter) {
-        this.apiMethodName = apiMethodName;
+        this.requestTemplate = RequestTemplate.create(apiMethodName).build();
         this.requestAdapter = requestAdapter;
         this.returnTypeAdapter = returnTypeAdapter;
         this.callAdapter = callAdapter;
@@ -43,7 +44,7 @@ class CallWrappedApiMethod<T, R> extends ApiMethod<R> {
     @Override
     @SuppressWarnings("unchecked")
     public R invoke(ApiComposer apiComposer, Object[] args) throws IOException {
-        Request.Builder builder = Request.create().methodName(apiMethodName);
+        Request.Builder builder = Request.create().template(requestTemplate);
         requestAdapter.adapt(builder, args);
         com.pcloud.networking.client.Call rawCall = apiComposer.apiClient().newCall(builder.build());
 
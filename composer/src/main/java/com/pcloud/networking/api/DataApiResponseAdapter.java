@@ -17,6 +17,8 @@
 package com.pcloud.networking.api;
 
 import com.pcloud.networking.client.Response;
+import com.pcloud.networking.protocol.FieldProjection;
+import com.pcloud.networking.protocol.ProtocolReader;
 import com.pcloud.networking.serialization.TypeAdapter;
 
 import java.io.IOException;
@@ -26,9 +28,11 @@ import static com.pcloud.utils.IOUtils.closeQuietly;
 class DataApiResponseAdapter<T> implements ResponseAdapter<T> {
 
     private final TypeAdapter<? extends DataApiResponse> typeAdapter;
+    private final FieldProjection projection;
 
-    DataApiResponseAdapter(TypeAdapter<? extends DataApiResponse> typeAdapter) {
+    DataApiResponseAdapter(TypeAdapter<? extends DataApiResponse> typeAdapter, FieldProjection projection) {
         this.typeAdapter = typeAdapter;
+        this.projection = projection;
     }
 
     @SuppressWarnings("unchecked")
@@ -36,7 +40,7 @@ class DataApiResponseAdapter<T> implements ResponseAdapter<T> {
     public T adapt(Response response) throws IOException {
         boolean success = false;
         try {
-            DataApiResponse result = typeAdapter.deserialize(response.responseBody().reader());
+            DataApiResponse result = typeAdapter.deserialize(reader(response));
             if (result.isSuccessful()) {
                 result.setResponseData(response.responseBody().data());
             } else {
@@ -51,4 +55,9 @@ class DataApiResponseAdapter<T> implements ResponseAdapter<T> {
             }
         }
     }
+
+    private ProtocolReader reader(Response response) {
+        ProtocolReader reader = response.responseBody().reader();
+        return projection != null ? projection.apply(reader) : reader;
+    }
 }
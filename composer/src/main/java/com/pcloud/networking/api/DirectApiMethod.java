@@ -17,6 +17,7 @@
 package com.pcloud.networking.api;
 
 import com.pcloud.networking.client.Request;
+import com.pcloud.networking.protocol.RequestTemplate;
 import com.pcloud.utils.Types;
 
 import java.io.IOException;
@@ -49,19 +50,19 @@ class DirectApiMethod<T> extends ApiMethod<T> {
         }
     }
 
-    private String apiMethodName;
+    private RequestTemplate requestTemplate;
     private RequestAdapter requestAdapter;
     private ResponseAdapter<T> responseAdapter;
 
     private DirectApiMethod(String apiMethodName, RequestAdapter requestAdapter, ResponseAdapter<T> responseAdapter) {
-        this.apiMethodName = apiMethodName;
+        this.requestTemplate = RequestTemplate.create(apiMethodName).build();
         this.requestAdapter = requestAdapter;
         this.responseAdapter = responseAdapter;
     }
 
     @Override
     public T invoke(ApiComposer apiComposer, Object[] args) throws IOException {
-        Request.Builder builder = Request.create().methodName(apiMethodName);
+        Request.Builder builder = Request.create().template(requestTemplate);
         requestAdapter.adapt(builder, args);
 
         com.pcloud.networking.client.Call rawCall = apiComposer.apiClient().newCall(builder.build());
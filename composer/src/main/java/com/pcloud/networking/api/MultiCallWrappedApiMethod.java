@@ -18,6 +18,7 @@ package com.pcloud.networking.api;
 
 import com.pcloud.networking.client.Request;
 import com.pcloud.networking.client.MultiCall;
+import com.pcloud.networking.protocol.RequestTemplate;
 import com.pcloud.utils.Types;
 
 import java.io.IOException;
@@ -42,7 +43,7 @@ class MultiCallWrappedApiMethod<T, R> extends ApiMethod<R> {
         List<R> convert(T requestsContainer);
     }
 
-    private String apiMethodName;
+    private RequestTemplate requestTemplate;
 
     private RequestContainerAdapter<Object, T> argumentsRequestContainerAdapter;
     private RequestAdapter requestAdapter;
@@ -54,7 +55,7 @@ class MultiCallWrappedApiMethod<T, R> extends ApiMethod<R> {
                                       RequestAdapter requestAdapter,
                                       ResponseAdapter<R> returnTypeAdapter,
                                       CallAdapter callAdapter) {
-        this.apiMethodName = apiMethodName;
+        this.requestTemplate = RequestTemplate.create(apiMethodName).build();
         this.argumentsRequestContainerAdapter = argumentsRequestContainerAdapter;
         this.requestAdapter = requestAdapter;
         this.returnTypeAdapter = returnTypeAdapter;
@@ -69,7 +70,7 @@ class MultiCallWrappedApiMethod<T, R> extends ApiMethod<R> {
             throw new IllegalArgumentException("The requests container cannot be null!");
         }
         List<Request> rawRequests = new ArrayList<>(requests.size());
-        final Request.Builder builder = Request.create().methodName(apiMethodName);
+        final Request.Builder builder = Request.create().template(requestTemplate);
 
         for (final T request : requests) {
             requestAdapter.adapt(builder, request);
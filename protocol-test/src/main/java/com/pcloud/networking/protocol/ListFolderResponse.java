@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.protocol;
+
+import java.io.IOException;
+
+/**
+ * A listfolder-like response shared by the protocol tests.
+ * <p>
+ * The response has numbers, booleans, short, long and repeated strings, nested objects,
+ * an array of objects, an array of strings and an empty array:
+ * <pre>
+ * {"result": 0, "bignumber": Long.MAX_VALUE, "longstring": LONG_STRING,
+ *  "metadata": {"name": FOLDER_NAME, "isfolder": true, "contents": [
+ *      {"name": "File 0", "size": 0, "fileid": 0, "thumb": true, "icon": "document"}, ...]},
+ *  "tags": ["a", "b"], "shares": [], "id": ID}
+ * </pre>
+ */
+@SuppressWarnings("WeakerAccess")
+public final class ListFolderResponse {
+
+    public static final String FOLDER_NAME = "Documents";
+    public static final long ID = 42L;
+    public static final String LONG_STRING;
+
+    private static final int LONG_STRING_REPEAT_COUNT = 50;
+    private static final long FILE_SIZE_STEP = 1000L;
+
+    static {
+        StringBuilder builder = new StringBuilder();
+        for (int index = 0; index < LONG_STRING_REPEAT_COUNT; index++) {
+            builder.append("long string ");
+        }
+        LONG_STRING = builder.toString();
+    }
+
+    private ListFolderResponse() {
+    }
+
+    public static ResponseBytesWriter create(int fileCount) {
+        ResponseBytesWriter writer = new ResponseBytesWriter()
+                .beginObject()
+                .writeValue("result", 0L)
+                .writeValue("bignumber", Long.MAX_VALUE)
+                .writeValue("longstring", LONG_STRING)
+                .writeKey("metadata").beginObject()
+                .writeValue("name", FOLDER_NAME)
+                .writeValue("isfolder", true)
+                .writeKey("contents");
+        writer.beginArray();
+        for (int index = 0; index < fileCount; index++) {
+            writer.beginObject()
+                    .writeValue("name", fileName(index))
+                    .writeValue("size", fileSize(index))
+                    .writeValue("fileid", (long) index)
+                    .writeValue("thumb", index % 2 == 0)
+                    .writeValue("icon", index % 2 == 0 ? "document" : "image")
+                    .endObject();
+        }
+        writer.endArray()
+                .endObject()
+                .writeKey("tags");
+        try {
+            writer.beginArray()
+                    .write("a")
+                    .write("b")
+                    .endArray();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        writer.writeKey("shares").beginArray();
+        return writer.endArray()
+                .writeValue("id", ID)
+                .endObject();
+    }
+
+    public static String fileName(int index) {
+        return "File " + index;
+    }
+
+    public static long fileSize(int index) {
+        return FILE_SIZE_STEP * index;
+    }
+}
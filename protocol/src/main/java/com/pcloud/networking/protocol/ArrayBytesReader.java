@@ -0,0 +1,995 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.protocol;
+
+import okio.BufferedSink;
+import okio.ByteString;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ProtocolException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static com.pcloud.networking.protocol.Protocol.KIND_BEGIN_ARRAY;
+import static com.pcloud.networking.protocol.Protocol.KIND_BEGIN_OBJECT;
+import static com.pcloud.networking.protocol.Protocol.KIND_BOOLEAN;
+import static com.pcloud.networking.protocol.Protocol.KIND_DATA;
+import static com.pcloud.networking.protocol.Protocol.KIND_END;
+import static com.pcloud.networking.protocol.Protocol.KIND_NUMBER;
+import static com.pcloud.networking.protocol.Protocol.KIND_NUMBER_COMPRESSED;
+import static com.pcloud.networking.protocol.Protocol.KIND_STRING;
+import static com.pcloud.networking.protocol.Protocol.KIND_STRING_COMPRESSED;
+import static com.pcloud.networking.protocol.Protocol.KIND_STRING_COMPRESSED_REUSED;
+import static com.pcloud.networking.protocol.Protocol.KIND_STRING_REUSED;
+import static com.pcloud.networking.protocol.Protocol.TYPE_AGGREGATE_BOOLEAN;
+import static com.pcloud.networking.protocol.Protocol.TYPE_AGGREGATE_END_ARRAY;
+import static com.pcloud.networking.protocol.Protocol.TYPE_AGGREGATE_END_OBJECT;
+import static com.pcloud.networking.protocol.Protocol.TYPE_AGGREGATE_NUMBER;
+import static com.pcloud.networking.protocol.Protocol.TYPE_AGGREGATE_STRING;
+import static com.pcloud.networking.protocol.Protocol.TYPE_KINDS;
+import static com.pcloud.networking.protocol.Protocol.TYPE_PAYLOADS;
+import static com.pcloud.networking.protocol.Protocol.TYPE_SKIP_SIZES;
+import static com.pcloud.networking.protocol.Protocol.checkScope;
+import static com.pcloud.networking.protocol.Protocol.checkScopeIsAtLeast;
+import static com.pcloud.networking.protocol.Protocol.getToken;
+
+/**
+ * A reader for pCloud's binary data protocol, reading from a byte array
+ * <p>
+ * An implementation of {@linkplain ProtocolResponseReader} which can read data
+ * encoded in pCloud's binary protocol from responses that have already been fully read into memory.
+ * <p>
+ * Compared to {@linkplain BytesReader}, values are decoded directly from the backing array,
+ * without going through a {@linkplain okio.BufferedSource}. Prefer this implementation whenever
+ * a whole response is buffered before being read.
+ * <p>
+ * The implementation can be reused for reading multiple responses from the array,
+ * as long as they are read completely.
+ *
+ * @see ProtocolReader
+ * @see ProtocolResponseReader
+ * @see BytesReader
+ */
+public class ArrayBytesReader implements ProtocolResponseReader {
+
+
+    private static final int DEFAULT_STRING_CACHE_SIZE = 50;
+    private static final int SCOPE_STACK_INITIAL_CAPACITY = 5;
+
+    private static final int HEX_255 = 0xff;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final byte[] bytes;
+    private final int limit;
+    private final StringPool stringPool;
+    private int position;
+
+    private volatile int currentScope = SCOPE_NONE;
+    private int previousScope = SCOPE_NONE;
+    private IntStack scopeStack;
+
+    // Strings are cached as ranges of the backing array and decoded only when requested.
+    private int lastStringId;
+    private int[] stringCacheOffsets;
+    private int[] stringCacheLengths;
+    private String[] stringCache;
+    private Options[] stringCacheOptions;
+    private int[] stringCacheOptionIndexes;
+    private volatile long dataLength = UNKNOWN_SIZE;
+    private boolean[] valueScopes;
+    private UncheckedReader uncheckedReader;
+
+    /**
+     * Create a {@linkplain ArrayBytesReader} instance
+     * <p>
+     *
+     * @param bytes a byte array to read the data from
+     * @throws IllegalArgumentException on a null byte array argument
+     */
+    public ArrayBytesReader(byte[] bytes) {
+        this(bytes, 0, bytes != null ? bytes.length : 0);
+    }
+
+    /**
+     * Create a {@linkplain ArrayBytesReader} instance
+     * <p>
+     *
+     * @param bytes     a byte array to read the data from
+     * @param offset    the offset of the first byte to be read
+     * @param byteCount the number of bytes that can be read, starting from {@code offset}
+     * @throws IllegalArgumentException on a null byte array argument
+     * @throws IndexOutOfBoundsException if {@code offset} and {@code byteCount} are outside the array bounds
+     */
+    public ArrayBytesReader(byte[] bytes, int offset, int byteCount) {
+        this(bytes, offset, byteCount, null);
+    }
+
+    /**
+     * Create a {@linkplain ArrayBytesReader} instance which shares decoded strings through a {@linkplain StringPool}
+     * <p>
+     *
+     * @param bytes      a byte array to read the data from
+     * @param offset     the offset of the first byte to be read
+     * @param byteCount  the number of bytes that can be read, starting from {@code offset}
+     * @param stringPool a {@linkplain StringPool} for the decoded strings, can be null
+     * @throws IllegalArgumentException on a null byte array argument
+     * @throws IndexOutOfBoundsException if {@code offset} and {@code byteCount} are outside the array bounds
+     */
+    public ArrayBytesReader(byte[] bytes, int offset, int byteCount, StringPool stringPool) {
+        if (bytes == null) {
+            throw new IllegalArgumentException("Byte array argument cannot be null.");
+        }
+        if (offset < 0 || byteCount < 0 || offset > bytes.length - byteCount) {
+            throw new IndexOutOfBoundsException("offset=" + offset +
+                    ", byteCount=" + byteCount + ", length=" + bytes.length);
+        }
+        this.bytes = bytes;
+        this.position = offset;
+        this.limit = offset + byteCount;
+        this.stringPool = stringPool;
+        this.scopeStack = new IntStack(SCOPE_STACK_INITIAL_CAPACITY);
+    }
+
+    private ArrayBytesReader(ArrayBytesReader reader) {
+        this.bytes = reader.bytes;
+        this.limit = reader.limit;
+        this.stringPool = reader.stringPool;
+        this.position = reader.position;
+        this.currentScope = reader.currentScope;
+        this.previousScope = reader.previousScope;
+        this.scopeStack = new IntStack(reader.scopeStack);
+        this.stringCacheOffsets = reader.stringCacheOffsets;
+        this.stringCacheLengths = reader.stringCacheLengths;
+        this.stringCache = reader.stringCache;
+        this.stringCacheOptions = reader.stringCacheOptions;
+        this.stringCacheOptionIndexes = reader.stringCacheOptionIndexes;
+        this.lastStringId = reader.lastStringId;
+        this.dataLength = reader.dataLength;
+    }
+
+    @Override
+    public TypeToken peek() throws IOException {
+        checkScopeIsAtLeast(currentScope, SCOPE_RESPONSE);
+        return getToken(peekType(), currentScope);
+    }
+
+    @Override
+    public long beginResponse() throws IOException {
+        checkScope(currentScope, SCOPE_NONE);
+        pushScope(SCOPE_RESPONSE);
+        stringCacheOffsets = new int[DEFAULT_STRING_CACHE_SIZE];
+        stringCacheLengths = new int[DEFAULT_STRING_CACHE_SIZE];
+        stringCache = new String[DEFAULT_STRING_CACHE_SIZE];
+        stringCacheOptions = null;
+        stringCacheOptionIndexes = null;
+        lastStringId = 0;
+        long responseLength = pullNumber(Protocol.SIZE_RESPONSE_LENGTH);
+        require(responseLength);
+        return responseLength;
+    }
+
+    @Override
+    public boolean endResponse() throws IOException {
+        checkScope(currentScope, SCOPE_RESPONSE);
+
+        // Check if anything was read and skip it until end.
+        if (previousScope == SCOPE_NONE) {
+            while (hasNext()) {
+                skipNextValue(currentScope);
+            }
+        }
+        popScope();
+        stringCacheOffsets = null;
+        stringCacheLengths = null;
+        stringCache = null;
+        stringCacheOptions = null;
+        stringCacheOptionIndexes = null;
+
+        boolean dataAvailable = dataLength != UNKNOWN_SIZE;
+        if (dataAvailable) {
+            pushScope(SCOPE_DATA);
+        }
+
+        return dataAvailable;
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        checkScopeIsAtLeast(currentScope, SCOPE_RESPONSE);
+        int type = pullType();
+        if (type == Protocol.TYPE_BEGIN_OBJECT ||
+                (type == Protocol.TYPE_BEGIN_ARRAY &&
+                        peekType() == Protocol.TYPE_END_ARRAY_OBJECT)) {
+            pushScope(SCOPE_OBJECT);
+        } else {
+            throw typeMismatchError(Protocol.TYPE_BEGIN_OBJECT, type);
+        }
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        checkScopeIsAtLeast(currentScope, SCOPE_OBJECT);
+        int type = pullType();
+        if (type == Protocol.TYPE_BEGIN_ARRAY) {
+            pushScope(SCOPE_ARRAY);
+        } else {
+            throw typeMismatchError(Protocol.TYPE_BEGIN_ARRAY, type);
+        }
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        checkScope(currentScope, SCOPE_ARRAY);
+        int type = pullType();
+        if (type == Protocol.TYPE_END_ARRAY_OBJECT) {
+            popScope();
+        } else {
+            throw typeMismatchError(TYPE_AGGREGATE_END_ARRAY, type);
+        }
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        checkScope(currentScope, SCOPE_OBJECT);
+        int type = pullType();
+        if (type == Protocol.TYPE_END_ARRAY_OBJECT) {
+            popScope();
+        } else {
+            throw typeMismatchError(TYPE_AGGREGATE_END_OBJECT, type);
+        }
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        checkScopeIsAtLeast(currentScope, SCOPE_OBJECT);
+        return booleanValue(pullType());
+    }
+
+    private boolean booleanValue(int type) throws IOException {
+        if (type == Protocol.TYPE_BOOLEAN_TRUE) {
+            return true;
+        } else if (type == Protocol.TYPE_BOOLEAN_FALSE) {
+            return false;
+        } else {
+            throw typeMismatchError(TYPE_AGGREGATE_BOOLEAN, type);
+        }
+    }
+
+    @Override
+    public String readString() throws IOException {
+        checkScopeIsAtLeast(currentScope, SCOPE_OBJECT);
+        return stringValue(pullType());
+    }
+
+    private String stringValue(int type) throws IOException {
+        switch (TYPE_KINDS[type]) {
+            case KIND_STRING:
+            case KIND_STRING_COMPRESSED:
+                // String, possibly with compression optimization
+                int stringLength = pullStringLength(type);
+                int start = position;
+                String value = pullUtf8(stringLength);
+                cacheString(start, stringLength, value);
+                return value;
+            case KIND_STRING_REUSED:
+                // String, existing value
+                return cachedString((int) pullNumber(TYPE_PAYLOADS[type]));
+            case KIND_STRING_COMPRESSED_REUSED:
+                // String, existing value, with compression optimization
+                return cachedString(TYPE_PAYLOADS[type]);
+            default:
+                throw typeMismatchError(TYPE_AGGREGATE_STRING, type);
+        }
+    }
+
+    @Override
+    public ByteString readStringBytes() throws IOException {
+        checkScopeIsAtLeast(currentScope, SCOPE_OBJECT);
+        return stringBytesValue(pullType());
+    }
+
+    private ByteString stringBytesValue(int type) throws IOException {
+        switch (TYPE_KINDS[type]) {
+            case KIND_STRING:
+            case KIND_STRING_COMPRESSED:
+                // String, possibly with compression optimization
+                int stringLength = pullStringLength(type);
+                int start = position;
+                skip(stringLength);
+                cacheString(start, stringLength, null);
+                return ByteString.of(bytes, start, stringLength);
+            case KIND_STRING_REUSED:
+                // String, existing value
+                return cachedStringBytes((int) pullNumber(TYPE_PAYLOADS[type]));
+            case KIND_STRING_COMPRESSED_REUSED:
+                // String, existing value, with compression optimization
+                return cachedStringBytes(TYPE_PAYLOADS[type]);
+            default:
+                throw typeMismatchError(TYPE_AGGREGATE_STRING, type);
+        }
+    }
+
+    private int pullStringLength(int type) throws IOException {
+        if (TYPE_KINDS[type] == KIND_STRING) {
+            long stringLength = pullNumber(TYPE_PAYLOADS[type]);
+            require(stringLength);
+            return (int) stringLength;
+        }
+        return TYPE_PAYLOADS[type];
+    }
+
+    @Override
+    public int selectName(Options options) throws IOException {
+        checkScopeIsAtLeast(currentScope, SCOPE_OBJECT);
+        return selectNextName(options);
+    }
+
+    private int selectNextName(Options options) throws IOException {
+        int type = peekType();
+        switch (TYPE_KINDS[type]) {
+            case KIND_STRING:
+                int lengthByteCount = TYPE_PAYLOADS[type];
+                require(1 + lengthByteCount);
+                long stringLength = numberAt(position + 1, lengthByteCount);
+                return selectString(options, 1 + lengthByteCount, stringLength);
+            case KIND_STRING_REUSED:
+                // String, existing value
+                int idByteCount = TYPE_PAYLOADS[type];
+                require(1 + idByteCount);
+                int cachedStringId = (int) numberAt(position + 1, idByteCount);
+                return selectCachedString(options, 1 + idByteCount, cachedStringId);
+            case KIND_STRING_COMPRESSED:
+                // String, with compression optimization
+                return selectString(options, 1, TYPE_PAYLOADS[type]);
+            case KIND_STRING_COMPRESSED_REUSED:
+                // String, existing value, with compression optimization
+                return selectCachedString(options, 1, TYPE_PAYLOADS[type]);
+            default:
+                throw typeMismatchError(TYPE_AGGREGATE_STRING, type);
+        }
+    }
+
+    private int selectString(Options options, int headerLength, long stringLength) throws IOException {
+        require(headerLength + stringLength);
+        final int start = position + headerLength;
+        final byte[][] candidates = options.utf8Strings;
+        for (int index = 0; index < candidates.length; index++) {
+            byte[] candidate = candidates[index];
+            if (candidate.length == stringLength && rangeEquals(start, candidate)) {
+                position = start + candidate.length;
+                // The selection is memoized only once the string gets referenced again,
+                // one-off lookups should not have to pay for the bookkeeping.
+                cacheString(start, candidate.length, options.get(index));
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private boolean rangeEquals(int offset, byte[] other) {
+        for (int index = 0; index < other.length; index++) {
+            if (bytes[offset + index] != other[index]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int selectCachedString(Options options, int headerLength, int cachedStringId) throws IOException {
+        int index;
+        if (stringCacheOptions != null && cachedStringId < stringCacheOptions.length &&
+                stringCacheOptions[cachedStringId] == options) {
+            index = stringCacheOptionIndexes[cachedStringId];
+        } else {
+            index = options.indexOf(cachedString(cachedStringId));
+            cacheSelection(cachedStringId, options, index);
+        }
+
+        if (index != -1) {
+            position += headerLength;
+        }
+        return index;
+    }
+
+    private void cacheSelection(int stringId, Options options, int index) {
+        if (stringCacheOptions == null) {
+            int capacity = Math.max(stringId + 1, DEFAULT_STRING_CACHE_SIZE);
+            stringCacheOptions = new Options[capacity];
+            stringCacheOptionIndexes = new int[capacity];
+        } else if (stringCacheOptions.length <= stringId) {
+            // Sized after the selected ids rather than the whole string cache,
+            // selections are mostly made for member names, which get cached early on.
+            int newCapacity = Math.max(stringId + 1, stringCacheOptions.length << 1);
+            stringCacheOptions = Arrays.copyOf(stringCacheOptions, newCapacity);
+            stringCacheOptionIndexes = Arrays.copyOf(stringCacheOptionIndexes, newCapacity);
+        }
+        // Remember the match, so that following references to the same cached
+        // string can be resolved without comparing any values.
+        stringCacheOptions[stringId] = options;
+        stringCacheOptionIndexes[stringId] = index;
+    }
+
+    private String cachedString(int stringId) throws ProtocolException {
+        checkCachedStringId(stringId);
+        String value = stringCache[stringId];
+        if (value == null) {
+            value = decodeUtf8(stringCacheOffsets[stringId], stringCacheLengths[stringId]);
+            stringCache[stringId] = value;
+        }
+        return value;
+    }
+
+    private ByteString cachedStringBytes(int stringId) throws ProtocolException {
+        checkCachedStringId(stringId);
+        return ByteString.of(bytes, stringCacheOffsets[stringId], stringCacheLengths[stringId]);
+    }
+
+    private void checkCachedStringId(int stringId) throws ProtocolException {
+        if (stringId < 0 || stringId >= lastStringId) {
+            throw new ProtocolException("Reference to an unknown string with id " + stringId + ".");
+        }
+    }
+
+    private void cacheString(int offset, int length, String value) {
+        if (stringCache.length == lastStringId + 1) {
+            int newCapacity = stringCache.length << 1;
+            if (newCapacity < 0) {
+                throw new IllegalStateException("String cache size too big.");
+            }
+
+            stringCacheOffsets = Arrays.copyOf(stringCacheOffsets, newCapacity);
+            stringCacheLengths = Arrays.copyOf(stringCacheLengths, newCapacity);
+            stringCache = Arrays.copyOf(stringCache, newCapacity);
+        }
+
+        stringCacheOffsets[lastStringId] = offset;
+        stringCacheLengths[lastStringId] = length;
+        stringCache[lastStringId++] = value;
+    }
+
+    @Override
+    public long readNumber() throws IOException {
+        checkScopeIsAtLeast(currentScope, SCOPE_OBJECT);
+        return numberValue(pullType());
+    }
+
+    private long numberValue(int type) throws IOException {
+        switch (TYPE_KINDS[type]) {
+            case KIND_NUMBER:
+                // Number, may a 1-8 byte long integer.
+                return pullNumber(TYPE_PAYLOADS[type]);
+            case KIND_NUMBER_COMPRESSED:
+                // Number, with compression optimization
+                return TYPE_PAYLOADS[type];
+            default:
+                throw typeMismatchError(TYPE_AGGREGATE_NUMBER, type);
+        }
+    }
+
+    @Override
+    public int readNumberArray(long[] destination) throws IOException {
+        checkScope(currentScope, SCOPE_ARRAY);
+        return numberArrayValues(destination);
+    }
+
+    private int numberArrayValues(long[] destination) throws IOException {
+        if (destination == null) {
+            throw new IllegalArgumentException("'destination' argument cannot be null.");
+        }
+        int count = 0;
+        while (count < destination.length && peekType() != Protocol.TYPE_END_ARRAY_OBJECT) {
+            destination[count++] = numberValue(pullType());
+        }
+        return count;
+    }
+
+    @Override
+    public int readNumbers(NumberConsumer consumer) throws IOException {
+        checkScope(currentScope, SCOPE_ARRAY);
+        return numberValues(consumer);
+    }
+
+    private int numberValues(NumberConsumer consumer) throws IOException {
+        if (consumer == null) {
+            throw new IllegalArgumentException("'consumer' argument cannot be null.");
+        }
+        int count = 0;
+        while (peekType() != Protocol.TYPE_END_ARRAY_OBJECT) {
+            consumer.accept(numberValue(pullType()));
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public int readStringArray(Collection<? super String> destination) throws IOException {
+        checkScope(currentScope, SCOPE_ARRAY);
+        return stringArrayValues(destination);
+    }
+
+    private int stringArrayValues(Collection<? super String> destination) throws IOException {
+        if (destination == null) {
+            throw new IllegalArgumentException("'destination' argument cannot be null.");
+        }
+        int count = 0;
+        while (peekType() != Protocol.TYPE_END_ARRAY_OBJECT) {
+            destination.add(stringValue(pullType()));
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        return hasNext(currentScope);
+    }
+
+    private boolean hasNext(int scope) throws IOException {
+        return !(scope == SCOPE_RESPONSE && previousScope != SCOPE_NONE) &&
+                peekType() != Protocol.TYPE_END_ARRAY_OBJECT;
+    }
+
+    @Override
+    public long dataContentLength() {
+        checkScope(currentScope, SCOPE_DATA);
+        return dataLength;
+    }
+
+    @Override
+    public void readData(OutputStream outputStream) throws IOException {
+        int length = beginReadData();
+        outputStream.write(bytes, position, length);
+        endReadData(length);
+    }
+
+    @Override
+    public void readData(BufferedSink sink) throws IOException {
+        int length = beginReadData();
+        sink.write(bytes, position, length);
+        endReadData(length);
+    }
+
+    private int beginReadData() throws IOException {
+        if (currentScope != SCOPE_DATA) {
+            throw new IllegalStateException("Cannot read data," +
+                    " either the response is not read fully or no data is following.");
+        }
+        require(dataLength);
+        return (int) dataLength;
+    }
+
+    private void endReadData(int length) {
+        position += length;
+        dataLength = UNKNOWN_SIZE;
+        popScope();
+    }
+
+    @Override
+    public ProtocolResponseReader newPeekingReader() {
+        // The backing array is never modified, a copy of the
+        // reader's state is enough to read ahead without consuming.
+        return new PeekingArrayBytesReader(this);
+    }
+
+    @Override
+    public ProtocolReader uncheckedReader() {
+        if (uncheckedReader == null) {
+            uncheckedReader = new UncheckedReader();
+        }
+        return uncheckedReader;
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        checkScopeIsAtLeast(currentScope, SCOPE_RESPONSE);
+        skipValue(currentScope);
+    }
+
+    private void skipValue(int scope) throws IOException {
+        if (scope == SCOPE_RESPONSE && peekType() == Protocol.TYPE_BEGIN_OBJECT) {
+            // The response's object is still ended through endObject(), subclasses may end the response there.
+            beginObject();
+            while (hasNext()) {
+                skipNextValue(SCOPE_OBJECT);
+            }
+            endObject();
+        } else {
+            skipNextValue(scope);
+        }
+    }
+
+    private void skipNextValue(int scope) throws IOException {
+        final int type = peekType();
+        if (type == Protocol.TYPE_BEGIN_OBJECT) {
+            // Object
+            skipContainer();
+            previousScope = SCOPE_OBJECT;
+        } else if (type == Protocol.TYPE_BEGIN_ARRAY) {
+            // Array
+            checkScopeIsAtLeast(scope, SCOPE_OBJECT);
+            skipContainer();
+            previousScope = SCOPE_ARRAY;
+        } else if (type == Protocol.TYPE_END_ARRAY_OBJECT) {
+            switch (scope) {
+                case ProtocolReader.SCOPE_OBJECT:
+                    endObject();
+                    break;
+                case ProtocolReader.SCOPE_ARRAY:
+                default:
+                    endArray();
+
+            }
+        } else {
+            skipScalar(bytes[position] & HEX_255);
+        }
+    }
+
+    private void skipContainer() throws IOException {
+        // Walk the nested values without any scope bookkeeping,
+        // only the depth is needed to find the end of the container.
+        // The caller records the skipped scope, same as a begin/end pair would.
+        int depth = 0;
+        do {
+            require(1);
+            final int type = bytes[position] & HEX_255;
+            if (type == Protocol.TYPE_BEGIN_OBJECT || type == Protocol.TYPE_BEGIN_ARRAY) {
+                depth++;
+                position++;
+            } else if (type == Protocol.TYPE_END_ARRAY_OBJECT) {
+                depth--;
+                position++;
+            } else {
+                skipScalar(type);
+            }
+        } while (depth > 0);
+    }
+
+    private void skipScalar(int type) throws IOException {
+        final int skipSize = TYPE_SKIP_SIZES[type];
+        if (skipSize != 0) {
+            // Numbers, booleans and references to cached strings have a fixed size.
+            skip(skipSize);
+            return;
+        }
+
+        switch (TYPE_KINDS[type]) {
+            case KIND_STRING:
+                // New strings may be referenced later on, only remember
+                // their location, the decoding is left for when it is needed.
+                position++;
+                long stringLength = pullNumber(TYPE_PAYLOADS[type]);
+                require(stringLength);
+                cacheString(position, (int) stringLength, null);
+                position += (int) stringLength;
+                break;
+            case KIND_STRING_COMPRESSED:
+                position++;
+                require(TYPE_PAYLOADS[type]);
+                cacheString(position, TYPE_PAYLOADS[type], null);
+                position += TYPE_PAYLOADS[type];
+                break;
+            case KIND_DATA:
+                // Read the 8-byte length of the attached data
+                position++;
+                dataLength = pullNumber(Protocol.SIZE_DATA_BYTESIZE);
+                break;
+            default:
+                throw new ProtocolException("Unknown type " + type);
+        }
+    }
+
+    @Override
+    public void readValue(ProtocolEventHandler handler) throws IOException {
+        checkScopeIsAtLeast(currentScope, SCOPE_RESPONSE);
+        if (handler == null) {
+            throw new IllegalArgumentException("'handler' argument cannot be null.");
+        }
+
+        // Walk the value and its children in a single loop, the reader scope does not change until
+        // the whole value is consumed, only the nesting of the containers needs to be tracked.
+        boolean[] objectScopes = valueScopes;
+        if (objectScopes == null) {
+            objectScopes = valueScopes = new boolean[SCOPE_STACK_INITIAL_CAPACITY];
+        }
+        int depth = 0;
+        int rootScope = SCOPE_NONE;
+        boolean expectingKey = false;
+        do {
+            int type = pullType();
+            if (expectingKey && type != Protocol.TYPE_END_ARRAY_OBJECT) {
+                handler.onKey(stringValue(type));
+                expectingKey = false;
+                continue;
+            }
+
+            switch (TYPE_KINDS[type]) {
+                case KIND_NUMBER:
+                    handler.onNumber(pullNumber(TYPE_PAYLOADS[type]));
+                    break;
+                case KIND_NUMBER_COMPRESSED:
+                    handler.onNumber(TYPE_PAYLOADS[type]);
+                    break;
+                case KIND_BOOLEAN:
+                    handler.onBoolean(TYPE_PAYLOADS[type] != 0);
+                    break;
+                case KIND_BEGIN_OBJECT:
+                case KIND_BEGIN_ARRAY:
+                    boolean isObject = type == Protocol.TYPE_BEGIN_OBJECT;
+                    if (depth == objectScopes.length) {
+                        objectScopes = valueScopes = Arrays.copyOf(objectScopes, depth << 1);
+                    }
+                    objectScopes[depth++] = isObject;
+                    if (isObject) {
+                        handler.onBeginObject();
+                    } else {
+                        handler.onBeginArray();
+                    }
+                    if (rootScope == SCOPE_NONE) {
+                        rootScope = isObject ? SCOPE_OBJECT : SCOPE_ARRAY;
+                    }
+                    expectingKey = isObject;
+                    continue;
+                case KIND_END:
+                    if (depth == 0) {
+                        throw new SerializationException("Expected a value, but was the end of the current scope.");
+                    }
+                    if (objectScopes[--depth]) {
+                        handler.onEndObject();
+                    } else {
+                        handler.onEndArray();
+                    }
+                    break;
+                default:
+                    handler.onString(stringValue(type));
+            }
+            expectingKey = depth > 0 && objectScopes[depth - 1];
+        } while (depth > 0);
+
+        if (rootScope != SCOPE_NONE) {
+            // Same as a begin/end pair would, to let endResponse() know the response value was consumed.
+            previousScope = rootScope;
+        }
+    }
+
+    @Override
+    public int currentScope() {
+        return currentScope;
+    }
+
+    /**
+     * Does nothing, there are no resources to be released.
+     */
+    @Override
+    public void close() {
+    }
+
+    private void pushScope(int newScope) {
+        previousScope = currentScope;
+        scopeStack.push(newScope);
+        currentScope = newScope;
+    }
+
+    private void popScope() {
+        if (currentScope != SCOPE_NONE) {
+            previousScope = scopeStack.pop();
+            currentScope = scopeStack.isEmpty() ? SCOPE_NONE : scopeStack.peek();
+        }
+    }
+
+    private int stackScope() {
+        // Same as currentScope, without the volatile read.
+        return scopeStack.isEmpty() ? SCOPE_NONE : scopeStack.peek();
+    }
+
+    private int peekType() throws IOException {
+        require(1);
+        int type = bytes[position] & HEX_255;
+        if (type == Protocol.TYPE_DATA) {
+            require(1 + Protocol.SIZE_DATA_BYTESIZE);
+            dataLength = numberAt(position + 1, Protocol.SIZE_DATA_BYTESIZE);
+            return Protocol.TYPE_NUMBER_END;
+        }
+        return type;
+    }
+
+    private int pullType() throws IOException {
+        require(1);
+        int type = bytes[position++] & HEX_255;
+        if (type == Protocol.TYPE_DATA) {
+            require(Protocol.SIZE_DATA_BYTESIZE);
+            dataLength = numberAt(position, Protocol.SIZE_DATA_BYTESIZE);
+            return Protocol.TYPE_NUMBER_END;
+        }
+        return type;
+    }
+
+    private long pullNumber(int byteCount) throws IOException {
+        require(byteCount);
+        long value = numberAt(position, byteCount);
+        position += byteCount;
+        return value;
+    }
+
+    private long numberAt(int offset, int byteCount) {
+        return Protocol.numberAt(bytes, offset, byteCount);
+    }
+
+    private String pullUtf8(long byteCount) throws IOException {
+        require(byteCount);
+        String value = decodeUtf8(position, (int) byteCount);
+        position += byteCount;
+        return value;
+    }
+
+    private String decodeUtf8(int offset, int byteCount) {
+        if (stringPool != null && byteCount <= stringPool.maxStringLength()) {
+            return stringPool.get(bytes, offset, byteCount);
+        }
+        return new String(bytes, offset, byteCount, UTF_8);
+    }
+
+    private void skip(int byteCount) throws IOException {
+        require(byteCount);
+        position += byteCount;
+    }
+
+    private void require(long byteCount) throws EOFException {
+        if (limit - position < byteCount) {
+            throw new EOFException();
+        }
+    }
+
+    private SerializationException typeMismatchError(int expectedType, int actualType) {
+        return Protocol.typeMismatchError(expectedType, actualType, currentScope);
+    }
+
+    /**
+     * A view of the reader for trusted callers.
+     * <p>
+     * Scopes are checked only when opening and closing objects and arrays,
+     * values in between are read without any scope validation.
+     */
+    private final class UncheckedReader implements ProtocolReader {
+
+        @Override
+        public int currentScope() {
+            return stackScope();
+        }
+
+        @Override
+        public TypeToken peek() throws IOException {
+            return getToken(peekType(), stackScope());
+        }
+
+        @Override
+        public void beginObject() throws IOException {
+            ArrayBytesReader.this.beginObject();
+        }
+
+        @Override
+        public void beginArray() throws IOException {
+            ArrayBytesReader.this.beginArray();
+        }
+
+        @Override
+        public void endArray() throws IOException {
+            ArrayBytesReader.this.endArray();
+        }
+
+        @Override
+        public void endObject() throws IOException {
+            ArrayBytesReader.this.endObject();
+        }
+
+        @Override
+        public boolean readBoolean() throws IOException {
+            return booleanValue(pullType());
+        }
+
+        @Override
+        public String readString() throws IOException {
+            return stringValue(pullType());
+        }
+
+        @Override
+        public ByteString readStringBytes() throws IOException {
+            return stringBytesValue(pullType());
+        }
+
+        @Override
+        public int selectName(Options options) throws IOException {
+            return selectNextName(options);
+        }
+
+        @Override
+        public long readNumber() throws IOException {
+            return numberValue(pullType());
+        }
+
+        @Override
+        public int readNumberArray(long[] destination) throws IOException {
+            return numberArrayValues(destination);
+        }
+
+        @Override
+        public int readNumbers(NumberConsumer consumer) throws IOException {
+            return numberValues(consumer);
+        }
+
+        @Override
+        public int readStringArray(Collection<? super String> destination) throws IOException {
+            return stringArrayValues(destination);
+        }
+
+        /**
+         * Does nothing, close the reader this view was obtained from instead.
+         */
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            return ArrayBytesReader.this.hasNext(stackScope());
+        }
+
+        @Override
+        public void skipValue() throws IOException {
+            ArrayBytesReader.this.skipValue(stackScope());
+        }
+
+        @Override
+        public void readValue(ProtocolEventHandler handler) throws IOException {
+            ArrayBytesReader.this.readValue(handler);
+        }
+
+        @Override
+        public ProtocolReader uncheckedReader() {
+            return this;
+        }
+
+        @Override
+        public ProtocolReader newPeekingReader() {
+            return ArrayBytesReader.this.newPeekingReader().uncheckedReader();
+        }
+    }
+
+    private static class PeekingArrayBytesReader extends ArrayBytesReader {
+
+        private PeekingArrayBytesReader(ArrayBytesReader reader) {
+            super(reader);
+        }
+
+        @Override
+        public ProtocolResponseReader newPeekingReader() {
+            throw new IllegalStateException("Cannot call newPeekingReader(), this reader is already non-consuming.");
+        }
+
+        @Override
+        public void readData(OutputStream outputStream) {
+            throw new UnsupportedOperationException("Data cannot be peeked.");
+        }
+
+        @Override
+        public void readData(BufferedSink sink) {
+            throw new UnsupportedOperationException("Data cannot be peeked.");
+        }
+    }
+}
@@ -17,16 +17,39 @@
 package com.pcloud.networking.protocol;
 
 import com.pcloud.utils.IOUtils;
+import okio.Buffer;
 import okio.BufferedSink;
 import okio.BufferedSource;
+import okio.ByteString;
 import okio.Okio;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.ProtocolException;
 import java.util.Arrays;
-import java.util.Locale;
-
+import java.util.Collection;
+
+import static com.pcloud.networking.protocol.Protocol.KIND_BEGIN_ARRAY;
+import static com.pcloud.networking.protocol.Protocol.KIND_BEGIN_OBJECT;
+import static com.pcloud.networking.protocol.Protocol.KIND_BOOLEAN;
+import static com.pcloud.networking.protocol.Protocol.KIND_END;
+import static com.pcloud.networking.protocol.Protocol.KIND_NUMBER;
+import static com.pcloud.networking.protocol.Protocol.KIND_NUMBER_COMPRESSED;
+import static com.pcloud.networking.protocol.Protocol.KIND_STRING;
+import static com.pcloud.networking.protocol.Protocol.KIND_STRING_COMPRESSED;
+import static com.pcloud.networking.protocol.Protocol.KIND_STRING_COMPRESSED_REUSED;
+import static com.pcloud.networking.protocol.Protocol.KIND_STRING_REUSED;
+import static com.pcloud.networking.protocol.Protocol.TYPE_AGGREGATE_BOOLEAN;
+import static com.pcloud.networking.protocol.Protocol.TYPE_AGGREGATE_END_ARRAY;
+import static com.pcloud.networking.protocol.Protocol.TYPE_AGGREGATE_END_OBJECT;
+import static com.pcloud.networking.protocol.Protocol.TYPE_AGGREGATE_NUMBER;
+import static com.pcloud.networking.protocol.Protocol.TYPE_AGGREGATE_STRING;
+import static com.pcloud.networking.protocol.Protocol.TYPE_KINDS;
+import static com.pcloud.networking.protocol.Protocol.TYPE_PAYLOADS;
+import static com.pcloud.networking.protocol.Protocol.TYPE_SKIP_SIZES;
+import static com.pcloud.networking.protocol.Protocol.checkScope;
+import static com.pcloud.networking.protocol.Protocol.checkScopeIsAtLeast;
+import static com.pcloud.networking.protocol.Protocol.getToken;
 import static com.pcloud.utils.IOUtils.closeQuietly;
 
 /**
@@ -44,21 +67,9 @@ import static com.pcloud.utils.IOUtils.closeQuietly;
  */
 public class BytesReader implements ProtocolResponseReader {
 
-    private static final int OFFSET_EXISTING_STRING_CACHE = 3;
-    private static final int OFFSET_NUMBER_NON_COMPRESSED = 7;
-    private static final int OFFSET_NUMBER_COMPRESSED = 200;
-    private static final int OFFSET_READ_STRING_COMPRESSED_EXISTING_VALUE = 150;
-    private static final int OFFSET_READ_STRING_COMPRESSED = 100;
-
-    // Types for internal use, not part of the binary protocol.
-    private static final int TYPE_AGGREGATE_STRING = -2;
-    private static final int TYPE_AGGREGATE_END_OBJECT = -6;
-    private static final int TYPE_AGGREGATE_END_ARRAY = -5;
-    private static final int TYPE_AGGREGATE_NUMBER = -4;
-    private static final int TYPE_AGGREGATE_BOOLEAN = -3;
 
-    private static final int NUMBER_SKIP = 6;
     private static final int DEFAULT_STRING_CACHE_SIZE = 50;
+    private static final int MAX_RETAINED_STRING_CACHE_SIZE = 1024;
     private static final int SCOPE_STACK_INITIAL_CAPACITY = 5;
 
     private static final int HEX_255 = 0xff;
@@ -67,10 +78,24 @@ public class BytesReader implements ProtocolResponseReader {
     private int previousScope = SCOPE_NONE;
     private IntStack scopeStack = new IntStack(SCOPE_STACK_INITIAL_CAPACITY);
     private BufferedSource bufferedSource;
+    private StringPool stringPool;
+    private byte[] stringPoolBuffer;
 
     private int lastStringId;
+    // Strings are cached either decoded or as raw UTF-8 bytes, whichever was read first.
+    // The other representation is created only if requested.
     private String[] stringCache;
+    private ByteString[] stringCacheBytes;
+    // Skipped strings are neither, their bytes are kept together in a single buffer
+    // and decoded only if the string gets referenced later on. Once the buffer exists,
+    // the offset of every following string is recorded, so a string ends where the next one begins.
+    private Buffer stringCacheData;
+    private int[] stringCacheOffsets;
+    private Options[] stringCacheOptions;
+    private int[] stringCacheOptionIndexes;
     private volatile long dataLength = UNKNOWN_SIZE;
+    private boolean[] valueScopes;
+    private UncheckedReader uncheckedReader;
 
     private BytesReader() {
     }
@@ -83,23 +108,63 @@ public class BytesReader implements ProtocolResponseReader {
      * @throws IllegalArgumentException on a null {@linkplain BufferedSource} argument
      */
     public BytesReader(BufferedSource bufferedSource) {
+        this(bufferedSource, null);
+    }
+
+    /**
+     * Create a {@linkplain BytesReader} instance which shares decoded strings through a {@linkplain StringPool}
+     * <p>
+     *
+     * @param bufferedSource a {@linkplain BufferedSource} to read the data from
+     * @param stringPool     a {@linkplain StringPool} for the decoded strings, can be null
+     * @throws IllegalArgumentException on a null {@linkplain BufferedSource} argument
+     */
+    public BytesReader(BufferedSource bufferedSource, StringPool stringPool) {
+        if (bufferedSource == null) {
+            throw new IllegalArgumentException("Source argument cannot be null.");
+        }
+        this.bufferedSource = bufferedSource;
+        this.stringPool = stringPool;
+    }
+
+    /**
+     * Reset the reader to read from another {@linkplain BufferedSource}
+     * <p>
+     * Discards the state of any unfinished response, so that a single instance can be reused
+     * for reading responses from different sources. The current source is not closed.
+     *
+     * @param bufferedSource a {@linkplain BufferedSource} to read the data from
+     * @throws IllegalArgumentException on a null {@linkplain BufferedSource} argument
+     */
+    public void reset(BufferedSource bufferedSource) {
         if (bufferedSource == null) {
             throw new IllegalArgumentException("Source argument cannot be null.");
         }
         this.bufferedSource = bufferedSource;
+        scopeStack.clear();
+        previousScope = SCOPE_NONE;
+        currentScope = SCOPE_NONE;
+        dataLength = UNKNOWN_SIZE;
+        releaseStringCache();
     }
 
     @Override
     public TypeToken peek() throws IOException {
         checkScopeIsAtLeast(currentScope, SCOPE_RESPONSE);
-        return getToken(peekType());
+        return getToken(peekType(), currentScope);
     }
 
     @Override
     public long beginResponse() throws IOException {
         checkScope(currentScope, SCOPE_NONE);
         pushScope(SCOPE_RESPONSE);
-        stringCache = new String[DEFAULT_STRING_CACHE_SIZE];
+        if (stringCache == null) {
+            stringCache = new String[DEFAULT_STRING_CACHE_SIZE];
+        }
+        stringCacheBytes = null;
+        clearSkippedStrings();
+        stringCacheOptions = null;
+        stringCacheOptionIndexes = null;
         lastStringId = 0;
         return pullNumber(Protocol.SIZE_RESPONSE_LENGTH);
     }
@@ -115,7 +180,7 @@ public class BytesReader implements ProtocolResponseReader {
             }
         }
         popScope();
-        stringCache = null;
+        releaseStringCache();
 
         boolean dataAvailable = dataLength != UNKNOWN_SIZE;
         if (dataAvailable) {
@@ -174,7 +239,10 @@ public class BytesReader implements ProtocolResponseReader {
     @Override
     public boolean readBoolean() throws IOException {
         checkScopeIsAtLeast(currentScope, SCOPE_OBJECT);
-        int type = pullType();
+        return booleanValue(pullType());
+    }
+
+    private boolean booleanValue(int type) throws IOException {
         if (type == Protocol.TYPE_BOOLEAN_TRUE) {
             return true;
         } else if (type == Protocol.TYPE_BOOLEAN_FALSE) {
@@ -187,33 +255,212 @@ public class BytesReader implements ProtocolResponseReader {
     @Override
     public String readString() throws IOException {
         checkScopeIsAtLeast(currentScope, SCOPE_OBJECT);
-        int type = pullType();
-        if (type >= Protocol.TYPE_STRING_START && type <= Protocol.TYPE_STRING_END) {
-            // String
-            long stringLength = pullNumber(type + 1);
-            String value = bufferedSource.readUtf8(stringLength);
-            cacheString(value);
-            return value;
-        } else if (type >= Protocol.TYPE_STRING_REUSED_START && type <= Protocol.TYPE_STRING_REUSED_END) {
+        return stringValue(pullType());
+    }
+
+    private String stringValue(int type) throws IOException {
+        switch (TYPE_KINDS[type]) {
+            case KIND_STRING:
+                return readNewString(pullNumber(TYPE_PAYLOADS[type]));
+            case KIND_STRING_REUSED:
+                return cachedString((int) pullNumber(TYPE_PAYLOADS[type]));
+            case KIND_STRING_COMPRESSED:
+                return readNewString(TYPE_PAYLOADS[type]);
+            case KIND_STRING_COMPRESSED_REUSED:
+                return cachedString(TYPE_PAYLOADS[type]);
+            default:
+                throw typeMismatchError(TYPE_AGGREGATE_STRING, type);
+        }
+    }
+
+    private String readNewString(long length) throws IOException {
+        String value = readUtf8(length);
+        cacheString(value, null);
+        return value;
+    }
+
+    @Override
+    public ByteString readStringBytes() throws IOException {
+        checkScopeIsAtLeast(currentScope, SCOPE_OBJECT);
+        return stringBytesValue(pullType());
+    }
+
+    private ByteString stringBytesValue(int type) throws IOException {
+        switch (TYPE_KINDS[type]) {
+            case KIND_STRING:
+                return readNewStringBytes(pullNumber(TYPE_PAYLOADS[type]));
+            case KIND_STRING_REUSED:
+                return cachedStringBytes((int) pullNumber(TYPE_PAYLOADS[type]));
+            case KIND_STRING_COMPRESSED:
+                return readNewStringBytes(TYPE_PAYLOADS[type]);
+            case KIND_STRING_COMPRESSED_REUSED:
+                return cachedStringBytes(TYPE_PAYLOADS[type]);
+            default:
+                throw typeMismatchError(TYPE_AGGREGATE_STRING, type);
+        }
+    }
+
+    private ByteString readNewStringBytes(long length) throws IOException {
+        ByteString value = bufferedSource.readByteString(length);
+        cacheString(null, value);
+        return value;
+    }
+
+    @Override
+    public int selectName(Options options) throws IOException {
+        checkScopeIsAtLeast(currentScope, SCOPE_OBJECT);
+        return selectNextName(options);
+    }
+
+    private int selectNextName(Options options) throws IOException {
+        int type = peekType();
+        byte kind = TYPE_KINDS[type];
+        if (kind == KIND_STRING || kind == KIND_STRING_COMPRESSED) {
+            // String, match the encoded value together with its header.
+            int selected = bufferedSource.select(options.encodedStrings);
+            if (selected == -1) {
+                return -1;
+            }
+            int index = options.encodedStringIndexes[selected];
+            // The selection is memoized only once the string gets referenced again,
+            // one-off lookups should not have to pay for the bookkeeping.
+            cacheString(options.get(index), null);
+            return index;
+        } else if (kind == KIND_STRING_REUSED) {
             // String, existing value
-            int cachedStringId = (int) pullNumber(type - OFFSET_EXISTING_STRING_CACHE);
-            return stringCache[cachedStringId];
-        } else if (type >= Protocol.TYPE_STRING_COMPRESSED_START && type <= Protocol.TYPE_STRING_COMPRESSED_END) {
-            // String, with compression optimization
-            int stringLength = type - OFFSET_READ_STRING_COMPRESSED;
-            String value = bufferedSource.readUtf8(stringLength);
-            cacheString(value);
-            return value;
-        } else if (type >= Protocol.TYPE_STRING_COMPRESSED_REUSED_BEGIN &&
-                type <= Protocol.TYPE_STRING_COMPRESSED_REUSED_END) {
+            int idByteCount = TYPE_PAYLOADS[type];
+            int cachedStringId = (int) IOUtils.peekNumberLe(bufferedSource, 1, idByteCount);
+            return selectCachedString(options, 1 + idByteCount, cachedStringId);
+        } else if (kind == KIND_STRING_COMPRESSED_REUSED) {
             // String, existing value, with compression optimization
-            return stringCache[type - OFFSET_READ_STRING_COMPRESSED_EXISTING_VALUE];
+            return selectCachedString(options, 1, TYPE_PAYLOADS[type]);
         } else {
             throw typeMismatchError(TYPE_AGGREGATE_STRING, type);
         }
     }
 
-    private void cacheString(String string) {
+    private int selectCachedString(Options options, int headerLength, int cachedStringId) throws IOException {
+        int index;
+        if (stringCacheOptions != null && cachedStringId < stringCacheOptions.length &&
+                stringCacheOptions[cachedStringId] == options) {
+            index = stringCacheOptionIndexes[cachedStringId];
+        } else {
+            index = options.indexOf(cachedString(cachedStringId));
+            cacheSelection(cachedStringId, options, index);
+        }
+
+        if (index != -1) {
+            bufferedSource.skip(headerLength);
+        }
+        return index;
+    }
+
+    private void cacheSelection(int stringId, Options options, int index) {
+        if (stringCacheOptions == null) {
+            int capacity = Math.max(stringId + 1, DEFAULT_STRING_CACHE_SIZE);
+            stringCacheOptions = new Options[capacity];
+            stringCacheOptionIndexes = new int[capacity];
+        } else if (stringCacheOptions.length <= stringId) {
+            // Sized after the selected ids rather than the whole string cache,
+            // selections are mostly made for member names, which get cached early on.
+            int newCapacity = Math.max(stringId + 1, stringCacheOptions.length << 1);
+            stringCacheOptions = Arrays.copyOf(stringCacheOptions, newCapacity);
+            stringCacheOptionIndexes = Arrays.copyOf(stringCacheOptionIndexes, newCapacity);
+        }
+        // Remember the match, so that following references to the same cached
+        // string can be resolved without comparing any values.
+        stringCacheOptions[stringId] = options;
+        stringCacheOptionIndexes[stringId] = index;
+    }
+
+    private String cachedString(int stringId) {
+        String value = stringCache[stringId];
+        if (value == null) {
+            ByteString bytes = stringCacheBytes != null ? stringCacheBytes[stringId] : null;
+            if (bytes == null) {
+                bytes = skippedStringBytes(stringId);
+            }
+            if (bytes != null) {
+                value = stringPool != null && bytes.size() <= stringPool.maxStringLength() ?
+                        stringPool.get(bytes) : bytes.utf8();
+                stringCache[stringId] = value;
+            }
+        }
+        return value;
+    }
+
+    private String readUtf8(long byteCount) throws IOException {
+        if (stringPool == null || byteCount > stringPool.maxStringLength()) {
+            return bufferedSource.readUtf8(byteCount);
+        }
+
+        final int length = (int) byteCount;
+        if (stringPoolBuffer == null || stringPoolBuffer.length < length) {
+            stringPoolBuffer = new byte[stringPool.maxStringLength()];
+        }
+        bufferedSource.require(length);
+        for (int read = 0; read < length; ) {
+            read += bufferedSource.read(stringPoolBuffer, read, length - read);
+        }
+        return stringPool.get(stringPoolBuffer, 0, length);
+    }
+
+    private ByteString cachedStringBytes(int stringId) {
+        if (stringCacheBytes == null) {
+            stringCacheBytes = new ByteString[stringCache.length];
+        }
+        ByteString value = stringCacheBytes[stringId];
+        if (value == null) {
+            value = stringCache[stringId] != null ?
+                    ByteString.encodeUtf8(stringCache[stringId]) : skippedStringBytes(stringId);
+            stringCacheBytes[stringId] = value;
+        }
+        return value;
+    }
+
+    private void skipString(long byteCount) throws IOException {
+        if (stringCacheData == null) {
+            stringCacheData = new Buffer();
+            stringCacheOffsets = new int[stringCache.length];
+        }
+        cacheString(null, null);
+        bufferedSource.readFully(stringCacheData, byteCount);
+    }
+
+    private ByteString skippedStringBytes(int stringId) {
+        if (stringCacheOffsets == null || stringId >= lastStringId) {
+            return null;
+        }
+        long offset = stringCacheOffsets[stringId];
+        long end = stringId + 1 < lastStringId ? stringCacheOffsets[stringId + 1] : stringCacheData.size();
+        Buffer bytes = new Buffer();
+        stringCacheData.copyTo(bytes, offset, end - offset);
+        return bytes.readByteString();
+    }
+
+    private void releaseStringCache() {
+        // Keep the cache of a reasonable size for the next response, without holding on to its values.
+        if (stringCache != null && stringCache.length <= MAX_RETAINED_STRING_CACHE_SIZE) {
+            Arrays.fill(stringCache, null);
+        } else {
+            stringCache = null;
+        }
+        stringCacheBytes = null;
+        clearSkippedStrings();
+        stringCacheOptions = null;
+        stringCacheOptionIndexes = null;
+        lastStringId = 0;
+    }
+
+    private void clearSkippedStrings() {
+        if (stringCacheData != null) {
+            stringCacheData.clear();
+            stringCacheData = null;
+        }
+        stringCacheOffsets = null;
+    }
+
+    private void cacheString(String string, ByteString bytes) {
         if (stringCache.length == lastStringId + 1) {
             int newCapacity = stringCache.length << 1;
             if (newCapacity < 0) {
@@ -221,29 +468,105 @@ public class BytesReader implements ProtocolResponseReader {
             }
 
             stringCache = Arrays.copyOf(stringCache, newCapacity);
+            if (stringCacheBytes != null) {
+                stringCacheBytes = Arrays.copyOf(stringCacheBytes, newCapacity);
+            }
+            if (stringCacheOffsets != null) {
+                stringCacheOffsets = Arrays.copyOf(stringCacheOffsets, newCapacity);
+            }
         }
 
+        if (stringCacheOffsets != null) {
+            stringCacheOffsets[lastStringId] = (int) stringCacheData.size();
+        }
+        if (bytes != null && stringCacheBytes == null) {
+            stringCacheBytes = new ByteString[stringCache.length];
+        }
+        if (stringCacheBytes != null) {
+            stringCacheBytes[lastStringId] = bytes;
+        }
         stringCache[lastStringId++] = string;
     }
 
     @Override
     public long readNumber() throws IOException {
         checkScopeIsAtLeast(currentScope, SCOPE_OBJECT);
-        int type = pullType();
-        if (type >= Protocol.TYPE_NUMBER_START && type <= Protocol.TYPE_NUMBER_END) {
-            // Number, may a 1-8 byte long integer.
-            return pullNumber(type - OFFSET_NUMBER_NON_COMPRESSED);
-        } else if (type >= Protocol.TYPE_NUMBER_COMPRESSED_START && type <= Protocol.TYPE_NUMBER_COMPRESSED_END) {
-            // Number, with compression optimization
-            return type - OFFSET_NUMBER_COMPRESSED;
-        } else {
-            throw typeMismatchError(TYPE_AGGREGATE_NUMBER, type);
+        return numberValue(pullType());
+    }
+
+    private long numberValue(int type) throws IOException {
+        switch (TYPE_KINDS[type]) {
+            case KIND_NUMBER:
+                // Number, may a 1-8 byte long integer.
+                return pullNumber(TYPE_PAYLOADS[type]);
+            case KIND_NUMBER_COMPRESSED:
+                // Number, with compression optimization
+                return TYPE_PAYLOADS[type];
+            default:
+                throw typeMismatchError(TYPE_AGGREGATE_NUMBER, type);
         }
     }
 
+    @Override
+    public int readNumberArray(long[] destination) throws IOException {
+        checkScope(currentScope, SCOPE_ARRAY);
+        return numberArrayValues(destination);
+    }
+
+    private int numberArrayValues(long[] destination) throws IOException {
+        if (destination == null) {
+            throw new IllegalArgumentException("'destination' argument cannot be null.");
+        }
+        int count = 0;
+        while (count < destination.length && peekType() != Protocol.TYPE_END_ARRAY_OBJECT) {
+            destination[count++] = numberValue(pullType());
+        }
+        return count;
+    }
+
+    @Override
+    public int readNumbers(NumberConsumer consumer) throws IOException {
+        checkScope(currentScope, SCOPE_ARRAY);
+        return numberValues(consumer);
+    }
+
+    private int numberValues(NumberConsumer consumer) throws IOException {
+        if (consumer == null) {
+            throw new IllegalArgumentException("'consumer' argument cannot be null.");
+        }
+        int count = 0;
+        while (peekType() != Protocol.TYPE_END_ARRAY_OBJECT) {
+            consumer.accept(numberValue(pullType()));
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public int readStringArray(Collection<? super String> destination) throws IOException {
+        checkScope(currentScope, SCOPE_ARRAY);
+        return stringArrayValues(destination);
+    }
+
+    private int stringArrayValues(Collection<? super String> destination) throws IOException {
+        if (destination == null) {
+            throw new IllegalArgumentException("'destination' argument cannot be null.");
+        }
+        int count = 0;
+        while (peekType() != Protocol.TYPE_END_ARRAY_OBJECT) {
+            destination.add(stringValue(pullType()));
+            count++;
+        }
+        return count;
+    }
+
     @Override
     public boolean hasNext() throws IOException {
-        return !(currentScope == SCOPE_RESPONSE && previousScope != SCOPE_NONE) &&
+        return hasNext(currentScope);
+    }
+
+    private boolean hasNext(int scope) throws IOException {
+        return !(scope == SCOPE_RESPONSE && previousScope != SCOPE_NONE) &&
                 peekType() != Protocol.TYPE_END_ARRAY_OBJECT;
     }
 
@@ -278,7 +601,22 @@ public class BytesReader implements ProtocolResponseReader {
         reader.previousScope = this.previousScope;
         reader.scopeStack = new IntStack(this.scopeStack);
         reader.bufferedSource = Okio.buffer(this.bufferedSource.peek());
-        reader.stringCache = this.stringCache;
+        reader.stringPool = this.stringPool;
+        // The cache arrays are recycled and overwritten by the next response, the peeking reader
+        // must keep its own copy to outlive the current one.
+        if (this.stringCache != null) {
+            reader.stringCache = Arrays.copyOf(this.stringCache, this.stringCache.length);
+        }
+        if (this.stringCacheBytes != null) {
+            reader.stringCacheBytes = Arrays.copyOf(this.stringCacheBytes, this.stringCacheBytes.length);
+        }
+        if (this.stringCacheData != null) {
+            // Offsets depend on what each reader skips, the two must not share them.
+            reader.stringCacheData = this.stringCacheData.clone();
+            reader.stringCacheOffsets = this.stringCacheOffsets.clone();
+        }
+        reader.stringCacheOptions = this.stringCacheOptions;
+        reader.stringCacheOptionIndexes = this.stringCacheOptionIndexes;
         reader.dataLength = this.dataLength;
         reader.lastStringId = this.lastStringId;
         /*
@@ -288,57 +626,136 @@ public class BytesReader implements ProtocolResponseReader {
         return reader;
     }
 
+    @Override
+    public ProtocolReader uncheckedReader() {
+        if (uncheckedReader == null) {
+            uncheckedReader = new UncheckedReader();
+        }
+        return uncheckedReader;
+    }
+
     @Override
     public void skipValue() throws IOException {
         checkScopeIsAtLeast(currentScope, SCOPE_RESPONSE);
+        skipNextValue(currentScope);
+    }
 
+    private void skipNextValue(int scope) throws IOException {
         final int type = peekType();
-        if (type >= Protocol.TYPE_NUMBER_START && type <= Protocol.TYPE_NUMBER_END) {
-            // Skip 1-8 bytes depending on number size + 1 byte for the type.
-            // skip ([type] - 7) + 1 bytes
-            bufferedSource.skip(type - NUMBER_SKIP);
-        } else if (type >= Protocol.TYPE_NUMBER_COMPRESSED_START && type <= Protocol.TYPE_NUMBER_COMPRESSED_END) {
-            bufferedSource.skip(1);
-        } else if (type >= Protocol.TYPE_STRING_REUSED_START && type <= Protocol.TYPE_STRING_REUSED_END) {
-            // Index to a previously read string, 1-4 bytes
-            // skip ([type] - 3) + 1 bytes.
-            bufferedSource.skip(type - 2);
-        } else if (type >= Protocol.TYPE_STRING_START && type <= Protocol.TYPE_STRING_END ||
-                type >= Protocol.TYPE_STRING_COMPRESSED_START && type <= Protocol.TYPE_STRING_COMPRESSED_REUSED_END) {
-            // The compression optimizations for strings require full reading.
-            readString();
-        } else if (type == Protocol.TYPE_BOOLEAN_TRUE || type == Protocol.TYPE_BOOLEAN_FALSE) {
-            bufferedSource.skip(1);
-        } else if (type == Protocol.TYPE_BEGIN_OBJECT) {
-            // Object
-            beginObject();
-            while (hasNext()) {
-                skipValue();
-            }
-            endObject();
-        } else if (type == Protocol.TYPE_BEGIN_ARRAY) {
-            // Array
-            beginArray();
-            while (hasNext()) {
-                skipValue();
-            }
-            endArray();
-        } else if (type == Protocol.TYPE_DATA) {
-            // Read the 8-byte length of the attached data
-            dataLength = pullNumber(Protocol.SIZE_DATA_BYTESIZE);
-        } else if (type == Protocol.TYPE_END_ARRAY_OBJECT) {
-            int scope = currentScope();
-            switch (scope) {
-                case ProtocolReader.SCOPE_OBJECT:
+        final int skipSize = TYPE_SKIP_SIZES[type];
+        if (skipSize != 0) {
+            // Numbers, booleans and references to cached strings have a fixed size.
+            bufferedSource.skip(skipSize);
+            return;
+        }
+
+        switch (TYPE_KINDS[type]) {
+            case KIND_STRING:
+                // New strings may be referenced later on and have to be cached,
+                // keep the raw bytes and leave the decoding for when it is needed.
+                bufferedSource.skip(1);
+                skipString(pullNumber(TYPE_PAYLOADS[type]));
+                break;
+            case KIND_STRING_COMPRESSED:
+                bufferedSource.skip(1);
+                skipString(TYPE_PAYLOADS[type]);
+                break;
+            case KIND_BEGIN_OBJECT:
+                beginObject();
+                while (hasNext()) {
+                    skipValue();
+                }
+                endObject();
+                break;
+            case KIND_BEGIN_ARRAY:
+                beginArray();
+                while (hasNext()) {
+                    skipValue();
+                }
+                endArray();
+                break;
+            case KIND_END:
+                if (scope == SCOPE_OBJECT) {
                     endObject();
-                    break;
-                case ProtocolReader.SCOPE_ARRAY:
-                default:
+                } else {
                     endArray();
+                }
+                break;
+            default:
+                throw new ProtocolException("Unknown type " + type);
+        }
+    }
 
+    @Override
+    public void readValue(ProtocolEventHandler handler) throws IOException {
+        checkScopeIsAtLeast(currentScope, SCOPE_RESPONSE);
+        if (handler == null) {
+            throw new IllegalArgumentException("'handler' argument cannot be null.");
+        }
+
+        // Walk the value and its children in a single loop, the reader scope does not change until
+        // the whole value is consumed, only the nesting of the containers needs to be tracked.
+        boolean[] objectScopes = valueScopes;
+        if (objectScopes == null) {
+            objectScopes = valueScopes = new boolean[SCOPE_STACK_INITIAL_CAPACITY];
+        }
+        int depth = 0;
+        int rootScope = SCOPE_NONE;
+        boolean expectingKey = false;
+        do {
+            int type = pullType();
+            if (expectingKey && type != Protocol.TYPE_END_ARRAY_OBJECT) {
+                handler.onKey(stringValue(type));
+                expectingKey = false;
+                continue;
             }
-        } else {
-            throw new ProtocolException("Unknown type " + type);
+
+            switch (TYPE_KINDS[type]) {
+                case KIND_NUMBER:
+                    handler.onNumber(pullNumber(TYPE_PAYLOADS[type]));
+                    break;
+                case KIND_NUMBER_COMPRESSED:
+                    handler.onNumber(TYPE_PAYLOADS[type]);
+                    break;
+                case KIND_BOOLEAN:
+                    handler.onBoolean(TYPE_PAYLOADS[type] != 0);
+                    break;
+                case KIND_BEGIN_OBJECT:
+                case KIND_BEGIN_ARRAY:
+                    boolean isObject = type == Protocol.TYPE_BEGIN_OBJECT;
+                    if (depth == objectScopes.length) {
+                        objectScopes = valueScopes = Arrays.copyOf(objectScopes, depth << 1);
+                    }
+                    objectScopes[depth++] = isObject;
+                    if (isObject) {
+                        handler.onBeginObject();
+                    } else {
+                        handler.onBeginArray();
+                    }
+                    if (rootScope == SCOPE_NONE) {
+                        rootScope = isObject ? SCOPE_OBJECT : SCOPE_ARRAY;
+                    }
+                    expectingKey = isObject;
+                    continue;
+                case KIND_END:
+                    if (depth == 0) {
+                        throw new SerializationException("Expected a value, but was the end of the current scope.");
+                    }
+                    if (objectScopes[--depth]) {
+                        handler.onEndObject();
+                    } else {
+                        handler.onEndArray();
+                    }
+                    break;
+                default:
+                    handler.onString(stringValue(type));
+            }
+            expectingKey = depth > 0 && objectScopes[depth - 1];
+        } while (depth > 0);
+
+        if (rootScope != SCOPE_NONE) {
+            // Same as a begin/end pair would, to let endResponse() know the response value was consumed.
+            previousScope = rootScope;
         }
     }
 
@@ -368,6 +785,11 @@ public class BytesReader implements ProtocolResponseReader {
         }
     }
 
+    private int stackScope() {
+        // Same as currentScope, without the volatile read.
+        return scopeStack.isEmpty() ? SCOPE_NONE : scopeStack.peek();
+    }
+
     private int peekType() throws IOException {
         int type = (int) IOUtils.peekNumberLe(bufferedSource, 1);
         if (type == Protocol.TYPE_DATA) {
@@ -391,106 +813,117 @@ public class BytesReader implements ProtocolResponseReader {
     }
 
     private SerializationException typeMismatchError(int expectedType, int actualType) {
-        return new SerializationException("Expected '" +
-                typeName(expectedType) +
-                "', but was '" +
-                typeName(actualType) +
-                "'.");
-    }
-
-    private TypeToken getToken(int type) throws SerializationException {
-        if (type >= Protocol.TYPE_NUMBER_START && type <= Protocol.TYPE_NUMBER_END ||
-                type >= Protocol.TYPE_NUMBER_COMPRESSED_START && type <= Protocol.TYPE_NUMBER_COMPRESSED_END) {
-            // Number, it may be a 1-8 byte long integer or an index for
-            // number types with compression optimization
-            return TypeToken.NUMBER;
-        } else if ((type >= Protocol.TYPE_STRING_START && type <= Protocol.TYPE_STRING_END) ||
-                (type >= Protocol.TYPE_STRING_REUSED_START && type <= Protocol.TYPE_STRING_REUSED_END) ||
-                (type >= Protocol.TYPE_STRING_COMPRESSED_START && type <= Protocol.TYPE_STRING_COMPRESSED_REUSED_END)) {
-            // Number, it may be a 1-8 byte long integer or an index for
-            // number types with compression optimization
-            return TypeToken.STRING;
-        } else if (type == Protocol.TYPE_BEGIN_OBJECT) {
-            // Object
-            return TypeToken.BEGIN_OBJECT;
-        } else if (type == Protocol.TYPE_BEGIN_ARRAY) {
-            // Array
-            return TypeToken.BEGIN_ARRAY;
-        } else if (type >= Protocol.TYPE_BOOLEAN_FALSE && type <= Protocol.TYPE_BOOLEAN_TRUE) {
-            // Boolean
-            return TypeToken.BOOLEAN;
-        } else if (type == Protocol.TYPE_END_ARRAY_OBJECT) {
-            return currentScope == SCOPE_OBJECT ? TypeToken.END_OBJECT : TypeToken.END_ARRAY;
-        } else {
-            throw new SerializationException("Unknown type " + type);
-        }
+        return Protocol.typeMismatchError(expectedType, actualType, currentScope);
     }
 
-    private String typeName(final int type) {
-        TypeToken typeToken;
-        switch (type) {
-            case TYPE_AGGREGATE_NUMBER:
-                // Number, may a 1-8 byte long integer.
-                // Number, with compression optimization
-                typeToken = TypeToken.NUMBER;
-                break;
-            case TYPE_AGGREGATE_STRING:
-                // Object
-                typeToken = TypeToken.STRING;
-                break;
-            case TYPE_AGGREGATE_BOOLEAN:
-                // Boolean, 18 means 'false', 19 is 'true'
-                typeToken = TypeToken.BOOLEAN;
-                break;
-            case TYPE_AGGREGATE_END_ARRAY:
-                typeToken = TypeToken.END_ARRAY;
-                break;
-            case TYPE_AGGREGATE_END_OBJECT:
-                typeToken = TypeToken.END_OBJECT;
-                break;
-            default:
-                try {
-                    typeToken = getToken(type);
-                } catch (SerializationException e) {
-                    return "(Unknown type " + type + ")";
-                }
+    /**
+     * A view of the reader for trusted callers.
+     * <p>
+     * Scopes are checked only when opening and closing objects and arrays,
+     * values in between are read without any scope validation.
+     */
+    private final class UncheckedReader implements ProtocolReader {
+
+        @Override
+        public int currentScope() {
+            return stackScope();
         }
 
-        return typeToken.toString().toUpperCase(Locale.ENGLISH);
-    }
+        @Override
+        public TypeToken peek() throws IOException {
+            return getToken(peekType(), stackScope());
+        }
 
-    private static void checkScope(int current, int expected) {
-        if (current != expected) {
-            throw new IllegalStateException(
-                    String.format("Expected to be called when scope is `%s`, current is `%s`.",
-                            scopeName(expected),
-                            scopeName(current)));
+        @Override
+        public void beginObject() throws IOException {
+            BytesReader.this.beginObject();
         }
-    }
 
-    private static void checkScopeIsAtLeast(int current, int expected) {
-        if (current < expected) {
-            throw new IllegalStateException(
-                    String.format("Expected to be called when scope is at least `%s`, current is `%s`.",
-                            scopeName(expected),
-                            scopeName(current)));
+        @Override
+        public void beginArray() throws IOException {
+            BytesReader.this.beginArray();
         }
-    }
 
-    private static String scopeName(final int scope) {
-        switch (scope) {
-            case SCOPE_RESPONSE:
-                return "SCOPE_RESPONSE";
-            case SCOPE_ARRAY:
-                return "SCOPE_ARRAY";
-            case SCOPE_OBJECT:
-                return "SCOPE_OBJECT";
-            case SCOPE_DATA:
-                return "SCOPE_DATA";
-            case SCOPE_NONE:
-                return "SCOPE_NONE";
-            default:
-                return "<UNKNOWN>";
+        @Override
+        public void endArray() throws IOException {
+            BytesReader.this.endArray();
+        }
+
+        @Override
+        public void endObject() throws IOException {
+            BytesReader.this.endObject();
+        }
+
+        @Override
+        public boolean readBoolean() throws IOException {
+            return booleanValue(pullType());
+        }
+
+        @Override
+        public String readString() throws IOException {
+            return stringValue(pullType());
+        }
+
+        @Override
+        public ByteString readStringBytes() throws IOException {
+            return stringBytesValue(pullType());
+        }
+
+        @Override
+        public int selectName(Options options) throws IOException {
+            return selectNextName(options);
+        }
+
+        @Override
+        public long readNumber() throws IOException {
+            return numberValue(pullType());
+        }
+
+        @Override
+        public int readNumberArray(long[] destination) throws IOException {
+            return numberArrayValues(destination);
+        }
+
+        @Override
+        public int readNumbers(NumberConsumer consumer) throws IOException {
+            return numberValues(consumer);
+        }
+
+        @Override
+        public int readStringArray(Collection<? super String> destination) throws IOException {
+            return stringArrayValues(destination);
+        }
+
+        /**
+         * Does nothing, close the reader this view was obtained from instead.
+         */
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            return BytesReader.this.hasNext(stackScope());
+        }
+
+        @Override
+        public void skipValue() throws IOException {
+            skipNextValue(stackScope());
+        }
+
+        @Override
+        public void readValue(ProtocolEventHandler handler) throws IOException {
+            BytesReader.this.readValue(handler);
+        }
+
+        @Override
+        public ProtocolReader uncheckedReader() {
+            return this;
+        }
+
+        @Override
+        public ProtocolReader newPeekingReader() {
+            return BytesReader.this.newPeekingReader().uncheckedReader();
         }
     }
 
@@ -0,0 +1,464 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.protocol;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Source;
+import okio.Timeout;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.charset.Charset;
+
+import static com.pcloud.utils.IOUtils.BITS_PER_BYTE;
+import static com.pcloud.utils.IOUtils.closeQuietly;
+
+/**
+ * Reads requests in pCloud's binary protocol from a source
+ * <p>
+ * The counterpart of {@linkplain BytesWriter}, meant for code that receives requests instead of sending them,
+ * such as in-process servers, proxies and load-testing tools.
+ * <p>
+ * Each request frame is read into a reusable byte array with a single read and parameters are parsed in place.
+ * Parameter names and values are not copied or decoded unless requested, names can be matched against
+ * {@linkplain EncodedName} instances and string values can be copied directly into a {@linkplain BufferedSink}.
+ * The data attached to a request, if any, is exposed as a {@linkplain Source} bounded by its declared length.
+ * <p>
+ * The implementation can be reused for reading multiple requests from the same source.
+ * Instances are not thread-safe.
+ *
+ * @see BytesWriter
+ */
+public class BytesRequestReader implements Closeable {
+
+    /**
+     * The type of string parameters
+     */
+    public static final int PARAMETER_TYPE_STRING = 0;
+    /**
+     * The type of number parameters
+     */
+    public static final int PARAMETER_TYPE_NUMBER = 1;
+    /**
+     * The type of boolean parameters
+     */
+    public static final int PARAMETER_TYPE_BOOLEAN = 2;
+
+    private static final int NO_PARAMETER = -1;
+    private static final int REQUEST_BINARY_DATA_FLAG = 0x80;
+    private static final int METHOD_NAME_LENGTH_MASK = 0x7f;
+    private static final int PARAMETER_NAME_LENGTH_MASK = 0x3f;
+    private static final int BITWISE_SHIFT_SIX = 6;
+    private static final int DATA_LENGTH_SIZE = 8;
+    private static final int STRING_LENGTH_SIZE = 4;
+    private static final int NUMBER_SIZE = 8;
+    private static final int BOOLEAN_SIZE = 1;
+    private static final int DEFAULT_FRAME_SIZE = 512;
+    private static final int HEX_255 = 0xff;
+    private static final int HEX_65535 = 0xffff;
+    private static final long HEX_FFFFFFFF_LONG = 0xffffffffL;
+    private static final int INT_BYTES = Integer.SIZE / BITS_PER_BYTE;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final BufferedSource source;
+    private final RequestDataSource dataSource = new RequestDataSource();
+    private byte[] frame = new byte[DEFAULT_FRAME_SIZE];
+    private int frameLength;
+    private boolean requestStarted;
+
+    private int methodNameOffset;
+    private int methodNameLength;
+    private String methodName;
+    private long dataLength;
+    private long dataRemaining;
+
+    private int parameterCount;
+    private int parametersRead;
+    private int position;
+    private int parameterType = NO_PARAMETER;
+    private int nameOffset;
+    private int nameLength;
+    private int valueOffset;
+    private int valueLength;
+
+    /**
+     * Create a {@linkplain BytesRequestReader} instance
+     *
+     * @param source a {@linkplain BufferedSource} to read requests from
+     * @throws IllegalArgumentException on a null {@linkplain BufferedSource} argument
+     */
+    public BytesRequestReader(BufferedSource source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Source argument cannot be null.");
+        }
+        this.source = source;
+    }
+
+    /**
+     * Read the next request frame
+     * <p>
+     * Reads the request header and parameters, the attached data is left in the source
+     * until read through {@linkplain #data()} or skipped by {@linkplain #endRequest()}.
+     *
+     * @return true if a request was read, false if the source was exhausted before the start of a new request
+     * @throws IllegalStateException if the previous request was not ended with {@linkplain #endRequest()}
+     * @throws ProtocolException     on a malformed request header
+     * @throws EOFException          if the source is exhausted before the end of the request frame
+     * @throws IOException           on failed IO operations
+     */
+    public boolean beginRequest() throws IOException {
+        if (requestStarted) {
+            throw new IllegalStateException("endRequest() has not been called for the previous request.");
+        }
+        if (source.exhausted()) {
+            return false;
+        }
+
+        int requestLength = source.readShortLe() & HEX_65535;
+        if (requestLength > frame.length) {
+            frame = new byte[Math.max(requestLength, frame.length * 2)];
+        }
+        readFrame(requestLength);
+        frameLength = requestLength;
+
+        int offset = 0;
+        require(offset, 1);
+        int methodNameByte = frame[offset++] & HEX_255;
+        methodNameLength = methodNameByte & METHOD_NAME_LENGTH_MASK;
+        if ((methodNameByte & REQUEST_BINARY_DATA_FLAG) != 0) {
+            require(offset, DATA_LENGTH_SIZE);
+            dataLength = getLongLe(offset);
+            offset += DATA_LENGTH_SIZE;
+            if (dataLength < 0) {
+                throw new ProtocolException("Invalid request data length " + dataLength + ".");
+            }
+        } else {
+            dataLength = 0;
+        }
+        require(offset, methodNameLength + 1);
+        methodNameOffset = offset;
+        offset += methodNameLength;
+        parameterCount = frame[offset++] & HEX_255;
+
+        position = offset;
+        parametersRead = 0;
+        parameterType = NO_PARAMETER;
+        methodName = null;
+        dataRemaining = dataLength;
+        requestStarted = true;
+        return true;
+    }
+
+    /**
+     * @return the method name of the current request
+     * @throws IllegalStateException if called outside a request
+     */
+    public String methodName() {
+        checkRequestStarted();
+        if (methodName == null) {
+            methodName = new String(frame, methodNameOffset, methodNameLength, UTF_8);
+        }
+        return methodName;
+    }
+
+    /**
+     * @return the number of parameters of the current request
+     * @throws IllegalStateException if called outside a request
+     */
+    public int parameterCount() {
+        checkRequestStarted();
+        return parameterCount;
+    }
+
+    /**
+     * Move to the next parameter of the current request
+     *
+     * @return true if there was a next parameter, false if all parameters have been read
+     * @throws IllegalStateException if called outside a request
+     * @throws ProtocolException     on a malformed parameter
+     */
+    public boolean nextParameter() throws ProtocolException {
+        checkRequestStarted();
+        if (parametersRead == parameterCount) {
+            if (position != frameLength) {
+                throw new ProtocolException("Request has " + (frameLength - position) +
+                        " unexpected bytes after its last parameter.");
+            }
+            parameterType = NO_PARAMETER;
+            return false;
+        }
+
+        int offset = position;
+        require(offset, 1);
+        int typeAndLength = frame[offset++] & HEX_255;
+        int type = typeAndLength >>> BITWISE_SHIFT_SIX;
+        nameLength = typeAndLength & PARAMETER_NAME_LENGTH_MASK;
+        require(offset, nameLength);
+        nameOffset = offset;
+        offset += nameLength;
+        switch (type) {
+            case PARAMETER_TYPE_STRING:
+                require(offset, STRING_LENGTH_SIZE);
+                valueLength = getIntLe(offset);
+                offset += STRING_LENGTH_SIZE;
+                if (valueLength < 0) {
+                    throw new ProtocolException("Invalid string parameter length " + valueLength + ".");
+                }
+                break;
+            case PARAMETER_TYPE_NUMBER:
+                valueLength = NUMBER_SIZE;
+                break;
+            case PARAMETER_TYPE_BOOLEAN:
+                valueLength = BOOLEAN_SIZE;
+                break;
+            default:
+                throw new ProtocolException("Unknown parameter type " + type + ".");
+        }
+        require(offset, valueLength);
+        valueOffset = offset;
+        position = offset + valueLength;
+        parameterType = type;
+        parametersRead++;
+        return true;
+    }
+
+    /**
+     * @return the type of the current parameter, one of {@linkplain #PARAMETER_TYPE_STRING},
+     * {@linkplain #PARAMETER_TYPE_NUMBER} or {@linkplain #PARAMETER_TYPE_BOOLEAN}
+     * @throws IllegalStateException if not positioned on a parameter
+     */
+    public int parameterType() {
+        checkParameter();
+        return parameterType;
+    }
+
+    /**
+     * @return the name of the current parameter
+     * @throws IllegalStateException if not positioned on a parameter
+     */
+    public String parameterName() {
+        checkParameter();
+        return new String(frame, nameOffset, nameLength, UTF_8);
+    }
+
+    /**
+     * Check the name of the current parameter without decoding it
+     *
+     * @param name a non-null {@linkplain EncodedName}
+     * @return true if the name of the current parameter is equal to {@code name}
+     * @throws IllegalArgumentException on a null argument
+     * @throws IllegalStateException    if not positioned on a parameter
+     */
+    public boolean parameterNameEquals(EncodedName name) {
+        if (name == null) {
+            throw new IllegalArgumentException("'name' argument cannot be null.");
+        }
+        checkParameter();
+        byte[] expected = name.bytes;
+        if (expected.length != nameLength) {
+            return false;
+        }
+        for (int i = 0; i < nameLength; i++) {
+            if (frame[nameOffset + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the value of the current number parameter
+     * @throws IllegalStateException if the current parameter is not a number
+     */
+    public long numberValue() {
+        checkParameterType(PARAMETER_TYPE_NUMBER);
+        return getLongLe(valueOffset);
+    }
+
+    /**
+     * @return the value of the current boolean parameter
+     * @throws IllegalStateException if the current parameter is not a boolean
+     */
+    public boolean booleanValue() {
+        checkParameterType(PARAMETER_TYPE_BOOLEAN);
+        return frame[valueOffset] != 0;
+    }
+
+    /**
+     * @return the value of the current string parameter
+     * @throws IllegalStateException if the current parameter is not a string
+     */
+    public String stringValue() {
+        checkParameterType(PARAMETER_TYPE_STRING);
+        return new String(frame, valueOffset, valueLength, UTF_8);
+    }
+
+    /**
+     * Write the UTF-8 bytes of the current string parameter to a sink, without decoding them
+     *
+     * @param sink a non-null {@linkplain BufferedSink}
+     * @throws IllegalArgumentException on a null argument
+     * @throws IllegalStateException    if the current parameter is not a string
+     * @throws IOException              on failed IO operations
+     */
+    public void writeStringValue(BufferedSink sink) throws IOException {
+        if (sink == null) {
+            throw new IllegalArgumentException("'sink' argument cannot be null.");
+        }
+        checkParameterType(PARAMETER_TYPE_STRING);
+        sink.write(frame, valueOffset, valueLength);
+    }
+
+    /**
+     * @return the length in bytes of the data attached to the current request, zero if there is none
+     * @throws IllegalStateException if called outside a request
+     */
+    public long dataContentLength() {
+        checkRequestStarted();
+        return dataLength;
+    }
+
+    /**
+     * Get the data attached to the current request
+     * <p>
+     * The returned {@linkplain Source} is exhausted after {@linkplain #dataContentLength()} bytes
+     * and is valid only until {@linkplain #endRequest()} is called. Closing it does not close
+     * the underlying source.
+     *
+     * @return a {@linkplain Source} for the data of the current request
+     * @throws IllegalStateException if called outside a request
+     */
+    public Source data() {
+        checkRequestStarted();
+        return dataSource;
+    }
+
+    /**
+     * Finish reading the current request
+     * <p>
+     * Validates any unread parameters and skips any unread data, leaving the source
+     * at the start of the next request.
+     *
+     * @throws IllegalStateException if called outside a request
+     * @throws ProtocolException     on malformed parameters
+     * @throws IOException           on failed IO operations
+     */
+    public void endRequest() throws IOException {
+        checkRequestStarted();
+        while (nextParameter()) {
+            // Skip the remaining parameters.
+        }
+        if (dataRemaining > 0) {
+            source.skip(dataRemaining);
+            dataRemaining = 0;
+        }
+        parameterType = NO_PARAMETER;
+        methodName = null;
+        requestStarted = false;
+    }
+
+    /**
+     * Close the {@linkplain BufferedSource}
+     */
+    @Override
+    public void close() {
+        closeQuietly(source);
+    }
+
+    private void readFrame(int byteCount) throws IOException {
+        int offset = 0;
+        while (offset < byteCount) {
+            int read = source.read(frame, offset, byteCount - offset);
+            if (read == -1) {
+                throw new EOFException();
+            }
+            offset += read;
+        }
+    }
+
+    private void require(int offset, int byteCount) throws ProtocolException {
+        if (byteCount > frameLength - offset) {
+            throw new ProtocolException("Request of " + frameLength + " bytes is shorter than its contents.");
+        }
+    }
+
+    private int getIntLe(int offset) {
+        byte[] frame = this.frame;
+        int value = 0;
+        for (int i = 0; i < INT_BYTES; i++) {
+            value |= (frame[offset + i] & HEX_255) << (i * BITS_PER_BYTE);
+        }
+        return value;
+    }
+
+    private long getLongLe(int offset) {
+        return (getIntLe(offset) & HEX_FFFFFFFF_LONG) | (long) getIntLe(offset + INT_BYTES) << Integer.SIZE;
+    }
+
+    private void checkRequestStarted() {
+        if (!requestStarted) {
+            throw new IllegalStateException("beginRequest() has not been called.");
+        }
+    }
+
+    private void checkParameter() {
+        checkRequestStarted();
+        if (parameterType == NO_PARAMETER) {
+            throw new IllegalStateException("Not positioned on a parameter, call nextParameter() first.");
+        }
+    }
+
+    private void checkParameterType(int type) {
+        checkParameter();
+        if (parameterType != type) {
+            throw new IllegalStateException("Expected a parameter of type " + type +
+                    ", but was of type " + parameterType + ".");
+        }
+    }
+
+    private class RequestDataSource implements Source {
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            if (byteCount < 0) throw new IllegalArgumentException("byteCount < 0: " + byteCount);
+            checkRequestStarted();
+            if (dataRemaining == 0) return -1;
+
+            long read = source.read(sink, Math.min(dataRemaining, byteCount));
+            if (read == -1) {
+                throw new EOFException();
+            }
+            dataRemaining -= read;
+            return read;
+        }
+
+        @Override
+        public Timeout timeout() {
+            return source.timeout();
+        }
+
+        @Override
+        public void close() {
+            // The underlying source is shared by all requests, unread data is skipped by endRequest().
+        }
+    }
+}
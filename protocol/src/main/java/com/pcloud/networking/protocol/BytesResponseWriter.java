@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.protocol;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Utf8;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.pcloud.networking.protocol.Protocol.TYPE_BEGIN_ARRAY;
+import static com.pcloud.networking.protocol.Protocol.TYPE_BEGIN_OBJECT;
+import static com.pcloud.networking.protocol.Protocol.TYPE_BOOLEAN_FALSE;
+import static com.pcloud.networking.protocol.Protocol.TYPE_BOOLEAN_TRUE;
+import static com.pcloud.networking.protocol.Protocol.TYPE_END_ARRAY_OBJECT;
+import static com.pcloud.networking.protocol.Protocol.TYPE_NUMBER_COMPRESSED_END;
+import static com.pcloud.networking.protocol.Protocol.TYPE_NUMBER_COMPRESSED_START;
+import static com.pcloud.networking.protocol.Protocol.TYPE_NUMBER_START;
+import static com.pcloud.networking.protocol.Protocol.TYPE_STRING_COMPRESSED_END;
+import static com.pcloud.networking.protocol.Protocol.TYPE_STRING_COMPRESSED_REUSED_BEGIN;
+import static com.pcloud.networking.protocol.Protocol.TYPE_STRING_COMPRESSED_REUSED_END;
+import static com.pcloud.networking.protocol.Protocol.TYPE_STRING_COMPRESSED_START;
+import static com.pcloud.networking.protocol.Protocol.TYPE_STRING_REUSED_START;
+import static com.pcloud.networking.protocol.Protocol.TYPE_STRING_START;
+import static com.pcloud.networking.protocol.Protocol.checkScope;
+import static com.pcloud.networking.protocol.ProtocolReader.SCOPE_ARRAY;
+import static com.pcloud.networking.protocol.ProtocolReader.SCOPE_NONE;
+import static com.pcloud.networking.protocol.ProtocolReader.SCOPE_OBJECT;
+import static com.pcloud.networking.protocol.ProtocolResponseReader.SCOPE_RESPONSE;
+import static com.pcloud.utils.IOUtils.closeQuietly;
+
+/**
+ * Writes values in the binary response format into a sink
+ * <p>
+ * An implementation of a {@linkplain ProtocolResponseWriter} producing the same compact encoding
+ * as the API servers, which can be read back with a {@linkplain BytesReader} or an {@linkplain ArrayBytesReader}:
+ * <ul>
+ * <li>Numbers are written with the least number of bytes, small ones are stored in the type byte itself.</li>
+ * <li>Short strings have their length stored in the type byte.</li>
+ * <li>Strings repeated within a response, such as the names of the members of objects in an array,
+ * are written only once, later occurrences are written as references to the first one.</li>
+ * </ul>
+ * The values of a response are buffered until {@linkplain #endResponse()} is called, as the response starts with its size.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @see ProtocolResponseWriter
+ * @see BytesReader
+ */
+public class BytesResponseWriter implements ProtocolResponseWriter {
+
+    private static final int MAX_COMPRESSED_STRING_LENGTH = TYPE_STRING_COMPRESSED_END - TYPE_STRING_COMPRESSED_START;
+    private static final int MAX_COMPRESSED_STRING_ID =
+            TYPE_STRING_COMPRESSED_REUSED_END - TYPE_STRING_COMPRESSED_REUSED_BEGIN;
+    private static final int MAX_COMPRESSED_NUMBER = TYPE_NUMBER_COMPRESSED_END - TYPE_NUMBER_COMPRESSED_START;
+    private static final long MAX_RESPONSE_SIZE = 0xffffffffL;
+    private static final int BITS_PER_BYTE = 8;
+    private static final int BITS_PER_LONG = 64;
+
+    private final BufferedSink sink;
+    private final Buffer values;
+    private final IntStack scopeStack;
+    // The ids readers assign to each distinct string, in the order of first appearance.
+    private final Map<String, Integer> stringIds;
+
+    private int currentScope = SCOPE_NONE;
+    private boolean nameWritten;
+
+    /**
+     * Create a {@linkplain BytesResponseWriter} instance
+     *
+     * @param sink a {@linkplain BufferedSink} to write the responses into
+     * @throws IllegalArgumentException on a null {@linkplain BufferedSink} argument
+     */
+    public BytesResponseWriter(BufferedSink sink) {
+        if (sink == null) {
+            throw new IllegalArgumentException("'sink' argument cannot be null.");
+        }
+
+        this.sink = sink;
+        this.values = new Buffer();
+        this.scopeStack = new IntStack();
+        this.stringIds = new HashMap<>();
+    }
+
+    @Override
+    public ProtocolResponseWriter beginResponse() throws IOException {
+        if (currentScope != SCOPE_NONE) {
+            throw new IllegalStateException("beginResponse() has been already called.");
+        }
+        pushScope(SCOPE_RESPONSE);
+        return this;
+    }
+
+    @Override
+    public ProtocolResponseWriter endResponse() throws IOException {
+        checkScope(currentScope, SCOPE_RESPONSE);
+        long responseSize = values.size();
+        if (responseSize > MAX_RESPONSE_SIZE) {
+            throw new SerializationException("The maximum allowed response size is " + MAX_RESPONSE_SIZE +
+                    " bytes, current is " + responseSize + " bytes.");
+        }
+
+        sink.writeIntLe((int) responseSize);
+        sink.write(values, responseSize);
+        sink.emit();
+        stringIds.clear();
+        popScope();
+        return this;
+    }
+
+    @Override
+    public ProtocolResponseWriter beginObject() throws IOException {
+        if (currentScope == SCOPE_RESPONSE) {
+            values.writeByte(TYPE_BEGIN_OBJECT);
+            pushScope(SCOPE_OBJECT);
+            return this;
+        }
+        beforeValue();
+        values.writeByte(TYPE_BEGIN_OBJECT);
+        pushScope(SCOPE_OBJECT);
+        return this;
+    }
+
+    @Override
+    public ProtocolResponseWriter endObject() throws IOException {
+        checkScope(currentScope, SCOPE_OBJECT);
+        checkWriteValueFinished();
+        values.writeByte(TYPE_END_ARRAY_OBJECT);
+        popScope();
+        return this;
+    }
+
+    @Override
+    public ProtocolResponseWriter beginArray() throws IOException {
+        beforeValue();
+        values.writeByte(TYPE_BEGIN_ARRAY);
+        pushScope(SCOPE_ARRAY);
+        return this;
+    }
+
+    @Override
+    public ProtocolResponseWriter endArray() throws IOException {
+        checkScope(currentScope, SCOPE_ARRAY);
+        values.writeByte(TYPE_END_ARRAY_OBJECT);
+        popScope();
+        return this;
+    }
+
+    @Override
+    public ProtocolResponseWriter writeName(String name) throws IOException {
+        if (name == null) {
+            throw new IllegalArgumentException("Name parameter cannot be null.");
+        }
+        beforeName();
+        writeString(name, null);
+        return this;
+    }
+
+    @Override
+    public ProtocolResponseWriter writeEncodedName(EncodedName name) throws IOException {
+        if (name == null) {
+            throw new IllegalArgumentException("Name parameter cannot be null.");
+        }
+        beforeName();
+        writeString(name.name(), name.bytes);
+        return this;
+    }
+
+    @Override
+    public ProtocolResponseWriter writeValue(Object value) throws IOException {
+        if (value == null) {
+            throw new IllegalArgumentException("Value argument cannot be null.");
+        }
+
+        final Type valueType = value.getClass();
+        if (valueType == String.class) {
+            writeValue((String) value);
+        } else if (valueType == Long.class) {
+            writeValue((long) value);
+        } else if (valueType == Integer.class) {
+            writeValue((int) value);
+        } else if (valueType == Float.class) {
+            writeValue((float) value);
+        } else if (valueType == Double.class) {
+            writeValue((double) value);
+        } else if (valueType == Short.class) {
+            writeValue((short) value);
+        } else if (valueType == Byte.class) {
+            writeValue((byte) value);
+        } else if (valueType == Boolean.class) {
+            writeValue((boolean) value);
+        } else if (valueType == Character.class) {
+            writeValue(String.valueOf(value));
+        } else {
+            throw new IllegalArgumentException("Cannot serialize value of type '" + valueType + "'.");
+        }
+        return this;
+    }
+
+    @Override
+    public ProtocolResponseWriter writeValue(String value) throws IOException {
+        if (value == null) {
+            throw new IllegalArgumentException("Value argument cannot be null.");
+        }
+        beforeValue();
+        writeString(value, null);
+        return this;
+    }
+
+    @Override
+    public ProtocolResponseWriter writeValue(double value) throws IOException {
+        // Floating point numbers are sent as strings, the same way readers expect them.
+        return writeValue(String.valueOf(value));
+    }
+
+    @Override
+    public ProtocolResponseWriter writeValue(float value) throws IOException {
+        return writeValue(String.valueOf(value));
+    }
+
+    @Override
+    public ProtocolResponseWriter writeValue(long value) throws IOException {
+        beforeValue();
+        if (value >= 0 && value <= MAX_COMPRESSED_NUMBER) {
+            values.writeByte(TYPE_NUMBER_COMPRESSED_START + (int) value);
+        } else {
+            int byteCount = byteCount(value);
+            values.writeByte(TYPE_NUMBER_START + byteCount - 1);
+            writeNumberLe(value, byteCount);
+        }
+        return this;
+    }
+
+    @Override
+    public ProtocolResponseWriter writeValue(boolean value) throws IOException {
+        beforeValue();
+        values.writeByte(value ? TYPE_BOOLEAN_TRUE : TYPE_BOOLEAN_FALSE);
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        sink.flush();
+    }
+
+    /**
+     * Close the {@linkplain BufferedSink}
+     * <p>
+     * Any unfinished response is discarded.
+     */
+    @Override
+    public void close() {
+        closeQuietly(sink);
+        values.clear();
+        stringIds.clear();
+    }
+
+    private void writeString(String value, byte[] utf8Bytes) {
+        Integer existingId = stringIds.get(value);
+        if (existingId != null) {
+            int stringId = existingId;
+            if (stringId <= MAX_COMPRESSED_STRING_ID) {
+                values.writeByte(TYPE_STRING_COMPRESSED_REUSED_BEGIN + stringId);
+            } else {
+                int byteCount = byteCount(stringId);
+                values.writeByte(TYPE_STRING_REUSED_START + byteCount - 1);
+                writeNumberLe(stringId, byteCount);
+            }
+            return;
+        }
+
+        stringIds.put(value, stringIds.size());
+        long length = utf8Bytes != null ? utf8Bytes.length : Utf8.size(value);
+        if (length <= MAX_COMPRESSED_STRING_LENGTH) {
+            values.writeByte(TYPE_STRING_COMPRESSED_START + (int) length);
+        } else {
+            int byteCount = byteCount(length);
+            values.writeByte(TYPE_STRING_START + byteCount - 1);
+            writeNumberLe(length, byteCount);
+        }
+        if (utf8Bytes != null) {
+            values.write(utf8Bytes);
+        } else {
+            values.writeUtf8(value);
+        }
+    }
+
+    private void writeNumberLe(long value, int byteCount) {
+        for (int i = 0; i < byteCount; i++) {
+            values.writeByte((int) (value >>> (i * BITS_PER_BYTE)));
+        }
+    }
+
+    private static int byteCount(long value) {
+        // Values are stored as unsigned numbers, negative ones take all 8 bytes.
+        int bitCount = BITS_PER_LONG - Long.numberOfLeadingZeros(value);
+        return Math.max(1, (bitCount + BITS_PER_BYTE - 1) / BITS_PER_BYTE);
+    }
+
+    private void beforeName() {
+        if (currentScope != SCOPE_OBJECT) {
+            throw new IllegalStateException("Names can be written only inside objects.");
+        }
+        if (nameWritten) {
+            throw new IllegalStateException("A previous writeName() was not matched with a writeValue() call.");
+        }
+        nameWritten = true;
+    }
+
+    private void beforeValue() {
+        switch (currentScope) {
+            case SCOPE_OBJECT:
+                if (!nameWritten) {
+                    throw new IllegalStateException("Call writeName() before writing a value inside an object.");
+                }
+                nameWritten = false;
+                break;
+            case SCOPE_ARRAY:
+                break;
+            case SCOPE_RESPONSE:
+                throw new IllegalStateException("Responses can contain only objects, call beginObject() first.");
+            default:
+                throw new IllegalStateException("Call beginResponse() before calling this method.");
+        }
+    }
+
+    private void checkWriteValueFinished() {
+        if (nameWritten) {
+            throw new IllegalStateException("Expected a call to one of the writeValue() methods.");
+        }
+    }
+
+    private void pushScope(int scope) {
+        scopeStack.push(currentScope);
+        currentScope = scope;
+    }
+
+    private void popScope() {
+        currentScope = scopeStack.pop();
+    }
+}
@@ -16,13 +16,14 @@
 
 package com.pcloud.networking.protocol;
 
-import okio.Buffer;
 import okio.BufferedSink;
 import okio.Utf8;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.Arrays;
 
+import static com.pcloud.utils.IOUtils.BITS_PER_BYTE;
 import static com.pcloud.utils.IOUtils.closeQuietly;
 
 /**
@@ -50,16 +51,46 @@ public class BytesWriter implements ProtocolRequestWriter {
     private static final int MAX_METHOD_LENGTH = 127;
     private static final int BITWISE_SHIFT_SIX = 6;
     private static final int DATA_LENGTH_SIZE = 8;
+    private static final int STRING_LENGTH_SIZE = 4;
+    private static final int NUMBER_SIZE = 8;
+    private static final int MAX_UTF8_BYTES_PER_CHAR = 3;
+    private static final int INT_BYTES = Integer.SIZE / BITS_PER_BYTE;
+
+    // UTF-8 encoding, see RFC 3629
+    private static final int UTF8_ONE_BYTE_LIMIT = 0x80;
+    private static final int UTF8_TWO_BYTES_LIMIT = 0x800;
+    private static final int UTF8_TWO_BYTES_PREFIX = 0xc0;
+    private static final int UTF8_THREE_BYTES_PREFIX = 0xe0;
+    private static final int UTF8_FOUR_BYTES_PREFIX = 0xf0;
+    private static final int UTF8_CONTINUATION_PREFIX = 0x80;
+    private static final int UTF8_CONTINUATION_MASK = 0x3f;
+    private static final int UTF8_CONTINUATION_BITS = 6;
+    private static final int UTF8_TWO_CONTINUATIONS_BITS = 12;
+    private static final int UTF8_THREE_CONTINUATIONS_BITS = 18;
+
+    // Parameters are written right after space reserved for the largest possible header,
+    // the actual header is written right before them once the request is complete.
+    private static final int MAX_HEADER_SIZE =
+            2 + // Request size (2 bytes)
+                    1 + // Method name length + data flag (1 byte)
+                    DATA_LENGTH_SIZE + // Data length, if any (8 bytes)
+                    MAX_METHOD_LENGTH + // Method name
+                    1; // Parameter count (1 byte)
+    private static final int DEFAULT_FRAME_SIZE = 512;
+    private static final int MAX_RETAINED_FRAME_SIZE = MAX_HEADER_SIZE + REQUEST_SIZE_LIMIT_BYTES;
 
     private final BufferedSink sink;
-    private final Buffer paramsBuffer;
+    private byte[] frame;
+    private int position;
     private DataSource dataSource;
 
     private String methodName;
+    private byte[] encodedMethodName;
     private boolean requestStarted;
     private int parameterCount;
 
     private String nextValueName;
+    private EncodedName nextEncodedName;
 
     /**
      * Create a {@linkplain BytesReader} instance
@@ -74,7 +105,8 @@ public class BytesWriter implements ProtocolRequestWriter {
         }
 
         this.sink = sink;
-        this.paramsBuffer = new Buffer();
+        this.frame = new byte[DEFAULT_FRAME_SIZE];
+        this.position = MAX_HEADER_SIZE;
     }
 
     @Override
@@ -100,6 +132,26 @@ public class BytesWriter implements ProtocolRequestWriter {
         return this;
     }
 
+    @Override
+    public ProtocolRequestWriter writeTemplate(RequestTemplate template) throws IOException {
+        checkRequestStarted();
+        checkWriteValueFinished();
+        if (template == null) {
+            throw new IllegalArgumentException("'template' argument cannot be null.");
+        }
+        if (methodName != null) {
+            throw new IllegalStateException("method() already called for the started request.");
+        }
+        if (parameterCount + template.parameterCount > REQUEST_PARAM_COUNT_LIMIT) {
+            throw new SerializationException("Request parameter count limit reached.");
+        }
+        methodName = template.methodName();
+        encodedMethodName = template.encodedMethodName;
+        writeBytes(template.parameters);
+        parameterCount += template.parameterCount;
+        return this;
+    }
+
 
     @Override
     public ProtocolRequestWriter endRequest() throws IOException {
@@ -111,7 +163,8 @@ public class BytesWriter implements ProtocolRequestWriter {
                     "writeMethodName() has not been called.");
         }
 
-        int methodNameLength = (int) Utf8.size(methodName);
+        int methodNameLength = encodedMethodName != null ?
+                encodedMethodName.length : (int) Utf8.size(methodName);
         if (methodNameLength > MAX_METHOD_LENGTH) {
             throw new SerializationException(
                     "Invalid method name '%s', " +
@@ -126,12 +179,13 @@ public class BytesWriter implements ProtocolRequestWriter {
 
         boolean hasData = dataSourceLength > 0;
 
-        final long requestSize =
-                (hasData ? DATA_LENGTH_SIZE : 0) + // Data length, if any (8 bytes)
+        final int headerSize =
+                2 + // Request size (2 bytes)
                         1 + // Method name length + data flag (1 byte)
-                        1 + // + Parameter count (1 byte)
+                        (hasData ? DATA_LENGTH_SIZE : 0) + // Data length, if any (8 bytes)
                         methodNameLength +
-                        +paramsBuffer.size();
+                        1; // Parameter count (1 byte)
+        final long requestSize = headerSize - 2 + (position - MAX_HEADER_SIZE);
         if (requestSize > REQUEST_SIZE_LIMIT_BYTES) {
             throw new SerializationException("The maximum allowed request size is 65535 bytes," +
                     " current is " + requestSize + " bytes.");
@@ -141,21 +195,32 @@ public class BytesWriter implements ProtocolRequestWriter {
             methodNameLength = methodNameLength | (1 << REQUEST_BINARY_DATA_FLAG_POSITION);
         }
 
-        sink.writeShortLe((int) requestSize); // Request size, 2 bytes
-        sink.writeByte(methodNameLength);
+        final int frameStart = MAX_HEADER_SIZE - headerSize;
+        int offset = frameStart;
+        frame[offset++] = (byte) requestSize; // Request size, 2 bytes
+        frame[offset++] = (byte) (requestSize >>> BITS_PER_BYTE);
+        frame[offset++] = (byte) methodNameLength;
         if (hasData) {
-            sink.writeLongLe(dataSourceLength); // Size of data after response, 8 bytes
+            putLongLe(offset, dataSourceLength); // Size of data after response, 8 bytes
+            offset += DATA_LENGTH_SIZE;
+        }
+        if (encodedMethodName != null) {
+            System.arraycopy(encodedMethodName, 0, frame, offset, encodedMethodName.length);
+        } else {
+            putUtf8(offset, methodName);
         }
-        sink.writeUtf8(methodName);
-        sink.writeByte(parameterCount);
-        sink.write(this.paramsBuffer, paramsBuffer.size());
+        frame[MAX_HEADER_SIZE - 1] = (byte) parameterCount;
+
+        sink.write(frame, frameStart, position - frameStart);
         if (hasData) {
             dataSource.writeTo(sink);
         }
 
         sink.emit();
+        resetFrame();
         dataSource = null;
         methodName = null;
+        encodedMethodName = null;
         requestStarted = false;
         parameterCount = 0;
         return this;
@@ -191,29 +256,64 @@ public class BytesWriter implements ProtocolRequestWriter {
             throw new IllegalArgumentException("Name parameter cannot be null.");
         }
 
-        if (nextValueName != null) {
+        checkNextName();
+        nextValueName = name;
+        parameterCount++;
+        return this;
+    }
+
+    @Override
+    public ProtocolRequestWriter writeEncodedName(EncodedName name) throws IOException {
+        checkRequestStarted();
+        checkWriteValueFinished();
+
+        if (name == null) {
+            throw new IllegalArgumentException("Name parameter cannot be null.");
+        }
+
+        checkNextName();
+        nextEncodedName = name;
+        parameterCount++;
+        return this;
+    }
+
+    private void checkNextName() throws SerializationException {
+        if (hasNextName()) {
             throw new IllegalStateException("A previous writeName() was not matched with a writeValue() call.");
         }
 
         if (parameterCount >= REQUEST_PARAM_COUNT_LIMIT) {
             throw new SerializationException("Request parameter count limit reached.");
         }
+    }
 
-        nextValueName = name;
-        parameterCount++;
-        return this;
+    private boolean hasNextName() {
+        return nextValueName != null || nextEncodedName != null;
     }
 
     private void writeNextValueTypeAndName(int type) throws SerializationException {
-        int parameterNameLength = (int) Utf8.size(nextValueName);
-        if (parameterNameLength > REQUEST_PARAM_NAME_LENGTH_LIMIT) {
-            throw new SerializationException("Parameter name '%s' is too long.", nextValueName);
+        int parameterNameLength;
+        if (nextEncodedName != null) {
+            byte[] name = nextEncodedName.bytes;
+            parameterNameLength = name.length;
+            if (parameterNameLength > REQUEST_PARAM_NAME_LENGTH_LIMIT) {
+                throw new SerializationException("Parameter name '%s' is too long.", nextEncodedName.name());
+            }
+            ensureCapacity(1 + parameterNameLength);
+            System.arraycopy(name, 0, frame, position + 1, parameterNameLength);
+        } else {
+            // Encode the name in place, it is committed only if it fits the limit.
+            ensureCapacity(1 + nextValueName.length() * MAX_UTF8_BYTES_PER_CHAR);
+            parameterNameLength = putUtf8(position + 1, nextValueName) - (position + 1);
+            if (parameterNameLength > REQUEST_PARAM_NAME_LENGTH_LIMIT) {
+                throw new SerializationException("Parameter name '%s' is too long.", nextValueName);
+            }
         }
 
-        int encodedParamData = parameterNameLength | (type << BITWISE_SHIFT_SIX);
-        paramsBuffer.writeByte(encodedParamData);
-        paramsBuffer.writeUtf8(nextValueName);
+        frame[position] = (byte) (parameterNameLength | (type << BITWISE_SHIFT_SIX));
+        position += 1 + parameterNameLength;
         nextValueName = null;
+        nextEncodedName = null;
     }
 
     @Override
@@ -261,8 +361,12 @@ public class BytesWriter implements ProtocolRequestWriter {
     }
 
     private void writeString(String value) {
-        paramsBuffer.writeIntLe((int) Utf8.size(value));
-        paramsBuffer.writeUtf8(value);
+        // Encode the value first and then fill in its length in front of it.
+        ensureCapacity(STRING_LENGTH_SIZE + value.length() * MAX_UTF8_BYTES_PER_CHAR);
+        int valueStart = position + STRING_LENGTH_SIZE;
+        int valueEnd = putUtf8(valueStart, value);
+        putIntLe(position, valueEnd - valueStart);
+        position = valueEnd;
     }
 
     @Override
@@ -273,7 +377,9 @@ public class BytesWriter implements ProtocolRequestWriter {
             writeString(String.valueOf(value));
         } else {
             writeNextValueTypeAndName(REQUEST_PARAM_TYPE_NUMBER);
-            paramsBuffer.writeLongLe(value);
+            ensureCapacity(NUMBER_SIZE);
+            putLongLe(position, value);
+            position += NUMBER_SIZE;
         }
 
         return this;
@@ -283,7 +389,8 @@ public class BytesWriter implements ProtocolRequestWriter {
     public ProtocolRequestWriter writeValue(boolean value) throws IOException {
         checkWriteNameCalled();
         writeNextValueTypeAndName(REQUEST_PARAM_TYPE_BOOLEAN);
-        paramsBuffer.writeByte(value ? 1 : 0);
+        ensureCapacity(1);
+        frame[position++] = (byte) (value ? 1 : 0);
         return this;
     }
 
@@ -303,16 +410,129 @@ public class BytesWriter implements ProtocolRequestWriter {
         return this;
     }
 
+    /**
+     * Discard any unfinished request
+     * <p>
+     * Returns the writer to its initial state without writing anything to the sink, so that
+     * a single instance can keep being used for the same sink after a request fails to be written.
+     */
+    public void reset() {
+        resetFrame();
+        dataSource = null;
+        methodName = null;
+        encodedMethodName = null;
+        requestStarted = false;
+        parameterCount = 0;
+        nextValueName = null;
+        nextEncodedName = null;
+    }
+
+    /*
+     * Drops a name that was not followed by a value, used by RequestTemplate.Builder
+     * to recover from an invalid parameter.
+     */
+    void discardName() {
+        if (hasNextName()) {
+            nextValueName = null;
+            nextEncodedName = null;
+            parameterCount--;
+        }
+    }
+
+    int parameterCount() {
+        return parameterCount;
+    }
+
+    byte[] parameters() {
+        return Arrays.copyOfRange(frame, MAX_HEADER_SIZE, position);
+    }
+
     /**
      * Close the {@linkplain BufferedSink}
      */
     @Override
     public void close() {
         closeQuietly(sink);
-        closeQuietly(paramsBuffer);
         dataSource = null;
     }
 
+    private void resetFrame() {
+        position = MAX_HEADER_SIZE;
+        // Do not hold on to frames grown by oversized requests.
+        if (frame.length > MAX_RETAINED_FRAME_SIZE) {
+            frame = new byte[DEFAULT_FRAME_SIZE];
+        }
+    }
+
+    private void ensureCapacity(int byteCount) {
+        int required = position + byteCount;
+        if (required > frame.length) {
+            frame = Arrays.copyOf(frame, Math.max(required, frame.length * 2));
+        }
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, frame, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void putIntLe(int offset, int value) {
+        byte[] frame = this.frame;
+        for (int i = 0; i < INT_BYTES; i++) {
+            frame[offset + i] = (byte) (value >>> (i * BITS_PER_BYTE));
+        }
+    }
+
+    private void putLongLe(int offset, long value) {
+        putIntLe(offset, (int) value);
+        putIntLe(offset + INT_BYTES, (int) (value >>> Integer.SIZE));
+    }
+
+    /*
+     * Encodes the string as UTF-8 at the given offset and returns the offset right after it.
+     * The frame must have room for up to 3 bytes per character. Unpaired surrogates are
+     * replaced with '?', the same way okio.Utf8 and BufferedSink.writeUtf8() treat them.
+     */
+    private int putUtf8(int offset, String value) {
+        byte[] frame = this.frame;
+        int length = value.length();
+        int index = 0;
+        while (index < length) {
+            char c = value.charAt(index);
+            if (c < UTF8_ONE_BYTE_LIMIT) {
+                frame[offset++] = (byte) c;
+                index++;
+            } else if (c < UTF8_TWO_BYTES_LIMIT) {
+                frame[offset++] = (byte) (c >> UTF8_CONTINUATION_BITS | UTF8_TWO_BYTES_PREFIX);
+                frame[offset++] = (byte) (c & UTF8_CONTINUATION_MASK | UTF8_CONTINUATION_PREFIX);
+                index++;
+            } else if (!Character.isSurrogate(c)) {
+                frame[offset++] = (byte) (c >> UTF8_TWO_CONTINUATIONS_BITS | UTF8_THREE_BYTES_PREFIX);
+                frame[offset++] = (byte) (c >> UTF8_CONTINUATION_BITS & UTF8_CONTINUATION_MASK |
+                        UTF8_CONTINUATION_PREFIX);
+                frame[offset++] = (byte) (c & UTF8_CONTINUATION_MASK | UTF8_CONTINUATION_PREFIX);
+                index++;
+            } else {
+                char low = index + 1 < length ? value.charAt(index + 1) : 0;
+                if (!Character.isSurrogatePair(c, low)) {
+                    frame[offset++] = '?';
+                    index++;
+                } else {
+                    int codePoint = Character.toCodePoint(c, low);
+                    frame[offset++] = (byte) (codePoint >> UTF8_THREE_CONTINUATIONS_BITS | UTF8_FOUR_BYTES_PREFIX);
+                    frame[offset++] = (byte) (codePoint >> UTF8_TWO_CONTINUATIONS_BITS & UTF8_CONTINUATION_MASK |
+                            UTF8_CONTINUATION_PREFIX);
+                    frame[offset++] = (byte) (codePoint >> UTF8_CONTINUATION_BITS & UTF8_CONTINUATION_MASK |
+                            UTF8_CONTINUATION_PREFIX);
+                    frame[offset++] = (byte) (codePoint & UTF8_CONTINUATION_MASK | UTF8_CONTINUATION_PREFIX);
+                    index += 2;
+                }
+            }
+        }
+        return offset;
+    }
+
     private void checkRequestStarted() {
         if (!requestStarted) {
             throw new IllegalStateException("Call beginRequest() before calling this method.");
@@ -320,13 +540,13 @@ public class BytesWriter implements ProtocolRequestWriter {
     }
 
     private void checkWriteValueFinished() {
-        if (nextValueName != null) {
+        if (hasNextName()) {
             throw new IllegalStateException("Expected a call to one of the writeValue() methods.");
         }
     }
 
     private void checkWriteNameCalled() {
-        if (nextValueName == null) {
+        if (!hasNextName()) {
             throw new IllegalStateException("Call writeName() before calling this method.");
         }
     }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.protocol;
+
+import okio.ByteString;
+
+/**
+ * A request parameter name, encoded once and reused for every request it is written to
+ * <p>
+ * Writing a name as a {@linkplain String} requires measuring and encoding it to UTF-8 every time.
+ * Names known in advance, such as those of API method parameters or ones added by interceptors,
+ * can be kept as {@linkplain EncodedName} instances and written with
+ * {@linkplain ProtocolWriter#writeEncodedName(EncodedName)} instead.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ *
+ * @see ProtocolWriter#writeEncodedName(EncodedName)
+ * @see RequestTemplate
+ */
+public final class EncodedName {
+
+    /**
+     * Encode a parameter name
+     *
+     * @param name a non-null parameter name
+     * @return a new {@linkplain EncodedName} instance
+     * @throws IllegalArgumentException on a null argument
+     */
+    public static EncodedName of(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("'name' argument cannot be null.");
+        }
+        return new EncodedName(name, ByteString.encodeUtf8(name).toByteArray());
+    }
+
+    private final String name;
+    final byte[] bytes;
+
+    private EncodedName(String name, byte[] bytes) {
+        this.name = name;
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return the parameter name
+     */
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return name.equals(((EncodedName) o).name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
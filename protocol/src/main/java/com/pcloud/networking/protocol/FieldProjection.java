@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.protocol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of dot-separated member paths that a {@linkplain ProtocolReader} should expose
+ * <p>
+ * A projection such as {@code FieldProjection.of("metadata.name", "metadata.contents.fileid")}
+ * describes the only members of a response the reader should return. Paths are matched against member names
+ * of nested objects; arrays are transparent, so a path applies to every object element of an array
+ * at that position. A path ending at a member exposes its whole value, whatever its type.
+ * <p>
+ * Readers returned by {@link #apply(ProtocolReader)} hide every other member. Hidden member names are matched
+ * without being decoded and their values are skipped by the wrapped reader, which moves past whole strings,
+ * numbers and nested values without reading them. Adapters reading from a projected reader see the response
+ * as if the server had only sent the projected members.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class FieldProjection {
+
+    private static final String PATH_SEPARATOR = ".";
+
+    private final List<String> paths;
+    final Node root;
+
+    private FieldProjection(List<String> paths, Node root) {
+        this.paths = paths;
+        this.root = root;
+    }
+
+    /**
+     * Create a new {@linkplain FieldProjection}
+     *
+     * @param paths the dot-separated member paths to expose, e.g. "metadata.name"
+     * @return a new {@linkplain FieldProjection} instance
+     * @throws IllegalArgumentException on a null argument, or on null or malformed paths
+     */
+    public static FieldProjection of(String... paths) {
+        if (paths == null) {
+            throw new IllegalArgumentException("'paths' argument cannot be null.");
+        }
+        return of(Arrays.asList(paths));
+    }
+
+    /**
+     * Create a new {@linkplain FieldProjection}
+     *
+     * @param paths the dot-separated member paths to expose, e.g. "metadata.name"
+     * @return a new {@linkplain FieldProjection} instance
+     * @throws IllegalArgumentException on a null argument, or on null or malformed paths
+     */
+    public static FieldProjection of(Collection<String> paths) {
+        if (paths == null) {
+            throw new IllegalArgumentException("'paths' argument cannot be null.");
+        }
+        PathTree tree = new PathTree();
+        List<String> values = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            if (path == null) {
+                throw new IllegalArgumentException("Projection paths cannot be null.");
+            }
+            tree.add(path, path.split("\\" + PATH_SEPARATOR, -1));
+            values.add(path);
+        }
+        return new FieldProjection(Collections.unmodifiableList(values), tree.toNode());
+    }
+
+    /**
+     * Get the projected paths
+     *
+     * @return an unmodifiable list of the paths this instance was created with
+     */
+    public List<String> paths() {
+        return paths;
+    }
+
+    /**
+     * Create a new {@linkplain FieldProjection} exposing the members of this and the provided paths
+     *
+     * @param paths the dot-separated member paths to add
+     * @return a new {@linkplain FieldProjection} instance
+     * @throws IllegalArgumentException on a null argument, or on null or malformed paths
+     */
+    public FieldProjection plus(String... paths) {
+        if (paths == null) {
+            throw new IllegalArgumentException("'paths' argument cannot be null.");
+        }
+        List<String> values = new ArrayList<>(this.paths);
+        values.addAll(Arrays.asList(paths));
+        return of(values);
+    }
+
+    /**
+     * Wrap a {@linkplain ProtocolReader} to expose only the projected members
+     * <p>
+     * The projection applies to the first object or array the returned reader begins,
+     * so the reader should be wrapped before the projected value is read.
+     *
+     * @param reader the reader to wrap
+     * @return a {@linkplain ProtocolReader} which reads only the projected members from the wrapped reader
+     * @throws IllegalArgumentException on a null {@linkplain ProtocolReader} argument
+     */
+    public ProtocolReader apply(ProtocolReader reader) {
+        return new ProjectingProtocolReader(reader, root);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return paths.equals(((FieldProjection) o).paths);
+    }
+
+    @Override
+    public int hashCode() {
+        return paths.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return paths.toString();
+    }
+
+    /**
+     * The projected members of a single object.
+     * <p>
+     * A null child means the whole member value is exposed.
+     */
+    static final class Node {
+        final ProtocolReader.Options names;
+        final Node[] children;
+
+        Node(ProtocolReader.Options names, Node[] children) {
+            this.names = names;
+            this.children = children;
+        }
+    }
+
+    private static final class PathTree {
+        // A null value marks a member that is exposed as a whole.
+        private final Map<String, PathTree> children = new LinkedHashMap<>();
+
+        void add(String path, String[] segments) {
+            PathTree tree = this;
+            for (int index = 0; index < segments.length; index++) {
+                String name = segments[index];
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException("Invalid projection path '" + path + "'.");
+                }
+                boolean last = index == segments.length - 1;
+                if (!tree.children.containsKey(name)) {
+                    tree.children.put(name, last ? null : new PathTree());
+                } else if (last) {
+                    tree.children.put(name, null);
+                }
+
+                tree = tree.children.get(name);
+                if (tree == null) {
+                    // A parent member is already exposed as a whole.
+                    break;
+                }
+            }
+        }
+
+        Node toNode() {
+            String[] names = children.keySet().toArray(new String[children.size()]);
+            Node[] nodes = new Node[names.length];
+            for (int index = 0; index < names.length; index++) {
+                PathTree child = children.get(names[index]);
+                nodes[index] = child != null ? child.toNode() : null;
+            }
+            return new Node(ProtocolReader.Options.of(names), nodes);
+        }
+    }
+}
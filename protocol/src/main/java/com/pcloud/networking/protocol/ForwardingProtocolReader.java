@@ -16,7 +16,10 @@
 
 package com.pcloud.networking.protocol;
 
+import okio.ByteString;
+
 import java.io.IOException;
+import java.util.Collection;
 
 /**
  * A {@linkplain ProtocolReader} which forwards calls to another.
@@ -80,6 +83,16 @@ public abstract class ForwardingProtocolReader implements ProtocolReader {
         return delegate.readString();
     }
 
+    @Override
+    public ByteString readStringBytes() throws IOException {
+        return delegate.readStringBytes();
+    }
+
+    @Override
+    public int selectName(Options options) throws IOException {
+        return delegate.selectName(options);
+    }
+
     @Override
     public long readNumber() throws IOException {
         return delegate.readNumber();
@@ -100,8 +113,40 @@ public abstract class ForwardingProtocolReader implements ProtocolReader {
         delegate.skipValue();
     }
 
+    @Override
+    public void readValue(ProtocolEventHandler handler) throws IOException {
+        delegate.readValue(handler);
+    }
+
+    @Override
+    public int readNumberArray(long[] destination) throws IOException {
+        return delegate.readNumberArray(destination);
+    }
+
+    @Override
+    public int readNumbers(NumberConsumer consumer) throws IOException {
+        return delegate.readNumbers(consumer);
+    }
+
+    @Override
+    public int readStringArray(Collection<? super String> destination) throws IOException {
+        return delegate.readStringArray(destination);
+    }
+
     @Override
     public ProtocolReader newPeekingReader() {
         return delegate.newPeekingReader();
     }
+
+    /**
+     * Returns this instance, so that subclasses do not get bypassed.
+     * <p>
+     * Override to return the view of the delegate, if the subclass does not alter any of the reads.
+     *
+     * @return this instance
+     */
+    @Override
+    public ProtocolReader uncheckedReader() {
+        return this;
+    }
 }
@@ -58,12 +58,24 @@ public abstract class ForwardingProtocolRequestWriter implements ProtocolRequest
         return this;
     }
 
+    @Override
+    public ProtocolRequestWriter writeTemplate(RequestTemplate template) throws IOException {
+        delegate.writeTemplate(template);
+        return this;
+    }
+
     @Override
     public ProtocolRequestWriter writeName(String name) throws IOException {
         delegate.writeName(name);
         return this;
     }
 
+    @Override
+    public ProtocolRequestWriter writeEncodedName(EncodedName name) throws IOException {
+        delegate.writeEncodedName(name);
+        return this;
+    }
+
     @Override
     public ProtocolRequestWriter writeValue(Object value) throws IOException {
         delegate.writeValue(value);
@@ -17,9 +17,11 @@
 package com.pcloud.networking.protocol;
 
 import okio.BufferedSink;
+import okio.ByteString;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Collection;
 
 /**
  * A {@linkplain ProtocolResponseReader} which forwards calls to another.
@@ -108,6 +110,16 @@ public abstract class ForwardingProtocolResponseReader implements ProtocolRespon
         return delegate.readString();
     }
 
+    @Override
+    public ByteString readStringBytes() throws IOException {
+        return delegate.readStringBytes();
+    }
+
+    @Override
+    public int selectName(Options options) throws IOException {
+        return delegate.selectName(options);
+    }
+
     @Override
     public long readNumber() throws IOException {
         return delegate.readNumber();
@@ -128,8 +140,40 @@ public abstract class ForwardingProtocolResponseReader implements ProtocolRespon
         delegate.skipValue();
     }
 
+    @Override
+    public void readValue(ProtocolEventHandler handler) throws IOException {
+        delegate.readValue(handler);
+    }
+
+    @Override
+    public int readNumberArray(long[] destination) throws IOException {
+        return delegate.readNumberArray(destination);
+    }
+
+    @Override
+    public int readNumbers(NumberConsumer consumer) throws IOException {
+        return delegate.readNumbers(consumer);
+    }
+
+    @Override
+    public int readStringArray(Collection<? super String> destination) throws IOException {
+        return delegate.readStringArray(destination);
+    }
+
     @Override
     public ProtocolResponseReader newPeekingReader() {
         return delegate.newPeekingReader();
     }
+
+    /**
+     * Returns this instance, so that subclasses do not get bypassed.
+     * <p>
+     * Override to return the view of the delegate, if the subclass does not alter any of the reads.
+     *
+     * @return this instance
+     */
+    @Override
+    public ProtocolReader uncheckedReader() {
+        return this;
+    }
 }
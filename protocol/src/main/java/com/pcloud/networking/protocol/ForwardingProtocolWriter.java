@@ -46,6 +46,12 @@ public abstract class ForwardingProtocolWriter implements ProtocolWriter {
         return this;
     }
 
+    @Override
+    public ProtocolWriter writeEncodedName(EncodedName name) throws IOException {
+        delegate.writeEncodedName(name);
+        return this;
+    }
+
     @Override
     public ProtocolWriter writeValue(Object value) throws IOException {
         delegate.writeValue(value);
@@ -82,4 +82,8 @@ class IntStack {
     public int size() {
         return elementCount;
     }
+
+    public void clear() {
+        elementCount = 0;
+    }
 }
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.protocol;
+
+import okio.BufferedSink;
+
+import java.io.IOException;
+
+/**
+ * Converts values read from a {@linkplain ProtocolReader} to JSON
+ * <p>
+ * Values are streamed from the reader via {@linkplain ProtocolReader#readValue(ProtocolEventHandler)}
+ * and written as UTF-8 JSON directly to a {@linkplain BufferedSink}, without building an intermediate
+ * tree of maps and lists as {@linkplain ValueReader} does. Reused strings are written out in full.
+ * <p>
+ * Data values are written as numbers equal to the length of the data, same as they are read by
+ * {@linkplain ProtocolReader#readNumber()}.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ *
+ * @see ProtocolReader#readValue(ProtocolEventHandler)
+ * @see ValueReader
+ */
+public final class JsonTranscoder {
+
+    private static final String INDENT = "  ";
+    private static final String[] REPLACEMENT_CHARS = new String[128];
+    private static final int FIRST_PRINTABLE_CHAR = 0x20;
+
+    static {
+        for (int i = 0; i < FIRST_PRINTABLE_CHAR; i++) {
+            REPLACEMENT_CHARS[i] = String.format("\\u%04x", i);
+        }
+        REPLACEMENT_CHARS['"'] = "\\\"";
+        REPLACEMENT_CHARS['\\'] = "\\\\";
+        REPLACEMENT_CHARS['\t'] = "\\t";
+        REPLACEMENT_CHARS['\b'] = "\\b";
+        REPLACEMENT_CHARS['\n'] = "\\n";
+        REPLACEMENT_CHARS['\r'] = "\\r";
+        REPLACEMENT_CHARS['\f'] = "\\f";
+    }
+
+    private final boolean prettyPrint;
+
+    /**
+     * Create a {@linkplain JsonTranscoder} producing compact JSON
+     */
+    public JsonTranscoder() {
+        this(false);
+    }
+
+    /**
+     * Create a {@linkplain JsonTranscoder}
+     *
+     * @param prettyPrint if true, members and elements are written on separate lines, indented by their nesting
+     */
+    public JsonTranscoder(boolean prettyPrint) {
+        this.prettyPrint = prettyPrint;
+    }
+
+    /**
+     * Read the next value from a {@linkplain ProtocolReader} and write it as JSON
+     * <p>
+     * Objects and arrays are transcoded along with all their children.
+     * The sink is not flushed.
+     *
+     * @param reader the {@linkplain ProtocolReader} to read the value from
+     * @param sink   the {@linkplain BufferedSink} to write the JSON to
+     * @throws IOException              if the reader source is malformed or on failed IO operations
+     * @throws IllegalArgumentException on a null argument
+     */
+    public void transcode(ProtocolReader reader, BufferedSink sink) throws IOException {
+        if (reader == null) {
+            throw new IllegalArgumentException("'reader' argument cannot be null.");
+        }
+        if (sink == null) {
+            throw new IllegalArgumentException("'sink' argument cannot be null.");
+        }
+        reader.readValue(new JsonEventWriter(sink, prettyPrint));
+    }
+
+    private static final class JsonEventWriter implements ProtocolEventHandler {
+
+        private final BufferedSink sink;
+        private final boolean prettyPrint;
+        private int depth;
+        private boolean empty = true;
+        private boolean afterKey;
+
+        JsonEventWriter(BufferedSink sink, boolean prettyPrint) {
+            this.sink = sink;
+            this.prettyPrint = prettyPrint;
+        }
+
+        @Override
+        public void onBeginObject() throws IOException {
+            beforeValue();
+            sink.writeByte('{');
+            depth++;
+            empty = true;
+        }
+
+        @Override
+        public void onEndObject() throws IOException {
+            close('}');
+        }
+
+        @Override
+        public void onBeginArray() throws IOException {
+            beforeValue();
+            sink.writeByte('[');
+            depth++;
+            empty = true;
+        }
+
+        @Override
+        public void onEndArray() throws IOException {
+            close(']');
+        }
+
+        @Override
+        public void onKey(String name) throws IOException {
+            beforeValue();
+            writeString(name);
+            sink.writeByte(':');
+            if (prettyPrint) {
+                sink.writeByte(' ');
+            }
+            afterKey = true;
+        }
+
+        @Override
+        public void onString(String value) throws IOException {
+            beforeValue();
+            writeString(value);
+        }
+
+        @Override
+        public void onNumber(long value) throws IOException {
+            beforeValue();
+            sink.writeDecimalLong(value);
+        }
+
+        @Override
+        public void onBoolean(boolean value) throws IOException {
+            beforeValue();
+            sink.writeUtf8(value ? "true" : "false");
+        }
+
+        private void beforeValue() throws IOException {
+            if (afterKey) {
+                // The value of an object member, already separated by the key.
+                afterKey = false;
+                return;
+            }
+            if (!empty) {
+                sink.writeByte(',');
+            }
+            empty = false;
+            if (depth > 0) {
+                newline();
+            }
+        }
+
+        private void close(char bracket) throws IOException {
+            depth--;
+            if (!empty) {
+                newline();
+            }
+            sink.writeByte(bracket);
+            // A closed container is itself a value of its parent.
+            empty = false;
+        }
+
+        private void newline() throws IOException {
+            if (prettyPrint) {
+                sink.writeByte('\n');
+                for (int i = 0; i < depth; i++) {
+                    sink.writeUtf8(INDENT);
+                }
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            BufferedSink sink = this.sink;
+            sink.writeByte('"');
+            int last = 0;
+            int length = value.length();
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                String replacement;
+                if (c < REPLACEMENT_CHARS.length) {
+                    replacement = REPLACEMENT_CHARS[c];
+                    if (replacement == null) {
+                        continue;
+                    }
+                } else if (c == '\u2028') {
+                    // Valid in JSON, but not in JavaScript string literals.
+                    replacement = "\\u2028";
+                } else if (c == '\u2029') {
+                    replacement = "\\u2029";
+                } else {
+                    continue;
+                }
+                if (last < i) {
+                    sink.writeUtf8(value, last, i);
+                }
+                sink.writeUtf8(replacement);
+                last = i + 1;
+            }
+            if (last < length) {
+                sink.writeUtf8(value, last, length);
+            }
+            sink.writeByte('"');
+        }
+    }
+}
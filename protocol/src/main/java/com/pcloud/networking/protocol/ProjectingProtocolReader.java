@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.protocol;
+
+import okio.ByteString;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A {@linkplain ProtocolReader} which hides the object members outside of a {@linkplain FieldProjection}.
+ * <p>
+ * Member names are matched with {@linkplain ProtocolReader#selectName(Options)}, a matched name is held back
+ * until the caller reads or selects it, everything else is skipped before {@link #hasNext()} returns.
+ */
+class ProjectingProtocolReader extends ForwardingProtocolReader {
+
+    private static final int DEFAULT_STACK_SIZE = 8;
+
+    private final ProtocolReader delegate;
+    private final FieldProjection.Node root;
+
+    // The projection of each open object or array, null for ones read as a whole.
+    private FieldProjection.Node[] nodes;
+    private int depth;
+
+    // The projection of the value following the last read member name.
+    private FieldProjection.Node valueNode;
+    private boolean expectingValue;
+    private int pendingName = -1;
+
+    ProjectingProtocolReader(ProtocolReader delegate, FieldProjection.Node root) {
+        super(delegate);
+        this.delegate = delegate;
+        this.root = root;
+        this.nodes = new FieldProjection.Node[DEFAULT_STACK_SIZE];
+    }
+
+    private ProjectingProtocolReader(ProtocolReader delegate, ProjectingProtocolReader reader) {
+        this(delegate, reader.root);
+        this.nodes = reader.nodes.clone();
+        this.depth = reader.depth;
+        this.valueNode = reader.valueNode;
+        this.expectingValue = reader.expectingValue;
+        this.pendingName = reader.pendingName;
+    }
+
+    @Override
+    public TypeToken peek() throws IOException {
+        if (atProjectedName() && seekName()) {
+            return TypeToken.STRING;
+        }
+        return delegate.peek();
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        FieldProjection.Node node = nextContainerNode();
+        delegate.beginObject();
+        push(node);
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        FieldProjection.Node node = nextContainerNode();
+        delegate.beginArray();
+        push(node);
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        delegate.endArray();
+        pop();
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        if (atProjectedName()) {
+            seekName();
+        }
+        delegate.endObject();
+        pop();
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        boolean value = delegate.readBoolean();
+        expectingValue = false;
+        return value;
+    }
+
+    @Override
+    public String readString() throws IOException {
+        if (atProjectedName() && seekName()) {
+            return consumeName();
+        }
+        String value = delegate.readString();
+        expectingValue = false;
+        return value;
+    }
+
+    @Override
+    public ByteString readStringBytes() throws IOException {
+        if (atProjectedName() && seekName()) {
+            return ByteString.encodeUtf8(consumeName());
+        }
+        ByteString value = delegate.readStringBytes();
+        expectingValue = false;
+        return value;
+    }
+
+    @Override
+    public int selectName(Options options) throws IOException {
+        if (atProjectedName() && seekName()) {
+            // Leave unmatched names pending, as if nothing was read.
+            int index = options.indexOf(currentNode().names.get(pendingName));
+            if (index != -1) {
+                consumeName();
+            }
+            return index;
+        }
+        int index = delegate.selectName(options);
+        if (index != -1) {
+            expectingValue = false;
+        }
+        return index;
+    }
+
+    @Override
+    public long readNumber() throws IOException {
+        long value = delegate.readNumber();
+        expectingValue = false;
+        return value;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        if (atProjectedName()) {
+            return seekName();
+        }
+        return delegate.hasNext();
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        if (atProjectedName() && seekName()) {
+            consumeName();
+            return;
+        }
+        if (depth > 0 && !hasNext()) {
+            // Mirror the wrapped reader, skipping the end of a value closes its scope.
+            if (delegate.currentScope() == SCOPE_OBJECT) {
+                endObject();
+            } else {
+                endArray();
+            }
+            return;
+        }
+        delegate.skipValue();
+        expectingValue = false;
+    }
+
+    @Override
+    public void readValue(ProtocolEventHandler handler) throws IOException {
+        if (depth > 0 && !atProjectedName() && nextContainerNode() == null) {
+            // Nothing is filtered out of the value, let the wrapped reader stream it as a whole.
+            delegate.readValue(handler);
+            expectingValue = false;
+            return;
+        }
+        if (handler == null) {
+            throw new IllegalArgumentException("'handler' argument cannot be null.");
+        }
+        Protocol.readValue(this, handler);
+    }
+
+    @Override
+    public ProtocolReader newPeekingReader() {
+        return new ProjectingProtocolReader(delegate.newPeekingReader(), this);
+    }
+
+    private boolean atProjectedName() {
+        return depth > 0 && !expectingValue && currentNode() != null && delegate.currentScope() == SCOPE_OBJECT;
+    }
+
+    private boolean seekName() throws IOException {
+        if (pendingName != -1) {
+            return true;
+        }
+        ProtocolReader.Options names = currentNode().names;
+        while (delegate.hasNext()) {
+            int index = delegate.selectName(names);
+            if (index != -1) {
+                pendingName = index;
+                return true;
+            }
+            // Skip both the name and the value of members outside of the projection.
+            delegate.skipValue();
+            delegate.skipValue();
+        }
+        return false;
+    }
+
+    private String consumeName() {
+        FieldProjection.Node node = currentNode();
+        valueNode = node.children[pendingName];
+        String name = node.names.get(pendingName);
+        pendingName = -1;
+        expectingValue = true;
+        return name;
+    }
+
+    private FieldProjection.Node currentNode() {
+        return nodes[depth - 1];
+    }
+
+    private FieldProjection.Node nextContainerNode() {
+        if (depth == 0) {
+            return root;
+        }
+        FieldProjection.Node node = currentNode();
+        if (node == null) {
+            return null;
+        }
+        // Arrays are transparent, their elements share the projection of the array itself.
+        return delegate.currentScope() == SCOPE_ARRAY ? node : valueNode;
+    }
+
+    private void push(FieldProjection.Node node) {
+        if (depth == nodes.length) {
+            nodes = Arrays.copyOf(nodes, depth << 1);
+        }
+        nodes[depth++] = node;
+        expectingValue = false;
+        valueNode = null;
+    }
+
+    private void pop() {
+        if (depth > 0) {
+            nodes[--depth] = null;
+        }
+        expectingValue = false;
+        pendingName = -1;
+    }
+}
@@ -16,6 +16,9 @@
 
 package com.pcloud.networking.protocol;
 
+import java.io.IOException;
+import java.util.Locale;
+
 class Protocol {
 
     static final int TYPE_STRING_START = 0;
@@ -40,9 +43,224 @@ class Protocol {
     static final int SIZE_RESPONSE_LENGTH = 4;
     static final int SIZE_DATA_BYTESIZE = 8;
 
+    // Types for internal use, not part of the binary protocol.
+    static final int TYPE_AGGREGATE_STRING = -2;
+    static final int TYPE_AGGREGATE_END_OBJECT = -6;
+    static final int TYPE_AGGREGATE_END_ARRAY = -5;
+    static final int TYPE_AGGREGATE_NUMBER = -4;
+    static final int TYPE_AGGREGATE_BOOLEAN = -3;
+
+    // Kinds of values, as classified by TYPE_KINDS.
+    static final byte KIND_UNKNOWN = 0;
+    static final byte KIND_STRING = 1;
+    static final byte KIND_STRING_REUSED = 2;
+    static final byte KIND_STRING_COMPRESSED = 3;
+    static final byte KIND_STRING_COMPRESSED_REUSED = 4;
+    static final byte KIND_NUMBER = 5;
+    static final byte KIND_NUMBER_COMPRESSED = 6;
+    static final byte KIND_BOOLEAN = 7;
+    static final byte KIND_BEGIN_OBJECT = 8;
+    static final byte KIND_BEGIN_ARRAY = 9;
+    static final byte KIND_DATA = 10;
+    static final byte KIND_END = 11;
+
+    private static final int TYPE_COUNT = 256;
+
+    /**
+     * The kind of the value starting with a given type byte, one of the KIND_* constants.
+     */
+    static final byte[] TYPE_KINDS = new byte[TYPE_COUNT];
+    /**
+     * The value encoded in a type byte, depending on its kind:
+     * <ul>
+     * <li>the byte count of the length of strings, of the cache id of reused strings, or of numbers</li>
+     * <li>the length of compressed strings, the cache id of compressed reused strings,
+     * or the value of compressed numbers and booleans</li>
+     * </ul>
+     */
+    static final byte[] TYPE_PAYLOADS = new byte[TYPE_COUNT];
+    /**
+     * The encoded size, type byte included, of values that can be skipped without any bookkeeping,
+     * zero for strings, data and containers.
+     */
+    static final byte[] TYPE_SKIP_SIZES = new byte[TYPE_COUNT];
+    private static final TypeToken[] TYPE_TOKENS = new TypeToken[TYPE_COUNT];
+
+    private static final long HEX_255_LONG = 0xffL;
+    private static final int BITS_PER_BYTE = 8;
+
+    static {
+        for (int type = TYPE_STRING_START; type <= TYPE_STRING_END; type++) {
+            classify(type, KIND_STRING, type - TYPE_STRING_START + 1, 0, TypeToken.STRING);
+        }
+        for (int type = TYPE_STRING_REUSED_START; type <= TYPE_STRING_REUSED_END; type++) {
+            int idByteCount = type - TYPE_STRING_REUSED_START + 1;
+            classify(type, KIND_STRING_REUSED, idByteCount, 1 + idByteCount, TypeToken.STRING);
+        }
+        for (int type = TYPE_STRING_COMPRESSED_START; type <= TYPE_STRING_COMPRESSED_END; type++) {
+            classify(type, KIND_STRING_COMPRESSED, type - TYPE_STRING_COMPRESSED_START, 0, TypeToken.STRING);
+        }
+        for (int type = TYPE_STRING_COMPRESSED_REUSED_BEGIN; type <= TYPE_STRING_COMPRESSED_REUSED_END; type++) {
+            classify(type, KIND_STRING_COMPRESSED_REUSED,
+                    type - TYPE_STRING_COMPRESSED_REUSED_BEGIN, 1, TypeToken.STRING);
+        }
+        for (int type = TYPE_NUMBER_START; type <= TYPE_NUMBER_END; type++) {
+            int byteCount = type - TYPE_NUMBER_START + 1;
+            classify(type, KIND_NUMBER, byteCount, 1 + byteCount, TypeToken.NUMBER);
+        }
+        for (int type = TYPE_NUMBER_COMPRESSED_START; type <= TYPE_NUMBER_COMPRESSED_END; type++) {
+            classify(type, KIND_NUMBER_COMPRESSED, type - TYPE_NUMBER_COMPRESSED_START, 1, TypeToken.NUMBER);
+        }
+        classify(TYPE_BOOLEAN_FALSE, KIND_BOOLEAN, 0, 1, TypeToken.BOOLEAN);
+        classify(TYPE_BOOLEAN_TRUE, KIND_BOOLEAN, 1, 1, TypeToken.BOOLEAN);
+        classify(TYPE_BEGIN_OBJECT, KIND_BEGIN_OBJECT, 0, 0, TypeToken.BEGIN_OBJECT);
+        classify(TYPE_BEGIN_ARRAY, KIND_BEGIN_ARRAY, 0, 0, TypeToken.BEGIN_ARRAY);
+        classify(TYPE_DATA, KIND_DATA, SIZE_DATA_BYTESIZE, 0, TypeToken.NUMBER);
+        // The token of the end of a scope depends on the scope itself.
+        classify(TYPE_END_ARRAY_OBJECT, KIND_END, 0, 0, null);
+    }
+
     private Protocol() {
         throw new UnsupportedOperationException();
     }
 
+    private static void classify(int type, byte kind, int payload, int skipSize, TypeToken token) {
+        TYPE_KINDS[type] = kind;
+        TYPE_PAYLOADS[type] = (byte) payload;
+        TYPE_SKIP_SIZES[type] = (byte) skipSize;
+        TYPE_TOKENS[type] = token;
+    }
+
+    static TypeToken getToken(int type, int currentScope) throws SerializationException {
+        if (type >= 0 && type < TYPE_COUNT) {
+            TypeToken token = TYPE_TOKENS[type];
+            if (token != null) {
+                return token;
+            } else if (type == TYPE_END_ARRAY_OBJECT) {
+                return currentScope == ProtocolReader.SCOPE_OBJECT ? TypeToken.END_OBJECT : TypeToken.END_ARRAY;
+            }
+        }
+        throw new SerializationException("Unknown type " + type);
+    }
+
+    static long numberAt(byte[] bytes, int offset, int byteCount) {
+        long value = 0;
+        for (int i = 0, shift = 0; i < byteCount; i++, shift += BITS_PER_BYTE) {
+            value |= (bytes[offset + i] & HEX_255_LONG) << shift;
+        }
+        return value;
+    }
 
+    static void readValue(ProtocolReader reader, ProtocolEventHandler handler) throws IOException {
+        // Pull-based equivalent of readValue(), for readers that cannot walk their source directly.
+        TypeToken token = reader.peek();
+        switch (token) {
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                handler.onBeginObject();
+                while (reader.hasNext()) {
+                    handler.onKey(reader.readString());
+                    readValue(reader, handler);
+                }
+                reader.endObject();
+                handler.onEndObject();
+                break;
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                handler.onBeginArray();
+                while (reader.hasNext()) {
+                    readValue(reader, handler);
+                }
+                reader.endArray();
+                handler.onEndArray();
+                break;
+            case NUMBER:
+                handler.onNumber(reader.readNumber());
+                break;
+            case STRING:
+                handler.onString(reader.readString());
+                break;
+            case BOOLEAN:
+                handler.onBoolean(reader.readBoolean());
+                break;
+            default:
+                throw new SerializationException("Expected a value, but was '" + token + "'.");
+        }
+    }
+
+    static SerializationException typeMismatchError(int expectedType, int actualType, int currentScope) {
+        return new SerializationException("Expected '" +
+                typeName(expectedType, currentScope) +
+                "', but was '" +
+                typeName(actualType, currentScope) +
+                "'.");
+    }
+
+    static String typeName(final int type, int currentScope) {
+        TypeToken typeToken;
+        switch (type) {
+            case TYPE_AGGREGATE_NUMBER:
+                // Number, may a 1-8 byte long integer.
+                // Number, with compression optimization
+                typeToken = TypeToken.NUMBER;
+                break;
+            case TYPE_AGGREGATE_STRING:
+                // Object
+                typeToken = TypeToken.STRING;
+                break;
+            case TYPE_AGGREGATE_BOOLEAN:
+                // Boolean, 18 means 'false', 19 is 'true'
+                typeToken = TypeToken.BOOLEAN;
+                break;
+            case TYPE_AGGREGATE_END_ARRAY:
+                typeToken = TypeToken.END_ARRAY;
+                break;
+            case TYPE_AGGREGATE_END_OBJECT:
+                typeToken = TypeToken.END_OBJECT;
+                break;
+            default:
+                try {
+                    typeToken = getToken(type, currentScope);
+                } catch (SerializationException e) {
+                    return "(Unknown type " + type + ")";
+                }
+        }
+
+        return typeToken.toString().toUpperCase(Locale.ENGLISH);
+    }
+
+    static void checkScope(int current, int expected) {
+        if (current != expected) {
+            throw new IllegalStateException(
+                    String.format("Expected to be called when scope is `%s`, current is `%s`.",
+                            scopeName(expected),
+                            scopeName(current)));
+        }
+    }
+
+    static void checkScopeIsAtLeast(int current, int expected) {
+        if (current < expected) {
+            throw new IllegalStateException(
+                    String.format("Expected to be called when scope is at least `%s`, current is `%s`.",
+                            scopeName(expected),
+                            scopeName(current)));
+        }
+    }
+
+    static String scopeName(final int scope) {
+        switch (scope) {
+            case ProtocolResponseReader.SCOPE_RESPONSE:
+                return "SCOPE_RESPONSE";
+            case ProtocolReader.SCOPE_ARRAY:
+                return "SCOPE_ARRAY";
+            case ProtocolReader.SCOPE_OBJECT:
+                return "SCOPE_OBJECT";
+            case ProtocolResponseReader.SCOPE_DATA:
+                return "SCOPE_DATA";
+            case ProtocolReader.SCOPE_NONE:
+                return "SCOPE_NONE";
+            default:
+                return "<UNKNOWN>";
+        }
+    }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.protocol;
+
+import java.io.IOException;
+
+/**
+ * A callback receiving the values read via {@linkplain ProtocolReader#readValue(ProtocolEventHandler)}
+ * <p>
+ * The events are reported in the order of the values in the source. Inside an object, each value
+ * is preceded by an {@linkplain #onKey(String)} call with its name.
+ * <p>
+ * Exceptions thrown from any of the callbacks are propagated to the caller
+ * of {@linkplain ProtocolReader#readValue(ProtocolEventHandler)}.
+ *
+ * @see ProtocolReader#readValue(ProtocolEventHandler)
+ */
+public interface ProtocolEventHandler {
+
+    /**
+     * Called at the start of an object
+     *
+     * @throws IOException to abort the reading
+     */
+    void onBeginObject() throws IOException;
+
+    /**
+     * Called at the end of an object
+     *
+     * @throws IOException to abort the reading
+     */
+    void onEndObject() throws IOException;
+
+    /**
+     * Called at the start of an array
+     *
+     * @throws IOException to abort the reading
+     */
+    void onBeginArray() throws IOException;
+
+    /**
+     * Called at the end of an array
+     *
+     * @throws IOException to abort the reading
+     */
+    void onEndArray() throws IOException;
+
+    /**
+     * Called with the name of the next value in an object
+     *
+     * @param name the name of the value
+     * @throws IOException to abort the reading
+     */
+    void onKey(String name) throws IOException;
+
+    /**
+     * Called with a String value
+     *
+     * @param value the value
+     * @throws IOException to abort the reading
+     */
+    void onString(String value) throws IOException;
+
+    /**
+     * Called with a number value
+     * <p>
+     * A data value is reported as a number equal to its length, same as {@linkplain ProtocolReader#readNumber()}.
+     *
+     * @param value the value
+     * @throws IOException to abort the reading
+     */
+    void onNumber(long value) throws IOException;
+
+    /**
+     * Called with a boolean value
+     *
+     * @param value the value
+     * @throws IOException to abort the reading
+     */
+    void onBoolean(boolean value) throws IOException;
+}
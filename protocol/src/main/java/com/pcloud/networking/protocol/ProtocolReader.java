@@ -16,8 +16,18 @@
 
 package com.pcloud.networking.protocol;
 
+import com.pcloud.utils.IOUtils;
+import okio.Buffer;
+import okio.ByteString;
+
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * A contract for an object capable of reading serialized data from a data source.
@@ -116,6 +126,33 @@ public interface ProtocolReader extends AutoCloseable, Closeable {
      */
     String readString() throws IOException;
 
+    /**
+     * Read a String from the source as raw UTF-8 bytes
+     * <p>
+     * Same as {@link #readString()}, but without decoding the value. Prefer this method
+     * when the value is only compared or forwarded, to avoid the cost of UTF-8 decoding.
+     *
+     * @return the UTF-8 bytes of the String being read
+     * @throws IOException if the source is exhausted
+     */
+    ByteString readStringBytes() throws IOException;
+
+    /**
+     * Read the next string value, if it matches one of the provided {@linkplain Options}
+     * <p>
+     * The value is matched against the UTF-8 encoded options directly,
+     * without being decoded to a String. Useful for reading object keys and
+     * other values having a known set of possible values.
+     * <p>
+     * If the value does not match any of the options, it is not consumed and
+     * can be read via {@linkplain #readString()} or skipped via {@linkplain #skipValue()}.
+     *
+     * @param options the values to be matched
+     * @return the index of the matched value in the provided {@linkplain Options}, or -1 if there is no match
+     * @throws IOException if the source is exhausted or the next value is not a {@linkplain TypeToken#STRING}
+     */
+    int selectName(Options options) throws IOException;
+
     /**
      * Read a number from the source
      * <p>
@@ -125,6 +162,46 @@ public interface ProtocolReader extends AutoCloseable, Closeable {
      */
     long readNumber() throws IOException;
 
+    /**
+     * Read the remaining number values of the current array into an array
+     * <p>
+     * A bulk equivalent of calling {@linkplain #readNumber()} while {@linkplain #hasNext()} returns true,
+     * up to the length of the destination array. The end of the array is not consumed,
+     * call {@linkplain #endArray()} once all of the values have been read.
+     *
+     * @param destination the array to be filled, starting from its first index
+     * @return the count of the values read, less than the destination length only if the end of the array was reached
+     * @throws IOException if the source is exhausted or one of the values is not a {@linkplain TypeToken#NUMBER}
+     * @throws IllegalArgumentException on a null destination argument
+     */
+    int readNumberArray(long[] destination) throws IOException;
+
+    /**
+     * Read all of the remaining number values of the current array
+     * <p>
+     * A bulk equivalent of calling {@linkplain #readNumber()} while {@linkplain #hasNext()} returns true.
+     * The end of the array is not consumed, call {@linkplain #endArray()} after this method.
+     *
+     * @param consumer a {@linkplain NumberConsumer} receiving the values
+     * @return the count of the values read
+     * @throws IOException if the source is exhausted or one of the values is not a {@linkplain TypeToken#NUMBER}
+     * @throws IllegalArgumentException on a null consumer argument
+     */
+    int readNumbers(NumberConsumer consumer) throws IOException;
+
+    /**
+     * Read all of the remaining String values of the current array into a collection
+     * <p>
+     * A bulk equivalent of calling {@linkplain #readString()} while {@linkplain #hasNext()} returns true.
+     * The end of the array is not consumed, call {@linkplain #endArray()} after this method.
+     *
+     * @param destination the collection the values will be added to
+     * @return the count of the values read
+     * @throws IOException if the source is exhausted or one of the values is not a {@linkplain TypeToken#STRING}
+     * @throws IllegalArgumentException on a null destination argument
+     */
+    int readStringArray(Collection<? super String> destination) throws IOException;
+
     /**
      *  Close the data source
      */
@@ -148,6 +225,21 @@ public interface ProtocolReader extends AutoCloseable, Closeable {
      */
     void skipValue() throws IOException;
 
+    /**
+     * Consume the next value and report it, along with all of its nested values, to a {@linkplain ProtocolEventHandler}
+     * <p>
+     * Equivalent to reading the value via the other methods of the reader, but without the
+     * per-call overhead of {@linkplain #peek()}, {@linkplain #hasNext()} and the scope checks.
+     * Prefer this method when the whole value is consumed anyway, for example to index or convert it.
+     * <p>
+     * If the handler throws, the reader is left in an undefined state and should not be used further.
+     *
+     * @param handler the handler receiving the values
+     * @throws IOException if the source has been exhausted or is malformed, or the handler throws
+     * @throws IllegalArgumentException on a null handler argument
+     */
+    void readValue(ProtocolEventHandler handler) throws IOException;
+
     /**
      * Get a new instance peeking instance of this reader.
      * <p>
@@ -158,4 +250,156 @@ public interface ProtocolReader extends AutoCloseable, Closeable {
      * @return a new instance of a peeking ProtocolReader
      */
     ProtocolReader newPeekingReader();
+
+    /**
+     * Get a view of this reader for trusted callers, which skips the per-call scope validation
+     * <p>
+     * The view shares the state of this reader and consumes the same data. Scopes are still
+     * checked when objects and arrays are opened and closed, but the values in between are read
+     * without being validated against the current scope. Meant for adapters which read values
+     * in a fixed and known order, calling the view out of order leaves the reader in an undefined state.
+     * <p>
+     * Closing the view has no effect. Implementations which cannot skip any of their checks return this instance.
+     *
+     * @return a {@linkplain ProtocolReader} reading from the same source, possibly this instance
+     */
+    ProtocolReader uncheckedReader();
+
+    /**
+     * A callback receiving the values read via {@linkplain #readNumbers(NumberConsumer)}
+     */
+    interface NumberConsumer {
+
+        /**
+         * Called with each of the values read
+         *
+         * @param value the value
+         * @throws IOException to abort the reading
+         */
+        void accept(long value) throws IOException;
+    }
+
+    /**
+     * A set of precompiled string values that can be matched via {@linkplain #selectName(Options)}
+     * <p>
+     * The values are encoded once on creation. Instances are immutable and can be shared between
+     * threads, so create them once and reuse them for every read.
+     */
+    final class Options {
+
+        private static final int MAX_LENGTH_BYTE_COUNT = 4;
+
+        private final String[] strings;
+        final byte[][] utf8Strings;
+        final okio.Options encodedStrings;
+        final int[] encodedStringIndexes;
+
+        private Options(String[] strings, byte[][] utf8Strings,
+                        okio.Options encodedStrings, int[] encodedStringIndexes) {
+            this.strings = strings;
+            this.utf8Strings = utf8Strings;
+            this.encodedStrings = encodedStrings;
+            this.encodedStringIndexes = encodedStringIndexes;
+        }
+
+        /**
+         * Create a new {@linkplain Options} instance
+         *
+         * @param strings the values to be matched, in order of their selection indexes
+         * @return a new {@linkplain Options} instance
+         * @throws IllegalArgumentException on a null argument or on null or duplicate values
+         */
+        public static Options of(String... strings) {
+            if (strings == null) {
+                throw new IllegalArgumentException("'strings' argument cannot be null.");
+            }
+            String[] values = strings.clone();
+            byte[][] utf8Values = new byte[values.length][];
+            Set<String> uniqueValues = new HashSet<>(values.length);
+            List<ByteString> encodedValues = new ArrayList<>();
+            List<Integer> encodedValueIndexes = new ArrayList<>();
+            Buffer buffer = new Buffer();
+            for (int index = 0; index < values.length; index++) {
+                String value = values[index];
+                if (value == null) {
+                    throw new IllegalArgumentException("Option values cannot be null.");
+                }
+                if (!uniqueValues.add(value)) {
+                    throw new IllegalArgumentException("Duplicate option value '" + value + "'.");
+                }
+
+                // Encode every form a string can be sent with, header included,
+                // so that values can be matched with a single prefix lookup.
+                ByteString utf8Value = ByteString.encodeUtf8(value);
+                utf8Values[index] = utf8Value.toByteArray();
+                long length = utf8Value.size();
+                if (length <= Protocol.TYPE_STRING_COMPRESSED_END - Protocol.TYPE_STRING_COMPRESSED_START) {
+                    buffer.writeByte((int) (Protocol.TYPE_STRING_COMPRESSED_START + length)).write(utf8Value);
+                    encodedValues.add(buffer.readByteString());
+                    encodedValueIndexes.add(index);
+                }
+                for (int lengthByteCount = 1; lengthByteCount <= MAX_LENGTH_BYTE_COUNT; lengthByteCount++) {
+                    if (lengthByteCount < MAX_LENGTH_BYTE_COUNT &&
+                            (length >>> (lengthByteCount * IOUtils.BITS_PER_BYTE)) != 0) {
+                        continue;
+                    }
+                    buffer.writeByte(Protocol.TYPE_STRING_START + lengthByteCount - 1);
+                    for (int byteIndex = 0; byteIndex < lengthByteCount; byteIndex++) {
+                        buffer.writeByte((int) (length >>> (byteIndex * IOUtils.BITS_PER_BYTE)));
+                    }
+                    buffer.write(utf8Value);
+                    encodedValues.add(buffer.readByteString());
+                    encodedValueIndexes.add(index);
+                }
+            }
+
+            int[] indexes = new int[encodedValueIndexes.size()];
+            for (int index = 0; index < indexes.length; index++) {
+                indexes[index] = encodedValueIndexes.get(index);
+            }
+            return new Options(values, utf8Values,
+                    okio.Options.of(encodedValues.toArray(new ByteString[encodedValues.size()])),
+                    indexes);
+        }
+
+        /**
+         * Get the number of values
+         *
+         * @return the number of values in this instance
+         */
+        public int size() {
+            return strings.length;
+        }
+
+        /**
+         * Get a value
+         *
+         * @param index the index of a value
+         * @return the value at the provided index
+         * @throws IndexOutOfBoundsException on an invalid index
+         */
+        public String get(int index) {
+            return strings[index];
+        }
+
+        /**
+         * Get the index of a value
+         *
+         * @param value the value to look up, can be null
+         * @return the index of the value, or -1 if it is not present
+         */
+        public int indexOf(String value) {
+            for (int index = 0; index < strings.length; index++) {
+                if (strings[index].equals(value)) {
+                    return index;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(strings);
+        }
+    }
 }
@@ -57,9 +57,26 @@ public interface ProtocolRequestWriter extends ProtocolWriter, Flushable {
      */
     ProtocolRequestWriter writeMethodName(String name) throws IOException;
 
+    /**
+     * Write the method name and the fixed parameters of a {@linkplain RequestTemplate}
+     * <p>
+     * Can be called instead of {@linkplain #writeMethodName(String)}, any other parameters
+     * of the request can be written before or after it.
+     *
+     * @param template a non-null {@linkplain RequestTemplate}
+     * @return a reference to this object
+     * @throws IOException              on a failed IO operation
+     * @throws IllegalArgumentException on a null argument
+     * @throws IllegalStateException    if the method name of the request has been already written
+     */
+    ProtocolRequestWriter writeTemplate(RequestTemplate template) throws IOException;
+
     @Override
     ProtocolRequestWriter writeName(String name) throws IOException;
 
+    @Override
+    ProtocolRequestWriter writeEncodedName(EncodedName name) throws IOException;
+
     @Override
     ProtocolRequestWriter writeValue(Object value) throws IOException;
 
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.protocol;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * A contract for encoding values in the binary response format
+ * <p>
+ * The output can be read back with a {@linkplain ProtocolResponseReader}. Objects are written between
+ * {@linkplain #beginResponse()} and {@linkplain #endResponse()} calls and can nest other objects and arrays.
+ * Inside an object, every value must be preceded by a call to one of the {@code writeName()} methods,
+ * inside an array, values are written without names.
+ *
+ * @see BytesResponseWriter
+ * @see ProtocolResponseReader
+ */
+public interface ProtocolResponseWriter extends ProtocolWriter, Flushable {
+
+    /**
+     * Start a response
+     *
+     * @return a reference to this object
+     * @throws IOException           on a failed IO operation
+     * @throws IllegalStateException if a response has been already started
+     */
+    ProtocolResponseWriter beginResponse() throws IOException;
+
+    /**
+     * Start an object value
+     * <p>
+     * Objects are the only values that can be written directly in a response.
+     *
+     * @return a reference to this object
+     * @throws IOException           on a failed IO operation
+     * @throws IllegalStateException if a value cannot be written in the current scope
+     */
+    ProtocolResponseWriter beginObject() throws IOException;
+
+    /**
+     * Finish the current object value
+     *
+     * @return a reference to this object
+     * @throws IOException           on a failed IO operation
+     * @throws IllegalStateException if not called in an object scope
+     */
+    ProtocolResponseWriter endObject() throws IOException;
+
+    /**
+     * Start an array value
+     *
+     * @return a reference to this object
+     * @throws IOException           on a failed IO operation
+     * @throws IllegalStateException if a value cannot be written in the current scope
+     */
+    ProtocolResponseWriter beginArray() throws IOException;
+
+    /**
+     * Finish the current array value
+     *
+     * @return a reference to this object
+     * @throws IOException           on a failed IO operation
+     * @throws IllegalStateException if not called in an array scope
+     */
+    ProtocolResponseWriter endArray() throws IOException;
+
+    /**
+     * Finish a response
+     *
+     * @return a reference to this object
+     * @throws IOException           on a failed IO operation
+     * @throws IllegalStateException if there are unfinished objects or arrays
+     */
+    ProtocolResponseWriter endResponse() throws IOException;
+
+    @Override
+    ProtocolResponseWriter writeName(String name) throws IOException;
+
+    @Override
+    ProtocolResponseWriter writeEncodedName(EncodedName name) throws IOException;
+
+    @Override
+    ProtocolResponseWriter writeValue(Object value) throws IOException;
+
+    @Override
+    ProtocolResponseWriter writeValue(String value) throws IOException;
+
+    @Override
+    ProtocolResponseWriter writeValue(double value) throws IOException;
+
+    @Override
+    ProtocolResponseWriter writeValue(float value) throws IOException;
+
+    @Override
+    ProtocolResponseWriter writeValue(long value) throws IOException;
+
+    @Override
+    ProtocolResponseWriter writeValue(boolean value) throws IOException;
+}
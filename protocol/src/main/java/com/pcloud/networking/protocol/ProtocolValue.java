@@ -0,0 +1,406 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.protocol;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only value of a response, along with all its nested values
+ * <p>
+ * A compact alternative to the {@linkplain Map} and {@linkplain List} trees built by {@linkplain ValueReader}.
+ * The values read by {@linkplain #read(ProtocolReader)} are kept in a few flat arrays shared by the whole tree,
+ * with no boxing of numbers and booleans. Strings, including the member names, are stored once per distinct value
+ * in a table shared by the tree. {@linkplain ProtocolValue} instances are lightweight views over these arrays,
+ * created as the tree is navigated.
+ * <p>
+ * Object members are looked up by a linear scan over the member names, without building a hash table.
+ * <p>
+ * Data values are exposed as numbers equal to the length of the data, same as they are read by
+ * {@linkplain ProtocolReader#readNumber()}.
+ * <p>
+ * Instances are immutable and safe for use by multiple threads.
+ *
+ * @see ValueReader
+ * @see ResponseTape
+ */
+public final class ProtocolValue {
+
+    private static final byte TYPE_NUMBER = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_BOOLEAN = 2;
+    private static final byte TYPE_ARRAY = 3;
+    private static final byte TYPE_OBJECT = 4;
+
+    private static final int NO_NAME = -1;
+    private static final long LOW_INT_MASK = 0xffffffffL;
+    private static final int CHILD_COUNT_SHIFT = Integer.SIZE;
+
+    /**
+     * Read the next value from a {@linkplain ProtocolReader}
+     * <p>
+     * Objects and arrays are read along with all their nested values.
+     *
+     * @param reader the {@linkplain ProtocolReader} to read the value from
+     * @return the root {@linkplain ProtocolValue} of the read value
+     * @throws IOException              if the reader source is malformed or on failed IO operations
+     * @throws IllegalArgumentException on a null argument
+     */
+    public static ProtocolValue read(ProtocolReader reader) throws IOException {
+        if (reader == null) {
+            throw new IllegalArgumentException("'reader' argument cannot be null.");
+        }
+        TreeBuilder builder = new TreeBuilder();
+        reader.readValue(builder);
+        return new ProtocolValue(builder.build(), 0);
+    }
+
+    private final Tree tree;
+    private final int index;
+
+    private ProtocolValue(Tree tree, int index) {
+        this.tree = tree;
+        this.index = index;
+    }
+
+    /**
+     * @return the type of the value, one of {@linkplain TypeToken#NUMBER}, {@linkplain TypeToken#STRING},
+     * {@linkplain TypeToken#BOOLEAN}, {@linkplain TypeToken#BEGIN_ARRAY} or {@linkplain TypeToken#BEGIN_OBJECT}
+     */
+    public TypeToken type() {
+        return typeToken(tree.types[index]);
+    }
+
+    /**
+     * @return true if the value is an object
+     */
+    public boolean isObject() {
+        return tree.types[index] == TYPE_OBJECT;
+    }
+
+    /**
+     * @return true if the value is an array
+     */
+    public boolean isArray() {
+        return tree.types[index] == TYPE_ARRAY;
+    }
+
+    /**
+     * @return the value as a number
+     * @throws IllegalStateException if the value is not a number
+     */
+    public long asNumber() {
+        checkType(TYPE_NUMBER);
+        return tree.values[index];
+    }
+
+    /**
+     * @return the value as a string
+     * @throws IllegalStateException if the value is not a string
+     */
+    public String asString() {
+        checkType(TYPE_STRING);
+        return tree.strings[(int) tree.values[index]];
+    }
+
+    /**
+     * @return the value as a boolean
+     * @throws IllegalStateException if the value is not a boolean
+     */
+    public boolean asBoolean() {
+        checkType(TYPE_BOOLEAN);
+        return tree.values[index] != 0;
+    }
+
+    /**
+     * @return the number of members of an object or the number of elements of an array
+     * @throws IllegalStateException if the value is not an object or an array
+     */
+    public int size() {
+        checkContainer();
+        return (int) (tree.values[index] >>> CHILD_COUNT_SHIFT);
+    }
+
+    /**
+     * Get an object member
+     *
+     * @param name the name of the member
+     * @return the value of the member, or null if the object has no such member
+     * @throws IllegalArgumentException on a null name argument
+     * @throws IllegalStateException    if the value is not an object
+     */
+    public ProtocolValue get(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("'name' argument cannot be null.");
+        }
+        checkType(TYPE_OBJECT);
+        final Tree tree = this.tree;
+        final int end = end(index);
+        for (int child = index + 1; child < end; child = next(child)) {
+            if (name.equals(tree.strings[tree.names[child]])) {
+                return new ProtocolValue(tree, child);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check for an object member
+     *
+     * @param name the name of the member
+     * @return true if the object has a member with this name
+     * @throws IllegalArgumentException on a null name argument
+     * @throws IllegalStateException    if the value is not an object
+     */
+    public boolean has(String name) {
+        return get(name) != null;
+    }
+
+    /**
+     * Get an array element or an object member by its position
+     *
+     * @param position the zero-based position of the value in the array or object
+     * @return the value at this position
+     * @throws IndexOutOfBoundsException if the position is not less than {@linkplain #size()}
+     * @throws IllegalStateException     if the value is not an object or an array
+     */
+    public ProtocolValue get(int position) {
+        return new ProtocolValue(tree, child(position));
+    }
+
+    /**
+     * Get the name of an object member by its position
+     *
+     * @param position the zero-based position of the member in the object
+     * @return the name of the member at this position
+     * @throws IndexOutOfBoundsException if the position is not less than {@linkplain #size()}
+     * @throws IllegalStateException     if the value is not an object
+     */
+    public String name(int position) {
+        checkType(TYPE_OBJECT);
+        return tree.strings[tree.names[child(position)]];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        append(builder, index);
+        return builder.toString();
+    }
+
+    private void append(StringBuilder builder, int index) {
+        final Tree tree = this.tree;
+        switch (tree.types[index]) {
+            case TYPE_NUMBER:
+                builder.append(tree.values[index]);
+                break;
+            case TYPE_BOOLEAN:
+                builder.append(tree.values[index] != 0);
+                break;
+            case TYPE_STRING:
+                builder.append('"').append(tree.strings[(int) tree.values[index]]).append('"');
+                break;
+            default:
+                boolean isObject = tree.types[index] == TYPE_OBJECT;
+                builder.append(isObject ? '{' : '[');
+                final int end = end(index);
+                for (int child = index + 1; child < end; child = next(child)) {
+                    if (child != index + 1) {
+                        builder.append(", ");
+                    }
+                    if (isObject) {
+                        builder.append(tree.strings[tree.names[child]]).append('=');
+                    }
+                    append(builder, child);
+                }
+                builder.append(isObject ? '}' : ']');
+                break;
+        }
+    }
+
+    private int child(int position) {
+        final int size = size();
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("position=" + position + ", size=" + size);
+        }
+        int child = index + 1;
+        for (int i = 0; i < position; i++) {
+            child = next(child);
+        }
+        return child;
+    }
+
+    private int next(int index) {
+        byte type = tree.types[index];
+        return type == TYPE_OBJECT || type == TYPE_ARRAY ? end(index) : index + 1;
+    }
+
+    private int end(int container) {
+        return (int) (tree.values[container] & LOW_INT_MASK);
+    }
+
+    private void checkType(byte expected) {
+        byte actual = tree.types[index];
+        if (actual != expected) {
+            throw new IllegalStateException("Expected a value of type '" + typeToken(expected) +
+                    "', but was '" + typeToken(actual) + "'.");
+        }
+    }
+
+    private void checkContainer() {
+        byte actual = tree.types[index];
+        if (actual != TYPE_OBJECT && actual != TYPE_ARRAY) {
+            throw new IllegalStateException("Expected an object or an array, but was '" + typeToken(actual) + "'.");
+        }
+    }
+
+    private static TypeToken typeToken(byte type) {
+        switch (type) {
+            case TYPE_NUMBER:
+                return TypeToken.NUMBER;
+            case TYPE_STRING:
+                return TypeToken.STRING;
+            case TYPE_BOOLEAN:
+                return TypeToken.BOOLEAN;
+            case TYPE_ARRAY:
+                return TypeToken.BEGIN_ARRAY;
+            default:
+                return TypeToken.BEGIN_OBJECT;
+        }
+    }
+
+    /*
+     * One entry per value, in the order the values appear in the response. The payload of numbers
+     * and booleans is the value itself, of strings the index in the string table and of containers
+     * the child count in the high and the index of the entry following the container in the low 32 bits.
+     */
+    private static final class Tree {
+        final byte[] types;
+        final int[] names;
+        final long[] values;
+        final String[] strings;
+
+        Tree(byte[] types, int[] names, long[] values, String[] strings) {
+            this.types = types;
+            this.names = names;
+            this.values = values;
+            this.strings = strings;
+        }
+    }
+
+    private static final class TreeBuilder implements ProtocolEventHandler {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private byte[] types = new byte[INITIAL_CAPACITY];
+        private int[] names = new int[INITIAL_CAPACITY];
+        private long[] values = new long[INITIAL_CAPACITY];
+        private int size;
+
+        private final Map<String, Integer> stringIndexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final IntStack containers = new IntStack();
+        private int nextName = NO_NAME;
+
+        @Override
+        public void onBeginObject() {
+            containers.push(add(TYPE_OBJECT, 0L));
+        }
+
+        @Override
+        public void onEndObject() {
+            endContainer();
+        }
+
+        @Override
+        public void onBeginArray() {
+            containers.push(add(TYPE_ARRAY, 0L));
+        }
+
+        @Override
+        public void onEndArray() {
+            endContainer();
+        }
+
+        @Override
+        public void onKey(String name) {
+            nextName = stringIndex(name);
+        }
+
+        @Override
+        public void onString(String value) {
+            add(TYPE_STRING, stringIndex(value));
+        }
+
+        @Override
+        public void onNumber(long value) {
+            add(TYPE_NUMBER, value);
+        }
+
+        @Override
+        public void onBoolean(boolean value) {
+            add(TYPE_BOOLEAN, value ? 1L : 0L);
+        }
+
+        Tree build() {
+            return new Tree(
+                    Arrays.copyOf(types, size),
+                    Arrays.copyOf(names, size),
+                    Arrays.copyOf(values, size),
+                    strings.toArray(new String[strings.size()]));
+        }
+
+        private int add(byte type, long value) {
+            if (size == types.length) {
+                int capacity = size * 2;
+                types = Arrays.copyOf(types, capacity);
+                names = Arrays.copyOf(names, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            if (!containers.isEmpty()) {
+                // Count the child in the high bits of its parent until the parent is complete.
+                values[containers.peek()] += 1L << CHILD_COUNT_SHIFT;
+            }
+            int index = size++;
+            types[index] = type;
+            names[index] = nextName;
+            values[index] = value;
+            nextName = NO_NAME;
+            return index;
+        }
+
+        private void endContainer() {
+            int container = containers.pop();
+            values[container] |= size;
+        }
+
+        private int stringIndex(String value) {
+            Integer index = stringIndexes.get(value);
+            if (index == null) {
+                index = strings.size();
+                strings.add(value);
+                stringIndexes.put(value, index);
+            }
+            return index;
+        }
+    }
+}
@@ -39,6 +39,20 @@ public interface ProtocolWriter extends AutoCloseable, Closeable {
      */
     ProtocolWriter writeName(String name) throws IOException;
 
+    /**
+     * Write the name of a parameter
+     * <p>
+     * Behaves the same as {@linkplain #writeName(String)}, but writes the already encoded
+     * bytes of the name.
+     *
+     * @param name the non-null name of the parameter
+     * @return a reference to this object
+     * @throws IOException              on a failed IO operation
+     * @throws IllegalArgumentException on a null argument
+     * @see EncodedName
+     */
+    ProtocolWriter writeEncodedName(EncodedName name) throws IOException;
+
     /**
      * Write the value of a parameter
      * <p>
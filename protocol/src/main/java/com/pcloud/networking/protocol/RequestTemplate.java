@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.protocol;
+
+import okio.Buffer;
+import okio.ByteString;
+
+import java.io.IOException;
+
+/**
+ * The encoded, unchanging part of a request
+ * <p>
+ * A template holds the UTF-8 encoded method name and any parameters whose values are the same for
+ * every request made with it. Writing a template with {@linkplain ProtocolRequestWriter#writeTemplate(RequestTemplate)}
+ * copies the already encoded bytes, so only the parameters that change between requests need to be encoded
+ * each time.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ *
+ * @see ProtocolRequestWriter#writeTemplate(RequestTemplate)
+ * @see EncodedName
+ */
+public final class RequestTemplate {
+
+    /**
+     * Create a new {@linkplain Builder} for a {@linkplain RequestTemplate}
+     *
+     * @param methodName a non-null method name
+     * @return a new {@linkplain Builder} instance
+     * @throws IllegalArgumentException on a null argument
+     */
+    public static Builder create(String methodName) {
+        return new Builder(methodName);
+    }
+
+    private final String methodName;
+    final byte[] encodedMethodName;
+    final byte[] parameters;
+    final int parameterCount;
+
+    private RequestTemplate(Builder builder) {
+        this.methodName = builder.methodName;
+        this.encodedMethodName = ByteString.encodeUtf8(builder.methodName).toByteArray();
+        this.parameterCount = builder.writer.parameterCount();
+        this.parameters = builder.writer.parameters();
+    }
+
+    /**
+     * @return the method name of the template
+     */
+    public String methodName() {
+        return methodName;
+    }
+
+    /**
+     * @return the number of parameters stored in the template
+     */
+    public int parameterCount() {
+        return parameterCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Method:'%s', parameters=%d", methodName, parameterCount);
+    }
+
+    /**
+     * A builder for {@linkplain RequestTemplate} instances
+     */
+    public static final class Builder {
+
+        private final String methodName;
+        private final BytesWriter writer;
+
+        private Builder(String methodName) {
+            if (methodName == null) {
+                throw new IllegalArgumentException("'methodName' argument cannot be null.");
+            }
+            this.methodName = methodName;
+            this.writer = new BytesWriter(new Buffer());
+            try {
+                writer.beginRequest()
+                        .writeMethodName(methodName);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        /**
+         * Add a parameter with a fixed value to the template
+         * <p>
+         * The value must be of a type accepted by {@linkplain ProtocolWriter#writeValue(Object)}.
+         *
+         * @param name  a non-null parameter name
+         * @param value a non-null parameter value
+         * @return a reference to this object
+         * @throws IllegalArgumentException on a null argument, on a value of an unsupported type
+         *                                  or if the parameter cannot be written
+         */
+        public Builder parameter(String name, Object value) {
+            if (name == null) {
+                throw new IllegalArgumentException("'name' argument cannot be null.");
+            }
+            if (value == null) {
+                throw new IllegalArgumentException("'value' argument cannot be null.");
+            }
+            boolean written = false;
+            try {
+                writer.writeName(name).writeValue(value);
+                written = true;
+            } catch (IOException e) {
+                // Only thrown for invalid parameters, nothing is written to a real sink.
+                throw new IllegalArgumentException(e.getMessage(), e);
+            } finally {
+                if (!written) {
+                    writer.discardName();
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Build a new {@linkplain RequestTemplate}
+         *
+         * @return a new {@linkplain RequestTemplate} with the parameters added so far
+         */
+        public RequestTemplate build() {
+            return new RequestTemplate(this);
+        }
+    }
+}
@@ -0,0 +1,501 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.protocol;
+
+import com.pcloud.utils.IOUtils;
+import okio.Buffer;
+import okio.ByteString;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A non-blocking decoder of binary protocol responses
+ * <p>
+ * Unlike a {@linkplain ProtocolResponseReader}, which pulls bytes from a source and blocks until they arrive,
+ * a {@linkplain ResponseDecoder} is pushed bytes with {@link #feed(byte[], int, int)} or
+ * {@link #feed(ByteBuffer)} in chunks of any size, for example as they are read from a non-blocking channel.
+ * Each call to {@link #next()} returns the next complete {@linkplain Event} or {@link Event#NEED_INPUT} if the
+ * buffered bytes do not hold one yet, in which case the call can be repeated once more bytes have been fed.
+ * The string cache and the nesting of the response are kept between chunks.
+ * <p>
+ * The decoder reads any number of consecutive responses. Each one is reported as a
+ * {@link Event#BEGIN_RESPONSE}, the events of its value and an {@link Event#END_RESPONSE}, followed by
+ * {@link Event#DATA} events for the bytes of the attached data, if any.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @see ProtocolResponseReader
+ */
+public final class ResponseDecoder {
+
+    /**
+     * The events reported by a {@linkplain ResponseDecoder}.
+     */
+    public enum Event {
+        /**
+         * More bytes have to be fed before the next event can be decoded.
+         */
+        NEED_INPUT,
+        /**
+         * A response begins, its length is available from {@link #responseLength()}.
+         */
+        BEGIN_RESPONSE,
+        /**
+         * An object begins.
+         */
+        BEGIN_OBJECT,
+        /**
+         * An object ends.
+         */
+        END_OBJECT,
+        /**
+         * An array begins.
+         */
+        BEGIN_ARRAY,
+        /**
+         * An array ends.
+         */
+        END_ARRAY,
+        /**
+         * An object member name, available from {@link #stringValue()}.
+         */
+        NAME,
+        /**
+         * A string value, available from {@link #stringValue()}.
+         */
+        STRING,
+        /**
+         * A number value, available from {@link #numberValue()}.
+         */
+        NUMBER,
+        /**
+         * A boolean value, available from {@link #booleanValue()}.
+         */
+        BOOLEAN,
+        /**
+         * A response ends, the length of the attached data is available from {@link #dataContentLength()}.
+         */
+        END_RESPONSE,
+        /**
+         * A chunk of the attached data, available from {@link #dataChunk()}.
+         */
+        DATA
+    }
+
+    private static final int STATE_RESPONSE = 0;
+    private static final int STATE_VALUES = 1;
+    private static final int STATE_DATA = 2;
+
+    private static final int DEFAULT_STRING_CACHE_SIZE = 50;
+    private static final int SCOPE_STACK_INITIAL_CAPACITY = 5;
+    private static final int HEX_255 = 0xff;
+    private static final long HEX_UINT_MAX = 0xffffffffL;
+    private static final int OFFSET_EXISTING_STRING_CACHE = 3;
+    private static final int OFFSET_NUMBER_NON_COMPRESSED = 7;
+
+    private final Buffer input = new Buffer();
+    private final StringPool stringPool;
+
+    private int state = STATE_RESPONSE;
+    private final IntStack scopeStack = new IntStack(SCOPE_STACK_INITIAL_CAPACITY);
+    private boolean expectingName;
+    private boolean valueRead;
+
+    private String[] stringCache;
+    private int lastStringId;
+
+    private long responseLength;
+    private long responseBytesRead;
+    private long dataLength = ProtocolResponseReader.UNKNOWN_SIZE;
+    private long dataBytesRemaining;
+
+    private String stringValue;
+    private long numberValue;
+    private boolean booleanValue;
+    private ByteString dataChunk;
+
+    /**
+     * Create a {@linkplain ResponseDecoder} instance
+     */
+    public ResponseDecoder() {
+        this(null);
+    }
+
+    /**
+     * Create a {@linkplain ResponseDecoder} instance which shares decoded strings through a {@linkplain StringPool}
+     *
+     * @param stringPool a {@linkplain StringPool} for the decoded strings, can be null
+     */
+    public ResponseDecoder(StringPool stringPool) {
+        this.stringPool = stringPool;
+    }
+
+    /**
+     * Feed bytes to the decoder
+     * <p>
+     * The bytes are copied, the array can be reused once the call returns.
+     *
+     * @param bytes     the source of the bytes
+     * @param offset    the offset of the first byte
+     * @param byteCount the number of bytes
+     * @return this instance
+     * @throws IllegalArgumentException on a null array
+     * @throws IndexOutOfBoundsException on a range outside of the array
+     */
+    public ResponseDecoder feed(byte[] bytes, int offset, int byteCount) {
+        if (bytes == null) {
+            throw new IllegalArgumentException("'bytes' argument cannot be null.");
+        }
+        input.write(bytes, offset, byteCount);
+        return this;
+    }
+
+    /**
+     * Feed bytes to the decoder
+     * <p>
+     * All the remaining bytes of the buffer are copied and its position is moved to its limit.
+     *
+     * @param bytes the source of the bytes
+     * @return this instance
+     * @throws IllegalArgumentException on a null buffer
+     */
+    public ResponseDecoder feed(ByteBuffer bytes) {
+        if (bytes == null) {
+            throw new IllegalArgumentException("'bytes' argument cannot be null.");
+        }
+        try {
+            input.write(bytes);
+        } catch (IOException e) {
+            // Writing to a Buffer never fails.
+            throw new AssertionError(e);
+        }
+        return this;
+    }
+
+    /**
+     * Get the number of fed bytes which are not decoded yet
+     *
+     * @return the number of buffered bytes
+     */
+    public long bufferedByteCount() {
+        return input.size();
+    }
+
+    /**
+     * Decode the next event
+     * <p>
+     * Returns immediately, without consuming anything, if the buffered bytes do not hold a complete event.
+     *
+     * @return the next {@linkplain Event}, or {@link Event#NEED_INPUT} if more bytes are needed to decode it
+     * @throws IOException on malformed input
+     */
+    public Event next() throws IOException {
+        switch (state) {
+            case STATE_RESPONSE:
+                return nextResponse();
+            case STATE_VALUES:
+                return nextValue();
+            case STATE_DATA:
+                return nextData();
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    /**
+     * Get the length of the current response
+     *
+     * @return the response length in bytes, as reported by the last {@link Event#BEGIN_RESPONSE}
+     */
+    public long responseLength() {
+        return responseLength;
+    }
+
+    /**
+     * Get the length of the data attached to the current response
+     *
+     * @return the data length in bytes, or {@link ProtocolResponseReader#UNKNOWN_SIZE} if there is no data
+     */
+    public long dataContentLength() {
+        return dataLength;
+    }
+
+    /**
+     * Get the current string value
+     *
+     * @return the value of the last {@link Event#NAME} or {@link Event#STRING}
+     * @throws IllegalStateException if no string was decoded yet
+     */
+    public String stringValue() {
+        if (stringValue == null) {
+            throw new IllegalStateException("No string value was decoded.");
+        }
+        return stringValue;
+    }
+
+    /**
+     * Get the current number value
+     *
+     * @return the value of the last {@link Event#NUMBER}
+     */
+    public long numberValue() {
+        return numberValue;
+    }
+
+    /**
+     * Get the current boolean value
+     *
+     * @return the value of the last {@link Event#BOOLEAN}
+     */
+    public boolean booleanValue() {
+        return booleanValue;
+    }
+
+    /**
+     * Get the current chunk of the attached data
+     *
+     * @return the bytes of the last {@link Event#DATA}
+     * @throws IllegalStateException if no data was decoded yet
+     */
+    public ByteString dataChunk() {
+        if (dataChunk == null) {
+            throw new IllegalStateException("No data was decoded.");
+        }
+        return dataChunk;
+    }
+
+    /**
+     * Get the scope of the current response value
+     *
+     * @return {@link ProtocolReader#SCOPE_OBJECT} or {@link ProtocolReader#SCOPE_ARRAY} inside an object or an array,
+     * {@link ProtocolResponseReader#SCOPE_RESPONSE} between the begin and end of a response,
+     * {@link ProtocolResponseReader#SCOPE_DATA} while decoding data, or {@link ProtocolReader#SCOPE_NONE} otherwise
+     */
+    public int currentScope() {
+        switch (state) {
+            case STATE_VALUES:
+                return scopeStack.isEmpty() ? ProtocolResponseReader.SCOPE_RESPONSE : scopeStack.peek();
+            case STATE_DATA:
+                return ProtocolResponseReader.SCOPE_DATA;
+            default:
+                return ProtocolReader.SCOPE_NONE;
+        }
+    }
+
+    private Event nextResponse() throws IOException {
+        if (input.size() < Protocol.SIZE_RESPONSE_LENGTH) {
+            return Event.NEED_INPUT;
+        }
+        responseLength = IOUtils.readNumberLe(input, Protocol.SIZE_RESPONSE_LENGTH) & HEX_UINT_MAX;
+        responseBytesRead = 0;
+        dataLength = ProtocolResponseReader.UNKNOWN_SIZE;
+        stringCache = new String[DEFAULT_STRING_CACHE_SIZE];
+        lastStringId = 0;
+        valueRead = false;
+        expectingName = false;
+        state = STATE_VALUES;
+        return Event.BEGIN_RESPONSE;
+    }
+
+    private Event nextData() throws IOException {
+        long byteCount = Math.min(input.size(), dataBytesRemaining);
+        if (byteCount == 0) {
+            return Event.NEED_INPUT;
+        }
+        dataChunk = input.readByteString(byteCount);
+        dataBytesRemaining -= byteCount;
+        if (dataBytesRemaining == 0) {
+            state = STATE_RESPONSE;
+        }
+        return Event.DATA;
+    }
+
+    private Event nextValue() throws IOException {
+        if (valueRead) {
+            return endResponse();
+        }
+        if (input.size() < 1) {
+            return Event.NEED_INPUT;
+        }
+
+        final int type = input.getByte(0) & HEX_255;
+        if (expectingName && type != Protocol.TYPE_END_ARRAY_OBJECT && !isString(type)) {
+            throw new ProtocolException("Expected an object member name, found type " + type + ".");
+        }
+
+        if (type >= Protocol.TYPE_STRING_START && type <= Protocol.TYPE_STRING_END) {
+            int lengthByteCount = type + 1;
+            if (input.size() < 1 + lengthByteCount) {
+                return Event.NEED_INPUT;
+            }
+            long length = IOUtils.peekNumberLe(input, 1, lengthByteCount);
+            return newString(1 + lengthByteCount, length);
+        } else if (type >= Protocol.TYPE_STRING_COMPRESSED_START && type <= Protocol.TYPE_STRING_COMPRESSED_END) {
+            return newString(1, type - Protocol.TYPE_STRING_COMPRESSED_START);
+        } else if (type >= Protocol.TYPE_STRING_REUSED_START && type <= Protocol.TYPE_STRING_REUSED_END) {
+            int idByteCount = type - OFFSET_EXISTING_STRING_CACHE;
+            if (input.size() < 1 + idByteCount) {
+                return Event.NEED_INPUT;
+            }
+            consume(1);
+            return cachedString((int) readNumber(idByteCount));
+        } else if (type >= Protocol.TYPE_STRING_COMPRESSED_REUSED_BEGIN &&
+                type <= Protocol.TYPE_STRING_COMPRESSED_REUSED_END) {
+            consume(1);
+            return cachedString(type - Protocol.TYPE_STRING_COMPRESSED_REUSED_BEGIN);
+        } else if (type >= Protocol.TYPE_NUMBER_START && type <= Protocol.TYPE_NUMBER_END) {
+            int byteCount = type - OFFSET_NUMBER_NON_COMPRESSED;
+            if (input.size() < 1 + byteCount) {
+                return Event.NEED_INPUT;
+            }
+            consume(1);
+            return number(readNumber(byteCount));
+        } else if (type >= Protocol.TYPE_NUMBER_COMPRESSED_START && type <= Protocol.TYPE_NUMBER_COMPRESSED_END) {
+            consume(1);
+            return number(type - Protocol.TYPE_NUMBER_COMPRESSED_START);
+        } else if (type == Protocol.TYPE_BOOLEAN_TRUE || type == Protocol.TYPE_BOOLEAN_FALSE) {
+            consume(1);
+            booleanValue = type == Protocol.TYPE_BOOLEAN_TRUE;
+            valueCompleted();
+            return Event.BOOLEAN;
+        } else if (type == Protocol.TYPE_DATA) {
+            // The data length is reported as the value, same as with the readers.
+            if (input.size() < 1 + Protocol.SIZE_DATA_BYTESIZE) {
+                return Event.NEED_INPUT;
+            }
+            consume(1);
+            dataLength = readNumber(Protocol.SIZE_DATA_BYTESIZE);
+            return number(dataLength);
+        } else if (type == Protocol.TYPE_BEGIN_OBJECT) {
+            consume(1);
+            scopeStack.push(ProtocolReader.SCOPE_OBJECT);
+            expectingName = true;
+            return Event.BEGIN_OBJECT;
+        } else if (type == Protocol.TYPE_BEGIN_ARRAY) {
+            consume(1);
+            scopeStack.push(ProtocolReader.SCOPE_ARRAY);
+            expectingName = false;
+            return Event.BEGIN_ARRAY;
+        } else if (type == Protocol.TYPE_END_ARRAY_OBJECT) {
+            if (scopeStack.isEmpty()) {
+                throw new ProtocolException("Unexpected end of an object or array.");
+            }
+            consume(1);
+            int scope = scopeStack.pop();
+            valueCompleted();
+            return scope == ProtocolReader.SCOPE_OBJECT ? Event.END_OBJECT : Event.END_ARRAY;
+        } else {
+            throw new ProtocolException("Unknown type " + type);
+        }
+    }
+
+    private Event endResponse() throws IOException {
+        if (responseBytesRead > responseLength) {
+            throw new ProtocolException("Response length mismatch, expected " + responseLength +
+                    " bytes, but the response value ended after " + responseBytesRead + " bytes.");
+        }
+        // Any bytes left after the response value are ignored, same as with the readers.
+        long remainingByteCount = Math.min(input.size(), responseLength - responseBytesRead);
+        consume(remainingByteCount);
+        if (responseBytesRead < responseLength) {
+            return Event.NEED_INPUT;
+        }
+
+        stringCache = null;
+        valueRead = false;
+        if (dataLength > 0) {
+            dataBytesRemaining = dataLength;
+            state = STATE_DATA;
+        } else {
+            state = STATE_RESPONSE;
+        }
+        return Event.END_RESPONSE;
+    }
+
+    private Event newString(int headerLength, long length) throws IOException {
+        if (input.size() < headerLength + length) {
+            return Event.NEED_INPUT;
+        }
+        consume(headerLength);
+        String value;
+        if (stringPool != null && length <= stringPool.maxStringLength()) {
+            value = stringPool.get(input.readByteString(length));
+        } else {
+            value = input.readUtf8(length);
+        }
+        responseBytesRead += length;
+        cacheString(value);
+        return string(value);
+    }
+
+    private Event cachedString(int stringId) throws ProtocolException {
+        if (stringId < 0 || stringId >= lastStringId) {
+            throw new ProtocolException("Reference to an unknown string with id " + stringId + ".");
+        }
+        return string(stringCache[stringId]);
+    }
+
+    private Event string(String value) {
+        stringValue = value;
+        if (expectingName) {
+            expectingName = false;
+            return Event.NAME;
+        }
+        valueCompleted();
+        return Event.STRING;
+    }
+
+    private Event number(long value) {
+        numberValue = value;
+        valueCompleted();
+        return Event.NUMBER;
+    }
+
+    private void valueCompleted() {
+        if (scopeStack.isEmpty()) {
+            valueRead = true;
+        } else {
+            expectingName = scopeStack.peek() == ProtocolReader.SCOPE_OBJECT;
+        }
+    }
+
+    private void cacheString(String value) {
+        if (stringCache.length == lastStringId) {
+            stringCache = Arrays.copyOf(stringCache, lastStringId << 1);
+        }
+        stringCache[lastStringId++] = value;
+    }
+
+    private void consume(long byteCount) throws IOException {
+        input.skip(byteCount);
+        responseBytesRead += byteCount;
+    }
+
+    private long readNumber(int byteCount) throws IOException {
+        responseBytesRead += byteCount;
+        return IOUtils.readNumberLe(input, byteCount);
+    }
+
+    private static boolean isString(int type) {
+        return type >= Protocol.TYPE_STRING_START && type <= Protocol.TYPE_STRING_REUSED_END ||
+                type >= Protocol.TYPE_STRING_COMPRESSED_START && type <= Protocol.TYPE_STRING_COMPRESSED_REUSED_END;
+    }
+}
@@ -0,0 +1,494 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.protocol;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static com.pcloud.networking.protocol.Protocol.TYPE_AGGREGATE_BOOLEAN;
+import static com.pcloud.networking.protocol.Protocol.TYPE_AGGREGATE_NUMBER;
+import static com.pcloud.networking.protocol.Protocol.TYPE_AGGREGATE_STRING;
+
+/**
+ * A structural index over a response encoded in pCloud's binary data protocol
+ * <p>
+ * The tape is built by a single pass over a fully buffered response and holds one entry per value,
+ * in the order the values appear in the response. Each entry records the offset of the value
+ * in the backing array and, for objects and arrays, the index of the entry that follows the whole
+ * container. Strings referencing a previously sent value are resolved to the offset
+ * of the original value while scanning.
+ * <p>
+ * Values are addressed by their entry index, starting with {@link #root()}.
+ * Containers can be skipped in constant time via {@link #next(int)} and no values
+ * are decoded until one of the {@code read*()} methods is called for them, allowing
+ * cheap access to a few values deep inside large responses:
+ * <pre>
+ * ResponseTape tape = ResponseTape.scan(responseBytes);
+ * int contents = tape.get(tape.get(tape.root(), "metadata"), "contents");
+ * String name = tape.readString(tape.get(tape.element(contents, 5000), "name"));
+ * </pre>
+ * <p>
+ * Instances are immutable and safe for use by multiple threads,
+ * as long as the backing array is not modified.
+ *
+ * @see ArrayBytesReader
+ */
+public final class ResponseTape {
+
+    private static final int ENTRY_SIZE = 2;
+    private static final int INITIAL_ENTRY_CAPACITY = 64;
+
+    private static final int OFFSET_EXISTING_STRING_CACHE = 3;
+    private static final int OFFSET_NUMBER_NON_COMPRESSED = 7;
+    private static final int OFFSET_NUMBER_COMPRESSED = 200;
+    private static final int OFFSET_READ_STRING_COMPRESSED_EXISTING_VALUE = 150;
+    private static final int OFFSET_READ_STRING_COMPRESSED = 100;
+    private static final int DEFAULT_STRING_CACHE_SIZE = 50;
+
+    private static final int HEX_255 = 0xff;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final byte[] bytes;
+    // Two ints per entry, the value offset followed by a link. Containers link to the entry
+    // following their last child, strings link to the offset of the originally sent value.
+    private final int[] tape;
+    private final int size;
+    private final long responseLength;
+    private final long dataLength;
+
+    private ResponseTape(byte[] bytes, int[] tape, int size, long responseLength, long dataLength) {
+        this.bytes = bytes;
+        this.tape = tape;
+        this.size = size;
+        this.responseLength = responseLength;
+        this.dataLength = dataLength;
+    }
+
+    /**
+     * Build a {@linkplain ResponseTape} for the response at the start of the array
+     *
+     * @param bytes the byte array holding the response, including its length prefix
+     * @return a new {@linkplain ResponseTape} instance
+     * @throws IllegalArgumentException on a null byte array argument
+     * @throws IOException              if the response is truncated or malformed
+     */
+    public static ResponseTape scan(byte[] bytes) throws IOException {
+        return scan(bytes, 0, bytes != null ? bytes.length : 0);
+    }
+
+    /**
+     * Build a {@linkplain ResponseTape} for the response in a region of the array
+     *
+     * @param bytes     the byte array holding the response, including its length prefix
+     * @param offset    the offset of the response in the array
+     * @param byteCount the number of bytes available, starting from {@code offset}
+     * @return a new {@linkplain ResponseTape} instance
+     * @throws IllegalArgumentException  on a null byte array argument
+     * @throws IndexOutOfBoundsException if {@code offset} and {@code byteCount} are outside the array bounds
+     * @throws IOException               if the response is truncated or malformed
+     */
+    public static ResponseTape scan(byte[] bytes, int offset, int byteCount) throws IOException {
+        if (bytes == null) {
+            throw new IllegalArgumentException("Byte array argument cannot be null.");
+        }
+        if (offset < 0 || byteCount < 0 || offset > bytes.length - byteCount) {
+            throw new IndexOutOfBoundsException("offset=" + offset +
+                    ", byteCount=" + byteCount + ", length=" + bytes.length);
+        }
+        return new Scanner(bytes, offset, offset + byteCount).scan();
+    }
+
+    /**
+     * @return the byte length of the response, as declared in its length prefix
+     */
+    public long responseLength() {
+        return responseLength;
+    }
+
+    /**
+     * @return the length of the data following the response,
+     * or {@link ProtocolResponseReader#UNKNOWN_SIZE} if there is none
+     */
+    public long dataContentLength() {
+        return dataLength;
+    }
+
+    /**
+     * @return the number of values in the tape
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the index of the root value of the response
+     */
+    public int root() {
+        return 0;
+    }
+
+    /**
+     * Get the type of a value
+     *
+     * @param index the index of the value
+     * @return the {@linkplain TypeToken} of the value
+     * @throws IndexOutOfBoundsException if the index is not in the tape
+     * @throws IOException               if the value has an unknown type
+     */
+    public TypeToken type(int index) throws IOException {
+        int type = typeAt(index);
+        if (type == Protocol.TYPE_DATA) {
+            // The data length is exposed as a number, same as in the readers.
+            return TypeToken.NUMBER;
+        }
+        return Protocol.getToken(type, ProtocolReader.SCOPE_NONE);
+    }
+
+    /**
+     * Get the index of the value following a value
+     * <p>
+     * For objects and arrays the returned index is the one following their last nested value,
+     * which makes skipping a container a constant time operation.
+     *
+     * @param index the index of the value
+     * @return the index of the next value, equal to {@link #size()} if the value is the last one
+     * @throws IndexOutOfBoundsException if the index is not in the tape
+     */
+    public int next(int index) {
+        int type = typeAt(index);
+        if (type == Protocol.TYPE_BEGIN_OBJECT || type == Protocol.TYPE_BEGIN_ARRAY) {
+            return tape[index * ENTRY_SIZE + 1];
+        }
+        return index + 1;
+    }
+
+    /**
+     * Get the value of an object member
+     *
+     * @param object the index of an object
+     * @param name   the name of the member
+     * @return the index of the member's value, or -1 if the object has no such member
+     * @throws IllegalArgumentException  on a null name argument
+     * @throws IndexOutOfBoundsException if the index is not in the tape
+     * @throws IOException               if the index does not point to an object
+     */
+    public int get(int object, String name) throws IOException {
+        if (name == null) {
+            throw new IllegalArgumentException("Name argument cannot be null.");
+        }
+        checkObject(object);
+        final byte[] utf8Name = name.getBytes(UTF_8);
+        final int end = next(object);
+        for (int key = object + 1; key + 1 < end; key = next(key + 1)) {
+            if (stringEquals(key, utf8Name)) {
+                return key + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get an element of an array
+     *
+     * @param array    the index of an array
+     * @param position the zero-based position of the element in the array
+     * @return the index of the element, or -1 if the array has fewer elements
+     * @throws IndexOutOfBoundsException if the index is not in the tape
+     * @throws IOException               if the index does not point to an array
+     */
+    public int element(int array, int position) throws IOException {
+        if (typeAt(array) != Protocol.TYPE_BEGIN_ARRAY) {
+            throw typeMismatchError(Protocol.TYPE_BEGIN_ARRAY, typeAt(array));
+        }
+        if (position < 0) {
+            return -1;
+        }
+        final int end = next(array);
+        int element = array + 1;
+        for (int i = 0; i < position && element < end; i++) {
+            element = next(element);
+        }
+        return element < end ? element : -1;
+    }
+
+    /**
+     * Get the number of values in an object or an array
+     *
+     * @param container the index of an object or an array
+     * @return the number of members of the object or the number of elements in the array
+     * @throws IndexOutOfBoundsException if the index is not in the tape
+     * @throws IOException               if the index does not point to an object or an array
+     */
+    public int childCount(int container) throws IOException {
+        int type = typeAt(container);
+        if (type != Protocol.TYPE_BEGIN_OBJECT && type != Protocol.TYPE_BEGIN_ARRAY) {
+            throw typeMismatchError(Protocol.TYPE_BEGIN_OBJECT, type);
+        }
+        final int end = next(container);
+        int count = 0;
+        for (int child = container + 1; child < end; child = next(child)) {
+            count++;
+        }
+        return type == Protocol.TYPE_BEGIN_OBJECT ? count / 2 : count;
+    }
+
+    /**
+     * Decode a string value
+     *
+     * @param index the index of the value
+     * @return the string value
+     * @throws IndexOutOfBoundsException if the index is not in the tape
+     * @throws IOException               if the value is not a string
+     */
+    public String readString(int index) throws IOException {
+        int origin = stringOrigin(index);
+        return new String(bytes, stringStart(origin), stringLength(origin), UTF_8);
+    }
+
+    /**
+     * Decode a number value
+     *
+     * @param index the index of the value
+     * @return the number value
+     * @throws IndexOutOfBoundsException if the index is not in the tape
+     * @throws IOException               if the value is not a number
+     */
+    public long readNumber(int index) throws IOException {
+        final int type = typeAt(index);
+        final int offset = tape[index * ENTRY_SIZE];
+        if (type >= Protocol.TYPE_NUMBER_START && type <= Protocol.TYPE_NUMBER_END) {
+            return Protocol.numberAt(bytes, offset + 1, type - OFFSET_NUMBER_NON_COMPRESSED);
+        } else if (type >= Protocol.TYPE_NUMBER_COMPRESSED_START && type <= Protocol.TYPE_NUMBER_COMPRESSED_END) {
+            return type - OFFSET_NUMBER_COMPRESSED;
+        } else if (type == Protocol.TYPE_DATA) {
+            return Protocol.numberAt(bytes, offset + 1, Protocol.SIZE_DATA_BYTESIZE);
+        } else {
+            throw typeMismatchError(TYPE_AGGREGATE_NUMBER, type);
+        }
+    }
+
+    /**
+     * Decode a boolean value
+     *
+     * @param index the index of the value
+     * @return the boolean value
+     * @throws IndexOutOfBoundsException if the index is not in the tape
+     * @throws IOException               if the value is not a boolean
+     */
+    public boolean readBoolean(int index) throws IOException {
+        final int type = typeAt(index);
+        if (type == Protocol.TYPE_BOOLEAN_TRUE) {
+            return true;
+        } else if (type == Protocol.TYPE_BOOLEAN_FALSE) {
+            return false;
+        } else {
+            throw typeMismatchError(TYPE_AGGREGATE_BOOLEAN, type);
+        }
+    }
+
+    private int typeAt(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index=" + index + ", size=" + size);
+        }
+        return bytes[tape[index * ENTRY_SIZE]] & HEX_255;
+    }
+
+    private void checkObject(int index) throws SerializationException {
+        int type = typeAt(index);
+        // Empty objects may be sent as empty arrays.
+        if (type != Protocol.TYPE_BEGIN_OBJECT &&
+                !(type == Protocol.TYPE_BEGIN_ARRAY && next(index) == index + 1)) {
+            throw typeMismatchError(Protocol.TYPE_BEGIN_OBJECT, type);
+        }
+    }
+
+    private boolean stringEquals(int index, byte[] utf8) throws SerializationException {
+        final int origin = stringOrigin(index);
+        if (stringLength(origin) != utf8.length) {
+            return false;
+        }
+        final int start = stringStart(origin);
+        for (int i = 0; i < utf8.length; i++) {
+            if (bytes[start + i] != utf8[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int stringOrigin(int index) throws SerializationException {
+        final int type = typeAt(index);
+        if (!(type >= Protocol.TYPE_STRING_START && type <= Protocol.TYPE_STRING_REUSED_END ||
+                type >= Protocol.TYPE_STRING_COMPRESSED_START && type <= Protocol.TYPE_STRING_COMPRESSED_REUSED_END)) {
+            throw typeMismatchError(TYPE_AGGREGATE_STRING, type);
+        }
+        // Reused strings are linked to the offset of the originally sent value,
+        // new strings are linked to themselves.
+        return tape[index * ENTRY_SIZE + 1];
+    }
+
+    private int stringStart(int origin) {
+        final int type = bytes[origin] & HEX_255;
+        if (type <= Protocol.TYPE_STRING_END) {
+            // [type][1-4 byte length][value]
+            return origin + 1 + type + 1;
+        }
+        // [type with embedded length][value]
+        return origin + 1;
+    }
+
+    private int stringLength(int origin) {
+        final int type = bytes[origin] & HEX_255;
+        if (type <= Protocol.TYPE_STRING_END) {
+            return (int) Protocol.numberAt(bytes, origin + 1, type + 1);
+        }
+        return type - OFFSET_READ_STRING_COMPRESSED;
+    }
+
+    private SerializationException typeMismatchError(int expectedType, int actualType) {
+        return Protocol.typeMismatchError(expectedType, actualType, ProtocolReader.SCOPE_NONE);
+    }
+
+    private static class Scanner {
+
+        private final byte[] bytes;
+        private int limit;
+        private int position;
+
+        private int[] tape = new int[INITIAL_ENTRY_CAPACITY * ENTRY_SIZE];
+        private int size;
+        private int[] stringOffsets = new int[DEFAULT_STRING_CACHE_SIZE];
+        private int stringCount;
+        private long dataLength = ProtocolResponseReader.UNKNOWN_SIZE;
+
+        Scanner(byte[] bytes, int offset, int limit) {
+            this.bytes = bytes;
+            this.position = offset;
+            this.limit = limit;
+        }
+
+        ResponseTape scan() throws IOException {
+            require(Protocol.SIZE_RESPONSE_LENGTH);
+            final long responseLength = Protocol.numberAt(bytes, position, Protocol.SIZE_RESPONSE_LENGTH);
+            position += Protocol.SIZE_RESPONSE_LENGTH;
+            require(responseLength);
+            // Values cannot extend past the declared response length.
+            limit = (int) (position + responseLength);
+
+            final IntStack openContainers = new IntStack();
+            do {
+                require(1);
+                final int type = bytes[position] & HEX_255;
+                if (type == Protocol.TYPE_END_ARRAY_OBJECT) {
+                    if (openContainers.isEmpty()) {
+                        throw new ProtocolException("Unexpected end of object or array.");
+                    }
+                    tape[openContainers.pop() * ENTRY_SIZE + 1] = size;
+                    position++;
+                } else {
+                    int entry = addEntry(position, 0);
+                    if (type == Protocol.TYPE_BEGIN_OBJECT || type == Protocol.TYPE_BEGIN_ARRAY) {
+                        openContainers.push(entry);
+                        position++;
+                    } else {
+                        scanScalar(entry, type);
+                    }
+                }
+            } while (!openContainers.isEmpty());
+            return new ResponseTape(bytes, tape, size, responseLength, dataLength);
+        }
+
+        private void scanScalar(int entry, int type) throws IOException {
+            if (type >= Protocol.TYPE_NUMBER_START && type <= Protocol.TYPE_NUMBER_END) {
+                skip(1 + type - OFFSET_NUMBER_NON_COMPRESSED);
+            } else if (type >= Protocol.TYPE_NUMBER_COMPRESSED_START && type <= Protocol.TYPE_NUMBER_COMPRESSED_END ||
+                    type == Protocol.TYPE_BOOLEAN_TRUE || type == Protocol.TYPE_BOOLEAN_FALSE) {
+                skip(1);
+            } else if (type == Protocol.TYPE_DATA) {
+                require(1 + Protocol.SIZE_DATA_BYTESIZE);
+                dataLength = Protocol.numberAt(bytes, position + 1, Protocol.SIZE_DATA_BYTESIZE);
+                position += 1 + Protocol.SIZE_DATA_BYTESIZE;
+            } else if (type >= Protocol.TYPE_STRING_START && type <= Protocol.TYPE_STRING_END) {
+                require(1 + type + 1);
+                long length = Protocol.numberAt(bytes, position + 1, type + 1);
+                addString(entry);
+                skip(1 + type + 1 + length);
+            } else if (type >= Protocol.TYPE_STRING_COMPRESSED_START && type <= Protocol.TYPE_STRING_COMPRESSED_END) {
+                addString(entry);
+                skip(1 + type - OFFSET_READ_STRING_COMPRESSED);
+            } else if (type >= Protocol.TYPE_STRING_REUSED_START && type <= Protocol.TYPE_STRING_REUSED_END) {
+                int idByteCount = type - OFFSET_EXISTING_STRING_CACHE;
+                require(1 + idByteCount);
+                linkString(entry, Protocol.numberAt(bytes, position + 1, idByteCount));
+                position += 1 + idByteCount;
+            } else if (type >= Protocol.TYPE_STRING_COMPRESSED_REUSED_BEGIN &&
+                    type <= Protocol.TYPE_STRING_COMPRESSED_REUSED_END) {
+                linkString(entry, type - OFFSET_READ_STRING_COMPRESSED_EXISTING_VALUE);
+                position++;
+            } else {
+                throw new ProtocolException("Unknown type " + type);
+            }
+        }
+
+        private int addEntry(int offset, int link) {
+            if (tape.length == size * ENTRY_SIZE) {
+                int newCapacity = tape.length << 1;
+                if (newCapacity < 0) {
+                    throw new IllegalStateException("Tape size too big.");
+                }
+                tape = Arrays.copyOf(tape, newCapacity);
+            }
+            tape[size * ENTRY_SIZE] = offset;
+            tape[size * ENTRY_SIZE + 1] = link;
+            return size++;
+        }
+
+        private void addString(int entry) {
+            if (stringOffsets.length == stringCount) {
+                int newCapacity = stringOffsets.length << 1;
+                if (newCapacity < 0) {
+                    throw new IllegalStateException("String cache size too big.");
+                }
+                stringOffsets = Arrays.copyOf(stringOffsets, newCapacity);
+            }
+            stringOffsets[stringCount++] = position;
+            tape[entry * ENTRY_SIZE + 1] = position;
+        }
+
+        private void linkString(int entry, long stringId) throws ProtocolException {
+            if (stringId >= stringCount) {
+                throw new ProtocolException("Reference to an unknown string with id " + stringId + ".");
+            }
+            tape[entry * ENTRY_SIZE + 1] = stringOffsets[(int) stringId];
+        }
+
+        private void skip(long byteCount) throws EOFException {
+            require(byteCount);
+            position += byteCount;
+        }
+
+        private void require(long byteCount) throws EOFException {
+            if (limit - position < byteCount) {
+                throw new EOFException();
+            }
+        }
+    }
+}
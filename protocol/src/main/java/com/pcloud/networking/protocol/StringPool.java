@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.protocol;
+
+import okio.ByteString;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, thread-safe pool of decoded String values, shared between responses
+ * <p>
+ * Readers created with a pool reuse the pooled instance of each string of up to {@link #maxStringLength()} bytes.
+ *
+ * @see BytesReader#BytesReader(okio.BufferedSource, StringPool)
+ * @see ArrayBytesReader#ArrayBytesReader(byte[], int, int, StringPool)
+ */
+public final class StringPool {
+
+    private static final int DEFAULT_MAX_STRING_LENGTH = 64;
+    private static final int MAX_CAPACITY = 0x40000000;
+    private static final int HASH_MULTIPLIER = 31;
+    private static final int HASH_SPREAD_SHIFT = 16;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Entries are immutable, a slot may be read and replaced concurrently without locking.
+    private final Entry[] entries;
+    private final int mask;
+    private final int maxStringLength;
+    // Shared counters are contended by all reader threads, only updated if requested.
+    private final AtomicLong hitCount;
+    private final AtomicLong missCount;
+
+    /**
+     * Create a new {@linkplain StringPool} for strings of up to 64 bytes.
+     *
+     * @param capacity the maximum number of pooled strings, rounded up to the next power of two
+     * @throws IllegalArgumentException if the capacity is not a positive number
+     */
+    public StringPool(int capacity) {
+        this(capacity, DEFAULT_MAX_STRING_LENGTH);
+    }
+
+    /**
+     * Create a new {@linkplain StringPool}
+     *
+     * @param capacity        the maximum number of pooled strings, rounded up to the next power of two
+     * @param maxStringLength the maximum UTF-8 length in bytes of a pooled string
+     * @throws IllegalArgumentException if any of the arguments is not a positive number
+     */
+    public StringPool(int capacity, int maxStringLength) {
+        this(capacity, maxStringLength, false);
+    }
+
+    /**
+     * Create a new {@linkplain StringPool}, optionally counting its hits and misses
+     *
+     * @param capacity         the maximum number of pooled strings, rounded up to the next power of two
+     * @param maxStringLength  the maximum UTF-8 length in bytes of a pooled string
+     * @param recordStatistics whether to update {@linkplain #hitCount()} and {@linkplain #missCount()}
+     * @throws IllegalArgumentException if any of the number arguments is not a positive number
+     */
+    public StringPool(int capacity, int maxStringLength, boolean recordStatistics) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be a positive number, up to " + MAX_CAPACITY + ".");
+        }
+        if (maxStringLength <= 0) {
+            throw new IllegalArgumentException("Maximum string length must be a positive number.");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.entries = new Entry[size];
+        this.mask = size - 1;
+        this.maxStringLength = maxStringLength;
+        this.hitCount = recordStatistics ? new AtomicLong() : null;
+        this.missCount = recordStatistics ? new AtomicLong() : null;
+    }
+
+    /**
+     * @return the maximum number of strings held by this pool
+     */
+    public int capacity() {
+        return entries.length;
+    }
+
+    /**
+     * @return the maximum UTF-8 length in bytes of the strings held by this pool
+     */
+    public int maxStringLength() {
+        return maxStringLength;
+    }
+
+    /**
+     * @return the number of lookups resolved with a pooled string, 0 if statistics are not recorded
+     */
+    public long hitCount() {
+        return hitCount != null ? hitCount.get() : 0L;
+    }
+
+    /**
+     * @return the number of lookups that required decoding a new string, 0 if statistics are not recorded
+     */
+    public long missCount() {
+        return missCount != null ? missCount.get() : 0L;
+    }
+
+    /**
+     * Remove all pooled strings
+     */
+    public void clear() {
+        Arrays.fill(entries, null);
+    }
+
+    String get(byte[] bytes, int offset, int length) {
+        int hash = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = HASH_MULTIPLIER * hash + bytes[i];
+        }
+        hash ^= hash >>> HASH_SPREAD_SHIFT;
+
+        final int slot = hash & mask;
+        Entry entry = entries[slot];
+        if (entry != null && entry.hash == hash && entry.utf8.length == length && entry.matches(bytes, offset)) {
+            if (hitCount != null) {
+                hitCount.incrementAndGet();
+            }
+            return entry.value;
+        }
+
+        if (missCount != null) {
+            missCount.incrementAndGet();
+        }
+        byte[] utf8 = Arrays.copyOfRange(bytes, offset, offset + length);
+        String value = new String(utf8, UTF_8);
+        entries[slot] = new Entry(utf8, hash, value);
+        return value;
+    }
+
+    String get(ByteString bytes) {
+        final int length = bytes.size();
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = HASH_MULTIPLIER * hash + bytes.getByte(i);
+        }
+        hash ^= hash >>> HASH_SPREAD_SHIFT;
+
+        final int slot = hash & mask;
+        Entry entry = entries[slot];
+        if (entry != null && entry.hash == hash && entry.utf8.length == length &&
+                bytes.rangeEquals(0, entry.utf8, 0, length)) {
+            if (hitCount != null) {
+                hitCount.incrementAndGet();
+            }
+            return entry.value;
+        }
+
+        if (missCount != null) {
+            missCount.incrementAndGet();
+        }
+        String value = bytes.utf8();
+        entries[slot] = new Entry(bytes.toByteArray(), hash, value);
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "StringPool{capacity=" + entries.length +
+                ", hits=" + hitCount() +
+                ", misses=" + missCount() + '}';
+    }
+
+    private static final class Entry {
+        final byte[] utf8;
+        final int hash;
+        final String value;
+
+        Entry(byte[] utf8, int hash, String value) {
+            this.utf8 = utf8;
+            this.hash = hash;
+            this.value = value;
+        }
+
+        boolean matches(byte[] bytes, int offset) {
+            for (int i = 0; i < utf8.length; i++) {
+                if (utf8[i] != bytes[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
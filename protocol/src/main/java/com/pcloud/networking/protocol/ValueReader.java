@@ -53,6 +53,21 @@ public class ValueReader {
         }
     }
 
+    /**
+     * Same as {@linkplain #read(ProtocolReader)}, but consumes the value via a single
+     * {@linkplain ProtocolReader#readValue(ProtocolEventHandler)} call instead of a sequence of pull calls.
+     * <p>
+     *
+     * @param reader a reader which should read from its source to extract the data
+     * @return an {@linkplain Object} which is actually one of the {@linkplain TypeToken} types, a {@linkplain Map} or an array of {@linkplain Object}
+     * @throws IOException on failed IO operations
+     */
+    public Object readStreaming(ProtocolReader reader) throws IOException {
+        ValueBuilder builder = new ValueBuilder();
+        reader.readValue(builder);
+        return builder.value;
+    }
+
     /**
      * Read the data from a readers source and extract it to a {@linkplain Map}
      * <p>
@@ -100,4 +115,79 @@ public class ValueReader {
         reader.endArray();
         return list;
     }
+
+    private static class ValueBuilder implements ProtocolEventHandler {
+
+        private final List<Object> containers = new ArrayList<>();
+        private final List<String> containerKeys = new ArrayList<>();
+        private String key;
+        private Object value;
+
+        @Override
+        public void onBeginObject() {
+            begin(new HashMap<String, Object>());
+        }
+
+        @Override
+        public void onEndObject() {
+            add(end());
+        }
+
+        @Override
+        public void onBeginArray() {
+            begin(new ArrayList<>());
+        }
+
+        @Override
+        public void onEndArray() {
+            add(((List<?>) end()).toArray());
+        }
+
+        @Override
+        public void onKey(String name) {
+            key = name;
+        }
+
+        @Override
+        public void onString(String value) {
+            add(value);
+        }
+
+        @Override
+        public void onNumber(long value) {
+            add(value);
+        }
+
+        @Override
+        public void onBoolean(boolean value) {
+            add(value);
+        }
+
+        private void begin(Object container) {
+            containers.add(container);
+            containerKeys.add(key);
+            key = null;
+        }
+
+        private Object end() {
+            int last = containers.size() - 1;
+            key = containerKeys.remove(last);
+            return containers.remove(last);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void add(Object element) {
+            if (containers.isEmpty()) {
+                value = element;
+                return;
+            }
+            Object container = containers.get(containers.size() - 1);
+            if (container instanceof Map) {
+                ((Map<String, Object>) container).put(key, element);
+                key = null;
+            } else {
+                ((List<Object>) container).add(element);
+            }
+        }
+    }
 }
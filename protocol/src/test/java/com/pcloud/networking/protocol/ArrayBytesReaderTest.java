@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.protocol;
+
+import okio.Buffer;
+import okio.ByteString;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ArrayBytesReaderTest {
+
+    private static final ByteString MOCK_DATA = ByteString.encodeUtf8("some data");
+    private static final ResponseBytesWriter MOCK_RESPONSE = ListFolderResponse.create(3);
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void constructor_Throws_On_Null_Argument() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        new ArrayBytesReader(null);
+    }
+
+    @Test
+    public void constructor_Throws_On_Invalid_Bounds() throws Exception {
+        expectedException.expect(IndexOutOfBoundsException.class);
+        new ArrayBytesReader(new byte[10], 5, 6);
+    }
+
+    @Test
+    public void beginResponse_Returns_Byte_Length_Of_Response() throws Exception {
+        ByteString response = MOCK_RESPONSE.bytes();
+        ProtocolResponseReader reader = new ArrayBytesReader(response.toByteArray());
+        assertEquals(response.size() - 4L, reader.beginResponse());
+        assertEquals(ProtocolResponseReader.SCOPE_RESPONSE, reader.currentScope());
+    }
+
+    @Test
+    public void beginResponse_Throws_On_Truncated_Response() throws Exception {
+        byte[] response = MOCK_RESPONSE.bytes().toByteArray();
+        ProtocolResponseReader reader = new ArrayBytesReader(response, 0, response.length - 1);
+        expectedException.expect(EOFException.class);
+        reader.beginResponse();
+    }
+
+    @Test
+    public void reader_Reads_The_Same_Values_As_BytesReader() throws Exception {
+        ProtocolResponseReader reader = new ArrayBytesReader(MOCK_RESPONSE.bytes().toByteArray());
+        reader.beginResponse();
+        Map<String, ?> values = new ValueReader().readObject(reader);
+        assertFalse(reader.endResponse());
+        assertEquals(asComparable(MOCK_RESPONSE.toValues()), asComparable(values));
+        assertEquals(ProtocolReader.SCOPE_NONE, reader.currentScope());
+    }
+
+    @Test
+    public void reader_Reads_Values_From_Array_Region() throws Exception {
+        byte[] response = MOCK_RESPONSE.bytes().toByteArray();
+        byte[] bytes = new byte[response.length + 10];
+        System.arraycopy(response, 0, bytes, 5, response.length);
+        ProtocolResponseReader reader = new ArrayBytesReader(bytes, 5, response.length);
+        reader.beginResponse();
+        assertEquals(asComparable(MOCK_RESPONSE.toValues()), asComparable(new ValueReader().readObject(reader)));
+        reader.endResponse();
+    }
+
+    @Test
+    public void reader_Reads_Consecutive_Responses() throws Exception {
+        Buffer buffer = new Buffer()
+                .write(MOCK_RESPONSE.bytes())
+                .write(MOCK_RESPONSE.bytes());
+        ProtocolResponseReader reader = new ArrayBytesReader(buffer.readByteArray());
+        for (int i = 0; i < 2; i++) {
+            reader.beginResponse();
+            assertEquals(asComparable(MOCK_RESPONSE.toValues()), asComparable(new ValueReader().readObject(reader)));
+            reader.endResponse();
+        }
+    }
+
+    @Test
+    public void readString_Throws_On_Wrong_Type() throws Exception {
+        ProtocolResponseReader reader = new ArrayBytesReader(MOCK_RESPONSE.bytes().toByteArray());
+        reader.beginResponse();
+        reader.beginObject();
+        reader.readString();
+        expectedException.expect(SerializationException.class);
+        reader.readString();
+    }
+
+    @Test
+    public void readNumber_Throws_If_Called_Before_beginResponse() throws Exception {
+        ProtocolResponseReader reader = new ArrayBytesReader(MOCK_RESPONSE.bytes().toByteArray());
+        expectedException.expect(IllegalStateException.class);
+        reader.readNumber();
+    }
+
+    @Test
+    public void skipValue_Skips_Whole_Response() throws Exception {
+        byte[] response = MOCK_RESPONSE.bytes().toByteArray();
+        ProtocolResponseReader reader = new ArrayBytesReader(response);
+        reader.beginResponse();
+        reader.skipValue();
+        assertFalse(reader.hasNext());
+        reader.endResponse();
+    }
+
+    @Test
+    public void endResponse_Returns_True_And_Data_Can_Be_Read_If_Response_Has_Data() throws Exception {
+        ProtocolResponseReader reader = new ArrayBytesReader(new ResponseBytesWriter()
+                .beginObject()
+                .writeValue("result", 0L)
+                .setData(MOCK_DATA)
+                .endObject()
+                .bytes().toByteArray());
+        reader.beginResponse();
+        assertTrue(reader.endResponse());
+        assertEquals(ProtocolResponseReader.SCOPE_DATA, reader.currentScope());
+        assertEquals(MOCK_DATA.size(), reader.dataContentLength());
+        Buffer sink = new Buffer();
+        reader.readData(sink);
+        assertEquals(MOCK_DATA, sink.readByteString());
+        assertEquals(ProtocolReader.SCOPE_NONE, reader.currentScope());
+    }
+
+    @Test
+    public void readData_Writes_Data_To_OutputStream() throws Exception {
+        ProtocolResponseReader reader = new ArrayBytesReader(new ResponseBytesWriter()
+                .beginObject()
+                .setData(MOCK_DATA)
+                .endObject()
+                .bytes().toByteArray());
+        reader.beginResponse();
+        reader.endResponse();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        reader.readData(outputStream);
+        assertEquals(MOCK_DATA, ByteString.of(outputStream.toByteArray()));
+    }
+
+    @Test
+    public void peekingReader_Should_Not_Consume_Any_Data() throws Exception {
+        ProtocolResponseReader reader = new ArrayBytesReader(MOCK_RESPONSE.bytes().toByteArray());
+        reader.beginResponse();
+        reader.beginObject();
+        ProtocolReader peekingReader = reader.newPeekingReader();
+        assertEquals(ProtocolReader.SCOPE_OBJECT, peekingReader.currentScope());
+        while (peekingReader.hasNext()) {
+            peekingReader.skipValue();
+        }
+        peekingReader.endObject();
+
+        assertEquals(ProtocolReader.SCOPE_OBJECT, reader.currentScope());
+        assertEquals("result", reader.readString());
+        assertEquals(0L, reader.readNumber());
+    }
+
+    @Test
+    public void peekingReader_readData_Should_Fail() throws Exception {
+        ProtocolResponseReader reader = new ArrayBytesReader(MOCK_RESPONSE.bytes().toByteArray());
+        reader.beginResponse();
+        expectedException.expect(UnsupportedOperationException.class);
+        ((ProtocolResponseReader) reader.newPeekingReader()).readData(new Buffer());
+    }
+
+    @Test
+    public void selectName_Returns_Index_Of_Matching_String() throws Exception {
+        ProtocolResponseReader reader = new ArrayBytesReader(MOCK_RESPONSE.bytes().toByteArray());
+        ProtocolReader.Options options = ProtocolReader.Options.of("bignumber", "result");
+        reader.beginResponse();
+        reader.beginObject();
+        assertEquals(1, reader.selectName(options));
+        assertEquals(0L, reader.readNumber());
+        assertEquals(0, reader.selectName(options));
+        assertEquals(Long.MAX_VALUE, reader.readNumber());
+        assertEquals(-1, reader.selectName(options));
+        assertEquals("longstring", reader.readString());
+        assertEquals(ListFolderResponse.LONG_STRING, reader.readString());
+    }
+
+    @Test
+    public void selectName_Matches_Reused_Strings() throws Exception {
+        ProtocolResponseReader reader = new ArrayBytesReader(reusedStringsResponse());
+        ProtocolReader.Options options = ProtocolReader.Options.of("type", "name");
+        reader.beginResponse();
+        reader.beginObject();
+        assertEquals(1, reader.selectName(options));
+        assertEquals("name", reader.readString());
+        assertEquals(0, reader.selectName(options));
+        assertEquals(1, reader.selectName(options));
+        reader.endObject();
+        reader.endResponse();
+    }
+
+    @Test
+    public void readStringBytes_Returns_Utf8_Bytes() throws Exception {
+        ProtocolResponseReader reader = new ArrayBytesReader(MOCK_RESPONSE.bytes().toByteArray());
+        reader.beginResponse();
+        reader.beginObject();
+        assertEquals(ByteString.encodeUtf8("result"), reader.readStringBytes());
+        reader.skipValue();
+        assertEquals(ByteString.encodeUtf8("bignumber"), reader.readStringBytes());
+        assertEquals(Long.MAX_VALUE, reader.readNumber());
+    }
+
+    @Test
+    public void readString_Returns_Reused_Strings_Skipped_By_skipValue() throws Exception {
+        ProtocolResponseReader reader = new ArrayBytesReader(reusedStringsResponse());
+        reader.beginResponse();
+        reader.beginObject();
+        reader.skipValue();
+        assertEquals("name", reader.readString());
+        assertEquals(ByteString.encodeUtf8("type"), reader.readStringBytes());
+        assertEquals(ByteString.encodeUtf8("name"), reader.readStringBytes());
+        reader.endObject();
+        reader.endResponse();
+    }
+
+    @Test
+    public void readString_Throws_On_Reference_To_Unknown_String() throws Exception {
+        Buffer values = new Buffer()
+                .writeByte(Protocol.TYPE_BEGIN_OBJECT)
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_REUSED_BEGIN)
+                .writeByte(Protocol.TYPE_END_ARRAY_OBJECT);
+        Buffer response = new Buffer().writeIntLe((int) values.size());
+        response.write(values, values.size());
+        ProtocolResponseReader reader = new ArrayBytesReader(response.readByteArray());
+        reader.beginResponse();
+        reader.beginObject();
+        expectedException.expect(ProtocolException.class);
+        reader.readString();
+    }
+
+    @Test
+    public void readValue_Reads_The_Same_Values_As_ValueReader() throws Exception {
+        ProtocolResponseReader reader = new ArrayBytesReader(MOCK_RESPONSE.bytes().toByteArray());
+        reader.beginResponse();
+        Object values = new ValueReader().readStreaming(reader);
+        assertFalse(reader.hasNext());
+        assertFalse(reader.endResponse());
+        assertEquals(asComparable(MOCK_RESPONSE.toValues()), asComparable(values));
+        assertEquals(ProtocolReader.SCOPE_NONE, reader.currentScope());
+    }
+
+    @Test
+    public void readValue_Reports_Keys_And_Reused_Strings() throws Exception {
+        ProtocolResponseReader reader = new ArrayBytesReader(reusedStringsResponse());
+        reader.beginResponse();
+        RecordingEventHandler handler = new RecordingEventHandler();
+        reader.readValue(handler);
+        reader.endResponse();
+        assertEquals(RecordingEventHandler.events(
+                "beginObject", "key:name", "string:name", "key:type", "string:name", "endObject"), handler.events);
+    }
+
+    @Test
+    public void readValue_Reads_Single_Nested_Values() throws Exception {
+        ProtocolResponseReader reader = new ArrayBytesReader(MOCK_RESPONSE.bytes().toByteArray());
+        reader.beginResponse();
+        reader.beginObject();
+        RecordingEventHandler handler = new RecordingEventHandler();
+        reader.readValue(handler);
+        reader.readValue(handler);
+        assertEquals(RecordingEventHandler.events("string:result", "number:0"), handler.events);
+        assertEquals("bignumber", reader.readString());
+    }
+
+    @Test
+    public void readValue_Throws_On_End_Of_Scope() throws Exception {
+        Buffer values = new Buffer()
+                .writeByte(Protocol.TYPE_BEGIN_OBJECT)
+                .writeByte(Protocol.TYPE_END_ARRAY_OBJECT);
+        Buffer response = new Buffer().writeIntLe((int) values.size());
+        response.write(values, values.size());
+        ProtocolResponseReader reader = new ArrayBytesReader(response.readByteArray());
+        reader.beginResponse();
+        reader.beginObject();
+        expectedException.expect(SerializationException.class);
+        reader.readValue(new RecordingEventHandler());
+    }
+
+    @Test
+    public void bulk_Reads_Return_The_Same_Values_As_Single_Reads() throws Exception {
+        ResponseBytesWriter writer = new ResponseBytesWriter().beginObject().writeKey("numbers");
+        ResponseBytesWriter.ArrayWriter numbers = writer.beginArray();
+        for (long i = 0; i < 100; i++) {
+            numbers.write(i * i * i);
+        }
+        numbers.endArray().writeKey("strings");
+        ResponseBytesWriter.ArrayWriter strings = writer.beginArray();
+        for (int i = 0; i < 100; i++) {
+            strings.write("value" + (i % 7));
+        }
+        strings.endArray().endObject();
+        Map<String, ?> expected = writer.toValues();
+
+        ProtocolResponseReader reader = new ArrayBytesReader(writer.bytes().toByteArray());
+        reader.beginResponse();
+        reader.beginObject();
+        assertEquals("numbers", reader.readString());
+        reader.beginArray();
+        long[] values = new long[64];
+        assertEquals(64, reader.readNumberArray(values));
+        assertEquals(((Object[]) expected.get("numbers"))[63], values[63]);
+        final List<Object> remaining = new ArrayList<>();
+        assertEquals(36, reader.readNumbers(new ProtocolReader.NumberConsumer() {
+            @Override
+            public void accept(long value) {
+                remaining.add(value);
+            }
+        }));
+        assertEquals(((Object[]) expected.get("numbers"))[99], remaining.get(35));
+        reader.endArray();
+        assertEquals("strings", reader.readString());
+        reader.beginArray();
+        List<Object> stringValues = new ArrayList<>();
+        assertEquals(100, reader.readStringArray(stringValues));
+        assertEquals(asComparable(expected.get("strings")), stringValues);
+        reader.endArray();
+        reader.endObject();
+        assertFalse(reader.endResponse());
+    }
+
+    @Test
+    public void uncheckedReader_Reads_The_Same_Values_As_The_Reader() throws Exception {
+        ArrayBytesReader reader = new ArrayBytesReader(MOCK_RESPONSE.bytes().toByteArray());
+        reader.beginResponse();
+        ProtocolReader unchecked = reader.uncheckedReader();
+        unchecked.beginObject();
+        List<String> keys = new ArrayList<>();
+        while (unchecked.hasNext()) {
+            String key = unchecked.readString();
+            keys.add(key);
+            if (key.equals("tags")) {
+                unchecked.beginArray();
+                assertEquals(ProtocolReader.SCOPE_ARRAY, reader.currentScope());
+                assertEquals("a", unchecked.readString());
+                assertEquals("b", unchecked.readString());
+                unchecked.endArray();
+            } else {
+                unchecked.skipValue();
+            }
+        }
+        unchecked.endObject();
+        assertEquals(MOCK_RESPONSE.toValues().keySet(), new HashSet<>(keys));
+        assertEquals(ProtocolResponseReader.SCOPE_RESPONSE, reader.currentScope());
+        assertFalse(reader.endResponse());
+    }
+
+    private static byte[] reusedStringsResponse() {
+        // {"name": "name", "type": "name"}, with the repeated values encoded as string cache references.
+        Buffer values = new Buffer()
+                .writeByte(Protocol.TYPE_BEGIN_OBJECT)
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_START + 4).writeUtf8("name")
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_REUSED_BEGIN)
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_START + 4).writeUtf8("type")
+                .writeByte(Protocol.TYPE_STRING_REUSED_START).writeByte(0)
+                .writeByte(Protocol.TYPE_END_ARRAY_OBJECT);
+        Buffer response = new Buffer().writeIntLe((int) values.size());
+        response.write(values, values.size());
+        return response.readByteArray();
+    }
+
+    private static Object asComparable(Object value) {
+        if (value instanceof Object[]) {
+            List<Object> elements = new ArrayList<>();
+            for (Object element : (Object[]) value) {
+                elements.add(asComparable(element));
+            }
+            return elements;
+        } else if (value instanceof Map) {
+            Map<Object, Object> entries = new HashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                entries.put(entry.getKey(), asComparable(entry.getValue()));
+            }
+            return entries;
+        }
+        return value;
+    }
+}
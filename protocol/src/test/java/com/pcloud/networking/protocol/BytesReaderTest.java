@@ -27,6 +27,11 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.Mockito;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 public class BytesReaderTest {
@@ -41,6 +46,7 @@ public class BytesReaderTest {
             .endObject()
             .bytes();
     private static final ByteString MOCK_DATA = ByteString.encodeUtf8("some data");
+    private static final ByteString REUSED_STRINGS_RESPONSE = reusedStringsResponse();
     private static final ByteString MOCK_DATA_RESPONSE = new ResponseBytesWriter()
             .beginObject()
             .writeValue("result", 0L)
@@ -586,6 +592,415 @@ public class BytesReaderTest {
         reader.endResponse();
     }
 
+    @Test
+    public void selectName_Returns_Index_Of_Matching_String() throws Exception {
+        reader.beginResponse();
+        reader.beginObject();
+        assertEquals(1, reader.selectName(ProtocolReader.Options.of("someKey", "result")));
+        assertEquals(0L, reader.readNumber());
+    }
+
+    @Test
+    public void selectName_Does_Not_Consume_Unmatched_Strings() throws Exception {
+        reader.beginResponse();
+        reader.beginObject();
+        assertEquals(-1, reader.selectName(ProtocolReader.Options.of("someKey")));
+        assertEquals("result", reader.readString());
+    }
+
+    @Test
+    public void selectName_Throws_SerializationException_On_Non_String_Values() throws Exception {
+        reader.beginResponse();
+        reader.beginObject();
+        reader.readString();
+        expectedException.expect(SerializationException.class);
+        reader.selectName(ProtocolReader.Options.of("someKey"));
+    }
+
+    @Test
+    public void selectName_Matches_Reused_Strings() throws Exception {
+        setIncomingResponse(REUSED_STRINGS_RESPONSE);
+        ProtocolReader.Options options = ProtocolReader.Options.of("type", "name");
+        reader.beginResponse();
+        reader.beginObject();
+        assertEquals(1, reader.selectName(options));
+        assertEquals(1, reader.selectName(options));
+        assertEquals(0, reader.selectName(options));
+        assertEquals(1, reader.selectName(options));
+        reader.endObject();
+        reader.endResponse();
+    }
+
+    @Test
+    public void selectName_Matches_Reused_Strings_Read_By_readString() throws Exception {
+        setIncomingResponse(REUSED_STRINGS_RESPONSE);
+        ProtocolReader.Options options = ProtocolReader.Options.of("type", "name");
+        reader.beginResponse();
+        reader.beginObject();
+        assertEquals("name", reader.readString());
+        assertEquals(1, reader.selectName(options));
+        assertEquals("type", reader.readString());
+        assertEquals(1, reader.selectName(options));
+        reader.endObject();
+        reader.endResponse();
+    }
+
+    @Test
+    public void selectName_Does_Not_Consume_Unmatched_Reused_Strings() throws Exception {
+        setIncomingResponse(REUSED_STRINGS_RESPONSE);
+        ProtocolReader.Options options = ProtocolReader.Options.of("type");
+        reader.beginResponse();
+        reader.beginObject();
+        assertEquals(-1, reader.selectName(options));
+        assertEquals("name", reader.readString());
+        assertEquals(-1, reader.selectName(options));
+        assertEquals("name", reader.readString());
+        assertEquals(0, reader.selectName(options));
+        assertEquals(-1, reader.selectName(options));
+        reader.skipValue();
+        reader.endObject();
+        reader.endResponse();
+    }
+
+    @Test
+    public void readString_Returns_Reused_Strings_Matched_By_selectName() throws Exception {
+        setIncomingResponse(REUSED_STRINGS_RESPONSE);
+        reader.beginResponse();
+        reader.beginObject();
+        assertEquals(0, reader.selectName(ProtocolReader.Options.of("name")));
+        assertEquals("name", reader.readString());
+        assertEquals("type", reader.readString());
+        assertEquals("name", reader.readString());
+        reader.endObject();
+        reader.endResponse();
+    }
+
+    @Test
+    public void readStringBytes_Returns_Utf8_Bytes() throws Exception {
+        setIncomingResponse(MOCK_DATA_RESPONSE);
+        reader.beginResponse();
+        reader.beginObject();
+        assertEquals(ByteString.encodeUtf8("result"), reader.readStringBytes());
+        reader.skipValue();
+        assertEquals(ByteString.encodeUtf8("somefield"), reader.readStringBytes());
+        assertEquals(ByteString.encodeUtf8("someData"), reader.readStringBytes());
+    }
+
+    @Test
+    public void readStringBytes_Returns_Reused_Strings() throws Exception {
+        setIncomingResponse(REUSED_STRINGS_RESPONSE);
+        reader.beginResponse();
+        reader.beginObject();
+        assertEquals("name", reader.readString());
+        assertEquals(ByteString.encodeUtf8("name"), reader.readStringBytes());
+        assertEquals(ByteString.encodeUtf8("type"), reader.readStringBytes());
+        assertEquals(ByteString.encodeUtf8("name"), reader.readStringBytes());
+        reader.endObject();
+        reader.endResponse();
+    }
+
+    @Test
+    public void readString_Returns_Reused_Strings_Skipped_By_skipValue() throws Exception {
+        setIncomingResponse(REUSED_STRINGS_RESPONSE);
+        reader.beginResponse();
+        reader.beginObject();
+        reader.skipValue();
+        assertEquals("name", reader.readString());
+        reader.skipValue();
+        assertEquals("name", reader.readString());
+        reader.endObject();
+        reader.endResponse();
+    }
+
+    @Test
+    public void readString_Returns_Skipped_Strings_Mixed_With_Read_Strings() throws Exception {
+        // {"first": "second", "third": "first", "third": "second"}
+        Buffer values = new Buffer()
+                .writeByte(Protocol.TYPE_BEGIN_OBJECT)
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_START + 5).writeUtf8("first")
+                .writeByte(Protocol.TYPE_STRING_START).writeByte(6).writeUtf8("second")
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_START + 5).writeUtf8("third")
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_REUSED_BEGIN)
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_REUSED_BEGIN + 2)
+                .writeByte(Protocol.TYPE_STRING_REUSED_START).writeByte(1)
+                .writeByte(Protocol.TYPE_END_ARRAY_OBJECT);
+        Buffer response = new Buffer().writeIntLe((int) values.size());
+        response.write(values, values.size());
+        setIncomingResponse(response.readByteString());
+
+        reader.beginResponse();
+        reader.beginObject();
+        reader.skipValue();
+        assertEquals("second", reader.readString());
+        reader.skipValue();
+        assertEquals("first", reader.readString());
+        assertEquals("third", reader.readString());
+        assertEquals(ByteString.encodeUtf8("second"), reader.readStringBytes());
+        reader.endObject();
+        reader.endResponse();
+    }
+
+    @Test
+    public void readStringBytes_Throws_On_Wrong_Type() throws Exception {
+        reader.beginResponse();
+        reader.beginObject();
+        reader.readString();
+        expectedException.expect(SerializationException.class);
+        reader.readStringBytes();
+    }
+
+    @Test
+    public void options_Throw_On_Duplicate_Values() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        ProtocolReader.Options.of("name", "name");
+    }
+
+    @Test
+    public void readValue_Reports_Data_As_Number_And_Leaves_Data_Readable() throws Exception {
+        setIncomingResponse(MOCK_DATA_RESPONSE);
+        reader.beginResponse();
+        RecordingEventHandler handler = new RecordingEventHandler();
+        reader.readValue(handler);
+        assertEquals(RecordingEventHandler.events(
+                "beginObject",
+                "key:result", "number:0",
+                "key:somefield", "string:someData",
+                "key:data", "number:" + MOCK_DATA.size(),
+                "endObject"), handler.events);
+        assertTrue(reader.endResponse());
+        Buffer data = new Buffer();
+        reader.readData(data);
+        assertEquals(MOCK_DATA, data.readByteString());
+    }
+
+    @Test
+    public void readValue_Reports_Keys_And_Reused_Strings() throws Exception {
+        setIncomingResponse(REUSED_STRINGS_RESPONSE);
+        reader.beginResponse();
+        RecordingEventHandler handler = new RecordingEventHandler();
+        reader.readValue(handler);
+        assertFalse(reader.endResponse());
+        assertEquals(RecordingEventHandler.events(
+                "beginObject", "key:name", "string:name", "key:type", "string:name", "endObject"), handler.events);
+    }
+
+    @Test
+    public void readValue_Throws_On_Null_Handler() throws Exception {
+        reader.beginResponse();
+        expectedException.expect(IllegalArgumentException.class);
+        reader.readValue(null);
+    }
+
+    @Test
+    public void readNumberArray_Reads_Up_To_Destination_Length() throws Exception {
+        setIncomingResponse(numbersResponse(5));
+        reader.beginResponse();
+        reader.beginObject();
+        reader.readString();
+        reader.beginArray();
+        long[] values = new long[2];
+        assertEquals(2, reader.readNumberArray(values));
+        assertArrayEquals(new long[]{0, 1000}, values);
+        assertEquals(2, reader.readNumberArray(values));
+        assertArrayEquals(new long[]{2000, 3000}, values);
+        assertEquals(1, reader.readNumberArray(values));
+        assertEquals(4000, values[0]);
+        assertEquals(0, reader.readNumberArray(values));
+        reader.endArray();
+        reader.endObject();
+        assertFalse(reader.endResponse());
+    }
+
+    @Test
+    public void readNumbers_Reads_Remaining_Values() throws Exception {
+        setIncomingResponse(numbersResponse(5));
+        reader.beginResponse();
+        reader.beginObject();
+        reader.readString();
+        reader.beginArray();
+        reader.readNumber();
+        final List<Long> values = new ArrayList<>();
+        assertEquals(4, reader.readNumbers(new ProtocolReader.NumberConsumer() {
+            @Override
+            public void accept(long value) {
+                values.add(value);
+            }
+        }));
+        assertEquals(Arrays.asList(1000L, 2000L, 3000L, 4000L), values);
+        reader.endArray();
+    }
+
+    @Test
+    public void readNumberArray_Throws_On_Wrong_Type() throws Exception {
+        setIncomingResponse(stringsResponse());
+        reader.beginResponse();
+        reader.beginObject();
+        reader.readString();
+        reader.beginArray();
+        expectedException.expect(SerializationException.class);
+        reader.readNumberArray(new long[2]);
+    }
+
+    @Test
+    public void readNumberArray_Throws_Outside_Of_Array() throws Exception {
+        reader.beginResponse();
+        reader.beginObject();
+        expectedException.expect(IllegalStateException.class);
+        reader.readNumberArray(new long[2]);
+    }
+
+    @Test
+    public void readStringArray_Reads_Remaining_Values_Including_Reused_Strings() throws Exception {
+        setIncomingResponse(stringsResponse());
+        reader.beginResponse();
+        reader.beginObject();
+        reader.readString();
+        reader.beginArray();
+        List<String> values = new ArrayList<>();
+        assertEquals(3, reader.readStringArray(values));
+        assertEquals(Arrays.asList("name", "name", "type"), values);
+        reader.endArray();
+        reader.endObject();
+        assertFalse(reader.endResponse());
+    }
+
+    @Test
+    public void uncheckedReader_Reads_Values_And_Shares_Scope() throws Exception {
+        setIncomingResponse(MOCK_DATA_RESPONSE);
+        reader.beginResponse();
+        ProtocolReader unchecked = reader.uncheckedReader();
+        unchecked.beginObject();
+        assertEquals(ProtocolReader.SCOPE_OBJECT, reader.currentScope());
+        ProtocolReader.Options names = ProtocolReader.Options.of("result", "somefield");
+        int valueCount = 0;
+        while (unchecked.hasNext()) {
+            switch (unchecked.selectName(names)) {
+                case 0:
+                    assertEquals(0L, unchecked.readNumber());
+                    valueCount++;
+                    break;
+                case 1:
+                    assertEquals("someData", unchecked.readString());
+                    valueCount++;
+                    break;
+                default:
+                    unchecked.skipValue();
+                    unchecked.skipValue();
+            }
+        }
+        assertEquals(2, valueCount);
+        unchecked.endObject();
+        assertEquals(ProtocolResponseReader.SCOPE_RESPONSE, reader.currentScope());
+        assertFalse(unchecked.hasNext());
+        assertTrue(reader.endResponse());
+        assertEquals(MOCK_DATA.size(), reader.dataContentLength());
+    }
+
+    @Test
+    public void uncheckedReader_Checks_Scope_When_Closing_Objects() throws Exception {
+        reader.beginResponse();
+        ProtocolReader unchecked = reader.uncheckedReader();
+        unchecked.beginObject();
+        expectedException.expect(IllegalStateException.class);
+        unchecked.endArray();
+    }
+
+    @Test
+    public void uncheckedReader_Returns_Same_Instance() throws Exception {
+        ProtocolReader unchecked = reader.uncheckedReader();
+        assertSame(unchecked, reader.uncheckedReader());
+        assertSame(unchecked, unchecked.uncheckedReader());
+    }
+
+    @Test
+    public void reset_Allows_Reading_A_New_Response_After_A_Partial_Read() throws Exception {
+        setIncomingResponse(MOCK_DATA_RESPONSE);
+        reader.beginResponse();
+        reader.beginObject();
+        reader.readString();
+
+        Buffer nextResponse = new Buffer().write(MOCK_RESPONSE);
+        reader.reset(nextResponse);
+        assertEquals(ProtocolResponseReader.SCOPE_NONE, reader.currentScope());
+        reader.beginResponse();
+        reader.beginObject();
+        assertEquals("result", reader.readString());
+        assertEquals(0L, reader.readNumber());
+        reader.endObject();
+        assertFalse(reader.endResponse());
+    }
+
+    @Test
+    public void reset_Throws_On_Null_Argument() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        reader.reset(null);
+    }
+
+    private static ByteString numbersResponse(int count) throws IOException {
+        ResponseBytesWriter writer = new ResponseBytesWriter().beginObject().writeKey("values");
+        ResponseBytesWriter.ArrayWriter array = writer.beginArray();
+        for (long i = 0; i < count; i++) {
+            array.write(i * 1000);
+        }
+        return array.endArray().endObject().bytes();
+    }
+
+    private static ByteString stringsResponse() {
+        // {"values": ["name", "name", "type"]}, with the repeated value encoded as a string cache reference.
+        Buffer values = new Buffer()
+                .writeByte(Protocol.TYPE_BEGIN_OBJECT)
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_START + 6).writeUtf8("values")
+                .writeByte(Protocol.TYPE_BEGIN_ARRAY)
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_START + 4).writeUtf8("name")
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_REUSED_BEGIN + 1)
+                .writeByte(Protocol.TYPE_STRING_START).writeByte(4).writeUtf8("type")
+                .writeByte(Protocol.TYPE_END_ARRAY_OBJECT)
+                .writeByte(Protocol.TYPE_END_ARRAY_OBJECT);
+        Buffer response = new Buffer().writeIntLe((int) values.size());
+        response.write(values, values.size());
+        return response.readByteString();
+    }
+
+    @Test
+    public void peekingReader_Keeps_Its_String_Cache_After_The_Reader_Moves_To_The_Next_Response() throws Exception {
+        setIncomingResponse(REUSED_STRINGS_RESPONSE);
+        buffer.write(MOCK_RESPONSE);
+
+        reader.beginResponse();
+        reader.beginObject();
+        assertEquals("name", reader.readString());
+        ProtocolResponseReader peekingReader = reader.newPeekingReader();
+        // Buffers the rest of the response before the source is consumed further.
+        assertEquals(TypeToken.STRING, peekingReader.peek());
+
+        while (reader.hasNext()) {
+            reader.skipValue();
+        }
+        reader.endObject();
+        reader.endResponse();
+        reader.beginResponse();
+        reader.beginObject();
+        assertEquals("result", reader.readString());
+
+        assertEquals("name", peekingReader.readString());
+        assertEquals("type", peekingReader.readString());
+        assertEquals("name", peekingReader.readString());
+    }
+
+    private static ByteString reusedStringsResponse() {
+        // {"name": "name", "type": "name"}, with the repeated values encoded as string cache references.
+        Buffer values = new Buffer()
+                .writeByte(Protocol.TYPE_BEGIN_OBJECT)
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_START + 4).writeUtf8("name")
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_REUSED_BEGIN)
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_START + 4).writeUtf8("type")
+                .writeByte(Protocol.TYPE_STRING_REUSED_START).writeByte(0)
+                .writeByte(Protocol.TYPE_END_ARRAY_OBJECT);
+        Buffer response = new Buffer().writeIntLe((int) values.size());
+        response.write(values, values.size());
+        return response.readByteString();
+    }
+
     private void setIncomingResponse(ByteString responseBytes) {
         buffer.clear();
         buffer.write(responseBytes);
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.protocol;
+
+import okio.Buffer;
+import okio.ByteString;
+import okio.Okio;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BytesRequestReaderTest {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+    private Buffer buffer;
+    private BytesWriter writer;
+    private BytesRequestReader reader;
+
+    @Before
+    public void setUp() {
+        buffer = new Buffer();
+        writer = new BytesWriter(buffer);
+        reader = new BytesRequestReader(buffer);
+    }
+
+    @Test
+    public void constructor_Throws_On_Null_Source_Argument() throws Exception {
+        exception.expect(IllegalArgumentException.class);
+        new BytesRequestReader(null);
+    }
+
+    @Test
+    public void reads_Requests_Written_By_BytesWriter() throws Exception {
+        writer.beginRequest()
+                .writeMethodName("someméthod")
+                .writeName("string").writeValue("välue")
+                .writeEncodedName(EncodedName.of("number")).writeValue(Long.MAX_VALUE)
+                .writeName("negative").writeValue(-5L)
+                .writeName("flag").writeValue(true)
+                .endRequest();
+
+        assertTrue(reader.beginRequest());
+        assertEquals("someméthod", reader.methodName());
+        assertEquals(4, reader.parameterCount());
+        assertEquals(0L, reader.dataContentLength());
+
+        assertTrue(reader.nextParameter());
+        assertEquals(BytesRequestReader.PARAMETER_TYPE_STRING, reader.parameterType());
+        assertEquals("string", reader.parameterName());
+        assertEquals("välue", reader.stringValue());
+
+        assertTrue(reader.nextParameter());
+        assertEquals(BytesRequestReader.PARAMETER_TYPE_NUMBER, reader.parameterType());
+        assertTrue(reader.parameterNameEquals(EncodedName.of("number")));
+        assertFalse(reader.parameterNameEquals(EncodedName.of("numbers")));
+        assertEquals(Long.MAX_VALUE, reader.numberValue());
+
+        assertTrue(reader.nextParameter());
+        assertEquals(BytesRequestReader.PARAMETER_TYPE_STRING, reader.parameterType());
+        assertEquals("-5", reader.stringValue());
+
+        assertTrue(reader.nextParameter());
+        assertEquals(BytesRequestReader.PARAMETER_TYPE_BOOLEAN, reader.parameterType());
+        assertEquals("flag", reader.parameterName());
+        assertTrue(reader.booleanValue());
+
+        assertFalse(reader.nextParameter());
+        reader.endRequest();
+        assertFalse(reader.beginRequest());
+    }
+
+    @Test
+    public void writeStringValue_Copies_The_Encoded_Value() throws Exception {
+        writer.beginRequest()
+                .writeMethodName("method")
+                .writeName("string").writeValue("välue")
+                .endRequest();
+
+        reader.beginRequest();
+        reader.nextParameter();
+        Buffer sink = new Buffer();
+        reader.writeStringValue(sink);
+        assertEquals(ByteString.encodeUtf8("välue"), sink.readByteString());
+    }
+
+    @Test
+    public void data_Is_Bounded_By_The_Declared_Length() throws Exception {
+        ByteString data = ByteString.encodeUtf8("some data");
+        writer.beginRequest()
+                .writeMethodName("upload")
+                .writeName("name").writeValue("file")
+                .writeData(DataSource.create(data))
+                .endRequest();
+        writer.beginRequest()
+                .writeMethodName("next")
+                .endRequest();
+
+        assertTrue(reader.beginRequest());
+        assertEquals("upload", reader.methodName());
+        assertEquals(data.size(), reader.dataContentLength());
+        assertEquals(data, Okio.buffer(reader.data()).readByteString());
+        reader.endRequest();
+
+        assertTrue(reader.beginRequest());
+        assertEquals("next", reader.methodName());
+        assertEquals(0, reader.parameterCount());
+        reader.endRequest();
+        assertTrue(buffer.exhausted());
+    }
+
+    @Test
+    public void endRequest_Skips_Unread_Parameters_And_Data() throws Exception {
+        writer.beginRequest()
+                .writeMethodName("upload")
+                .writeName("name").writeValue("file")
+                .writeName("size").writeValue(9L)
+                .writeData(DataSource.create(ByteString.encodeUtf8("some data")))
+                .endRequest();
+        writer.beginRequest()
+                .writeMethodName("next")
+                .writeName("id").writeValue(1L)
+                .endRequest();
+
+        reader.beginRequest();
+        reader.endRequest();
+
+        reader.beginRequest();
+        assertEquals("next", reader.methodName());
+        reader.nextParameter();
+        assertEquals(1L, reader.numberValue());
+        reader.endRequest();
+    }
+
+    @Test
+    public void beginRequest_Throws_If_Previous_Request_Was_Not_Ended() throws Exception {
+        writer.beginRequest().writeMethodName("method").endRequest();
+        writer.beginRequest().writeMethodName("method").endRequest();
+        reader.beginRequest();
+
+        exception.expect(IllegalStateException.class);
+        reader.beginRequest();
+    }
+
+    @Test
+    public void beginRequest_Throws_On_Truncated_Request() throws Exception {
+        writer.beginRequest()
+                .writeMethodName("method")
+                .writeName("string").writeValue("value")
+                .endRequest();
+        Buffer truncated = new Buffer();
+        buffer.read(truncated, buffer.size() - 1);
+
+        exception.expect(EOFException.class);
+        new BytesRequestReader(truncated).beginRequest();
+    }
+
+    @Test
+    public void nextParameter_Throws_On_Unknown_Parameter_Type() throws Exception {
+        buffer.writeShortLe(1 + 1 + 1 + 1)
+                .writeByte(1).writeByte('m') // Method name
+                .writeByte(1) // Parameter count
+                .writeByte(3 << 6); // Unknown parameter type, empty name
+        reader.beginRequest();
+
+        exception.expect(ProtocolException.class);
+        reader.nextParameter();
+    }
+
+    @Test
+    public void nextParameter_Throws_On_Parameter_Exceeding_The_Request() throws Exception {
+        buffer.writeShortLe(1 + 1 + 1 + 1 + 2)
+                .writeByte(1).writeByte('m') // Method name
+                .writeByte(1) // Parameter count
+                .writeByte(1 << 6).writeShort(0); // Number parameter, only 2 of 8 bytes
+        reader.beginRequest();
+
+        exception.expect(ProtocolException.class);
+        reader.nextParameter();
+    }
+
+    @Test
+    public void value_Accessors_Throw_On_Type_Mismatch() throws Exception {
+        writer.beginRequest()
+                .writeMethodName("method")
+                .writeName("flag").writeValue(false)
+                .endRequest();
+        reader.beginRequest();
+        reader.nextParameter();
+
+        exception.expect(IllegalStateException.class);
+        reader.numberValue();
+    }
+
+    @Test
+    public void parameter_Accessors_Throw_Before_nextParameter() throws Exception {
+        writer.beginRequest()
+                .writeMethodName("method")
+                .writeName("flag").writeValue(false)
+                .endRequest();
+        reader.beginRequest();
+
+        exception.expect(IllegalStateException.class);
+        reader.parameterName();
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.protocol;
+
+import okio.Buffer;
+import okio.ByteString;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BytesResponseWriterTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private Buffer buffer;
+    private BytesResponseWriter writer;
+
+    @Before
+    public void setUp() {
+        buffer = new Buffer();
+        writer = new BytesResponseWriter(buffer);
+    }
+
+    @Test
+    public void constructor_Throws_On_Null_Sink_Argument() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        new BytesResponseWriter(null);
+    }
+
+    @Test
+    public void written_Response_Is_Read_Back_By_BytesReader() throws Exception {
+        writeSampleResponse(writer);
+
+        ProtocolResponseReader reader = new BytesReader(buffer);
+        assertEquals(buffer.size() - 4, reader.beginResponse());
+        assertSampleResponse(new ValueReader().readObject(reader));
+        assertFalse(reader.endResponse());
+        assertTrue(buffer.exhausted());
+    }
+
+    @Test
+    public void written_Response_Is_Read_Back_By_ArrayBytesReader() throws Exception {
+        writeSampleResponse(writer);
+
+        byte[] bytes = buffer.readByteArray();
+        ProtocolResponseReader reader = new ArrayBytesReader(bytes, 0, bytes.length);
+        reader.beginResponse();
+        assertSampleResponse(new ValueReader().readObject(reader));
+        assertFalse(reader.endResponse());
+    }
+
+    @Test
+    public void small_Numbers_And_Short_Strings_Are_Written_In_Compressed_Form() throws Exception {
+        writer.beginResponse()
+                .beginObject()
+                .writeName("abc").beginArray()
+                .writeValue(19L)
+                .writeValue(20L)
+                .writeValue("abc")
+                .endArray()
+                .endObject()
+                .endResponse();
+
+        ByteString expected = new Buffer()
+                .writeIntLe(12)
+                .writeByte(Protocol.TYPE_BEGIN_OBJECT)
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_START + 3).writeUtf8("abc")
+                .writeByte(Protocol.TYPE_BEGIN_ARRAY)
+                .writeByte(Protocol.TYPE_NUMBER_COMPRESSED_START + 19)
+                .writeByte(Protocol.TYPE_NUMBER_START).writeByte(20)
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_REUSED_BEGIN)
+                .writeByte(Protocol.TYPE_END_ARRAY_OBJECT)
+                .writeByte(Protocol.TYPE_END_ARRAY_OBJECT)
+                .readByteString();
+        assertEquals(expected, buffer.readByteString());
+    }
+
+    @Test
+    public void repeated_Member_Names_Are_Written_Once() throws Exception {
+        writer.beginResponse()
+                .beginObject()
+                .writeName("files").beginArray();
+        for (int i = 0; i < 100; i++) {
+            writer.beginObject()
+                    .writeName("name").writeValue("file" + i)
+                    .writeEncodedName(EncodedName.of("size")).writeValue(i * 1000L)
+                    .endObject();
+        }
+        writer.endArray()
+                .endObject()
+                .endResponse();
+
+        ProtocolResponseReader reader = new BytesReader(buffer);
+        reader.beginResponse();
+        reader.beginObject();
+        assertEquals("files", reader.readString());
+        reader.beginArray();
+        int count = 0;
+        while (reader.hasNext()) {
+            assertEquals(Arrays.asList("name", "file" + count, "size", count * 1000L), readObjectValues(reader));
+            count++;
+        }
+        assertEquals(100, count);
+        reader.endArray();
+        reader.endObject();
+        reader.endResponse();
+    }
+
+    @Test
+    public void string_Reuse_Restarts_With_Each_Response() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            writer.beginResponse()
+                    .beginObject()
+                    .writeName("key").writeValue("key")
+                    .endObject()
+                    .endResponse();
+        }
+
+        ProtocolResponseReader reader = new BytesReader(buffer);
+        for (int i = 0; i < 2; i++) {
+            reader.beginResponse();
+            assertEquals(Arrays.asList("key", "key"), readObjectValues(reader));
+            reader.endResponse();
+        }
+    }
+
+    @Test
+    public void writeValue_Throws_Without_A_Name_Inside_Objects() throws Exception {
+        writer.beginResponse().beginObject();
+        expectedException.expect(IllegalStateException.class);
+        writer.writeValue(1L);
+    }
+
+    @Test
+    public void writeName_Throws_Inside_Arrays() throws Exception {
+        writer.beginResponse().beginObject().writeName("array").beginArray();
+        expectedException.expect(IllegalStateException.class);
+        writer.writeName("name");
+    }
+
+    @Test
+    public void endObject_Throws_If_Name_Not_Followed_By_Value() throws Exception {
+        writer.beginResponse().beginObject().writeName("name");
+        expectedException.expect(IllegalStateException.class);
+        writer.endObject();
+    }
+
+    @Test
+    public void endResponse_Throws_On_Unfinished_Objects() throws Exception {
+        writer.beginResponse().beginObject();
+        expectedException.expect(IllegalStateException.class);
+        writer.endResponse();
+    }
+
+    @Test
+    public void writeValue_Throws_Outside_Objects() throws Exception {
+        writer.beginResponse();
+        expectedException.expect(IllegalStateException.class);
+        writer.writeValue("value");
+    }
+
+    @Test
+    public void writeValue_Throws_Before_beginResponse() throws Exception {
+        expectedException.expect(IllegalStateException.class);
+        writer.writeValue("value");
+    }
+
+    private static void writeSampleResponse(ProtocolResponseWriter writer) throws IOException {
+        writer.beginResponse()
+                .beginObject()
+                .writeName("result").writeValue(0)
+                .writeName("negative").writeValue(-5L)
+                .writeName("large").writeValue(Long.MAX_VALUE)
+                .writeName("flag").writeValue(true)
+                .writeName("ratio").writeValue(0.5d)
+                .writeName("empty").writeValue("")
+                .writeName("long string").writeValue(longString())
+                .writeName("nested").beginObject()
+                .writeName("result").writeValue("result")
+                .endObject()
+                .writeName("list").beginArray()
+                .writeValue("result")
+                .writeValue(1000L)
+                .beginArray().endArray()
+                .endArray()
+                .endObject()
+                .endResponse();
+    }
+
+    private static void assertSampleResponse(Map<String, ?> values) {
+        assertEquals(0L, values.get("result"));
+        assertEquals(-5L, values.get("negative"));
+        assertEquals(Long.MAX_VALUE, values.get("large"));
+        assertEquals(true, values.get("flag"));
+        assertEquals("0.5", values.get("ratio"));
+        assertEquals("", values.get("empty"));
+        assertEquals(longString(), values.get("long string"));
+        assertEquals("result", ((Map<?, ?>) values.get("nested")).get("result"));
+        Object[] list = (Object[]) values.get("list");
+        assertEquals(3, list.length);
+        assertEquals("result", list[0]);
+        assertEquals(1000L, list[1]);
+        assertEquals(0, ((Object[]) list[2]).length);
+    }
+
+    private static List<Object> readObjectValues(ProtocolReader reader) throws IOException {
+        List<Object> values = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            values.add(reader.readString());
+            values.add(reader.peek() == TypeToken.NUMBER ? (Object) reader.readNumber() : reader.readString());
+        }
+        reader.endObject();
+        return values;
+    }
+
+    private static String longString() {
+        char[] chars = new char[300];
+        Arrays.fill(chars, 'é');
+        return new String(chars);
+    }
+}
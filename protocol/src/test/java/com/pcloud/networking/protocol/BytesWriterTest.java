@@ -28,6 +28,7 @@ import org.junit.rules.ExpectedException;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -287,6 +288,157 @@ public class BytesWriterTest {
                 sentBytes.equals(expectedBytes));
     }
 
+    @Test
+    public void reset_Discards_A_Partially_Written_Request() throws Exception {
+        Buffer expected = new Buffer();
+        writeRequestWithoutData(new BytesWriter(expected));
+
+        Buffer actual = new Buffer();
+        BytesWriter bytesWriter = new BytesWriter(actual);
+        bytesWriter.beginRequest()
+                .writeMethodName("othermethod")
+                .writeName("abc").writeValue(1);
+        bytesWriter.reset();
+        writeRequestWithoutData(bytesWriter);
+
+        assertEquals(expected.readByteString(), actual.readByteString());
+    }
+
+    @Test
+    public void writeName_Writes_Encoded_Names_Like_String_Names() throws Exception {
+        Buffer expected = new Buffer();
+        writeRequestWithData(new BytesWriter(expected));
+
+        Buffer actual = new Buffer();
+        new BytesWriter(actual).beginRequest()
+                .writeMethodName("somemethod")
+                .writeEncodedName(EncodedName.of("long")).writeValue(1)
+                .writeEncodedName(EncodedName.of("boolean")).writeValue(true)
+                .writeEncodedName(EncodedName.of("string")).writeValue("something")
+                .writeEncodedName(EncodedName.of("float")).writeValue(2.3f)
+                .writeEncodedName(EncodedName.of("double")).writeValue(2.05d)
+                .writeEncodedName(EncodedName.of("negative integer")).writeValue(-1L)
+                .writeData(DataSource.create(ByteString.encodeUtf8("abc")))
+                .endRequest();
+
+        assertEquals(expected.readByteString(), actual.readByteString());
+    }
+
+    @Test
+    public void writeTemplate_Writes_Method_Name_And_Parameters() throws Exception {
+        RequestTemplate template = RequestTemplate.create("somemethod")
+                .parameter("long", 1)
+                .parameter("boolean", true)
+                .parameter("string", "something")
+                .build();
+        Buffer expected = new Buffer();
+        writeRequestWithoutData(new BytesWriter(expected));
+
+        Buffer actual = new Buffer();
+        BytesWriter bytesWriter = new BytesWriter(actual);
+        for (int i = 0; i < 2; i++) {
+            bytesWriter.beginRequest()
+                    .writeTemplate(template)
+                    .writeName("float").writeValue(2.3f)
+                    .writeName("double").writeValue(2.05d)
+                    .writeName("negative integer").writeValue(-1L)
+                    .endRequest();
+            assertEquals(expected.snapshot(), actual.readByteString());
+        }
+    }
+
+    @Test
+    public void writeTemplate_Throws_If_Method_Name_Already_Written() throws Exception {
+        exception.expect(IllegalStateException.class);
+        writer.beginRequest()
+                .writeMethodName("somemethod")
+                .writeTemplate(RequestTemplate.create("somemethod").build());
+    }
+
+    @Test
+    public void requestTemplate_Keeps_Parameters_Added_Before_An_Invalid_One() throws Exception {
+        RequestTemplate.Builder builder = RequestTemplate.create("somemethod")
+                .parameter("long", 1);
+        try {
+            builder.parameter("invalid", new Object());
+        } catch (IllegalArgumentException ignored) {
+        }
+        RequestTemplate template = builder.build();
+        assertEquals(1, template.parameterCount());
+
+        Buffer expected = new Buffer();
+        new BytesWriter(expected).beginRequest()
+                .writeMethodName("somemethod")
+                .writeName("long").writeValue(1)
+                .endRequest();
+        Buffer actual = new Buffer();
+        new BytesWriter(actual).beginRequest()
+                .writeTemplate(template)
+                .endRequest();
+        assertEquals(expected.readByteString(), actual.readByteString());
+    }
+
+    @Test
+    public void writeValue_Encodes_Strings_As_UTF8() throws Exception {
+        String value = "ascii, \u00e9\u00e8, \u20ac, \ud83d\ude00, unpaired \ud83d and \ude00";
+        Buffer actual = new Buffer();
+        new BytesWriter(actual).beginRequest()
+                .writeMethodName("somemethod")
+                .writeName("\u0438\u043c\u0435").writeValue(value)
+                .endRequest();
+
+        assertEquals(stringParameterRequest("somemethod", "\u0438\u043c\u0435", value), actual.readByteString());
+    }
+
+    @Test
+    public void endRequest_Writes_Requests_Close_To_Size_Limit() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            builder.append(i).append(',');
+        }
+        String ids = builder.toString();
+        Buffer actual = new Buffer();
+        BytesWriter bytesWriter = new BytesWriter(actual);
+        bytesWriter.beginRequest()
+                .writeMethodName("somemethod")
+                .writeName("ids").writeValue(ids)
+                .endRequest();
+        assertEquals(stringParameterRequest("somemethod", "ids", ids), actual.readByteString());
+
+        bytesWriter.beginRequest()
+                .writeMethodName("somemethod")
+                .writeName("ids").writeValue("1,2,3")
+                .endRequest();
+        assertEquals(stringParameterRequest("somemethod", "ids", "1,2,3"), actual.readByteString());
+    }
+
+    @Test
+    public void endRequest_Throws_If_Request_Larger_Than_Size_Limit() throws Exception {
+        char[] value = new char[65535];
+        Arrays.fill(value, 'a');
+        writer.beginRequest()
+                .writeMethodName("somemethod")
+                .writeName("value").writeValue(new String(value));
+        exception.expect(SerializationException.class);
+        writer.endRequest();
+    }
+
+    private static ByteString stringParameterRequest(String methodName, String name, String value) {
+        ByteString methodBytes = ByteString.encodeUtf8(methodName);
+        ByteString nameBytes = ByteString.encodeUtf8(name);
+        ByteString valueBytes = ByteString.encodeUtf8(value);
+        Buffer request = new Buffer();
+        request.writeShortLe(1 + methodBytes.size() + 1 + 1 + nameBytes.size() + 4 + valueBytes.size());
+        request.writeByte(methodBytes.size());
+        request.write(methodBytes);
+        request.writeByte(1);
+        request.writeByte(nameBytes.size());
+        request.write(nameBytes);
+        request.writeIntLe(valueBytes.size());
+        request.write(valueBytes);
+        return request.readByteString();
+    }
+
     private static void writeRequestWithoutData(ProtocolRequestWriter writer) throws IOException {
         writer.beginRequest()
                 .writeMethodName("somemethod")
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.protocol;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class FieldProjectionTest {
+
+    private static final ResponseBytesWriter MOCK_RESPONSE = ListFolderResponse.create(3);
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void of_Throws_On_Null_Argument() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        FieldProjection.of((String[]) null);
+    }
+
+    @Test
+    public void of_Throws_On_Null_Path() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        FieldProjection.of("result", null);
+    }
+
+    @Test
+    public void of_Throws_On_Empty_Path_Segments() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        FieldProjection.of("metadata..name");
+    }
+
+    @Test
+    public void paths_Returns_All_Paths() throws Exception {
+        FieldProjection projection = FieldProjection.of("metadata.name").plus("result");
+        assertEquals(Arrays.asList("metadata.name", "result"), projection.paths());
+        assertEquals(FieldProjection.of("metadata.name", "result"), projection);
+    }
+
+    @Test
+    public void apply_Exposes_Only_Projected_Members() throws Exception {
+        FieldProjection projection = FieldProjection.of("result", "metadata.name", "metadata.contents.fileid");
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("result", 0L);
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("name", "Documents");
+        List<Object> contents = new ArrayList<>();
+        for (long index = 0; index < 3; index++) {
+            contents.add(Collections.singletonMap("fileid", index));
+        }
+        metadata.put("contents", contents);
+        expected.put("metadata", metadata);
+
+        assertEquals(expected, readValue(projection.apply(arrayReader())));
+        assertEquals(expected, readValue(projection.apply(streamingReader())));
+    }
+
+    @Test
+    public void apply_Exposes_Whole_Values_Of_Path_Ends() throws Exception {
+        FieldProjection projection = FieldProjection.of("tags", "metadata.contents.fileid", "metadata");
+        Map<String, Object> fullResponse = asMap(readValue(arrayReader()));
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("metadata", fullResponse.get("metadata"));
+        expected.put("tags", Arrays.asList("a", "b"));
+
+        assertEquals(expected, readValue(projection.apply(arrayReader())));
+        assertEquals(expected, readValue(projection.apply(streamingReader())));
+    }
+
+    @Test
+    public void apply_Exposes_Empty_Objects_If_Nothing_Matches() throws Exception {
+        FieldProjection projection = FieldProjection.of("missing");
+        assertEquals(Collections.emptyMap(), readValue(projection.apply(arrayReader())));
+    }
+
+    @Test
+    public void selectName_Leaves_Unmatched_Names_Unread() throws Exception {
+        ProtocolReader reader = FieldProjection.of("result", "id").apply(arrayReader());
+        reader.beginObject();
+        assertTrue(reader.hasNext());
+        assertEquals(-1, reader.selectName(ProtocolReader.Options.of("id")));
+        assertEquals(TypeToken.STRING, reader.peek());
+        assertEquals(0, reader.selectName(ProtocolReader.Options.of("result")));
+        assertEquals(0L, reader.readNumber());
+        assertEquals(0, reader.selectName(ProtocolReader.Options.of("id")));
+        assertEquals(42L, reader.readNumber());
+        assertFalse(reader.hasNext());
+        reader.endObject();
+    }
+
+    @Test
+    public void skipValue_Skips_Projected_Names_And_Values() throws Exception {
+        ProtocolReader reader = FieldProjection.of("result", "id").apply(arrayReader());
+        reader.beginObject();
+        reader.skipValue();
+        reader.skipValue();
+        assertEquals("id", reader.readString());
+        assertEquals(42L, reader.readNumber());
+        assertFalse(reader.hasNext());
+        reader.endObject();
+    }
+
+    @Test
+    public void endObject_Skips_Remaining_Hidden_Members() throws Exception {
+        ProtocolReader reader = FieldProjection.of("result").apply(arrayReader());
+        reader.beginObject();
+        assertEquals("result", reader.readString());
+        assertEquals(0L, reader.readNumber());
+        reader.endObject();
+        assertEquals(ProtocolResponseReader.SCOPE_RESPONSE, reader.currentScope());
+    }
+
+    @Test
+    public void newPeekingReader_Keeps_Projection_State() throws Exception {
+        ProtocolReader reader = FieldProjection.of("metadata.name", "id").apply(arrayReader());
+        reader.beginObject();
+        assertEquals("metadata", reader.readString());
+
+        ProtocolReader peekingReader = reader.newPeekingReader();
+        peekingReader.beginObject();
+        assertEquals("name", peekingReader.readString());
+        assertEquals("Documents", peekingReader.readString());
+        assertFalse(peekingReader.hasNext());
+
+        reader.skipValue();
+        assertEquals("id", reader.readString());
+        assertEquals(42L, reader.readNumber());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void readValue_Reports_Only_Projected_Members() throws Exception {
+        FieldProjection projection = FieldProjection.of("result", "metadata.name", "tags");
+        List<String> expected = RecordingEventHandler.events(
+                "beginObject",
+                "key:result", "number:0",
+                "key:metadata", "beginObject", "key:name", "string:Documents", "endObject",
+                "key:tags", "beginArray", "string:a", "string:b", "endArray",
+                "endObject");
+
+        RecordingEventHandler handler = new RecordingEventHandler();
+        projection.apply(arrayReader()).readValue(handler);
+        assertEquals(expected, handler.events);
+
+        handler = new RecordingEventHandler();
+        projection.apply(streamingReader()).readValue(handler);
+        assertEquals(expected, handler.events);
+    }
+
+    private static ProtocolResponseReader arrayReader() throws IOException {
+        ProtocolResponseReader reader = new ArrayBytesReader(MOCK_RESPONSE.bytes().toByteArray());
+        reader.beginResponse();
+        return reader;
+    }
+
+    private static ProtocolResponseReader streamingReader() throws IOException {
+        ProtocolResponseReader reader = MOCK_RESPONSE.createReader();
+        reader.beginResponse();
+        return reader;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return (Map<String, Object>) value;
+    }
+
+    private static Object readValue(ProtocolReader reader) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                Map<String, Object> values = new LinkedHashMap<>();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    values.put(reader.readString(), readValue(reader));
+                }
+                reader.endObject();
+                return values;
+            case BEGIN_ARRAY:
+                List<Object> elements = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    elements.add(readValue(reader));
+                }
+                reader.endArray();
+                return elements;
+            case STRING:
+                return reader.readString();
+            case NUMBER:
+                return reader.readNumber();
+            case BOOLEAN:
+                return reader.readBoolean();
+            default:
+                throw new AssertionError("Unexpected token " + reader.peek());
+        }
+    }
+}
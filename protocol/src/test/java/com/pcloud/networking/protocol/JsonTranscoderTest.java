@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.protocol;
+
+import okio.Buffer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JsonTranscoderTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private Buffer response;
+    private Buffer json;
+
+    @Before
+    public void setUp() throws IOException {
+        response = new Buffer();
+        BytesResponseWriter writer = new BytesResponseWriter(response);
+        writer.beginResponse()
+                .beginObject()
+                .writeName("result").writeValue(0)
+                .writeName("name").writeValue("value")
+                .writeName("reused").writeValue("value")
+                .writeName("escaped").writeValue("\"quoted\"\\\n\t\u0001 ")
+                .writeName("unicode").writeValue("стойност")
+                .writeName("flags").beginArray().writeValue(true).writeValue(false).endArray()
+                .writeName("empty").beginObject().endObject()
+                .writeName("items").beginArray()
+                .beginObject().writeName("name").writeValue(Long.MAX_VALUE).endObject()
+                .beginArray().endArray()
+                .endArray()
+                .endObject()
+                .endResponse();
+        json = new Buffer();
+    }
+
+    @Test
+    public void transcode_Writes_Compact_Json() throws Exception {
+        ProtocolResponseReader reader = new BytesReader(response);
+        reader.beginResponse();
+        new JsonTranscoder().transcode(reader, json);
+
+        assertEquals("{\"result\":0,\"name\":\"value\",\"reused\":\"value\"," +
+                "\"escaped\":\"\\\"quoted\\\"\\\\\\n\\t\\u0001\\u2028\",\"unicode\":\"стойност\"," +
+                "\"flags\":[true,false],\"empty\":{},\"items\":[{\"name\":9223372036854775807},[]]}", json.readUtf8());
+        reader.endResponse();
+        assertTrue(response.exhausted());
+    }
+
+    @Test
+    public void transcode_Writes_Pretty_Printed_Json() throws Exception {
+        ProtocolResponseReader reader = new ArrayBytesReader(response.readByteArray());
+        reader.beginResponse();
+        reader.beginObject();
+        reader.skipValue();
+        reader.skipValue();
+        while (!"flags".equals(reader.readString())) {
+            reader.skipValue();
+        }
+        new JsonTranscoder(true).transcode(reader, json);
+        reader.skipValue();
+        new JsonTranscoder(true).transcode(reader, json);
+        reader.skipValue();
+        new JsonTranscoder(true).transcode(reader, json);
+
+        assertEquals("[\n  true,\n  false\n]" +
+                "{}" +
+                "[\n  {\n    \"name\": 9223372036854775807\n  },\n  []\n]", json.readUtf8());
+    }
+
+    @Test
+    public void transcode_Throws_On_Null_Reader() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        new JsonTranscoder().transcode(null, json);
+    }
+
+    @Test
+    public void transcode_Throws_On_Null_Sink() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        new JsonTranscoder().transcode(new BytesReader(response), null);
+    }
+}
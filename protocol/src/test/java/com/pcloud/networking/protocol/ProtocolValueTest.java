@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.pcloud.networking.protocol;
+
+import okio.Buffer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class ProtocolValueTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private ProtocolValue value;
+
+    @Before
+    public void setUp() throws IOException {
+        Buffer response = new Buffer();
+        new BytesResponseWriter(response)
+                .beginResponse()
+                .beginObject()
+                .writeName("result").writeValue(0)
+                .writeName("name").writeValue("value")
+                .writeName("flag").writeValue(true)
+                .writeName("empty").beginArray().endArray()
+                .writeName("items").beginArray()
+                .beginObject().writeName("name").writeValue(Long.MAX_VALUE).endObject()
+                .beginObject().writeName("name").writeValue("value").endObject()
+                .writeValue(false)
+                .endArray()
+                .writeName("last").writeValue(-1L)
+                .endObject()
+                .endResponse();
+        ProtocolResponseReader reader = new BytesReader(response);
+        reader.beginResponse();
+        value = ProtocolValue.read(reader);
+        reader.endResponse();
+    }
+
+    @Test
+    public void read_Builds_An_Equivalent_Tree() throws Exception {
+        assertTrue(value.isObject());
+        assertEquals(TypeToken.BEGIN_OBJECT, value.type());
+        assertEquals(6, value.size());
+        assertEquals(0L, value.get("result").asNumber());
+        assertEquals("value", value.get("name").asString());
+        assertTrue(value.get("flag").asBoolean());
+        assertEquals(0, value.get("empty").size());
+        assertEquals(-1L, value.get("last").asNumber());
+        assertNull(value.get("missing"));
+        assertFalse(value.has("missing"));
+
+        ProtocolValue items = value.get("items");
+        assertTrue(items.isArray());
+        assertEquals(3, items.size());
+        assertEquals(Long.MAX_VALUE, items.get(0).get("name").asNumber());
+        assertEquals("value", items.get(1).get("name").asString());
+        assertEquals(TypeToken.BOOLEAN, items.get(2).type());
+        assertFalse(items.get(2).asBoolean());
+    }
+
+    @Test
+    public void name_Returns_Member_Names_In_Order() throws Exception {
+        assertEquals("result", value.name(0));
+        assertEquals("items", value.name(4));
+        assertEquals("last", value.name(5));
+        assertEquals(-1L, value.get(5).asNumber());
+    }
+
+    @Test
+    public void toString_Describes_The_Tree() throws Exception {
+        assertEquals("{result=0, name=\"value\", flag=true, empty=[], " +
+                "items=[{name=9223372036854775807}, {name=\"value\"}, false], last=-1}", value.toString());
+    }
+
+    @Test
+    public void accessors_Throw_On_Type_Mismatch() throws Exception {
+        expectedException.expect(IllegalStateException.class);
+        value.get("name").asNumber();
+    }
+
+    @Test
+    public void get_Throws_On_Position_Out_Of_Bounds() throws Exception {
+        expectedException.expect(IndexOutOfBoundsException.class);
+        value.get("items").get(3);
+    }
+
+    @Test
+    public void read_Throws_On_Null_Reader() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        ProtocolValue.read(null);
+    }
+}
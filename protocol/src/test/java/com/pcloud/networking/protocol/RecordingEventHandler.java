@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.protocol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class RecordingEventHandler implements ProtocolEventHandler {
+
+    final List<String> events = new ArrayList<>();
+
+    @Override
+    public void onBeginObject() {
+        events.add("beginObject");
+    }
+
+    @Override
+    public void onEndObject() {
+        events.add("endObject");
+    }
+
+    @Override
+    public void onBeginArray() {
+        events.add("beginArray");
+    }
+
+    @Override
+    public void onEndArray() {
+        events.add("endArray");
+    }
+
+    @Override
+    public void onKey(String name) {
+        events.add("key:" + name);
+    }
+
+    @Override
+    public void onString(String value) {
+        events.add("string:" + value);
+    }
+
+    @Override
+    public void onNumber(long value) {
+        events.add("number:" + value);
+    }
+
+    @Override
+    public void onBoolean(boolean value) {
+        events.add("boolean:" + value);
+    }
+
+    static List<String> events(String... events) {
+        return Arrays.asList(events);
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.protocol;
+
+import okio.Buffer;
+import okio.ByteString;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.pcloud.networking.protocol.ResponseDecoder.Event;
+import static org.junit.Assert.*;
+
+public class ResponseDecoderTest {
+
+    private static final ByteString MOCK_DATA = ByteString.encodeUtf8("Some data bytes.");
+    private static final ByteString MOCK_RESPONSE = ListFolderResponse.create(10).bytes();
+    private static final ByteString MOCK_DATA_RESPONSE = new ResponseBytesWriter()
+            .beginObject()
+            .writeValue("result", 0L)
+            .writeValue("name", "data")
+            .setData(MOCK_DATA)
+            .endObject()
+            .bytes();
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void next_Returns_NEED_INPUT_Without_Input() throws Exception {
+        ResponseDecoder decoder = new ResponseDecoder();
+        assertEquals(Event.NEED_INPUT, decoder.next());
+        assertEquals(ProtocolReader.SCOPE_NONE, decoder.currentScope());
+    }
+
+    @Test
+    public void next_Returns_The_Same_Events_As_A_Reader() throws Exception {
+        ResponseDecoder decoder = new ResponseDecoder();
+        feed(decoder, MOCK_RESPONSE);
+        assertEquals(readerEvents(MOCK_RESPONSE), decode(decoder));
+        assertEquals(0L, decoder.bufferedByteCount());
+    }
+
+    @Test
+    public void next_Resumes_Decoding_With_Each_Fed_Byte() throws Exception {
+        ResponseDecoder decoder = new ResponseDecoder();
+        List<String> events = new ArrayList<>();
+        for (int index = 0; index < MOCK_RESPONSE.size(); index++) {
+            decoder.feed(new byte[]{MOCK_RESPONSE.getByte(index)}, 0, 1);
+            events.addAll(decode(decoder));
+        }
+        assertEquals(readerEvents(MOCK_RESPONSE), events);
+    }
+
+    @Test
+    public void next_Does_Not_Consume_Incomplete_Values() throws Exception {
+        ResponseDecoder decoder = new ResponseDecoder();
+        ByteString partialResponse = MOCK_RESPONSE.substring(0, Protocol.SIZE_RESPONSE_LENGTH + 3);
+        feed(decoder, partialResponse);
+        assertEquals(Event.BEGIN_RESPONSE, decoder.next());
+        assertEquals(MOCK_RESPONSE.size() - Protocol.SIZE_RESPONSE_LENGTH, decoder.responseLength());
+        assertEquals(Event.BEGIN_OBJECT, decoder.next());
+        assertEquals(ProtocolReader.SCOPE_OBJECT, decoder.currentScope());
+        long bufferedByteCount = decoder.bufferedByteCount();
+        assertEquals(Event.NEED_INPUT, decoder.next());
+        assertEquals(Event.NEED_INPUT, decoder.next());
+        assertEquals(bufferedByteCount, decoder.bufferedByteCount());
+    }
+
+    @Test
+    public void next_Decodes_Attached_Data_And_Following_Responses() throws Exception {
+        ResponseDecoder decoder = new ResponseDecoder();
+        feed(decoder, MOCK_DATA_RESPONSE);
+        feed(decoder, MOCK_RESPONSE);
+
+        List<String> expected = readerEvents(MOCK_DATA_RESPONSE);
+        expected.add(Event.DATA + ":" + MOCK_DATA.utf8());
+        expected.addAll(readerEvents(MOCK_RESPONSE));
+        assertEquals(expected, decode(decoder));
+    }
+
+    @Test
+    public void next_Reports_Data_In_Fed_Chunks() throws Exception {
+        ResponseDecoder decoder = new ResponseDecoder();
+        int responseSize = (int) MOCK_DATA_RESPONSE.size() - MOCK_DATA.size();
+        feed(decoder, MOCK_DATA_RESPONSE.substring(0, responseSize + 4));
+        Event event;
+        do {
+            event = decoder.next();
+            assertNotEquals(Event.NEED_INPUT, event);
+        } while (event != Event.END_RESPONSE);
+        assertEquals(MOCK_DATA.size(), decoder.dataContentLength());
+        assertEquals(Event.DATA, decoder.next());
+        assertEquals(MOCK_DATA.substring(0, 4), decoder.dataChunk());
+        assertEquals(ProtocolResponseReader.SCOPE_DATA, decoder.currentScope());
+        assertEquals(Event.NEED_INPUT, decoder.next());
+
+        feed(decoder, MOCK_DATA_RESPONSE.substring(responseSize + 4));
+        assertEquals(Event.DATA, decoder.next());
+        assertEquals(MOCK_DATA.substring(4), decoder.dataChunk());
+        assertEquals(Event.NEED_INPUT, decoder.next());
+        assertEquals(ProtocolReader.SCOPE_NONE, decoder.currentScope());
+    }
+
+    @Test
+    public void feed_Consumes_ByteBuffers() throws Exception {
+        ResponseDecoder decoder = new ResponseDecoder(new StringPool(16));
+        ByteBuffer buffer = ByteBuffer.wrap(MOCK_RESPONSE.toByteArray());
+        decoder.feed(buffer);
+        assertFalse(buffer.hasRemaining());
+        assertEquals(readerEvents(MOCK_RESPONSE), decode(decoder));
+    }
+
+    @Test
+    public void next_Throws_On_Unknown_Type() throws Exception {
+        ResponseDecoder decoder = new ResponseDecoder();
+        decoder.feed(new Buffer().writeIntLe(1).writeByte(99).readByteArray(), 0, 5);
+        assertEquals(Event.BEGIN_RESPONSE, decoder.next());
+        expectedException.expect(ProtocolException.class);
+        decoder.next();
+    }
+
+    @Test
+    public void next_Throws_On_Non_String_Member_Names() throws Exception {
+        ResponseDecoder decoder = new ResponseDecoder();
+        decoder.feed(new Buffer().writeIntLe(3)
+                .writeByte(Protocol.TYPE_BEGIN_OBJECT)
+                .writeByte(Protocol.TYPE_BOOLEAN_TRUE)
+                .writeByte(Protocol.TYPE_END_ARRAY_OBJECT)
+                .readByteArray(), 0, 7);
+        assertEquals(Event.BEGIN_RESPONSE, decoder.next());
+        assertEquals(Event.BEGIN_OBJECT, decoder.next());
+        expectedException.expect(ProtocolException.class);
+        decoder.next();
+    }
+
+    @Test
+    public void next_Throws_On_Reference_To_Unknown_String() throws Exception {
+        ResponseDecoder decoder = new ResponseDecoder();
+        decoder.feed(new Buffer().writeIntLe(3)
+                .writeByte(Protocol.TYPE_BEGIN_ARRAY)
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_REUSED_BEGIN)
+                .writeByte(Protocol.TYPE_END_ARRAY_OBJECT)
+                .readByteArray(), 0, 7);
+        assertEquals(Event.BEGIN_RESPONSE, decoder.next());
+        assertEquals(Event.BEGIN_ARRAY, decoder.next());
+        expectedException.expect(ProtocolException.class);
+        decoder.next();
+    }
+
+    @Test
+    public void stringValue_Throws_Before_Any_String_Is_Decoded() throws Exception {
+        expectedException.expect(IllegalStateException.class);
+        new ResponseDecoder().stringValue();
+    }
+
+    private static void feed(ResponseDecoder decoder, ByteString bytes) {
+        byte[] array = bytes.toByteArray();
+        decoder.feed(array, 0, array.length);
+    }
+
+    private static List<String> decode(ResponseDecoder decoder) throws IOException {
+        List<String> events = new ArrayList<>();
+        for (Event event = decoder.next(); event != Event.NEED_INPUT; event = decoder.next()) {
+            switch (event) {
+                case NAME:
+                case STRING:
+                    events.add(event + ":" + decoder.stringValue());
+                    break;
+                case NUMBER:
+                    events.add(event + ":" + decoder.numberValue());
+                    break;
+                case BOOLEAN:
+                    events.add(event + ":" + decoder.booleanValue());
+                    break;
+                case DATA:
+                    events.add(event + ":" + decoder.dataChunk().utf8());
+                    break;
+                default:
+                    events.add(event.toString());
+            }
+        }
+        return events;
+    }
+
+    private static List<String> readerEvents(ByteString response) throws IOException {
+        List<String> events = new ArrayList<>();
+        ProtocolResponseReader reader = new BytesReader(new Buffer().write(response));
+        reader.beginResponse();
+        events.add(Event.BEGIN_RESPONSE.toString());
+        readValue(reader, events);
+        reader.endResponse();
+        events.add(Event.END_RESPONSE.toString());
+        return events;
+    }
+
+    private static void readValue(ProtocolReader reader, List<String> events) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                events.add(Event.BEGIN_OBJECT.toString());
+                while (reader.hasNext()) {
+                    events.add(Event.NAME + ":" + reader.readString());
+                    readValue(reader, events);
+                }
+                reader.endObject();
+                events.add(Event.END_OBJECT.toString());
+                break;
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                events.add(Event.BEGIN_ARRAY.toString());
+                while (reader.hasNext()) {
+                    readValue(reader, events);
+                }
+                reader.endArray();
+                events.add(Event.END_ARRAY.toString());
+                break;
+            case STRING:
+                events.add(Event.STRING + ":" + reader.readString());
+                break;
+            case NUMBER:
+                events.add(Event.NUMBER + ":" + reader.readNumber());
+                break;
+            case BOOLEAN:
+                events.add(Event.BOOLEAN + ":" + reader.readBoolean());
+                break;
+            default:
+                throw new AssertionError("Unexpected token " + reader.peek());
+        }
+    }
+}
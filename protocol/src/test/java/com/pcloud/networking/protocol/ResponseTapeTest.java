@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.protocol;
+
+import okio.Buffer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.EOFException;
+import java.net.ProtocolException;
+
+import static org.junit.Assert.*;
+
+public class ResponseTapeTest {
+
+    private static final ResponseBytesWriter MOCK_RESPONSE = ListFolderResponse.create(100);
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void scan_Throws_On_Null_Argument() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        ResponseTape.scan(null);
+    }
+
+    @Test
+    public void scan_Throws_On_Truncated_Response() throws Exception {
+        byte[] response = MOCK_RESPONSE.bytes().toByteArray();
+        expectedException.expect(EOFException.class);
+        ResponseTape.scan(response, 0, response.length - 1);
+    }
+
+    @Test
+    public void scan_Throws_On_Unknown_Type() throws Exception {
+        byte[] response = new Buffer().writeIntLe(1).writeByte(99).readByteArray();
+        expectedException.expect(ProtocolException.class);
+        ResponseTape.scan(response);
+    }
+
+    @Test
+    public void scan_Throws_On_Reference_To_Unknown_String() throws Exception {
+        byte[] response = new Buffer()
+                .writeIntLe(3)
+                .writeByte(Protocol.TYPE_BEGIN_ARRAY)
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_REUSED_BEGIN)
+                .writeByte(Protocol.TYPE_END_ARRAY_OBJECT)
+                .readByteArray();
+        expectedException.expect(ProtocolException.class);
+        ResponseTape.scan(response);
+    }
+
+    @Test
+    public void scan_Records_Response_Length() throws Exception {
+        byte[] response = MOCK_RESPONSE.bytes().toByteArray();
+        ResponseTape tape = ResponseTape.scan(response);
+        assertEquals(response.length - 4L, tape.responseLength());
+        assertEquals(ProtocolResponseReader.UNKNOWN_SIZE, tape.dataContentLength());
+    }
+
+    @Test
+    public void get_Returns_Object_Members() throws Exception {
+        ResponseTape tape = ResponseTape.scan(MOCK_RESPONSE.bytes().toByteArray());
+        int root = tape.root();
+        assertEquals(TypeToken.BEGIN_OBJECT, tape.type(root));
+        assertEquals(0L, tape.readNumber(tape.get(root, "result")));
+        assertEquals(ListFolderResponse.ID, tape.readNumber(tape.get(root, "id")));
+
+        int metadata = tape.get(root, "metadata");
+        assertEquals(TypeToken.BEGIN_OBJECT, tape.type(metadata));
+        assertEquals(ListFolderResponse.FOLDER_NAME, tape.readString(tape.get(metadata, "name")));
+        assertTrue(tape.readBoolean(tape.get(metadata, "isfolder")));
+        assertEquals(-1, tape.get(metadata, "missing"));
+        assertEquals(-1, tape.get(root, "name"));
+    }
+
+    @Test
+    public void element_Returns_Array_Elements() throws Exception {
+        ResponseTape tape = ResponseTape.scan(MOCK_RESPONSE.bytes().toByteArray());
+        int contents = tape.get(tape.get(tape.root(), "metadata"), "contents");
+        assertEquals(TypeToken.BEGIN_ARRAY, tape.type(contents));
+        assertEquals(100, tape.childCount(contents));
+
+        int last = tape.element(contents, 99);
+        assertEquals(ListFolderResponse.fileName(99), tape.readString(tape.get(last, "name")));
+        assertEquals(ListFolderResponse.fileSize(99), tape.readNumber(tape.get(last, "size")));
+        assertFalse(tape.readBoolean(tape.get(last, "thumb")));
+        assertEquals(5, tape.childCount(last));
+
+        assertEquals(-1, tape.element(contents, 100));
+        assertEquals(-1, tape.element(contents, -1));
+    }
+
+    @Test
+    public void next_Skips_Whole_Containers() throws Exception {
+        ResponseTape tape = ResponseTape.scan(MOCK_RESPONSE.bytes().toByteArray());
+        int root = tape.root();
+        assertEquals(tape.size(), tape.next(root));
+
+        int metadata = tape.get(root, "metadata");
+        int tagsKey = tape.next(metadata);
+        assertEquals("tags", tape.readString(tagsKey));
+        assertEquals(TypeToken.BEGIN_ARRAY, tape.type(tagsKey + 1));
+    }
+
+    @Test
+    public void readString_Resolves_Reused_Strings() throws Exception {
+        // {"name": "name", "type": "name"}, with the repeated values encoded as string cache references.
+        byte[] response = writeResponse(new Buffer()
+                .writeByte(Protocol.TYPE_BEGIN_OBJECT)
+                .writeByte(Protocol.TYPE_STRING_START).writeByte(4).writeUtf8("name")
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_REUSED_BEGIN)
+                .writeByte(Protocol.TYPE_STRING_COMPRESSED_START + 4).writeUtf8("type")
+                .writeByte(Protocol.TYPE_STRING_REUSED_START).writeByte(0)
+                .writeByte(Protocol.TYPE_END_ARRAY_OBJECT));
+        ResponseTape tape = ResponseTape.scan(response);
+        int root = tape.root();
+        assertEquals("name", tape.readString(tape.get(root, "name")));
+        assertEquals("name", tape.readString(tape.get(root, "type")));
+        assertEquals("name", tape.readString(root + 2));
+    }
+
+    @Test
+    public void get_Accepts_Empty_Objects_Sent_As_Arrays() throws Exception {
+        byte[] response = writeResponse(new Buffer()
+                .writeByte(Protocol.TYPE_BEGIN_ARRAY)
+                .writeByte(Protocol.TYPE_END_ARRAY_OBJECT));
+        ResponseTape tape = ResponseTape.scan(response);
+        assertEquals(-1, tape.get(tape.root(), "name"));
+    }
+
+    @Test
+    public void get_Throws_On_Non_Object_Value() throws Exception {
+        ResponseTape tape = ResponseTape.scan(MOCK_RESPONSE.bytes().toByteArray());
+        int result = tape.get(tape.root(), "result");
+        expectedException.expect(SerializationException.class);
+        tape.get(result, "name");
+    }
+
+    @Test
+    public void readString_Throws_On_Wrong_Type() throws Exception {
+        ResponseTape tape = ResponseTape.scan(MOCK_RESPONSE.bytes().toByteArray());
+        expectedException.expect(SerializationException.class);
+        tape.readString(tape.get(tape.root(), "result"));
+    }
+
+    @Test
+    public void type_Throws_On_Index_Outside_Tape() throws Exception {
+        ResponseTape tape = ResponseTape.scan(MOCK_RESPONSE.bytes().toByteArray());
+        expectedException.expect(IndexOutOfBoundsException.class);
+        tape.type(tape.size());
+    }
+
+    @Test
+    public void dataContentLength_Returns_Length_Of_Attached_Data() throws Exception {
+        byte[] response = new ResponseBytesWriter()
+                .beginObject()
+                .writeValue("result", 0L)
+                .setData(okio.ByteString.encodeUtf8("some data"))
+                .endObject()
+                .bytes().toByteArray();
+        ResponseTape tape = ResponseTape.scan(response);
+        assertEquals(9L, tape.dataContentLength());
+    }
+
+    private static byte[] writeResponse(Buffer values) {
+        Buffer response = new Buffer().writeIntLe((int) values.size());
+        response.write(values, values.size());
+        return response.readByteArray();
+    }
+}
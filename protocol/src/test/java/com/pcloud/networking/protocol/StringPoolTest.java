@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2020 pCloud AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pcloud.networking.protocol;
+
+import okio.Buffer;
+import okio.ByteString;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+public class StringPoolTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void constructor_Throws_On_Non_Positive_Capacity() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        new StringPool(0);
+    }
+
+    @Test
+    public void constructor_Throws_On_Non_Positive_Max_Length() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        new StringPool(16, 0);
+    }
+
+    @Test
+    public void capacity_Is_Rounded_Up_To_Power_Of_Two() throws Exception {
+        assertEquals(16, new StringPool(9).capacity());
+        assertEquals(16, new StringPool(16).capacity());
+    }
+
+    @Test
+    public void get_Returns_Same_Instance_For_Equal_Bytes() throws Exception {
+        StringPool pool = new StringPool(16, 64, true);
+        byte[] bytes = "some value".getBytes(UTF_8);
+        String first = pool.get(bytes, 0, bytes.length);
+        String second = pool.get(bytes.clone(), 0, bytes.length);
+        String third = pool.get(ByteString.of(bytes));
+        assertEquals("some value", first);
+        assertSame(first, second);
+        assertSame(first, third);
+        assertEquals(1, pool.missCount());
+        assertEquals(2, pool.hitCount());
+    }
+
+    @Test
+    public void get_Does_Not_Count_Lookups_By_Default() throws Exception {
+        StringPool pool = new StringPool(16);
+        pool.get(utf8("value"));
+        pool.get(utf8("value"));
+        assertEquals(0, pool.missCount());
+        assertEquals(0, pool.hitCount());
+    }
+
+    @Test
+    public void get_Decodes_Array_Ranges() throws Exception {
+        StringPool pool = new StringPool(16);
+        byte[] bytes = "prefix-файл-suffix".getBytes(UTF_8);
+        String value = pool.get(bytes, 7, 8);
+        assertEquals("файл", value);
+        assertSame(value, pool.get(ByteString.encodeUtf8("файл")));
+    }
+
+    @Test
+    public void get_Never_Holds_More_Than_Capacity() throws Exception {
+        StringPool pool = new StringPool(1, 64, true);
+        String first = pool.get(utf8("first"));
+        pool.get(utf8("second"));
+        assertNotSame(first, pool.get(utf8("first")));
+        assertEquals(3, pool.missCount());
+    }
+
+    @Test
+    public void clear_Removes_Pooled_Strings() throws Exception {
+        StringPool pool = new StringPool(16);
+        String first = pool.get(utf8("value"));
+        pool.clear();
+        assertNotSame(first, pool.get(utf8("value")));
+    }
+
+    @Test
+    public void readers_Share_Strings_Across_Responses() throws Exception {
+        StringPool pool = new StringPool(64, 64, true);
+        ResponseBytesWriter response = new ResponseBytesWriter()
+                .beginObject()
+                .writeValue("contenttype", "image/jpeg")
+                .endObject();
+
+        ProtocolResponseReader first = new BytesReader(new Buffer().write(response.bytes()), pool);
+        first.beginResponse();
+        first.beginObject();
+        String firstName = first.readString();
+        String firstValue = first.readString();
+
+        ProtocolResponseReader second = new ArrayBytesReader(response.bytes().toByteArray(), 0,
+                (int) response.bytes().size(), pool);
+        second.beginResponse();
+        second.beginObject();
+        assertSame(firstName, second.readString());
+        assertSame(firstValue, second.readString());
+        assertEquals("image/jpeg", firstValue);
+        assertEquals(2, pool.hitCount());
+    }
+
+    @Test
+    public void readers_Do_Not_Pool_Strings_Above_Max_Length() throws Exception {
+        StringPool pool = new StringPool(64, 4, true);
+        ResponseBytesWriter response = new ResponseBytesWriter()
+                .beginObject()
+                .writeValue("name", "longer value")
+                .endObject();
+
+        ProtocolResponseReader reader = new BytesReader(new Buffer().write(response.bytes()), pool);
+        reader.beginResponse();
+        reader.beginObject();
+        assertEquals("name", reader.readString());
+        assertEquals("longer value", reader.readString());
+        assertEquals(1, pool.missCount());
+        assertEquals(0, pool.hitCount());
+    }
+
+    private static ByteString utf8(String value) {
+        // Not using ByteString.encodeUtf8(), it keeps a reference to the encoded String.
+        return ByteString.of(value.getBytes(UTF_8));
+    }
+}
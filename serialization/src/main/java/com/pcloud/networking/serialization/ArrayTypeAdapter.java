@@ -18,26 +18,56 @@ package com.pcloud.networking.serialization;
 
 import com.pcloud.networking.protocol.ProtocolWriter;
 import com.pcloud.networking.protocol.ProtocolReader;
+import com.pcloud.networking.protocol.ProtocolResponseWriter;
 
 import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 class ArrayTypeAdapter extends TypeAdapter<Object> {
 
     private final ObjectPool<StringJoinerProtocolWriter> joinerWriterPool = new ObjectPool<>(5);
 
+    private static final int NUMBER_CHUNK_SIZE = 64;
+
     private Class<?> elementClass;
     private TypeAdapter elementAdapter;
+    // Elements handled by the built-in adapters can be read in bulk.
+    private final boolean numberElements;
+    private final boolean stringElements;
 
     ArrayTypeAdapter(Class<?> elementClass, TypeAdapter elementAdapter) {
         this.elementClass = elementClass;
         this.elementAdapter = elementAdapter;
+        TypeAdapter<?> adapter = GuardedSerializationTypeAdapter.unwrap(elementAdapter);
+        this.numberElements = adapter == PrimitiveTypesAdapterFactory.LONG_ADAPTER;
+        this.stringElements = adapter == PrimitiveTypesAdapterFactory.STRING_ADAPTER;
     }
 
     @Override
     public Object deserialize(ProtocolReader reader) throws IOException {
+        if (numberElements) {
+            reader.beginArray();
+            long[] values = readNumbers(reader);
+            reader.endArray();
+            if (elementClass == long.class) {
+                return values;
+            }
+            Long[] boxedValues = new Long[values.length];
+            for (int i = 0; i < values.length; i++) {
+                boxedValues[i] = values[i];
+            }
+            return boxedValues;
+        } else if (stringElements) {
+            List<String> values = new ArrayList<>();
+            reader.beginArray();
+            reader.readStringArray(values);
+            reader.endArray();
+            return values.toArray(new String[values.size()]);
+        }
+
         List<Object> elements = new ArrayList<>();
         reader.beginArray();
         while (reader.hasNext()) {
@@ -51,6 +81,24 @@ class ArrayTypeAdapter extends TypeAdapter<Object> {
         return array;
     }
 
+    private static long[] readNumbers(ProtocolReader reader) throws IOException {
+        long[] values = new long[NUMBER_CHUNK_SIZE];
+        int size = reader.readNumberArray(values);
+        if (size == values.length) {
+            long[] chunk = new long[NUMBER_CHUNK_SIZE];
+            int count;
+            do {
+                count = reader.readNumberArray(chunk);
+                if (size + count > values.length) {
+                    values = Arrays.copyOf(values, values.length << 1);
+                }
+                System.arraycopy(chunk, 0, values, size, count);
+                size += count;
+            } while (count == chunk.length);
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public void serialize(ProtocolWriter writer, Object value) throws IOException {
@@ -76,6 +124,20 @@ class ArrayTypeAdapter extends TypeAdapter<Object> {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public void encode(ProtocolResponseWriter writer, Object value) throws IOException {
+        final int arrayLength = Array.getLength(value);
+        writer.beginArray();
+        for (int i = 0; i < arrayLength; i++) {
+            Object item = Array.get(value, i);
+            if (item != null) {
+                elementAdapter.encode(writer, item);
+            }
+        }
+        writer.endArray();
+    }
+
     @Override
     public String toString() {
         return "TypeAdapter[" + elementClass.getName() + "[]]";
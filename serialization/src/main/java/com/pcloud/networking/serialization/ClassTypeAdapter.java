@@ -16,7 +16,9 @@
 
 package com.pcloud.networking.serialization;
 
+import com.pcloud.networking.protocol.EncodedName;
 import com.pcloud.networking.protocol.ProtocolReader;
+import com.pcloud.networking.protocol.ProtocolResponseWriter;
 import com.pcloud.networking.protocol.ProtocolWriter;
 
 import java.io.IOException;
@@ -28,14 +30,29 @@ import java.util.Objects;
 class ClassTypeAdapter<T> extends TypeAdapter<T> {
     private final ClassFactory<T> classFactory;
     private final Map<String, Binding> nameToBindingMap;
+    private final Binding[] bindings;
+    private final ProtocolReader.Options bindingNames;
 
     ClassTypeAdapter(ClassFactory<T> classFactory, Map<String, Binding> fieldsMap) {
         this.classFactory = classFactory;
         this.nameToBindingMap = fieldsMap;
+        this.bindings = new Binding[fieldsMap.size()];
+        String[] names = new String[bindings.length];
+        int index = 0;
+        for (Map.Entry<String, Binding> entry : fieldsMap.entrySet()) {
+            names[index] = entry.getKey();
+            bindings[index] = entry.getValue();
+            index++;
+        }
+        this.bindingNames = ProtocolReader.Options.of(names);
     }
 
     @Override
-    public T deserialize(ProtocolReader reader) throws IOException {
+    public T deserialize(ProtocolReader source) throws IOException {
+        // Members are only read inside the object's own begin/end pair, in the order they come in the response,
+        // the per-value scope checks of the source are not needed. Sources which have to check something
+        // else on every read, like a channel-backed reader, return themselves instead.
+        ProtocolReader reader = source.uncheckedReader();
         T result;
         try {
             result = classFactory.newInstance();
@@ -53,11 +70,12 @@ class ClassTypeAdapter<T> extends TypeAdapter<T> {
         try {
             reader.beginObject();
             while (reader.hasNext()) {
-                String name = reader.readString();
-                Binding binding = nameToBindingMap.get(name);
-                if (binding != null) {
-                    binding.read(reader, result);
+                int index = reader.selectName(bindingNames);
+                if (index != -1) {
+                    bindings[index].read(reader, result);
                 } else {
+                    // Skip the unknown name and its value.
+                    reader.skipValue();
                     reader.skipValue();
                 }
             }
@@ -79,6 +97,19 @@ class ClassTypeAdapter<T> extends TypeAdapter<T> {
         }
     }
 
+    @Override
+    public void encode(ProtocolResponseWriter writer, T value) throws IOException {
+        try {
+            writer.beginObject();
+            for (Binding binding : bindings) {
+                binding.encode(writer, value);
+            }
+            writer.endObject();
+        } catch (IllegalAccessException e) {
+            throw new AssertionError();
+        }
+    }
+
     @Override
     public String toString() {
         return "TypeAdapter[" + classFactory.getClass().getName() + "]";
@@ -86,10 +117,12 @@ class ClassTypeAdapter<T> extends TypeAdapter<T> {
 
     abstract static class Binding {
         final String name;
+        final EncodedName encodedName;
         final Field field;
 
         Binding(String name, Field field) {
             this.name = name;
+            this.encodedName = EncodedName.of(name);
             this.field = field;
         }
 
@@ -97,6 +130,10 @@ class ClassTypeAdapter<T> extends TypeAdapter<T> {
 
         abstract void write(ProtocolWriter writer, Object target) throws IllegalAccessException, IOException;
 
+        void encode(ProtocolResponseWriter writer, Object target) throws IllegalAccessException, IOException {
+            write(writer, target);
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -17,6 +17,7 @@
 package com.pcloud.networking.serialization;
 
 import com.pcloud.networking.protocol.ProtocolReader;
+import com.pcloud.networking.protocol.ProtocolResponseWriter;
 import com.pcloud.networking.protocol.ProtocolWriter;
 import com.pcloud.networking.protocol.SerializationException;
 import com.pcloud.utils.Types;
@@ -192,10 +193,21 @@ class ClassTypeAdapterFactory implements TypeAdapterFactory {
         void write(ProtocolWriter writer, Object target) throws IllegalAccessException, IOException {
             T fieldValue = (T) field.get(target);
             if (fieldValue != null) {
-                writer.writeName(name);
+                writer.writeEncodedName(encodedName);
                 adapter.serialize(writer, fieldValue);
             }
         }
+
+        @SuppressWarnings("unchecked")
+        //Field's values are of type T.
+        @Override
+        void encode(ProtocolResponseWriter writer, Object target) throws IllegalAccessException, IOException {
+            T fieldValue = (T) field.get(target);
+            if (fieldValue != null) {
+                writer.writeEncodedName(encodedName);
+                adapter.encode(writer, fieldValue);
+            }
+        }
     }
 
     private static class BooleanBinding extends ClassTypeAdapter.Binding {
@@ -212,7 +224,7 @@ class ClassTypeAdapterFactory implements TypeAdapterFactory {
         @Override
         void write(ProtocolWriter writer, Object target) throws IllegalAccessException, IOException {
             boolean fieldValue = field.getBoolean(target);
-            writer.writeName(name);
+            writer.writeEncodedName(encodedName);
             writer.writeValue(fieldValue);
         }
     }
@@ -231,7 +243,7 @@ class ClassTypeAdapterFactory implements TypeAdapterFactory {
         @Override
         void write(ProtocolWriter writer, Object target) throws IllegalAccessException, IOException {
             byte fieldValue = field.getByte(target);
-            writer.writeName(name);
+            writer.writeEncodedName(encodedName);
             writer.writeValue(fieldValue);
         }
     }
@@ -250,7 +262,7 @@ class ClassTypeAdapterFactory implements TypeAdapterFactory {
         @Override
         void write(ProtocolWriter writer, Object target) throws IllegalAccessException, IOException {
             char fieldValue = field.getChar(target);
-            writer.writeName(name);
+            writer.writeEncodedName(encodedName);
             writer.writeValue(fieldValue);
         }
     }
@@ -269,7 +281,7 @@ class ClassTypeAdapterFactory implements TypeAdapterFactory {
         @Override
         void write(ProtocolWriter writer, Object target) throws IllegalAccessException, IOException {
             short fieldValue = field.getShort(target);
-            writer.writeName(name);
+            writer.writeEncodedName(encodedName);
             writer.writeValue(fieldValue);
         }
     }
@@ -293,7 +305,7 @@ class ClassTypeAdapterFactory implements TypeAdapterFactory {
         @Override
         void write(ProtocolWriter writer, Object target) throws IllegalAccessException, IOException {
             double fieldValue = field.getDouble(target);
-            writer.writeName(name);
+            writer.writeEncodedName(encodedName);
             writer.writeValue(fieldValue);
         }
     }
@@ -317,7 +329,7 @@ class ClassTypeAdapterFactory implements TypeAdapterFactory {
         @Override
         void write(ProtocolWriter writer, Object target) throws IllegalAccessException, IOException {
             float fieldValue = field.getFloat(target);
-            writer.writeName(name);
+            writer.writeEncodedName(encodedName);
             writer.writeValue(fieldValue);
         }
     }
@@ -336,7 +348,7 @@ class ClassTypeAdapterFactory implements TypeAdapterFactory {
         @Override
         void write(ProtocolWriter writer, Object target) throws IllegalAccessException, IOException {
             int fieldValue = field.getInt(target);
-            writer.writeName(name);
+            writer.writeEncodedName(encodedName);
             writer.writeValue(fieldValue);
         }
     }
@@ -355,7 +367,7 @@ class ClassTypeAdapterFactory implements TypeAdapterFactory {
         @Override
         void write(ProtocolWriter writer, Object target) throws IllegalAccessException, IOException {
             long fieldValue = field.getLong(target);
-            writer.writeName(name);
+            writer.writeEncodedName(encodedName);
             writer.writeValue(fieldValue);
         }
     }
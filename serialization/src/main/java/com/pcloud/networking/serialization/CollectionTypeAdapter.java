@@ -18,6 +18,7 @@ package com.pcloud.networking.serialization;
 
 import com.pcloud.networking.protocol.ProtocolWriter;
 import com.pcloud.networking.protocol.ProtocolReader;
+import com.pcloud.networking.protocol.ProtocolResponseWriter;
 
 import java.io.IOException;
 import java.util.Collection;
@@ -27,16 +28,36 @@ abstract class CollectionTypeAdapter<T extends Collection<E>, E> extends TypeAda
     private TypeAdapter<E> elementAdapter;
     private final ObjectPool<StringJoinerProtocolWriter> joinerWriterPool = new ObjectPool<>(5);
 
+    // Elements handled by the built-in adapters can be read in bulk.
+    private final boolean numberElements;
+    private final boolean stringElements;
+
     CollectionTypeAdapter(TypeAdapter<E> elementAdapter) {
         this.elementAdapter = elementAdapter;
+        TypeAdapter<?> adapter = GuardedSerializationTypeAdapter.unwrap(elementAdapter);
+        this.numberElements = adapter == PrimitiveTypesAdapterFactory.LONG_ADAPTER;
+        this.stringElements = adapter == PrimitiveTypesAdapterFactory.STRING_ADAPTER;
     }
 
+    @SuppressWarnings("unchecked")
     @Override
     public T deserialize(ProtocolReader reader) throws IOException {
         T container = instantiateCollection();
         reader.beginArray();
-        while (reader.hasNext()) {
-            container.add(elementAdapter.deserialize(reader));
+        if (numberElements) {
+            final Collection<Long> numbers = (Collection<Long>) container;
+            reader.readNumbers(new ProtocolReader.NumberConsumer() {
+                @Override
+                public void accept(long value) {
+                    numbers.add(value);
+                }
+            });
+        } else if (stringElements) {
+            reader.readStringArray((Collection<String>) container);
+        } else {
+            while (reader.hasNext()) {
+                container.add(elementAdapter.deserialize(reader));
+            }
         }
         reader.endArray();
         return container;
@@ -65,5 +86,16 @@ abstract class CollectionTypeAdapter<T extends Collection<E>, E> extends TypeAda
         }
     }
 
+    @Override
+    public void encode(ProtocolResponseWriter writer, T value) throws IOException {
+        writer.beginArray();
+        for (E item : value) {
+            if (item != null) {
+                elementAdapter.encode(writer, item);
+            }
+        }
+        writer.endArray();
+    }
+
     protected abstract T instantiateCollection();
 }
@@ -29,13 +29,16 @@ class EnumTypeAdapter<T extends Enum<T>> extends TypeAdapter<T> {
     private final Class<T> enumType;
     private final Map<String, T> nameToConstantMap;
     private final Map<T, String> constantToNameMap;
+    private final T[] constants;
+    private final ProtocolReader.Options constantNames;
 
     EnumTypeAdapter(Class<T> enumType) {
         this.enumType = enumType;
         try {
-            T[] constants = enumType.getEnumConstants();
+            this.constants = enumType.getEnumConstants();
             this.nameToConstantMap = new HashMap<>(constants.length);
             this.constantToNameMap = new HashMap<>(constants.length);
+            String[] names = new String[constants.length];
             for (int i = 0; i < constants.length; i++) {
                 T constant = constants[i];
                 ParameterValue annotation = enumType.getField(constant.name()).getAnnotation(ParameterValue.class);
@@ -48,7 +51,9 @@ class EnumTypeAdapter<T extends Enum<T>> extends TypeAdapter<T> {
                             "'" + name + "'.");
                 }
                 constantToNameMap.put(constant, name);
+                names[i] = name;
             }
+            this.constantNames = ProtocolReader.Options.of(names);
         } catch (NoSuchFieldException e) {
             throw new AssertionError("Missing field in " + enumType.getName(), e);
         }
@@ -63,6 +68,10 @@ class EnumTypeAdapter<T extends Enum<T>> extends TypeAdapter<T> {
                 name = String.valueOf(reader.readNumber());
                 break;
             case STRING:
+                int index = reader.selectName(constantNames);
+                if (index != -1) {
+                    return constants[index];
+                }
                 name = reader.readString();
                 break;
             default:
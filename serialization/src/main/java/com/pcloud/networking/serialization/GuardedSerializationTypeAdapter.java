@@ -16,7 +16,9 @@
 
 package com.pcloud.networking.serialization;
 
+import com.pcloud.networking.protocol.EncodedName;
 import com.pcloud.networking.protocol.ProtocolReader;
+import com.pcloud.networking.protocol.ProtocolResponseWriter;
 import com.pcloud.networking.protocol.ProtocolWriter;
 import com.pcloud.networking.protocol.SerializationException;
 
@@ -73,6 +75,17 @@ public class GuardedSerializationTypeAdapter<T> extends TypeAdapter<T> {
         }
     }
 
+    @Override
+    public void encode(ProtocolResponseWriter writer, T value) throws IOException {
+        // Encoded values keep their structure, there's nothing to guard against.
+        delegate.encode(writer, value);
+    }
+
+    static TypeAdapter<?> unwrap(TypeAdapter<?> adapter) {
+        return adapter instanceof GuardedSerializationTypeAdapter ?
+                ((GuardedSerializationTypeAdapter<?>) adapter).delegate : adapter;
+    }
+
     private static class NotSerializedToAValueException extends SerializationException {
 
         private NotSerializedToAValueException() {
@@ -97,6 +110,11 @@ public class GuardedSerializationTypeAdapter<T> extends TypeAdapter<T> {
             throw new NotSerializedToAValueException();
         }
 
+        @Override
+        public ProtocolWriter writeEncodedName(EncodedName name) throws IOException {
+            throw new NotSerializedToAValueException();
+        }
+
         @Override
         public ProtocolWriter writeValue(Object value) throws IOException {
             delegate.writeValue(value);
@@ -18,6 +18,7 @@ package com.pcloud.networking.serialization;
 
 import com.pcloud.networking.protocol.ProtocolWriter;
 import com.pcloud.networking.protocol.ProtocolReader;
+import com.pcloud.networking.protocol.ProtocolResponseWriter;
 
 import java.io.IOException;
 import java.util.Map;
@@ -48,5 +49,21 @@ abstract class MapTypeAdapter<K, V> extends TypeAdapter<Map<K, V>> {
         throw new UnserializableTypeException(value.getClass());
     }
 
+    @Override
+    public void encode(ProtocolResponseWriter writer, Map<K, V> value) throws IOException {
+        // Keys are read as member names, write them in their single value form.
+        StringJoinerProtocolWriter keyWriter = new StringJoinerProtocolWriter(",");
+        writer.beginObject();
+        for (Map.Entry<K, V> entry : value.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                keyAdapter.serialize(keyWriter, entry.getKey());
+                writer.writeName(keyWriter.result());
+                keyWriter.reset();
+                valueAdapter.encode(writer, entry.getValue());
+            }
+        }
+        writer.endObject();
+    }
+
     protected abstract Map<K, V> instantiateCollection();
 }
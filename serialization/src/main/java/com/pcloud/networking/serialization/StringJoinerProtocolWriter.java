@@ -16,6 +16,7 @@
 
 package com.pcloud.networking.serialization;
 
+import com.pcloud.networking.protocol.EncodedName;
 import com.pcloud.networking.protocol.ProtocolWriter;
 import com.pcloud.networking.protocol.SerializationException;
 
@@ -52,6 +53,11 @@ class StringJoinerProtocolWriter implements ProtocolWriter {
         throw new SerializationException("Object must serialize to a single value.");
     }
 
+    @Override
+    public ProtocolWriter writeEncodedName(EncodedName name) throws IOException {
+        throw new SerializationException("Object must serialize to a single value.");
+    }
+
     @Override
     public ProtocolWriter writeValue(Object value) throws IOException {
         if (value == null) {
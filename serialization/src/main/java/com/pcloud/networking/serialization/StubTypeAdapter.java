@@ -17,6 +17,7 @@
 package com.pcloud.networking.serialization;
 
 import com.pcloud.networking.protocol.ProtocolReader;
+import com.pcloud.networking.protocol.ProtocolResponseWriter;
 import com.pcloud.networking.protocol.ProtocolWriter;
 
 import java.io.IOException;
@@ -57,4 +58,12 @@ class StubTypeAdapter<T> extends TypeAdapter<T> {
         }
         delegate.serialize(writer, value);
     }
+
+    @Override
+    public void encode(ProtocolResponseWriter writer, T value) throws IOException {
+        if (delegate == null) {
+            throw new IllegalStateException("Type adapter isn't set");
+        }
+        delegate.encode(writer, value);
+    }
 }
@@ -16,8 +16,10 @@
 
 package com.pcloud.networking.serialization;
 
+import com.pcloud.networking.protocol.ProtocolResponseWriter;
 import com.pcloud.utils.Types;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -145,6 +147,36 @@ public class Transformer {
         throw new IllegalStateException("Cannot create an adapter for type '" + type + "'.");
     }
 
+    /**
+     * Encodes an object as a single response in the binary response format
+     * <p>
+     * The object is written with the {@linkplain TypeAdapter#encode(ProtocolResponseWriter, Object)} method
+     * of the adapter for the provided type, between a {@linkplain ProtocolResponseWriter#beginResponse()}
+     * and a {@linkplain ProtocolResponseWriter#endResponse()} call.
+     * The response can be read back with the {@linkplain TypeAdapter#deserialize} method of the same adapter.
+     *
+     * @param writer A {@linkplain ProtocolResponseWriter} to write the response into
+     * @param type   A {@linkplain Type} representing the type of data
+     * @param value  A concrete java implementation of the data type to be encoded
+     * @param <T>    The concrete java representation of the data type
+     * @throws IOException              on failed IO operations
+     * @throws IllegalArgumentException on a null {@linkplain ProtocolResponseWriter} or {@linkplain Type} argument
+     * @throws IllegalStateException    if it is not possible to create an adapter for a given type
+     */
+    public <T> void encode(ProtocolResponseWriter writer, Type type, T value) throws IOException {
+        if (writer == null) {
+            throw new IllegalArgumentException("'writer' argument cannot be null.");
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("'type' argument cannot be null.");
+        }
+
+        TypeAdapter<T> adapter = getTypeAdapter(type);
+        writer.beginResponse();
+        adapter.encode(writer, value);
+        writer.endResponse();
+    }
+
     /**
      * Create a new instance of the {@linkplain Builder}
      * <p>
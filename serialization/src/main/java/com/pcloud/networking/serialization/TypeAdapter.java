@@ -17,6 +17,7 @@
 package com.pcloud.networking.serialization;
 
 import com.pcloud.networking.protocol.ProtocolReader;
+import com.pcloud.networking.protocol.ProtocolResponseWriter;
 import com.pcloud.networking.protocol.ProtocolWriter;
 
 import java.io.IOException;
@@ -47,4 +48,21 @@ public abstract class TypeAdapter<T> {
      * @throws IOException on failed IO operations
      */
     public abstract void serialize(ProtocolWriter writer, T value) throws IOException;
+
+    /**
+     * Encodes an object in the binary response format and writes it to a {@linkplain ProtocolResponseWriter}
+     * <p>
+     * Unlike {@linkplain #serialize(ProtocolWriter, Object)}, which produces request parameters, the output keeps the
+     * structure expected by {@linkplain #deserialize(ProtocolReader)} and can be read back with it.
+     * <p>
+     * The default implementation calls {@linkplain #serialize(ProtocolWriter, Object)}, which is enough for adapters
+     * that convert objects to a single value. Adapters of objects and containers should override it.
+     *
+     * @param writer A {@linkplain ProtocolResponseWriter} to write the data
+     * @param value  A concrete java implementation of the data type to be encoded
+     * @throws IOException on failed IO operations
+     */
+    public void encode(ProtocolResponseWriter writer, T value) throws IOException {
+        serialize(writer, value);
+    }
 }
@@ -1,7 +1,9 @@
 package com.pcloud.networking.serialization;
 
 import com.pcloud.networking.protocol.ProtocolReader;
+import com.pcloud.networking.protocol.ProtocolResponseReader;
 import com.pcloud.networking.protocol.ProtocolWriter;
+import com.pcloud.networking.protocol.ResponseBytesWriter;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -11,8 +13,11 @@ import org.junit.rules.ExpectedException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 
@@ -111,6 +116,98 @@ public class ArrayTypeAdapterTest {
         verify(writer).writeValue(expectedResult);
     }
 
+    @Test
+    public void deserializes_Number_And_String_Arrays() throws Exception {
+        int count = 150;
+        long[] numbers = new long[count];
+        List<String> strings = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            numbers[i] = i * 1000L;
+            strings.add("file" + (i % 10));
+        }
+        ProtocolResponseReader reader = arraysResponse(numbers, strings).createReader();
+        reader.beginResponse();
+        ArrayFields instance = Transformer.create().build().getTypeAdapter(ArrayFields.class).deserialize(reader);
+        reader.endResponse();
+
+        assertArrayEquals(numbers, instance.numbers);
+        assertEquals(count, instance.boxedNumbers.length);
+        assertEquals(Long.valueOf(numbers[count - 1]), instance.boxedNumbers[count - 1]);
+        assertEquals(count, instance.numberList.size());
+        assertEquals(Long.valueOf(numbers[count - 1]), instance.numberList.get(count - 1));
+        assertArrayEquals(strings.toArray(), instance.strings);
+        assertEquals(new LinkedHashSet<>(strings), instance.stringSet);
+    }
+
+    @Test
+    public void deserializes_Empty_Number_And_String_Arrays() throws Exception {
+        ProtocolResponseReader reader = arraysResponse(new long[0], new ArrayList<String>()).createReader();
+        reader.beginResponse();
+        ArrayFields instance = Transformer.create().build().getTypeAdapter(ArrayFields.class).deserialize(reader);
+
+        assertEquals(0, instance.numbers.length);
+        assertEquals(0, instance.boxedNumbers.length);
+        assertTrue(instance.numberList.isEmpty());
+        assertEquals(0, instance.strings.length);
+        assertTrue(instance.stringSet.isEmpty());
+    }
+
+    @Test
+    public void deserialize_Uses_Custom_Element_Adapters() throws Exception {
+        TypeAdapter<Long> negatingAdapter = new TypeAdapter<Long>() {
+            @Override
+            public Long deserialize(ProtocolReader reader) throws IOException {
+                return -reader.readNumber();
+            }
+
+            @Override
+            public void serialize(ProtocolWriter writer, Long value) throws IOException {
+                writer.writeValue(-value);
+            }
+        };
+        ProtocolResponseReader reader = arraysResponse(new long[]{1, 2}, new ArrayList<String>()).createReader();
+        reader.beginResponse();
+        ArrayFields instance = Transformer.create()
+                .addTypeAdapter(Long.class, negatingAdapter)
+                .build()
+                .getTypeAdapter(ArrayFields.class).deserialize(reader);
+
+        assertArrayEquals(new Long[]{-1L, -2L}, instance.boxedNumbers);
+        assertEquals(Arrays.asList(-1L, -2L), instance.numberList);
+    }
+
+    private static ResponseBytesWriter arraysResponse(long[] numbers, List<String> strings) throws IOException {
+        ResponseBytesWriter writer = new ResponseBytesWriter().beginObject();
+        for (String name : new String[]{"numbers", "boxedNumbers", "numberList"}) {
+            ResponseBytesWriter.ArrayWriter array = writer.writeKey(name).beginArray();
+            for (long number : numbers) {
+                array.write(number);
+            }
+            array.endArray();
+        }
+        for (String name : new String[]{"strings", "stringSet"}) {
+            ResponseBytesWriter.ArrayWriter array = writer.writeKey(name).beginArray();
+            for (String string : strings) {
+                array.write(string);
+            }
+            array.endArray();
+        }
+        return writer.endObject();
+    }
+
+    private static class ArrayFields {
+        @ParameterValue
+        private long[] numbers;
+        @ParameterValue
+        private Long[] boxedNumbers;
+        @ParameterValue
+        private List<Long> numberList;
+        @ParameterValue
+        private String[] strings;
+        @ParameterValue
+        private Set<String> stringSet;
+    }
+
     private static final TypeAdapter CUSTOM_OBJECT_ADAPTER = new TypeAdapter<CustomObject>() {
 
         @Override
@@ -1,13 +1,19 @@
 package com.pcloud.networking.serialization;
 
+import com.pcloud.networking.protocol.BytesReader;
+import com.pcloud.networking.protocol.BytesResponseWriter;
+import com.pcloud.networking.protocol.EncodedName;
 import com.pcloud.networking.protocol.ProtocolReader;
 import com.pcloud.networking.protocol.ProtocolResponseReader;
 import com.pcloud.networking.protocol.ProtocolWriter;
 import com.pcloud.networking.protocol.ResponseBytesWriter;
+import okio.Buffer;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -39,7 +45,7 @@ public class ClassTypeAdapterTest {
         object.aBoolean = expected;
         transformer.getTypeAdapter(Booleans.class).serialize(writer, object);
 
-        verify(writer).writeName(eq(PARAMETER_NAME));
+        verify(writer).writeEncodedName(eq(EncodedName.of(PARAMETER_NAME)));
         verify(writer).writeValue(eq(expected));
         verifyNoMoreInteractions(writer);
     }
@@ -52,8 +58,8 @@ public class ClassTypeAdapterTest {
         object.aBoolean = expected;
         object.aBooleanObject = expected;
         transformer.getTypeAdapter(Booleans.class).serialize(writer, object);
-        verify(writer).writeName(eq(PARAMETER_NAME));
-        verify(writer).writeName("aBooleanObject");
+        verify(writer).writeEncodedName(eq(EncodedName.of(PARAMETER_NAME)));
+        verify(writer).writeEncodedName(EncodedName.of("aBooleanObject"));
         verify(writer, times(2)).writeValue(eq(expected.booleanValue()));
         verifyNoMoreInteractions(writer);
     }
@@ -104,7 +110,7 @@ public class ClassTypeAdapterTest {
         object.aByte = expected;
         transformer.getTypeAdapter(Bytes.class).serialize(writer, object);
 
-        verify(writer).writeName(eq(PARAMETER_NAME));
+        verify(writer).writeEncodedName(eq(EncodedName.of(PARAMETER_NAME)));
         verify(writer).writeValue(eq((long) expected));
         verifyNoMoreInteractions(writer);
     }
@@ -116,8 +122,8 @@ public class ClassTypeAdapterTest {
         object.aByte = expected;
         object.aByteObject = expected;
         transformer.getTypeAdapter(Bytes.class).serialize(writer, object);
-        verify(writer).writeName(eq(PARAMETER_NAME));
-        verify(writer).writeName("aByteObject");
+        verify(writer).writeEncodedName(eq(EncodedName.of(PARAMETER_NAME)));
+        verify(writer).writeEncodedName(EncodedName.of("aByteObject"));
         verify(writer, times(2)).writeValue(eq(expected.longValue()));
         verifyNoMoreInteractions(writer);
     }
@@ -167,7 +173,7 @@ public class ClassTypeAdapterTest {
         object.aShort = expected;
         transformer.getTypeAdapter(Shorts.class).serialize(writer, object);
 
-        verify(writer).writeName(eq(PARAMETER_NAME));
+        verify(writer).writeEncodedName(eq(EncodedName.of(PARAMETER_NAME)));
         verify(writer).writeValue(eq((long) expected));
         verifyNoMoreInteractions(writer);
     }
@@ -179,8 +185,8 @@ public class ClassTypeAdapterTest {
         object.aShort = expected;
         object.aShortObject = expected;
         transformer.getTypeAdapter(Shorts.class).serialize(writer, object);
-        verify(writer).writeName(eq(PARAMETER_NAME));
-        verify(writer).writeName("aShortObject");
+        verify(writer).writeEncodedName(eq(EncodedName.of(PARAMETER_NAME)));
+        verify(writer).writeEncodedName(EncodedName.of("aShortObject"));
         verify(writer, times(2)).writeValue(eq(expected.longValue()));
         verifyNoMoreInteractions(writer);
     }
@@ -230,7 +236,7 @@ public class ClassTypeAdapterTest {
         object.anInt = expected;
         transformer.getTypeAdapter(Integers.class).serialize(writer, object);
 
-        verify(writer).writeName(eq(PARAMETER_NAME));
+        verify(writer).writeEncodedName(eq(EncodedName.of(PARAMETER_NAME)));
         verify(writer).writeValue(eq((long) expected));
         verifyNoMoreInteractions(writer);
     }
@@ -242,8 +248,8 @@ public class ClassTypeAdapterTest {
         object.anInt = expected;
         object.anIntObject = expected;
         transformer.getTypeAdapter(Integers.class).serialize(writer, object);
-        verify(writer).writeName(eq(PARAMETER_NAME));
-        verify(writer).writeName("anIntObject");
+        verify(writer).writeEncodedName(eq(EncodedName.of(PARAMETER_NAME)));
+        verify(writer).writeEncodedName(EncodedName.of("anIntObject"));
         verify(writer, times(2)).writeValue(eq(expected.longValue()));
         verifyNoMoreInteractions(writer);
     }
@@ -293,7 +299,7 @@ public class ClassTypeAdapterTest {
         object.aLong = expected;
         transformer.getTypeAdapter(Longs.class).serialize(writer, object);
 
-        verify(writer).writeName(eq(PARAMETER_NAME));
+        verify(writer).writeEncodedName(eq(EncodedName.of(PARAMETER_NAME)));
         verify(writer).writeValue(eq(expected));
         verifyNoMoreInteractions(writer);
     }
@@ -305,8 +311,8 @@ public class ClassTypeAdapterTest {
         object.aLong = expected;
         object.aLongObject = expected;
         transformer.getTypeAdapter(Longs.class).serialize(writer, object);
-        verify(writer).writeName(eq(PARAMETER_NAME));
-        verify(writer).writeName("aLongObject");
+        verify(writer).writeEncodedName(eq(EncodedName.of(PARAMETER_NAME)));
+        verify(writer).writeEncodedName(EncodedName.of("aLongObject"));
         verify(writer, times(2)).writeValue(eq(expected.longValue()));
         verifyNoMoreInteractions(writer);
     }
@@ -356,7 +362,7 @@ public class ClassTypeAdapterTest {
         object.aFloat = expected;
         transformer.getTypeAdapter(Floats.class).serialize(writer, object);
 
-        verify(writer).writeName(eq(PARAMETER_NAME));
+        verify(writer).writeEncodedName(eq(EncodedName.of(PARAMETER_NAME)));
         verify(writer).writeValue(eq(expected));
         verifyNoMoreInteractions(writer);
     }
@@ -368,8 +374,8 @@ public class ClassTypeAdapterTest {
         object.aFloat = expected;
         object.aFloatObject = expected;
         transformer.getTypeAdapter(Floats.class).serialize(writer, object);
-        verify(writer).writeName(eq(PARAMETER_NAME));
-        verify(writer).writeName("aFloatObject");
+        verify(writer).writeEncodedName(eq(EncodedName.of(PARAMETER_NAME)));
+        verify(writer).writeEncodedName(EncodedName.of("aFloatObject"));
         verify(writer, times(2)).writeValue(eq(expected.floatValue()));
         verifyNoMoreInteractions(writer);
     }
@@ -419,7 +425,7 @@ public class ClassTypeAdapterTest {
         object.aDouble = expected;
         transformer.getTypeAdapter(Doubles.class).serialize(writer, object);
 
-        verify(writer).writeName(eq(PARAMETER_NAME));
+        verify(writer).writeEncodedName(eq(EncodedName.of(PARAMETER_NAME)));
         verify(writer).writeValue(eq(expected));
         verifyNoMoreInteractions(writer);
     }
@@ -431,8 +437,8 @@ public class ClassTypeAdapterTest {
         object.aDouble = expected;
         object.aDoubleObject = expected;
         transformer.getTypeAdapter(Doubles.class).serialize(writer, object);
-        verify(writer).writeName(eq(PARAMETER_NAME));
-        verify(writer).writeName("aDoubleObject");
+        verify(writer).writeEncodedName(eq(EncodedName.of(PARAMETER_NAME)));
+        verify(writer).writeEncodedName(EncodedName.of("aDoubleObject"));
         verify(writer, times(2)).writeValue(eq(expected.doubleValue()));
         verifyNoMoreInteractions(writer);
     }
@@ -483,8 +489,8 @@ public class ClassTypeAdapterTest {
         object.aStringDefaultName = expected;
         transformer.getTypeAdapter(Strings.class).serialize(writer, object);
 
-        verify(writer).writeName(eq(PARAMETER_NAME));
-        verify(writer).writeName(eq("aStringDefaultName"));
+        verify(writer).writeEncodedName(eq(EncodedName.of(PARAMETER_NAME)));
+        verify(writer).writeEncodedName(eq(EncodedName.of("aStringDefaultName")));
         verify(writer, times(2)).writeValue(eq(expected));
         verifyNoMoreInteractions(writer);
     }
@@ -551,8 +557,8 @@ public class ClassTypeAdapterTest {
         object.aCustomType = object.aCustomTypeDefaultName = expected;
         transformer.getTypeAdapter(CustomTypes.class).serialize(writer, object);
 
-        verify(writer).writeName(eq(PARAMETER_NAME));
-        verify(writer).writeName(eq("aCustomTypeDefaultName"));
+        verify(writer).writeEncodedName(eq(EncodedName.of(PARAMETER_NAME)));
+        verify(writer).writeEncodedName(eq(EncodedName.of("aCustomTypeDefaultName")));
         verify(writer, times(2)).writeValue(eq(String.valueOf(expected.value)));
         verifyNoMoreInteractions(writer);
     }
@@ -591,6 +597,94 @@ public class ClassTypeAdapterTest {
         assertNull(instance.aCustomTypeDefaultName);
     }
 
+    /*
+     * Response encoding
+     * */
+
+    @Test
+    public void encode_Output_Deserializes_To_An_Equal_Instance() throws Exception {
+        Nested nested = new Nested();
+        nested.aString = "nested";
+        nested.aLong = Long.MAX_VALUE;
+        Encodable expected = new Encodable();
+        expected.aString = "value";
+        expected.aBoolean = true;
+        expected.aLong = 4096L;
+        expected.aDouble = 3.5;
+        expected.aStringList = Arrays.asList("value", "other", "value");
+        expected.aLongArray = new long[]{1L, -1L, 300L};
+        expected.aNested = nested;
+        expected.aNestedList = Arrays.asList(nested, nested);
+
+        Buffer buffer = new Buffer();
+        BytesResponseWriter responseWriter = new BytesResponseWriter(buffer);
+        responseWriter.beginResponse();
+        transformer.getTypeAdapter(Encodable.class).encode(responseWriter, expected);
+        responseWriter.endResponse();
+
+        BytesReader reader = new BytesReader(buffer);
+        reader.beginResponse();
+        Encodable actual = transformer.getTypeAdapter(Encodable.class).deserialize(reader);
+        reader.endResponse();
+
+        assertEquals(expected.aString, actual.aString);
+        assertEquals(expected.aBoolean, actual.aBoolean);
+        assertEquals(expected.aLong, actual.aLong);
+        assertEquals(expected.aDouble, actual.aDouble, 0.0);
+        assertEquals(expected.aStringList, actual.aStringList);
+        assertArrayEquals(expected.aLongArray, actual.aLongArray);
+        assertEquals(nested.aString, actual.aNested.aString);
+        assertEquals(nested.aLong, actual.aNested.aLong);
+        assertEquals(2, actual.aNestedList.size());
+        assertEquals(nested.aString, actual.aNestedList.get(1).aString);
+        assertTrue(buffer.exhausted());
+    }
+
+    @Test
+    public void transformer_encode_Writes_A_Response_Readable_By_The_Adapter() throws Exception {
+        Nested expected = new Nested();
+        expected.aString = "value";
+        expected.aLong = 42L;
+
+        Buffer buffer = new Buffer();
+        transformer.encode(new BytesResponseWriter(buffer), Nested.class, expected);
+
+        BytesReader reader = new BytesReader(buffer);
+        reader.beginResponse();
+        Nested actual = transformer.getTypeAdapter(Nested.class).deserialize(reader);
+        reader.endResponse();
+
+        assertEquals(expected.aString, actual.aString);
+        assertEquals(expected.aLong, actual.aLong);
+        assertTrue(buffer.exhausted());
+    }
+
+    private static class Encodable {
+        @ParameterValue
+        private String aString;
+        @ParameterValue
+        private boolean aBoolean;
+        @ParameterValue
+        private long aLong;
+        @ParameterValue
+        private double aDouble;
+        @ParameterValue
+        private List<String> aStringList;
+        @ParameterValue
+        private long[] aLongArray;
+        @ParameterValue
+        private Nested aNested;
+        @ParameterValue
+        private List<Nested> aNestedList;
+    }
+
+    private static class Nested {
+        @ParameterValue
+        private String aString;
+        @ParameterValue
+        private long aLong;
+    }
+
     private static class CustomTypeAdapter extends TypeAdapter<CustomType> {
 
         @Override
@@ -32,9 +32,14 @@ import java.util.concurrent.TimeUnit;
 public class IOUtils {
 
     private static final int HEX_255 = 0xff;
+    private static final int HEX_65535 = 0xffff;
+    private static final long HEX_FFFFFFFF_LONG = 0xffffffffL;
     private static final int EIGHT_KB = 8192;
     public static final int BITS_PER_BYTE = 8;
     public static final long HEX_255_LONG = 0xffL;
+    private static final int SHORT_BYTES = Short.SIZE / BITS_PER_BYTE;
+    private static final int INT_BYTES = Integer.SIZE / BITS_PER_BYTE;
+    private static final int LONG_BYTES = Long.SIZE / BITS_PER_BYTE;
 
     /**
      * Closes all {@linkplain Closeable} objects from an array
@@ -162,14 +167,34 @@ public class IOUtils {
      */
     public static long readNumberLe(BufferedSource source, int byteCount) throws IOException {
         source.require(byteCount);
-        if (byteCount > 1) {
-            long value = 0;
-            for (int i = 0, shift = 0; i < byteCount; i++, shift += BITS_PER_BYTE) {
-                value += ((long) source.readByte() & HEX_255_LONG) << shift;
-            }
-            return value;
-        } else {
-            return source.readByte() & HEX_255;
+        switch (byteCount) {
+            case 1:
+                return source.readByte() & HEX_255;
+            case SHORT_BYTES:
+                return source.readShortLe() & HEX_65535;
+            case INT_BYTES:
+                return source.readIntLe() & HEX_FFFFFFFF_LONG;
+            case LONG_BYTES:
+                return source.readLongLe();
+            default:
+                if (byteCount > LONG_BYTES) {
+                    throw new IllegalArgumentException("Cannot read a number of " + byteCount + " bytes.");
+                }
+                // Compose the odd widths out of 4, 2 and 1 byte reads, lowest bytes first.
+                long value = 0;
+                int shift = 0;
+                if ((byteCount & INT_BYTES) != 0) {
+                    value = source.readIntLe() & HEX_FFFFFFFF_LONG;
+                    shift = Integer.SIZE;
+                }
+                if ((byteCount & SHORT_BYTES) != 0) {
+                    value |= (long) (source.readShortLe() & HEX_65535) << shift;
+                    shift += Short.SIZE;
+                }
+                if ((byteCount & 1) != 0) {
+                    value |= (long) (source.readByte() & HEX_255) << shift;
+                }
+                return value;
         }
     }
 
@@ -51,6 +51,34 @@ public class IOUtilsTest {
         }
     }
 
+    @Test
+    public void readNumber_Reads_Unsigned_Values_Of_All_Widths() throws Exception {
+        for (int byteCount = 1; byteCount <= 8; byteCount++) {
+            Buffer okioSource = new Buffer();
+            for (int i = 0; i < byteCount; i++) {
+                okioSource.writeByte(0xff);
+            }
+            okioSource.writeByte(0x01);
+            long expected = byteCount == 8 ? -1L : (1L << (byteCount * 8)) - 1;
+            assertEquals(expected, IOUtils.readNumberLe(okioSource, byteCount));
+            assertEquals(1, okioSource.size());
+        }
+    }
+
+    @Test
+    public void readNumber_Reads_Consecutive_Values_Of_Mixed_Widths() throws Exception {
+        Buffer okioSource = new Buffer()
+                .write(numberToLittleEndianByteArray(0x030201L, 3))
+                .write(numberToLittleEndianByteArray(0x0706050403L, 5))
+                .write(numberToLittleEndianByteArray(0x0D0C0B0A0908L, 6))
+                .write(numberToLittleEndianByteArray(0x14131211100F0EL, 7));
+        assertEquals(0x030201L, IOUtils.readNumberLe(okioSource, 3));
+        assertEquals(0x0706050403L, IOUtils.readNumberLe(okioSource, 5));
+        assertEquals(0x0D0C0B0A0908L, IOUtils.readNumberLe(okioSource, 6));
+        assertEquals(0x14131211100F0EL, IOUtils.readNumberLe(okioSource, 7));
+        assertEquals(0, okioSource.size());
+    }
+
     private static void assertNumberReadCorrectly(int byteCount) throws IOException {
         long expected = generateNumber(byteCount);
         byte[] bytes = numberToLittleEndianByteArray(expected, byteCount);